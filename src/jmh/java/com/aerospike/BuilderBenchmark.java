@@ -0,0 +1,79 @@
+package com.aerospike;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.client.Key;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Measures building operations with the fluent builders, with and without executing them
+ * against {@link StubAerospikeClient}, so the time and allocations of the fluent layer can be
+ * seen without any network time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuilderBenchmark {
+    private Session session;
+    private DataSet dataSet;
+    private Key key;
+    private List<Key> keys;
+
+    @Setup
+    public void setup() {
+        session = StubAerospikeClient.createSession(Behavior.DEFAULT);
+        dataSet = DataSet.of("test", "benchmark");
+        key = dataSet.id(1);
+        keys = dataSet.ids(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Benchmark
+    public Object buildUpsert() {
+        return session.upsert(key)
+                .bin("name").setTo("Tim")
+                .bin("age").setTo(32)
+                .bin("city").setTo("Denver");
+    }
+
+    @Benchmark
+    public RecordStream executeUpsert() {
+        return session.upsert(key)
+                .bin("name").setTo("Tim")
+                .bin("age").setTo(32)
+                .bin("city").setTo("Denver")
+                .execute();
+    }
+
+    @Benchmark
+    public RecordStream executeBatchUpsert() {
+        return session.upsert(keys)
+                .bin("name").setTo("Tim")
+                .bin("age").setTo(32)
+                .execute();
+    }
+
+    @Benchmark
+    public RecordStream executePointRead() {
+        return session.query(key).executeSync();
+    }
+
+    @Benchmark
+    public RecordStream executeBatchRead() {
+        return session.query(keys).executeSync();
+    }
+}
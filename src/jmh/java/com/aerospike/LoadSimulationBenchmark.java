@@ -0,0 +1,126 @@
+package com.aerospike;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Log;
+import com.aerospike.client.ResultCode;
+import com.aerospike.exception.AeroException;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Drives the fluent layer from many threads against a {@link LoopbackAerospikeClient} with
+ * server-like latency on three nodes, one of which has occasional long pauses. Sample time mode
+ * reports the latency percentiles seen by callers, so the effect of the client's batching,
+ * coalescing and retries on the tail can be compared with the latency of the nodes. Commands
+ * failed by an injected result code are timed like any other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class LoadSimulationBenchmark {
+    private static final int RECORDS = 10_000;
+
+    /** The fraction of commands failed with KEY_BUSY */
+    @Param({"0", "0.01"})
+    public double keyBusy;
+
+    private LoopbackAerospikeClient loopback;
+    private Session session;
+    private DataSet dataSet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        loopback = LoopbackAerospikeClient.builder()
+                .namespace("test", false)
+                .nodes(3)
+                .latency(LatencyModel.logNormal(Duration.ofMicros(200), Duration.ofMillis(2)))
+                .latency(2, LatencyModel.logNormal(Duration.ofMicros(200), Duration.ofMillis(2))
+                        .withTail(0.001, Duration.ofMillis(50)))
+                .resultCode(ResultCode.KEY_BUSY, keyBusy)
+                .build();
+        session = loopback.createCluster().createSession(Behavior.DEFAULT);
+        dataSet = DataSet.of("test", "load");
+        for (int i = 0; i < RECORDS; i += 100) {
+            int[] ids = new int[100];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = i + j;
+            }
+            // Seeding must succeed even if result codes are being injected
+            while (true) {
+                try {
+                    session.upsert(dataSet.ids(ids)).bin("count").setTo(0).execute();
+                    break;
+                }
+                catch (AeroException e) {
+                    // Retry the batch
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // The number of injected failures, to compare with the tail latencies
+        if (Log.infoEnabled()) {
+            Log.info(loopback.toString());
+        }
+    }
+
+    @Benchmark
+    public Object pointRead() {
+        try {
+            return session.query(dataSet.id(ThreadLocalRandom.current().nextInt(RECORDS))).executeSync();
+        }
+        catch (AeroException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object batchRead() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Key> keys = dataSet.ids(random.nextInt(RECORDS), random.nextInt(RECORDS),
+                random.nextInt(RECORDS), random.nextInt(RECORDS), random.nextInt(RECORDS));
+        try {
+            return session.query(keys).executeSync();
+        }
+        catch (AeroException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object upsert() {
+        try {
+            return session.upsert(dataSet.id(ThreadLocalRandom.current().nextInt(RECORDS)))
+                    .bin("count").setTo(1)
+                    .execute();
+        }
+        catch (AeroException e) {
+            return e;
+        }
+    }
+}
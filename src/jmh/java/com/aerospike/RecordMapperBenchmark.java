@@ -0,0 +1,108 @@
+package com.aerospike;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.mapping.MappedRecord;
+import com.example.perf.Customer;
+import com.example.perf.CustomerMapper;
+
+/**
+ * Measures converting an object to bins and back with a {@link RecordMapper}, comparing the
+ * hand-written {@link CustomerMapper} with the mapper generated for an equivalent
+ * {@link MappedRecord} class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordMapperBenchmark {
+    @MappedRecord
+    public static class GeneratedCustomer {
+        public String firstName;
+        public String lastName;
+        public Date dob;
+        public long id;
+        public Customer.Status status;
+        public String phoneNum;
+        public String addrLine1;
+        public String addrCity;
+        public String addrState;
+        public String addrCountry;
+        public String addrZip;
+        public byte[] payload;
+    }
+
+    private final CustomerMapper mapper = new CustomerMapper();
+    private final StreamingRecordMapper<GeneratedCustomer> generatedMapper =
+            (StreamingRecordMapper<GeneratedCustomer>) new DefaultRecordMappingFactory().getMapper(GeneratedCustomer.class);
+    private final MapBinCursor cursor = new MapBinCursor();
+    private final Key key = new Key("test", "customer", 1);
+    private Customer customer;
+    private GeneratedCustomer generatedCustomer;
+    private Map<String, Object> bins;
+
+    @Setup
+    public void setup() {
+        customer = new Customer();
+        customer.setId(1);
+        customer.setFirstName("Tim");
+        customer.setLastName("Smith");
+        customer.setDob(new Date(0));
+        customer.setStatus(Customer.Status.GOLD);
+        customer.setPhoneNum("555-0100");
+        customer.setAddrLine1("1 Main Street");
+        customer.setAddrCity("Denver");
+        customer.setAddrState("CO");
+        customer.setAddrCountry("USA");
+        customer.setAddrZip("80202");
+        customer.setPayload(new byte[100]);
+
+        bins = new HashMap<>();
+        mapper.toMap(customer).forEach((name, value) -> bins.put(name, value.getObject()));
+
+        generatedCustomer = generatedMapper.fromMap(bins, key, 1);
+    }
+
+    @Benchmark
+    public Map<String, Value> toMap() {
+        return mapper.toMap(customer);
+    }
+
+    @Benchmark
+    public Customer fromMap() {
+        return mapper.fromMap(bins, key, 1);
+    }
+
+    @Benchmark
+    public Map<String, Value> toMapGenerated() {
+        return generatedMapper.toMap(generatedCustomer);
+    }
+
+    @Benchmark
+    public GeneratedCustomer fromMapGenerated() {
+        return generatedMapper.fromMap(bins, key, 1);
+    }
+
+    @Benchmark
+    public GeneratedCustomer fromBinsGenerated() {
+        return generatedMapper.fromBins(cursor.reset(bins), key, 1);
+    }
+}
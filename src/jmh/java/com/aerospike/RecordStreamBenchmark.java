@@ -0,0 +1,85 @@
+package com.aerospike;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Key;
+
+/**
+ * Measures the cost per result of consuming a {@link RecordStream}: over a list of results, over
+ * the records of a completed batch, and fed by a producer thread through an
+ * {@link AsyncRecordStream} small enough that backpressure applies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordStreamBenchmark {
+    private static final int RESULTS = 1000;
+
+    private List<RecordResult> results;
+    private List<BatchRecord> batchRecords;
+
+    @Setup
+    public void setup() {
+        results = new ArrayList<>(RESULTS);
+        batchRecords = new ArrayList<>(RESULTS);
+        for (int i = 0; i < RESULTS; i++) {
+            Key key = new Key("test", "benchmark", i);
+            results.add(new RecordResult(key, StubAerospikeClient.RECORD, i));
+            BatchRecord batchRecord = new BatchRead(key, true);
+            batchRecord.setRecord(StubAerospikeClient.RECORD);
+            batchRecords.add(batchRecord);
+        }
+    }
+
+    private static void consume(RecordStream stream, Blackhole blackhole) {
+        while (stream.hasNext()) {
+            blackhole.consume(stream.next());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void listStream(Blackhole blackhole) {
+        consume(new RecordStream(results, 0), blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void batchRecordStream(Blackhole blackhole) {
+        consume(new RecordStream(ArrayRecordStream.of(batchRecords, null, RecordResult::new, 0)), blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULTS)
+    public void asyncStream(Blackhole blackhole) throws InterruptedException {
+        AsyncRecordStream asyncStream = new AsyncRecordStream(64);
+        Thread producer = Thread.startVirtualThread(() -> {
+            for (RecordResult result : results) {
+                asyncStream.publish(result);
+            }
+            asyncStream.complete();
+        });
+        consume(new RecordStream(asyncStream), blackhole);
+        producer.join();
+    }
+}
@@ -0,0 +1,94 @@
+package com.aerospike;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.query.SortProperties;
+
+/**
+ * Measures sorting a {@link NavigatableRecordStream} and comparing values with
+ * {@link AerospikeComparator}, which the sort and the client side ordering of lists and maps
+ * are built on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+    @Param({"1000", "100000"})
+    public int records;
+
+    private List<RecordResult> results;
+    private final AerospikeComparator comparator = new AerospikeComparator();
+    private final AerospikeComparator caseInsensitive = new AerospikeComparator(false);
+    private List<Object> mixedValues;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        results = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            Map<String, Object> bins = new HashMap<>();
+            bins.put("name", "name" + random.nextInt(records));
+            bins.put("age", (long) random.nextInt(100));
+            results.add(new RecordResult(new Key("test", "benchmark", i), new Record(bins, 1, 0), i));
+        }
+        mixedValues = List.of(42L, "Denver", "denver", 3.5, List.of(1L, 2L), Map.of("a", 1L), new byte[] {1, 2}, true);
+    }
+
+    // The records are read and sorted when the first one is asked for
+    @Benchmark
+    public RecordResult sortByOneBin() {
+        return new NavigatableRecordStream(new RecordStream(results, 0))
+                .sortBy(SortProperties.ascending("age"))
+                .next();
+    }
+
+    @Benchmark
+    public RecordResult sortByTwoBins() {
+        return new NavigatableRecordStream(new RecordStream(results, 0))
+                .sortBy(SortProperties.descending("age"), SortProperties.ascendingIgnoreCase("name"))
+                .next();
+    }
+
+    @Benchmark
+    public RecordResult topTen() {
+        return new NavigatableRecordStream(new RecordStream(results, 0))
+                .topK(10)
+                .sortBy(SortProperties.ascending("age"))
+                .next();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int compareMixedValues() {
+        int sum = 0;
+        for (Object left : mixedValues) {
+            for (Object right : mixedValues) {
+                sum += comparator.compare(left, right);
+                sum += caseInsensitive.compare(left, right);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,114 @@
+package com.aerospike;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.policy.Behavior;
+
+/**
+ * An in-process {@link IAerospikeClient} for benchmarks, which answers every read and write
+ * immediately with the same record, so that only the cost of the fluent layer is measured.
+ *
+ * <p>The cluster has no nodes, so info commands, and with them the index monitor, find nothing.
+ * It holds the AP namespace {@code test}. Use {@link LoopbackAerospikeClient} where records
+ * need to be stored, or latency simulated.</p>
+ */
+public final class StubAerospikeClient {
+    /** The record returned by every read and write */
+    public static final Record RECORD;
+    static {
+        Map<String, Object> bins = new HashMap<>();
+        bins.put("name", "Tim");
+        bins.put("age", 32L);
+        bins.put("city", "Denver");
+        RECORD = new Record(bins, 1, 0);
+    }
+
+    private static final com.aerospike.client.cluster.Cluster CLUSTER =
+            LoopbackAerospikeClient.clientCluster(Map.of("test", false));
+
+    private StubAerospikeClient() {
+    }
+
+    /**
+     * @return a client which answers every operation locally
+     */
+    public static IAerospikeClient create() {
+        return (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> invoke(proxy, method, args));
+    }
+
+    /**
+     * @return a session on a cluster whose client answers every operation locally
+     */
+    public static Session createSession(Behavior behavior) {
+        return new Cluster(create(), "benchmark", SystemSettings.DEFAULT).createSession(behavior);
+    }
+
+    private static Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+        case "get":
+        case "getHeader":
+        case "operate":
+            if (args.length == 2 && args[1] instanceof List<?> records) {
+                for (Object record : records) {
+                    ((BatchRecord) record).setRecord(RECORD);
+                }
+                return true;
+            }
+            if (args.length >= 2 && args[1] instanceof Key[] keys) {
+                Record[] records = new Record[keys.length];
+                Arrays.fill(records, RECORD);
+                return records;
+            }
+            if (args.length >= 2 && args[1] instanceof Key) {
+                return RECORD;
+            }
+            break;
+        case "getCluster":
+            return CLUSTER;
+        case "exists":
+        case "isConnected":
+            if (method.getReturnType() == boolean.class) {
+                return true;
+            }
+            break;
+        case "toString":
+            return "StubAerospikeClient";
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        case "equals":
+            return proxy == args[0];
+        default:
+            break;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.aerospike.policy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+import com.aerospike.policy.Behavior.Selectors;
+
+/**
+ * Measures resolving the {@link Settings} of an operation from a {@link Behavior}, which every
+ * operation does at least once, for the default behavior and for one derived from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BehaviorBenchmark {
+    private Behavior derived;
+
+    @Setup
+    public void setup() {
+        derived = Behavior.DEFAULT.deriveWithChanges("benchmark", builder -> builder
+                .on(Selectors.writes().batch(), ops -> ops.maxRecordsPerBatch(500)));
+    }
+
+    @Benchmark
+    public Settings defaultPointRead() {
+        return Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.POINT, Behavior.Mode.AP);
+    }
+
+    @Benchmark
+    public Settings defaultBatchWriteByNamespaceMode() {
+        return Behavior.DEFAULT.getSettings(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, true);
+    }
+
+    @Benchmark
+    public Settings derivedBatchWrite() {
+        return derived.getSettings(OpKind.WRITE_RETRYABLE, OpShape.BATCH, Behavior.Mode.CP);
+    }
+}
@@ -0,0 +1,107 @@
+package com.aerospike.policy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+
+/**
+ * Compares building a client policy from {@link Settings} on every call against cloning or
+ * sharing the precomputed template.
+ *
+ * <p>Run {@link #main(String[])} from the test classpath. The GC profiler is enabled so the
+ * allocation rate of each approach is reported alongside its timing.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyTemplateBenchmark {
+    private Settings writeSettings;
+    private Settings batchSettings;
+    private Settings readSettings;
+    private Settings querySettings;
+
+    @Setup
+    public void setup() {
+        writeSettings = Behavior.DEFAULT.getSettings(OpKind.WRITE_RETRYABLE, OpShape.POINT, Behavior.Mode.AP);
+        batchSettings = Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.BATCH, Behavior.Mode.AP);
+        readSettings = Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.POINT, Behavior.Mode.AP);
+        querySettings = Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.QUERY, Behavior.Mode.AP);
+    }
+
+    @Benchmark
+    public WritePolicy writePolicyPerCall() {
+        return writeSettings.newWritePolicy();
+    }
+
+    @Benchmark
+    public WritePolicy writePolicyFromTemplate() {
+        return writeSettings.asWritePolicy();
+    }
+
+    @Benchmark
+    public WritePolicy writePolicyShared() {
+        return writeSettings.getSharedWritePolicy();
+    }
+
+    @Benchmark
+    public BatchPolicy batchPolicyPerCall() {
+        return batchSettings.newBatchPolicy();
+    }
+
+    @SuppressWarnings("removal")
+    @Benchmark
+    public BatchPolicy batchPolicyFromTemplate() {
+        return batchSettings.asBatchPolicy();
+    }
+
+    @Benchmark
+    public Policy readPolicyPerCall() {
+        return readSettings.newReadPolicy();
+    }
+
+    @Benchmark
+    public Policy readPolicyFromTemplate() {
+        return readSettings.asReadPolicy();
+    }
+
+    @Benchmark
+    public QueryPolicy queryPolicyFromTemplate() {
+        return querySettings.asQueryPolicy();
+    }
+
+    @Benchmark
+    public Policy readPolicyShared() {
+        return readSettings.getSharedReadPolicy();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PolicyTemplateBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
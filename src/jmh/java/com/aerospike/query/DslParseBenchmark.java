@@ -0,0 +1,57 @@
+package com.aerospike.query;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aerospike.Session;
+import com.aerospike.StubAerospikeClient;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Compares parsing a DSL where clause every time against looking it up in the cluster's
+ * {@link DslCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DslParseBenchmark {
+    @Param({
+        "$.age > 21",
+        "$.age > 21 and $.city == 'Denver' and ($.status == 'ACTIVE' or $.vip == true)"
+    })
+    public String dsl;
+
+    private Session session;
+    private WhereClauseProcessor processor;
+
+    @Setup
+    public void setup() {
+        session = StubAerospikeClient.createSession(Behavior.DEFAULT);
+        processor = WhereClauseProcessor.from(false, dsl);
+    }
+
+    @Benchmark
+    public ParseResult parse() {
+        return processor.parse(dsl, "test", session);
+    }
+
+    @Benchmark
+    public ParseResult parseCached() {
+        return processor.process("test", session);
+    }
+}
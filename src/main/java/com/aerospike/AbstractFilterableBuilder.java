@@ -3,9 +3,7 @@ package com.aerospike;
 import com.aerospike.client.AerospikeException;
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.ResultCode;
-import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.exception.AeroException;
 import com.aerospike.policy.Settings;
 import com.aerospike.query.WhereClauseProcessor;
@@ -40,8 +38,7 @@ public abstract class AbstractFilterableBuilder {
         if (this.dsl == null) {
             return null;
         }
-        ParseResult parseResult = this.dsl.process(namespace, session);
-        return Exp.build(parseResult.getExp());
+        return this.dsl.processExpression(namespace, session);
     }
     
     /**
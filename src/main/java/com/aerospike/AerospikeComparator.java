@@ -1,9 +1,9 @@
 package com.aerospike;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -30,13 +30,40 @@ public class AerospikeComparator implements Comparator<Object> {
     }
     
     private final boolean caseSensitiveStrings;
+    // The encodings of the maps compared, by identity, or null if they are not kept
+    private final IdentityHashMap<Map<?, ?>, byte[]> mapEncodings;
+    private final int maxCachedMaps;
 
     public AerospikeComparator() {
         this(true);
     }
     
     public AerospikeComparator(boolean caseSensitiveStrings) {
+        this(caseSensitiveStrings, 0);
+    }
+    
+    private AerospikeComparator(boolean caseSensitiveStrings, int maxCachedMaps) {
         this.caseSensitiveStrings = caseSensitiveStrings;
+        this.maxCachedMaps = maxCachedMaps;
+        this.mapEncodings = maxCachedMaps > 0 ? new IdentityHashMap<>() : null;
+    }
+    
+    /**
+     * Create a comparator which keeps the encoding of each map it compares, so a map compared many
+     * times, as during a sort, is only encoded once. The encodings are looked up by identity, so the
+     * maps must not be modified while the comparator is in use.
+     * 
+     * <p>The comparator is not thread safe. It should be owned by a single sort and discarded with it.</p>
+     * 
+     * @param caseSensitiveStrings false to order strings ignoring case
+     * @param maxCachedMaps the number of encodings to keep. Once reached, the encodings are discarded
+     * and the cache is refilled.
+     */
+    public static AerospikeComparator withMapCache(boolean caseSensitiveStrings, int maxCachedMaps) {
+        if (maxCachedMaps <= 0) {
+            throw new IllegalArgumentException("The number of cached maps must be > 0, not " + maxCachedMaps);
+        }
+        return new AerospikeComparator(caseSensitiveStrings, maxCachedMaps);
     }
     
     private boolean isByteType(Class<?> clazz) {
@@ -65,47 +92,42 @@ public class AerospikeComparator implements Comparator<Object> {
         }
     }
     
-    private int compareList(List<Object> l1, List<Object> l2) {
-        int l1Size = l1.size();
-        int l2Size = l2.size();
-        for (int index = 0; index < l1.size(); index++) {
-            if (index >= l2Size) {
-                // l1 is longer
-                return -1;
-            }
-            int result = compare(l1.get(index), l2.get(index));
+    private int compareList(List<?> l1, List<?> l2) {
+        // Lists sort element by element, then a list which is a prefix of the other sorts first
+        Iterator<?> i1 = l1.iterator();
+        Iterator<?> i2 = l2.iterator();
+        while (i1.hasNext() && i2.hasNext()) {
+            int result = this.compare(i1.next(), i2.next());
             if (result != 0) {
                 return result;
             }
         }
-        return l1Size == l2Size ? 0 : 1;
+        return Integer.compare(l1.size(), l2.size());
     }
     
-    private int compareMap(Map<Object, Object> m1, Map<Object, Object> m2) {
-        // Maps sort on the number of keys, then each key in sorted order
-        if (m1.size() == m2.size()) {
-            List<Object> sortedKeys1 = new ArrayList<Object>(m1.keySet());
-            Collections.sort(sortedKeys1, this);
-            List<Object> sortedKeys2 = new ArrayList<Object>(m2.keySet());
-            Collections.sort(sortedKeys2, this);
-            int result = compareList(sortedKeys1, sortedKeys2);
-            if (result != 0) {
-                return result;
-            }
-            // Go value by value in sorted key order
-            for (int i = 0; i < sortedKeys1.size(); i++) {
-                Object v1 = m1.get(sortedKeys1.get(i));
-                Object v2 = m2.get(sortedKeys2.get(i));
-                result = this.compare(v1, v2);
-                if (result != 0) {
-                    return result;
-                }
-            }
-            return 0;
+    private int compareMap(Map<?, ?> m1, Map<?, ?> m2) {
+        // Maps sort on the number of keys, then each key in sorted order, then each value in
+        // sorted key order. Both maps are encoded, which sorts their keys once rather than on
+        // every key comparison.
+        if (m1.size() != m2.size()) {
+            return Integer.compare(m1.size(), m2.size());
         }
-        else {
-            return m1.size() - m2.size();
+        return CanonicalValueEncoding.compare(encode(m1), encode(m2));
+    }
+    
+    private byte[] encode(Map<?, ?> map) {
+        if (mapEncodings == null) {
+            return CanonicalValueEncoding.encode(map, caseSensitiveStrings);
+        }
+        byte[] encoded = mapEncodings.get(map);
+        if (encoded == null) {
+            if (mapEncodings.size() >= maxCachedMaps) {
+                mapEncodings.clear();
+            }
+            encoded = CanonicalValueEncoding.encode(map, caseSensitiveStrings);
+            mapEncodings.put(map, encoded);
         }
+        return encoded;
     }
     
     @Override
@@ -113,7 +135,6 @@ public class AerospikeComparator implements Comparator<Object> {
         return compare(o1, o2, false);
     }
     
-    @SuppressWarnings("unchecked")
     public int compare(Object o1, Object o2, boolean replaceMapsWithOrderedLists) {
         AsType t1 = getType(o1);
         AsType t2 = getType(o2);
@@ -136,11 +157,15 @@ public class AerospikeComparator implements Comparator<Object> {
                 return ((String)o1).compareToIgnoreCase((String)o2);
             }
         case LIST:
-            return compareList((List<Object>)o1, (List<Object>)o2);
+            return compareList((List<?>)o1, (List<?>)o2);
         case MAP:
-            return compareMap((Map<Object, Object>)o1, (Map<Object, Object>)o2);
+            return compareMap((Map<?, ?>)o1, (Map<?, ?>)o2);
         case BYTES:
-            return Arrays.compare((byte [])o1, (byte [])o2);
+            if (o1 instanceof byte[] b1 && o2 instanceof byte[] b2) {
+                // As the server, bytes are compared unsigned
+                return Arrays.compareUnsigned(b1, b2);
+            }
+            return CanonicalValueEncoding.compare(CanonicalValueEncoding.encode(o1, true), CanonicalValueEncoding.encode(o2, true));
         case DOUBLE:
             return Double.compare(((Number)o1).doubleValue(), ((Number)o2).doubleValue());
         case OTHER:
@@ -0,0 +1,165 @@
+package com.aerospike;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.query.RecordStreamImpl;
+
+/**
+ * A stream over results which are already fully in memory, such as the results of a completed
+ * batch call. Unlike {@link AsyncRecordStream} there is no queue, no copying and no locking:
+ * the stream simply walks the underlying list or array.
+ *
+ * <p>When backed by {@link BatchRecord}s, the {@link RecordResult} for each entry is only
+ * created when it is read, so results which are never consumed cost nothing. The stream also
+ * supports {@link #size()} and random access through {@link #get(int)}, which are both
+ * bounded by any limit passed at construction.</p>
+ *
+ * <p>Like the other stream implementations, an instance is intended to be consumed by a single thread.</p>
+ */
+public final class ArrayRecordStream implements RecordStreamImpl {
+    /**
+     * Converts a {@code BatchRecord} into a {@code RecordResult}. The index is the position
+     * of the batch record in the original batch.
+     */
+    @FunctionalInterface
+    public interface BatchRecordConverter {
+        RecordResult convert(BatchRecord batchRecord, int index);
+    }
+
+    private final List<RecordResult> results;
+    private final List<? extends BatchRecord> batchRecords;
+    private final BatchRecordConverter converter;
+    // Positions in batchRecords which are visible in this stream, null if all are visible
+    private final int[] positions;
+    private final int size;
+    private int current = 0;
+    private boolean isFirstPage = true;
+    private boolean closed = false;
+
+    private ArrayRecordStream(List<RecordResult> results, List<? extends BatchRecord> batchRecords,
+            BatchRecordConverter converter, int[] positions, int available, long limit) {
+        this.results = results;
+        this.batchRecords = batchRecords;
+        this.converter = converter;
+        this.positions = positions;
+        this.size = (limit > 0 && limit < available) ? (int) limit : available;
+    }
+
+    /**
+     * Create a stream over an existing list of results. The list is not copied, so it must not be
+     * modified while the stream is in use.
+     *
+     * @param results the results to stream
+     * @param limit the maximum number of results to return (0 or negative means no limit)
+     */
+    public static ArrayRecordStream of(List<RecordResult> results, long limit) {
+        return new ArrayRecordStream(results, null, null, null, results.size(), limit);
+    }
+
+    /**
+     * Create a stream over the {@code BatchRecord}s of a completed batch, converting each entry
+     * lazily as it is read.
+     *
+     * @param batchRecords the records passed to and populated by the batch call
+     * @param include determines whether the batch record at the given position should be part of
+     * the stream. This only looks at the position so can be evaluated cheaply up front. Pass
+     * {@code null} to include every record.
+     * @param converter creates the {@code RecordResult} for an included batch record
+     * @param limit the maximum number of results to return (0 or negative means no limit)
+     */
+    public static ArrayRecordStream of(List<? extends BatchRecord> batchRecords, IntPredicate include,
+            BatchRecordConverter converter, long limit) {
+        if (converter == null) {
+            throw new IllegalArgumentException("converter cannot be null");
+        }
+        int total = batchRecords.size();
+        if (include == null) {
+            return new ArrayRecordStream(null, batchRecords, converter, null, total, limit);
+        }
+        int maxNeeded = (limit > 0 && limit < total) ? (int) limit : total;
+        int[] positions = new int[maxNeeded];
+        int count = 0;
+        for (int i = 0; i < total && count < maxNeeded; i++) {
+            if (include.test(i)) {
+                positions[count++] = i;
+            }
+        }
+        if (count == total) {
+            // Nothing was filtered out, avoid the indirection.
+            return new ArrayRecordStream(null, batchRecords, converter, null, total, limit);
+        }
+        return new ArrayRecordStream(null, batchRecords, converter, positions, count, limit);
+    }
+
+    /**
+     * Create a stream over an array of {@code BatchRecord}s. The array is wrapped, not copied.
+     *
+     * @see #of(List, IntPredicate, BatchRecordConverter, long)
+     */
+    public static ArrayRecordStream of(BatchRecord[] batchRecords, IntPredicate include,
+            BatchRecordConverter converter, long limit) {
+        return of(Arrays.asList(batchRecords), include, converter, limit);
+    }
+
+    /**
+     * @return the total number of results in this stream, irrespective of how many have been read.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of results which have not been read yet.
+     */
+    public int remaining() {
+        return closed ? 0 : size - current;
+    }
+
+    /**
+     * Random access to a result in this stream. This does not affect the iteration position.
+     *
+     * @param index the index of the result, between 0 and {@link #size()} - 1
+     * @return the result at that position
+     */
+    public RecordResult get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for stream of size " + size);
+        }
+        if (results != null) {
+            return results.get(index);
+        }
+        int position = positions == null ? index : positions[index];
+        return converter.convert(batchRecords.get(position), position);
+    }
+
+    @Override
+    public boolean hasMoreChunks() {
+        if (isFirstPage) {
+            isFirstPage = false;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && current < size;
+    }
+
+    @Override
+    public RecordResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return get(current++);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
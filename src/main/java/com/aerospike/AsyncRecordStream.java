@@ -8,6 +8,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -17,18 +18,31 @@ import com.aerospike.query.RecordStreamImpl;
 //A push-driven stream that supports backpressure and cancellation.
 public final class AsyncRecordStream implements AutoCloseable, Iterable<RecordResult>, RecordStreamImpl {
     private static final Object END = new Object();
+    private static final Runnable NOTHING = () -> {};
     private static final class Err { final Throwable t; Err(Throwable t){ this.t = t; } }
 
     private final BlockingQueue<Object> queue;
     private final AtomicBoolean completed = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final AtomicBoolean isFirstPage = new AtomicBoolean(true);
+    // Run once when the consumer closes the stream, to stop producers which may be blocked elsewhere
+    private final AtomicReference<Runnable> onClose = new AtomicReference<>();
     private Iterator<RecordResult> internalIterator = null;
+    // Null unless metrics are enabled
+    private final ClientMetrics metrics;
 
     // Optional: give producers a way to see if they should stop.
     private final BooleanSupplier cancelled = () -> closed.get() || completed.get();
 
     public AsyncRecordStream(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity the number of results which can be waiting to be consumed before producers block
+     * @param metrics if not null, the queue depth and the time producers are blocked are recorded here
+     */
+    public AsyncRecordStream(int capacity, ClientMetrics metrics) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("capacity must be > 0");
         }
@@ -36,6 +50,7 @@ public final class AsyncRecordStream implements AutoCloseable, Iterable<RecordRe
         // Without this, if the queue is full when complete() or error() is called,
         // the terminal marker cannot be enqueued, causing consumers to hang forever.
         this.queue = new ArrayBlockingQueue<>(capacity + 1);
+        this.metrics = metrics;
     }
     
     private Iterator<RecordResult> getIterator() {
@@ -58,6 +73,24 @@ public final class AsyncRecordStream implements AutoCloseable, Iterable<RecordRe
         if (cancelled.getAsBoolean()) {
 			return false;
 		}
+        if (metrics == null) {
+            return offer(result);
+        }
+        if (queue.offer(result)) {
+            metrics.streamResultQueued();
+            return true;
+        }
+        // The queue is full, so time how long this producer is held back
+        long start = System.nanoTime();
+        boolean published = offer(result);
+        metrics.recordBackpressureWait(System.nanoTime() - start);
+        if (published) {
+            metrics.streamResultQueued();
+        }
+        return published;
+    }
+
+    private boolean offer(RecordResult result) {
         // Block with backpressure, but wake up promptly if closed/completed
         while (true) {
             if (cancelled.getAsBoolean()) {
@@ -105,13 +138,53 @@ public final class AsyncRecordStream implements AutoCloseable, Iterable<RecordRe
     /** A lightweight cancellation token for producers. */
     public BooleanSupplier cancelled() { return cancelled; }
 
+    /**
+     * For producers: run an action when the stream is closed, for example to close the source
+     * a producer is blocked reading from. If the stream is already closed it is run immediately.
+     * Only one action can be registered.
+     */
+    public void onClose(Runnable action) {
+        Runnable previous = onClose.compareAndExchange(null, action);
+        if (previous == NOTHING) {
+            // Closed before the action was registered
+            action.run();
+            return;
+        }
+        if (previous != null) {
+            throw new IllegalStateException("An action to run on close has already been registered");
+        }
+        if (closed.get()) {
+            runOnClose();
+        }
+    }
+
+    private void runOnClose() {
+        Runnable action = onClose.getAndSet(NOTHING);
+        if (action != null && action != NOTHING) {
+            action.run();
+        }
+    }
+
     /** Cancel consumption & production early. Idempotent. */
     @Override
     public void close() {
         if (closed.compareAndSet(false, true)) {
             // Drain quickly to keep memory bounded, then unblock consumer.
-            queue.clear();
+            if (metrics == null) {
+                queue.clear();
+            }
+            else {
+                int discarded = 0;
+                Object o;
+                while ((o = queue.poll()) != null) {
+                    if (o instanceof RecordResult) {
+                        discarded++;
+                    }
+                }
+                metrics.streamResultsRemoved(discarded);
+            }
             queue.offer(END);
+            runOnClose();
         }
     }
 
@@ -151,6 +224,9 @@ public final class AsyncRecordStream implements AutoCloseable, Iterable<RecordRe
                             completed.set(true);
                             return END;
                         }
+                        if (metrics != null && o instanceof RecordResult) {
+                            metrics.streamResultsRemoved(1);
+                        }
                         return o;
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
@@ -164,6 +164,10 @@ public class BackgroundOperationBuilder extends AbstractOperationBuilder<Backgro
      * and immediately returns an ExecuteTask that can be used to monitor progress
      * and completion.</p>
      * 
+     * <p>Cached copies of the set's records in the session's {@link RecordCache} are
+     * discarded when the operation is started. Records read while it is still running
+     * may be cached with their earlier values, for at most the cache's maximum staleness.</p>
+     * 
      * @return ExecuteTask for monitoring the background operation
      * @throws com.aerospike.client.AerospikeException if the operation fails to start
      */
@@ -188,7 +192,9 @@ public class BackgroundOperationBuilder extends AbstractOperationBuilder<Backgro
         WritePolicy wp = settingsToWritePolicy(settings, filterExp);
         
         // Execute background operation and return task
-        return session.getClient().execute(wp, stmt, operations);
+        ExecuteTask task = session.getClient().execute(wp, stmt, operations);
+        session.invalidateCachedSet(dataset.getNamespace(), dataset.getSet());
+        return task;
     }
     
     /**
@@ -199,7 +205,7 @@ public class BackgroundOperationBuilder extends AbstractOperationBuilder<Backgro
      * @return WritePolicy configured for the background operation
      */
     private WritePolicy settingsToWritePolicy(Settings settings, Expression filterExp) {
-        WritePolicy wp = new WritePolicy(settings.asWritePolicy());
+        WritePolicy wp = settings.asWritePolicy();
         wp.filterExp = filterExp;
         wp.recordExistsAction = recordExistsActionFromOpType(opType);
         wp.expiration = getExpirationAsInt();
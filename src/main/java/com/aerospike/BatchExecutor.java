@@ -1,8 +1,11 @@
 package com.aerospike;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntPredicate;
 
+import com.aerospike.client.AerospikeException;
 import com.aerospike.client.BatchDelete;
 import com.aerospike.client.BatchRead;
 import com.aerospike.client.BatchRecord;
@@ -36,6 +39,13 @@ import com.aerospike.policy.Settings;
  *   <li>Query/read operations - converted to BatchRead with specified bins</li>
  * </ul>
  * </p>
+ * 
+ * <p>When executed synchronously, consecutive writes to the same keys which only put bin values
+ * are sent as one record with the operations of both, for example several upserts chained on one
+ * key. Bin puts return no results and cannot fail on their own, so each of the original writes
+ * is given the same result it would have had if sent alone: the record's metadata, or the
+ * failure of the record as a whole. The merged writes are applied or fail together, as they are
+ * one write on the server.</p>
  */
 class BatchExecutor {
     
@@ -50,9 +60,33 @@ class BatchExecutor {
      */
     public static RecordStream execute(Session session, List<OperationSpec> specs, 
                                         Expression defaultWhereClause, Txn txn) {
+        return execute(session, specs, defaultWhereClause, txn, false);
+    }
+    
+    /**
+     * Execute a batch of heterogeneous operations without waiting for it to complete.
+     * Results are published into the returned stream as they arrive from each node, so
+     * they may not be in the order the operations were specified. Each result's index
+     * is the position of the operation in the batch.
+     * 
+     * @param session the session to use for execution
+     * @param specs the list of operation specifications
+     * @param defaultWhereClause optional default filter for operations without explicit where clause
+     * @param txn optional transaction to use
+     * @return RecordStream which will receive the results of all operations
+     */
+    public static RecordStream executeAsync(Session session, List<OperationSpec> specs, 
+                                             Expression defaultWhereClause, Txn txn) {
+        return execute(session, specs, defaultWhereClause, txn, true);
+    }
+    
+    private static RecordStream execute(Session session, List<OperationSpec> specs, 
+                                         Expression defaultWhereClause, Txn txn, boolean async) {
         if (specs.isEmpty()) {
             return new RecordStream();
         }
+        ClientMetrics metrics = session.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         
         // Get the namespace from the first key
         String namespace = specs.get(0).keys.get(0).namespace;
@@ -76,18 +110,90 @@ class BatchExecutor {
             // Determine which filter to use - per-operation or default
             Expression filterToUse = spec.whereClause != null ? spec.whereClause : defaultWhereClause;
             
-            // Create BatchRecord(s) for each key in this spec
+            // Create BatchRecord(s) for each key in this spec. The keys share the policy and
+            // operations of the first record, so the filter expression is reused rather than
+            // re-packed and the client can mark the following records as repeats of the first
+            BatchRecord first = null;
             for (Key key : spec.keys) {
-                BatchRecord batchRecord = createBatchRecord(spec, key, filterToUse, settings);
+                BatchRecord batchRecord = first == null
+                        ? createBatchRecord(spec, key, filterToUse, settings)
+                        : withKey(first, key);
+                if (first == null) {
+                    first = batchRecord;
+                }
                 batchRecords.add(batchRecord);
             }
         }
         
-        // Execute the batch
-        session.getClient().operate(batchPolicy, batchRecords);
+        if (async) {
+            // The batch completes after this returns, so it is timed when it completes
+            long serverStart = metrics == null ? 0 : System.nanoTime();
+            return StreamingBatch.execute(session, batchPolicy, batchRecords, settings,
+                    includeFilter(batchRecords, specs), resultConverter(settings), 0,
+                    metrics == null ? null : failure -> {
+                        long end = System.nanoTime();
+                        metrics.record(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, namespace,
+                                StreamingBatch.resultCodeOf(failure), end - start, end - serverStart);
+                    });
+        }
+        
+        // Consecutive writes to the same records are sent as one write per record, and each of
+        // the original records is given the result of the write it was merged into
+        int[] sentIndex = mergeableWrites(specs, defaultWhereClause) ? new int[batchRecords.size()] : null;
+        List<BatchRecord> recordsToSend = sentIndex == null
+                ? batchRecords
+                : mergeConsecutiveWrites(batchRecords, specs, defaultWhereClause, sentIndex);
         
-        // Convert results to RecordStream
-        return buildRecordStream(batchRecords, specs, settings);
+        // Execute the batch, split into sub-batches if it exceeds the configured batch size
+        long serverStart = metrics == null ? 0 : System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            WriteBatcher batcher = session.getWriteBatcher();
+            if (batcher != null && txn == null && recordsToSend.size() == 1 && recordsToSend.get(0).hasWrite) {
+                // A single record write can share a batch with writes from other threads
+                batcher.execute(recordsToSend.get(0), batchPolicy);
+            }
+            else {
+                BatchSplitter.operate(session.getClient(), batchPolicy, recordsToSend, settings);
+            }
+        }
+        catch (AerospikeException ae) {
+            resultCode = ae.getResultCode();
+            throw ae;
+        }
+        catch (RuntimeException e) {
+            resultCode = ResultCode.CLIENT_ERROR;
+            throw e;
+        }
+        finally {
+            session.invalidateCachedWrites(batchRecords);
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.record(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, namespace, resultCode, end - start, end - serverStart);
+            }
+        }
+        if (sentIndex != null) {
+            copyMergedResults(recordsToSend, batchRecords, sentIndex);
+        }
+        
+        // Convert results to RecordStream. Results are converted lazily as the stream is consumed,
+        // so the batch has already been recorded and each conversion is timed on its own
+        ArrayRecordStream.BatchRecordConverter converter = resultConverter(settings);
+        if (metrics != null) {
+            converter = timed(converter, metrics, namespace);
+        }
+        return new RecordStream(ArrayRecordStream.of(
+                batchRecords, includeFilter(batchRecords, specs), converter, 0));
+    }
+    
+    private static ArrayRecordStream.BatchRecordConverter timed(ArrayRecordStream.BatchRecordConverter converter,
+            ClientMetrics metrics, String namespace) {
+        return (br, i) -> {
+            long start = System.nanoTime();
+            RecordResult result = converter.convert(br, i);
+            metrics.recordResultConversion(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, namespace, System.nanoTime() - start);
+            return result;
+        };
     }
     
     /**
@@ -117,6 +223,153 @@ class BatchExecutor {
         }
     }
     
+    /**
+     * Create a BatchRecord for another key of the same spec, sharing the policy and operations of
+     * a record already created for that spec.
+     */
+    private static BatchRecord withKey(BatchRecord template, Key key) {
+        if (template instanceof BatchWrite write) {
+            return new BatchWrite(write.policy, key, write.ops);
+        }
+        if (template instanceof BatchDelete delete) {
+            return new BatchDelete(delete.policy, key);
+        }
+        if (template instanceof BatchRead read) {
+            if (read.ops != null) {
+                return new BatchRead(read.policy, key, read.ops);
+            }
+            if (read.binNames != null) {
+                return new BatchRead(read.policy, key, read.binNames);
+            }
+            return new BatchRead(read.policy, key, read.readAllBins);
+        }
+        throw new IllegalStateException("Unknown batch record type: " + template.getClass().getName());
+    }
+    
+    /**
+     * Returns true if any spec can be merged into the spec before it.
+     */
+    private static boolean mergeableWrites(List<OperationSpec> specs, Expression defaultWhereClause) {
+        for (int i = 1; i < specs.size(); i++) {
+            if (canMerge(specs.get(i - 1), specs.get(i), defaultWhereClause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Determine whether a write spec can be sent as part of the write spec before it, as a single
+     * write with the operations of both. This is only allowed where the single write has the same
+     * outcome as the two writes applied one after the other: both specs are for the same keys with
+     * the same expiration, neither has a filter, and whether the second write succeeds does not
+     * depend on the first having succeeded.
+     *
+     * <p>Both specs must also only put bin values. Other operations, such as list appends or
+     * increments, return results which the server combines per bin across the merged write, and
+     * can fail on their own, which would fail the other spec's operations too. Puts return
+     * nothing and only fail when the whole record write fails, which would have failed both
+     * writes in turn as well.</p>
+     */
+    static boolean canMerge(OperationSpec first, OperationSpec second, Expression defaultWhereClause) {
+        if (first.opType == null || second.opType == null) {
+            return false;
+        }
+        boolean compatibleTypes;
+        switch (second.opType) {
+        case UPSERT:
+            // The record exists after the first write whether or not it existed before
+            compatibleTypes = first.opType == OpType.UPSERT || first.opType == OpType.REPLACE;
+            break;
+        case UPDATE:
+            // An update following an update succeeds or fails with it
+            compatibleTypes = first.opType == OpType.UPSERT || first.opType == OpType.REPLACE
+                    || first.opType == OpType.UPDATE;
+            break;
+        default:
+            compatibleTypes = false;
+        }
+        return compatibleTypes
+                && first.keys.equals(second.keys)
+                && defaultWhereClause == null && first.whereClause == null && second.whereClause == null
+                && first.generation == 0 && second.generation == 0
+                && first.expirationInSeconds == second.expirationInSeconds
+                && onlyPuts(first) && onlyPuts(second);
+    }
+    
+    private static boolean onlyPuts(OperationSpec spec) {
+        for (Operation operation : spec.operations) {
+            if (operation.type != Operation.Type.WRITE) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Build the records to send, merging the records of each spec which can be merged into the
+     * spec before it.
+     * 
+     * @param sentIndex populated with the position in the returned list of the record which holds
+     * the result for each of the given records
+     */
+    static List<BatchRecord> mergeConsecutiveWrites(List<BatchRecord> batchRecords, 
+            List<OperationSpec> specs, Expression defaultWhereClause, int[] sentIndex) {
+        List<BatchRecord> recordsToSend = new ArrayList<>(batchRecords.size());
+        OperationSpec previous = null;
+        int previousOffset = 0;
+        int offset = 0;
+        for (OperationSpec spec : specs) {
+            boolean merge = previous != null && canMerge(previous, spec, defaultWhereClause);
+            // The keys of a spec share their operations, so the merged records can share them too
+            Operation[] mergedFrom = null;
+            Operation[] mergedOps = null;
+            for (int keyIndex = 0; keyIndex < spec.keys.size(); keyIndex++) {
+                int i = offset + keyIndex;
+                if (merge) {
+                    int target = sentIndex[previousOffset + keyIndex];
+                    BatchWrite into = (BatchWrite) recordsToSend.get(target);
+                    if (into.ops != mergedFrom) {
+                        mergedFrom = into.ops;
+                        mergedOps = concat(into.ops, ((BatchWrite) batchRecords.get(i)).ops);
+                    }
+                    recordsToSend.set(target, new BatchWrite(into.policy, into.key, mergedOps));
+                    sentIndex[i] = target;
+                }
+                else {
+                    sentIndex[i] = recordsToSend.size();
+                    recordsToSend.add(batchRecords.get(i));
+                }
+            }
+            previous = spec;
+            previousOffset = offset;
+            offset += spec.keys.size();
+        }
+        return recordsToSend;
+    }
+    
+    private static Operation[] concat(Operation[] first, Operation[] second) {
+        Operation[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+    
+    /**
+     * Give each of the original records the result of the record it was sent as. As merged
+     * records only put bins, that result holds no bin values, so it is the same for each of them.
+     */
+    static void copyMergedResults(List<BatchRecord> recordsSent, List<BatchRecord> batchRecords, int[] sentIndex) {
+        for (int i = 0; i < sentIndex.length; i++) {
+            BatchRecord sent = recordsSent.get(sentIndex[i]);
+            BatchRecord original = batchRecords.get(i);
+            if (sent != original) {
+                original.record = sent.record;
+                original.resultCode = sent.resultCode;
+                original.inDoubt = sent.inDoubt;
+            }
+        }
+    }
+    
     /**
      * Create BatchWrite for write operations (upsert, update, insert, replace).
      */
@@ -214,40 +467,36 @@ class BatchExecutor {
     }
     
     /**
-     * Build RecordStream from batch results, respecting respondAllKeys and failOnFilteredOut flags.
+     * Build the filter which determines whether the batch record at a given position is part of
+     * the results, respecting the respondAllKeys and failOnFilteredOut flags of its spec.
      */
-    private static RecordStream buildRecordStream(List<BatchRecord> batchRecords, 
-                                                   List<OperationSpec> specs,
-                                                   Settings settings) {
-        List<RecordResult> results = new ArrayList<>();
-        
+    private static IntPredicate includeFilter(List<BatchRecord> batchRecords, List<OperationSpec> specs) {
+        // Map each batch record back to the spec which generated it
+        OperationSpec[] specForRecord = new OperationSpec[batchRecords.size()];
         int recordIndex = 0;
-        
         for (OperationSpec spec : specs) {
             for (int keyIndex = 0; keyIndex < spec.keys.size(); keyIndex++) {
-                BatchRecord br = batchRecords.get(recordIndex);
-                
-                // Determine if we should include this result
-                boolean includeResult = shouldIncludeResult(br.resultCode, spec);
-                
-                if (includeResult) {
-                    RecordResult result;
-                    if (settings.getStackTraceOnException() && br.resultCode != ResultCode.OK) {
-                        result = new RecordResult(
-                            br, 
-                            AeroException.resultCodeToException(br.resultCode, null, br.inDoubt), 
-                            recordIndex);
-                    } else {
-                        result = new RecordResult(br, recordIndex);
-                    }
-                    results.add(result);
-                }
-                
-                recordIndex++;
+                specForRecord[recordIndex++] = spec;
             }
         }
-        
-        return new RecordStream(results, 0);
+        return i -> shouldIncludeResult(batchRecords.get(i).resultCode, specForRecord[i]);
+    }
+    
+    /**
+     * Build the converter from a batch record to a RecordResult, honoring stackTraceOnException.
+     */
+    private static ArrayRecordStream.BatchRecordConverter resultConverter(Settings settings) {
+        boolean stackTraceOnException = settings.getStackTraceOnException();
+        return (br, i) -> {
+            if (stackTraceOnException && br.resultCode != ResultCode.OK) {
+                return new RecordResult(
+                    br, 
+                    AeroException.resultCodeToException(br.resultCode, null, br.inDoubt), 
+                    i);
+            } else {
+                return new RecordResult(br, i);
+            }
+        };
     }
     
     /**
@@ -0,0 +1,273 @@
+package com.aerospike;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Log;
+import com.aerospike.client.Operation;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.policy.Settings;
+
+/**
+ * Splits large batches into sub-batches according to the {@code maxRecordsPerBatch} and
+ * {@code maxBytesPerBatch} batch settings of the {@link com.aerospike.policy.Behavior}, and
+ * executes them with at most {@code maxBatchesInFlight} sub-batches running at once.
+ *
+ * <p>Sub-batches are contiguous ranges of the original list and share its {@code BatchRecord}
+ * instances, so once they have all completed the original list holds every result in its
+ * original position, exactly as if a single batch call had been made.</p>
+ *
+ * <p>Batches are only split when a limit is set. By default there is no limit, and every batch
+ * is sent as a single call.</p>
+ *
+ * <p>The synchronous paths return their results only once every sub-batch has completed,
+ * since a synchronous call must not return while any of its writes are still in flight.
+ * Streamed and asynchronous batches are split by {@link StreamingBatch} instead, which
+ * publishes the results of each sub-batch in order as soon as it and the earlier ones have
+ * completed.</p>
+ */
+public final class BatchSplitter {
+    // Rough fixed cost of each record in a batch request: digest, field headers and batch index
+    private static final int RECORD_OVERHEAD_BYTES = 40;
+    // Rough fixed cost of each operation: operation header
+    private static final int OPERATION_OVERHEAD_BYTES = 8;
+
+    private BatchSplitter() {}
+
+    /**
+     * Determine the boundaries of the sub-batches for a list of records.
+     *
+     * @return the start index of each sub-batch, followed by the size of the list. A list
+     * which does not need splitting yields {@code [0, size]}.
+     */
+    public static int[] boundaries(List<? extends BatchRecord> records, Settings settings) {
+        int size = records.size();
+        int maxRecords = settings.getMaxRecordsPerBatch();
+        long maxBytes = settings.getMaxBytesPerBatch();
+        if ((maxRecords <= 0 || size <= maxRecords) && maxBytes <= 0) {
+            return new int[] {0, size};
+        }
+
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int countInBatch = 0;
+        long bytesInBatch = 0;
+        for (int i = 0; i < size; i++) {
+            long recordBytes = maxBytes > 0 ? estimateSize(records.get(i)) : 0;
+            boolean full = (maxRecords > 0 && countInBatch >= maxRecords)
+                    || (maxBytes > 0 && countInBatch > 0 && bytesInBatch + recordBytes > maxBytes);
+            if (full) {
+                starts.add(i);
+                countInBatch = 0;
+                bytesInBatch = 0;
+            }
+            countInBatch++;
+            bytesInBatch += recordBytes;
+        }
+        int[] result = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            result[i] = starts.get(i);
+        }
+        result[starts.size()] = size;
+        return result;
+    }
+
+    /**
+     * Execute the batch, splitting it if necessary, and wait for every sub-batch to complete.
+     * This is a drop-in replacement for {@code client.operate(policy, records)}, so no result is
+     * available to the caller until the last sub-batch has completed. Use {@link StreamingBatch}
+     * to receive results as each sub-batch completes.
+     *
+     * @throws AerospikeException the first exception thrown by any sub-batch. Once a sub-batch
+     * has failed no further sub-batches are started.
+     */
+    public static void operate(IAerospikeClient client, BatchPolicy policy, List<BatchRecord> records, Settings settings) {
+        Pipeline pipeline = pipeline(client, policy, settings);
+        for (BatchRecord record : records) {
+            pipeline.add(record);
+        }
+        pipeline.await();
+    }
+
+    /**
+     * Start a batch which is sent in sub-batches as it is built, so the first sub-batches are
+     * running while the caller is still creating the records of the later ones. The batch is
+     * cut in the same places as {@link #boundaries(List, Settings)} would cut the complete list.
+     * A batch which never fills a sub-batch is sent as a single call by {@link Pipeline#await()}.
+     */
+    public static Pipeline pipeline(IAerospikeClient client, BatchPolicy policy, Settings settings) {
+        return new Pipeline(client, policy, settings);
+    }
+
+    /**
+     * A batch being built by {@link #pipeline(IAerospikeClient, BatchPolicy, Settings)}. Records
+     * are added by one thread, which is held back in {@link #add(BatchRecord)} while
+     * {@code maxBatchesInFlight} sub-batches are running.
+     */
+    public static final class Pipeline {
+        private final IAerospikeClient client;
+        private final BatchPolicy policy;
+        private final int maxRecords;
+        private final long maxBytes;
+        private final Semaphore inFlight;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final List<Thread> started = new ArrayList<>();
+        private List<BatchRecord> current = new ArrayList<>();
+        private long bytesInBatch = 0;
+
+        private Pipeline(IAerospikeClient client, BatchPolicy policy, Settings settings) {
+            this.client = client;
+            this.policy = policy;
+            this.maxRecords = settings.getMaxRecordsPerBatch();
+            this.maxBytes = settings.getMaxBytesPerBatch();
+            this.inFlight = new Semaphore(Math.max(1, settings.getMaxBatchesInFlight()));
+        }
+
+        /**
+         * Add the next record to the batch, starting the current sub-batch first if the record
+         * does not fit in it.
+         */
+        public void add(BatchRecord record) {
+            long recordBytes = maxBytes > 0 ? estimateSize(record) : 0;
+            int countInBatch = current.size();
+            boolean full = (maxRecords > 0 && countInBatch >= maxRecords)
+                    || (maxBytes > 0 && countInBatch > 0 && bytesInBatch + recordBytes > maxBytes);
+            if (full) {
+                start(current);
+                current = new ArrayList<>();
+                bytesInBatch = 0;
+            }
+            current.add(record);
+            bytesInBatch += recordBytes;
+        }
+
+        /**
+         * Send the remaining records and wait for every sub-batch to complete.
+         *
+         * @throws AerospikeException the first exception thrown by any sub-batch. Once a
+         * sub-batch has failed no further sub-batches are started.
+         */
+        public void await() {
+            if (started.isEmpty()) {
+                client.operate(policy, current);
+                return;
+            }
+            if (Log.debugEnabled()) {
+                Log.debug("Split batch into " + (started.size() + 1) + " sub-batches");
+            }
+            start(current);
+            try {
+                for (Thread thread : started) {
+                    thread.join();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for batch to complete", e);
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+
+        /**
+         * Abandon a batch which could not be built. The records not yet sent are dropped, and
+         * this waits for the sub-batches already started so none is left running.
+         */
+        public void cancel() {
+            failure.compareAndSet(null, new IllegalStateException("The batch was cancelled"));
+            boolean interrupted = false;
+            for (Thread thread : started) {
+                while (true) {
+                    try {
+                        thread.join();
+                        break;
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void start(List<BatchRecord> subBatch) {
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for batch to complete", e);
+            }
+            if (failure.get() != null) {
+                // Do not start any more work
+                inFlight.release();
+                return;
+            }
+            started.add(Thread.startVirtualThread(() -> {
+                try {
+                    client.operate(new BatchPolicy(policy), subBatch);
+                }
+                catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                finally {
+                    inFlight.release();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Estimate the number of bytes a record contributes to a batch request. This does not need to be
+     * exact, it is only used to stop sub-batches becoming excessively large.
+     */
+    static long estimateSize(BatchRecord record) {
+        Key key = record.key;
+        long size = RECORD_OVERHEAD_BYTES + key.namespace.length();
+        if (key.setName != null) {
+            size += key.setName.length();
+        }
+        if (key.userKey != null) {
+            size += key.userKey.estimateSize();
+        }
+        if (record instanceof BatchWrite batchWrite) {
+            size += estimateSize(batchWrite.ops);
+        }
+        else if (record instanceof BatchRead batchRead) {
+            size += estimateSize(batchRead.ops);
+            if (batchRead.binNames != null) {
+                for (String binName : batchRead.binNames) {
+                    size += OPERATION_OVERHEAD_BYTES + binName.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long estimateSize(Operation[] ops) {
+        long size = 0;
+        if (ops != null) {
+            for (Operation op : ops) {
+                size += OPERATION_OVERHEAD_BYTES;
+                if (op.binName != null) {
+                    size += op.binName.length();
+                }
+                if (op.value != null) {
+                    size += op.value.estimateSize();
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,73 @@
+package com.aerospike;
+
+import java.util.Map;
+
+/**
+ * A forward-only cursor over the bins of one record, passed to a {@link StreamingRecordMapper}.
+ * 
+ * <p>Each call to {@link #next()} moves to the next bin, whose name and value are then available
+ * through the accessors. The typed accessors convert the value the way the server returns it,
+ * so {@link #getLong()} accepts any integer and {@link #getBoolean()} accepts either a boolean
+ * or an integer. They throw an {@code IllegalArgumentException} if the value cannot be
+ * converted, and must not be called when {@link #isNull()} is true.</p>
+ * 
+ * <p>Bins are visited in no particular order, so a mapper should dispatch on the name:</p>
+ * <pre>{@code
+ * while (bins.next()) {
+ *     switch (bins.name()) {
+ *         case "name" -> customer.setName(bins.getString());
+ *         case "age" -> customer.setAge((int) bins.getLong());
+ *         default -> {}
+ *     }
+ * }
+ * }</pre>
+ * 
+ * <p>A cursor is only valid while the mapper it was passed to is running. The client reuses
+ * it for the next record.</p>
+ *
+ * @see StreamingRecordMapper
+ */
+public interface BinCursor {
+    /**
+     * Moves to the next bin.
+     * 
+     * @return true if there is another bin, false when all the bins have been visited
+     */
+    boolean next();
+    
+    /**
+     * @return the name of the current bin
+     */
+    String name();
+    
+    /**
+     * @return true if the current bin has no value
+     */
+    boolean isNull();
+    
+    long getLong();
+    
+    double getDouble();
+    
+    boolean getBoolean();
+    
+    String getString();
+    
+    byte[] getBytes();
+    
+    /**
+     * @return the value of the current bin as returned by the server, such as a {@code List}
+     *         or {@code Map} for collection bins
+     */
+    Object getObject();
+    
+    /**
+     * Creates a cursor over a map of bins, such as {@code Record.bins}.
+     * 
+     * @param bins the bins to visit, which may be null if the record has none
+     * @return a cursor positioned before the first bin
+     */
+    static BinCursor over(Map<String, Object> bins) {
+        return new MapBinCursor().reset(bins);
+    }
+}
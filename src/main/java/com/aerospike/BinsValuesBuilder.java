@@ -397,49 +397,61 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
         batchPolicy.failOnFilteredOut = this.failOnFilteredOut;
         
         List<BatchRecord> batchRecords = new ArrayList<>(keys.size());
+        batchPolicy.txn = this.txnToUse;
+        BatchSplitter.Pipeline pipeline = BatchSplitter.pipeline(opBuilder.getSession().getClient(), batchPolicy, settings);
 
-        for (Key key : keys) {
-            ValueData valueSet = valueSets.get(key);
-            Operation[] ops = getOperationsForValueData(valueSet);
+        try {
+            for (Key key : keys) {
+                ValueData valueSet = valueSets.get(key);
+                Operation[] ops = getOperationsForValueData(valueSet);
 
-            BatchWritePolicy bwp = new BatchWritePolicy();
-            if (valueSet.generation > 0) {
-                bwp.generation = valueSet.generation;
-                bwp.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
-            }
-            bwp.expiration = getExpiration(valueSet);
-            bwp.recordExistsAction = OperationBuilder.recordExistsActionFromOpType(opBuilder.getOpType());
-            bwp.sendKey = settings.getSendKey();
-            bwp.durableDelete = settings.getUseDurableDelete();
-            batchRecords.add(new BatchWrite(bwp, key, ops));
-        }
-        batchPolicy.txn = this.txnToUse;
-        
-        opBuilder.getSession().getClient().operate(batchPolicy, batchRecords);
-        
-        List<RecordResult> results = new ArrayList<>();
-        for (int i = 0; i < keys.size(); i++) {
-            BatchRecord br = batchRecords.get(i);
-            if (switch (br.resultCode) {
-                case ResultCode.KEY_NOT_FOUND_ERROR -> respondAllKeys;
-                case ResultCode.FILTERED_OUT -> failOnFilteredOut || respondAllKeys;
-                default -> true;
-            }) {
-                if (settings.getStackTraceOnException() && br.resultCode != ResultCode.OK) {
-                    results.add(new RecordResult(br, AeroException.resultCodeToException(br.resultCode, null, br.inDoubt), i));
-                } else {
-                    results.add(new RecordResult(br, i));
+                BatchWritePolicy bwp = new BatchWritePolicy();
+                if (valueSet.generation > 0) {
+                    bwp.generation = valueSet.generation;
+                    bwp.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
                 }
+                bwp.expiration = getExpiration(valueSet);
+                bwp.recordExistsAction = OperationBuilder.recordExistsActionFromOpType(opBuilder.getOpType());
+                bwp.sendKey = settings.getSendKey();
+                bwp.durableDelete = settings.getUseDurableDelete();
+                BatchWrite batchWrite = new BatchWrite(bwp, key, ops);
+                batchRecords.add(batchWrite);
+                pipeline.add(batchWrite);
             }
         }
+        catch (RuntimeException e) {
+            pipeline.cancel();
+            opBuilder.getSession().invalidateCachedWrites(batchRecords);
+            throw e;
+        }
+        try {
+            pipeline.await();
+        }
+        finally {
+            opBuilder.getSession().invalidateCachedWrites(batchRecords);
+        }
         
-        return new RecordStream(results, 0);
+        return new RecordStream(ArrayRecordStream.of(
+                batchRecords,
+                i -> switch (batchRecords.get(i).resultCode) {
+                    case ResultCode.KEY_NOT_FOUND_ERROR -> respondAllKeys;
+                    case ResultCode.FILTERED_OUT -> failOnFilteredOut || respondAllKeys;
+                    default -> true;
+                },
+                (br, i) -> {
+                    if (settings.getStackTraceOnException() && br.resultCode != ResultCode.OK) {
+                        return new RecordResult(br, AeroException.resultCodeToException(br.resultCode, null, br.inDoubt), i);
+                    } else {
+                        return new RecordResult(br, i);
+                    }
+                },
+                0));
     }
     
     
     /**
      * Execute operations synchronously for individual keys (< batch threshold).
-     * All virtual threads are joined before returning.
+     * All scheduled operations are joined before returning.
      */
     protected RecordStream executeIndividualSync() {
         // Apply where clause if present
@@ -447,6 +459,7 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
         
         // Single key: synchronous execution
         if (keys.size() == 1) {
+            long start = opBuilder.getSession().startTiming();
             Key firstKey = keys.get(0);
             ValueData valueSet = valueSets.get(firstKey);
             Operation[] ops = getOperationsForValueData(valueSet);
@@ -462,9 +475,13 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
             boolean stackTraceOnException = settings.getStackTraceOnException();
             
             try {
-                Record record = opBuilder.getSession().getClient().operate(wp, firstKey, ops);
-                if (respondAllKeys || record != null) {
-                    return new RecordStream(firstKey, record);
+                // Run on this thread once the scheduler admits it, so it stays ordered with
+                // queued operations on the same key
+                Record[] record = new Record[1];
+                opBuilder.getSession().getOperationQueue().run(firstKey,
+                        () -> record[0] = opBuilder.getSession().operate(start, wp, firstKey, ops));
+                if (respondAllKeys || record[0] != null) {
+                    return new RecordStream(firstKey, record[0]);
                 }
             } catch (AerospikeException ae) {
                 if (shouldPublishException(ae)) {
@@ -477,7 +494,7 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
             return new RecordStream();
         }
         
-        // Multiple keys: parallel execution with virtual threads, JOINED before return
+        // Multiple keys: parallel execution through the session's scheduler, JOINED before return
         AsyncRecordStream stream = new AsyncRecordStream(keys.size());
         CountDownLatch latch = new CountDownLatch(keys.size());
         
@@ -488,8 +505,9 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
             final int index = i;
             final Key key = keys.get(i);
             ValueData valueSet = valueSets.get(key);
-            Thread.startVirtualThread(() -> {
+            opBuilder.getSession().getOperationQueue().submit(key, () -> {
                 try {
+                    long start = opBuilder.getSession().startTiming();
                     Operation[] ops = getOperationsForValueData(valueSet);
                     WritePolicy wp = opBuilder.getWritePolicy(settings, valueSet.generation, this.opBuilder.getOpType());
                     wp.expiration = getExpiration(valueSet);
@@ -499,7 +517,7 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
                     wp.generationPolicy = wp.generation <= 0 ? GenerationPolicy.NONE : GenerationPolicy.EXPECT_GEN_EQUAL;
                     
                     try {
-                        Record record = opBuilder.getSession().getClient().operate(wp, key, ops);
+                        Record record = opBuilder.getSession().operate(start, wp, key, ops);
                         if (respondAllKeys || record != null) {
                             stream.publish(new RecordResult(key, record, index));
                         }
@@ -530,13 +548,13 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
     
     /**
      * Execute operations asynchronously for individual keys (< batch threshold).
-     * Returns immediately; virtual threads complete in background.
+     * Returns immediately; operations are scheduled and complete in background.
      */
     protected RecordStream executeIndividualAsync() {
         // Apply where clause if present
         final Expression whereExp = keys.isEmpty() ? null : processWhereClause(keys.get(0).namespace, opBuilder.getSession());
         
-        // Even single key: use async execution with virtual thread
+        // Even single key: use async execution through the scheduler
         AsyncRecordStream asyncStream = new AsyncRecordStream(keys.size());
         AtomicInteger pendingOps = new AtomicInteger(keys.size());
         
@@ -548,7 +566,7 @@ public class BinsValuesBuilder extends AbstractFilterableBuilder implements Filt
             final int index = i;
             final Key key = keys.get(i);
             ValueData valueSet = valueSets.get(key);
-            Thread.startVirtualThread(() -> {
+            opBuilder.getSession().getOperationQueue().submit(key, () -> {
                 try {
                     Operation[] ops = getOperationsForValueData(valueSet);
                     WritePolicy wp = opBuilder.getWritePolicy(settings, valueSet.generation, this.opBuilder.getOpType());
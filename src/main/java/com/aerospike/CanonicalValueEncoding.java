@@ -0,0 +1,232 @@
+package com.aerospike;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A canonical byte encoding of Aerospike values whose unsigned lexicographic (memcmp) order is the
+ * order the server uses for collection data types.
+ *
+ * <p>Values are ordered first by type: null, boolean, integer, string, list, map, bytes, double,
+ * then any other type. Within a type:</p>
+ * <ul>
+ *   <li>integers and doubles are ordered numerically, as with {@link Long#compare} and {@link Double#compare}</li>
+ *   <li>strings are ordered as {@link String#compareTo}, or {@link String#compareToIgnoreCase} if
+ *   strings are not case sensitive</li>
+ *   <li>bytes are ordered as unsigned bytes</li>
+ *   <li>lists are ordered element by element, with a list which is a prefix of another first</li>
+ *   <li>maps are ordered by their number of entries, then by their keys in key order, then by
+ *   their values in key order</li>
+ *   <li>values of any other type are equal to each other</li>
+ * </ul>
+ *
+ * <p>Encoding a value costs about the same as a single comparison with {@link AerospikeComparator},
+ * so an encoding only pays for itself when it is kept and the value is compared again.
+ * {@link com.aerospike.query.RecordSorter} encodes each list, map or mixed sort key once per sort,
+ * and {@link AerospikeComparator#withMapCache(boolean, int)} keeps the encodings of the maps it
+ * compares. Otherwise {@link AerospikeComparator} encodes maps on every comparison, which still
+ * sorts their keys once per comparison rather than once per key comparison.</p>
+ */
+public final class CanonicalValueEncoding {
+    // Type tags, in server order. Zero is reserved as the terminator of variable length values.
+    private static final int NULL = 1;
+    private static final int BOOLEAN = 2;
+    private static final int INTEGER = 3;
+    private static final int STRING = 4;
+    private static final int LIST = 5;
+    private static final int MAP = 6;
+    private static final int BYTES = 7;
+    private static final int DOUBLE = 8;
+    private static final int OTHER = 9;
+
+    private byte[] buffer = new byte[64];
+    private int length = 0;
+    private final boolean caseSensitiveStrings;
+
+    private CanonicalValueEncoding(boolean caseSensitiveStrings) {
+        this.caseSensitiveStrings = caseSensitiveStrings;
+    }
+
+    /**
+     * Encode a value.
+     *
+     * @param value the value, which may be null or a nested list or map
+     * @param caseSensitiveStrings false to order strings, including those in lists and maps, ignoring case
+     * @return the encoded value, which can be compared with {@link #compare(byte[], byte[])}
+     */
+    public static byte[] encode(Object value, boolean caseSensitiveStrings) {
+        CanonicalValueEncoding encoding = new CanonicalValueEncoding(caseSensitiveStrings);
+        encoding.write(value);
+        return Arrays.copyOf(encoding.buffer, encoding.length);
+    }
+
+    /**
+     * Compare two encoded values.
+     */
+    public static int compare(byte[] encoded1, byte[] encoded2) {
+        return Arrays.compareUnsigned(encoded1, encoded2);
+    }
+
+    /**
+     * Fold the case of a string the same way as {@link String#compareToIgnoreCase(String)}, so
+     * folded strings can be compared with {@link String#compareTo(String)}.
+     */
+    public static String foldCase(String value) {
+        StringBuilder folded = null;
+        for (int i = 0; i < value.length(); ) {
+            int cp = value.codePointAt(i);
+            int foldedCp = Character.toLowerCase(Character.toUpperCase(cp));
+            if (foldedCp != cp && folded == null) {
+                folded = new StringBuilder(value.length());
+                folded.append(value, 0, i);
+            }
+            if (folded != null) {
+                folded.appendCodePoint(foldedCp);
+            }
+            i += Character.charCount(cp);
+        }
+        return folded == null ? value : folded.toString();
+    }
+
+    private void write(Object value) {
+        if (value == null) {
+            put(NULL);
+        }
+        else if (value instanceof Boolean b) {
+            put(BOOLEAN);
+            put(b ? 1 : 0);
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            put(INTEGER);
+            putLong(((Number) value).longValue() ^ Long.MIN_VALUE);
+        }
+        else if (value instanceof Character c) {
+            put(INTEGER);
+            putLong((long) c ^ Long.MIN_VALUE);
+        }
+        else if (value instanceof String s) {
+            put(STRING);
+            putString(caseSensitiveStrings ? s : foldCase(s));
+        }
+        else if (value instanceof List<?> list) {
+            put(LIST);
+            for (Object item : list) {
+                write(item);
+            }
+            put(0);
+        }
+        else if (value instanceof Map<?, ?> map) {
+            writeMap(map);
+        }
+        else if (value instanceof byte[] bytes) {
+            put(BYTES);
+            for (byte b : bytes) {
+                putEscaped(b & 0xff);
+            }
+            put(0);
+        }
+        else if (value instanceof Byte[] bytes) {
+            put(BYTES);
+            for (Byte b : bytes) {
+                putEscaped(b & 0xff);
+            }
+            put(0);
+        }
+        else if (value instanceof Double || value instanceof Float) {
+            put(DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            // Negative numbers have all bits flipped so larger magnitudes sort first, positive numbers
+            // have the sign flipped so they sort after the negative ones
+            putLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+        }
+        else {
+            put(OTHER);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map) {
+        put(MAP);
+        putLong(map.size());
+        if (map.isEmpty()) {
+            return;
+        }
+        // All the keys are written in the order of their encodings, then the values in the same
+        // order, so two maps are compared on all their keys before any of their values
+        byte[][] keys = new byte[map.size()][];
+        Object[] values = new Object[map.size()];
+        Integer[] order = new Integer[map.size()];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            keys[i] = encode(entry.getKey(), caseSensitiveStrings);
+            values[i] = entry.getValue();
+            order[i] = i;
+            i++;
+        }
+        Arrays.sort(order, (a, b) -> compare(keys[a], keys[b]));
+        for (int index : order) {
+            putBytes(keys[index]);
+        }
+        for (int index : order) {
+            write(values[index]);
+        }
+    }
+
+    /**
+     * Strings are written as the UTF-8 form of each UTF-16 code unit, which keeps the order of
+     * {@link String#compareTo}, escaped and terminated so the value is not a prefix of any other.
+     */
+    private void putString(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                putEscaped(c);
+            }
+            else if (c < 0x800) {
+                put(0xc0 | (c >> 6));
+                put(0x80 | (c & 0x3f));
+            }
+            else {
+                put(0xe0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3f));
+                put(0x80 | (c & 0x3f));
+            }
+        }
+        put(0);
+    }
+
+    /**
+     * Zero is the terminator, so a zero in the value is written as 0x00 0xff. This sorts after the
+     * terminator and before any higher byte, so the order of the values is unchanged.
+     */
+    private void putEscaped(int b) {
+        put(b);
+        if (b == 0) {
+            put(0xff);
+        }
+    }
+
+    private void putLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void putBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void put(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -9,12 +9,12 @@ import java.util.List;
 import java.util.Map;
 
 import com.aerospike.client.Key;
+import com.aerospike.client.Log;
 import com.aerospike.client.Record;
 import com.aerospike.client.ResultCode;
 import com.aerospike.client.Txn;
 import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.dslobjects.BooleanExpression;
 import com.aerospike.query.PreparedDsl;
 import com.aerospike.query.WhereClauseProcessor;
@@ -519,8 +519,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         verifyState("setting where clause");
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-            currentSpec.whereClause = Exp.build(parseResult.getExp());
+            currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         }
         return this;
     }
@@ -529,8 +528,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
     public ChainableNoBinsBuilder where(BooleanExpression dsl) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -538,8 +536,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
     public ChainableNoBinsBuilder where(PreparedDsl dsl, Object... params) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -547,8 +544,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
     public ChainableNoBinsBuilder where(Exp exp) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -571,8 +567,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(namespace, session);
-            this.defaultWhereClause = Exp.build(parseResult.getExp());
+            this.defaultWhereClause = processor.processExpression(namespace, session);
         }
         return this;
     }
@@ -593,8 +588,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -615,8 +609,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -636,8 +629,7 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -698,6 +690,41 @@ public class ChainableNoBinsBuilder extends AbstractSessionOperationBuilder<Chai
         return BatchExecutor.execute(session, operationSpecs, defaultWhereClause, txnToUse);
     }
     
+    /**
+     * Execute all chained operations as a single batch without waiting for the results.
+     * Method returns immediately; results are published into the RecordStream as each
+     * server node responds, so they may arrive out of order. Use {@link RecordResult#index()}
+     * to correlate a result with its operation.
+     * <p>
+     * <b>WARNING:</b> Using this in transactions may lead to operations still being in flight
+     * when commit() is called, potentially leading to inconsistent state. A warning will be logged.
+     * 
+     * @return RecordStream that will be populated as results arrive
+     */
+    public RecordStream executeAsync() {
+        finalizeCurrentOperation();
+        
+        if (operationSpecs.isEmpty()) {
+            throw new IllegalStateException("No operations specified");
+        }
+        
+        if (txnToUse != null && Log.warnEnabled()) {
+            Log.warn(
+                "executeAsync() called within a transaction. " +
+                "Async operations may still be in flight when commit() is called, " +
+                "which could lead to inconsistent state. " +
+                "Consider using execute() for transactional safety."
+            );
+        }
+        
+        // A single key is a single round trip, so there is nothing to gain from streaming
+        if (isSingleKeyOperation()) {
+            return executeSingleKeyOperation();
+        }
+        
+        return BatchExecutor.executeAsync(session, operationSpecs, defaultWhereClause, txnToUse);
+    }
+    
     /**
      * Check if this is a single operation on a single key with no chaining and minimal settings.
      * These can be executed more efficiently using the original point operation path.
@@ -19,7 +19,6 @@ import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
 import com.aerospike.client.policy.GenerationPolicy;
 import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.dslobjects.BooleanExpression;
 import com.aerospike.exception.AeroException;
 import com.aerospike.policy.Settings;
@@ -566,8 +565,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         verifyState("setting where clause");
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-            currentSpec.whereClause = Exp.build(parseResult.getExp());
+            currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         }
         return this;
     }
@@ -576,8 +574,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
     public ChainableOperationBuilder where(BooleanExpression dsl) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -585,8 +582,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
     public ChainableOperationBuilder where(PreparedDsl dsl, Object... params) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -594,8 +590,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
     public ChainableOperationBuilder where(Exp exp) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -620,8 +615,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(namespace, session);
-            this.defaultWhereClause = Exp.build(parseResult.getExp());
+            this.defaultWhereClause = processor.processExpression(namespace, session);
         }
         return this;
     }
@@ -642,8 +636,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -664,8 +657,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -685,8 +677,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -723,6 +714,36 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
         return BatchExecutor.execute(session, operationSpecs, defaultWhereClause, txnToUse);
     }
     
+    /**
+     * Execute all chained operations as a single batch without waiting for the results.
+     * Method returns immediately; results are published into the RecordStream as each
+     * server node responds, so they may arrive out of order. Use {@link RecordResult#index()}
+     * to correlate a result with its operation.
+     * <p>
+     * <b>WARNING:</b> Using this in transactions may lead to operations still being in flight
+     * when commit() is called, potentially leading to inconsistent state. A warning will be logged.
+     * 
+     * @return RecordStream that will be populated as results arrive
+     */
+    public RecordStream executeAsync() {
+        finalizeCurrentOperation();
+        
+        if (operationSpecs.isEmpty()) {
+            throw new IllegalStateException("No operations specified");
+        }
+        
+        if (txnToUse != null && Log.warnEnabled()) {
+            Log.warn(
+                "executeAsync() called within a transaction. " +
+                "Async operations may still be in flight when commit() is called, " +
+                "which could lead to inconsistent state. " +
+                "Consider using execute() for transactional safety."
+            );
+        }
+        
+        return BatchExecutor.executeAsync(session, operationSpecs, defaultWhereClause, txnToUse);
+    }
+    
     // ========================================
     // Internal helpers
     // ========================================
@@ -830,7 +851,7 @@ public class ChainableOperationBuilder extends AbstractOperationBuilder<Chainabl
                 int index,
                 boolean stackTraceOnException) {
             try {
-                Record record = session.getClient().operate(wp, key, operations);
+                Record record = session.operate(wp, key, operations);
                 if (currentSpec != null && currentSpec.respondAllKeys || record != null) {
                     asyncStream.publish(new RecordResult(key, record, index));
                 }
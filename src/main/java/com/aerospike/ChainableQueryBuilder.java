@@ -5,10 +5,10 @@ import java.util.Arrays;
 import java.util.List;
 
 import com.aerospike.client.Key;
+import com.aerospike.client.Log;
 import com.aerospike.client.Txn;
 import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.dslobjects.BooleanExpression;
 import com.aerospike.query.PreparedDsl;
 import com.aerospike.query.WhereClauseProcessor;
@@ -433,8 +433,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         verifyState("setting where clause");
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-            currentSpec.whereClause = Exp.build(parseResult.getExp());
+            currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         }
         return this;
     }
@@ -443,8 +442,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
     public ChainableQueryBuilder where(BooleanExpression dsl) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -452,8 +450,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
     public ChainableQueryBuilder where(PreparedDsl dsl, Object... params) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -461,8 +458,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
     public ChainableQueryBuilder where(Exp exp) {
         verifyState("setting where clause");
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(getNamespaceFromKeys(currentSpec.keys), session);
-        currentSpec.whereClause = Exp.build(parseResult.getExp());
+        currentSpec.whereClause = processor.processExpression(getNamespaceFromKeys(currentSpec.keys), session);
         return this;
     }
     
@@ -485,8 +481,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         
         WhereClauseProcessor processor = createWhereClauseProcessor(false, dsl, params);
         if (processor != null) {
-            ParseResult parseResult = processor.process(namespace, session);
-            this.defaultWhereClause = Exp.build(parseResult.getExp());
+            this.defaultWhereClause = processor.processExpression(namespace, session);
         }
         return this;
     }
@@ -507,8 +502,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(dsl);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -529,8 +523,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(false, dsl, params);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -550,8 +543,7 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         }
         
         WhereClauseProcessor processor = WhereClauseProcessor.from(exp);
-        ParseResult parseResult = processor.process(namespace, session);
-        this.defaultWhereClause = Exp.build(parseResult.getExp());
+        this.defaultWhereClause = processor.processExpression(namespace, session);
         return this;
     }
     
@@ -609,6 +601,36 @@ public class ChainableQueryBuilder extends AbstractFilterableBuilder
         return BatchExecutor.execute(session, operationSpecs, defaultWhereClause, txnToUse);
     }
     
+    /**
+     * Execute all chained operations as a single batch without waiting for the results.
+     * Method returns immediately; results are published into the RecordStream as each
+     * server node responds, so they may arrive out of order. Use {@link RecordResult#index()}
+     * to correlate a result with its operation.
+     * <p>
+     * <b>WARNING:</b> Using this in transactions may lead to operations still being in flight
+     * when commit() is called, potentially leading to inconsistent state. A warning will be logged.
+     * 
+     * @return RecordStream that will be populated as results arrive
+     */
+    public RecordStream executeAsync() {
+        finalizeCurrentOperation();
+        
+        if (operationSpecs.isEmpty()) {
+            throw new IllegalStateException("No operations specified");
+        }
+        
+        if (txnToUse != null && Log.warnEnabled()) {
+            Log.warn(
+                "executeAsync() called within a transaction. " +
+                "Async operations may still be in flight when commit() is called, " +
+                "which could lead to inconsistent state. " +
+                "Consider using execute() for transactional safety."
+            );
+        }
+        
+        return BatchExecutor.executeAsync(session, operationSpecs, defaultWhereClause, txnToUse);
+    }
+    
     // ========================================
     // Internal helpers
     // ========================================
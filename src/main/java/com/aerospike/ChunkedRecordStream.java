@@ -32,6 +32,8 @@ public class ChunkedRecordStream implements RecordStreamImpl {
     private final long limit;
     private final Session session;
     private long recordCount = 0;
+    // The position at the start of the current chunk, taken before its query started
+    private QueryCursor position;
     
     public ChunkedRecordStream(Session session, QueryPolicy queryPolicy, Statement statement,
             PartitionFilter filter, RecordSet recordSet, long limit) {
@@ -44,6 +46,21 @@ public class ChunkedRecordStream implements RecordStreamImpl {
         this.session = session;
     }
     
+    /**
+     * Create the stream and start the query for the first chunk.
+     */
+    public ChunkedRecordStream(Session session, QueryPolicy queryPolicy, Statement statement,
+            PartitionFilter filter, long limit) {
+
+        this.queryPolicy = queryPolicy;
+        this.statement = statement;
+        this.filter = filter;
+        this.limit = limit;
+        this.session = session;
+        this.position = QueryCursor.of(statement, queryPolicy, filter);
+        this.recordSet = session.getClient().queryPartitions(queryPolicy, statement, filter);
+    }
+    
     @Override
     public boolean hasMoreChunks() {
         if (limit > 0 && recordCount >= limit) {
@@ -59,7 +76,8 @@ public class ChunkedRecordStream implements RecordStreamImpl {
         }
         boolean result = recordSet.next();
         if (!result) {
-            // Move onto the next chunk
+            // Move onto the next chunk. The previous query has finished, so the filter is stable
+            position = QueryCursor.of(statement, queryPolicy, filter);
             recordSet = session.getClient().queryPartitions(queryPolicy, statement, filter);
         }
         else {
@@ -73,6 +91,14 @@ public class ChunkedRecordStream implements RecordStreamImpl {
         return new RecordResult(recordSet.getKeyRecord(), -1); // Query operation, index = -1
     }
 
+    @Override
+    public QueryCursor cursor() {
+        if (position == null) {
+            throw new IllegalStateException("The position of this query is not known until its first chunk has been read");
+        }
+        return position;
+    }
+
     @Override
     public void close() {
         if (this.recordSet != null) {
@@ -0,0 +1,200 @@
+package com.aerospike;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+
+/**
+ * Counters and latency histograms for the operations made through the sessions of a
+ * {@link Cluster}, so the cost of the fluent layer itself can be seen alongside the time spent
+ * waiting for the server.
+ *
+ * <p>Operations are grouped by {@link OpKind}, {@link OpShape} and namespace. For each group the
+ * number of operations with each result code is counted, and three latencies are recorded: the
+ * total time of the operation, the time spent waiting for the server, and the difference between
+ * them, which is the client side overhead of building the request and handling the response.
+ * Single key writes are timed from when their builder starts to build the policy and
+ * operations; the server time of a write which is batched with others includes the time it
+ * waited for its batch. Batches whose results are streamed as they arrive are recorded when
+ * their last result has been published or they fail, and their server time runs from when
+ * they are sent until then, including the conversion of their results.
+ * Batch write results are converted as they are consumed, after the batch has been recorded,
+ * so the time to convert each one is recorded separately. The time taken
+ * to parse DSL where clauses is recorded, as is the number of results waiting to be consumed in
+ * the streams of streamed batches and parallel queries and how long their producers were blocked
+ * waiting for the consumer.</p>
+ *
+ * <p>Metrics are off by default and are turned on with {@link Cluster#enableMetrics()}. When
+ * they are off, an operation only pays for reading a field. Recording is lock-free and does not
+ * allocate once a group has been seen, and the current values are read with
+ * {@link #snapshot()}.</p>
+ */
+public final class ClientMetrics {
+    /**
+     * Identifies a group of operations.
+     */
+    public record OpKey(OpKind kind, OpShape shape, String namespace) {}
+
+    /**
+     * The metrics of a group of operations at a point in time.
+     *
+     * @param resultCodes the number of operations which completed with each result code
+     * @param total the total time of each operation
+     * @param server the time each operation spent waiting for the server
+     * @param clientOverhead the time each operation spent in the client
+     * @param resultConversion the time to convert each result of a batch write as it was consumed
+     */
+    public record OpSnapshot(Map<Integer, Long> resultCodes, LatencyHistogram.Snapshot total,
+            LatencyHistogram.Snapshot server, LatencyHistogram.Snapshot clientOverhead,
+            LatencyHistogram.Snapshot resultConversion) {
+
+        /** @return the number of operations */
+        public long getCount() {
+            return total.getCount();
+        }
+    }
+
+    /**
+     * All the metrics at a point in time.
+     *
+     * @param operations the metrics of each group of operations
+     * @param dslParse the time taken to parse DSL where clauses which were not in the DSL cache
+     * @param streamQueueDepth the number of results waiting in asynchronous record streams to be consumed
+     * @param backpressureWait the time producers spent blocked on full asynchronous record streams
+     */
+    public record Snapshot(Map<OpKey, OpSnapshot> operations, LatencyHistogram.Snapshot dslParse,
+            long streamQueueDepth, LatencyHistogram.Snapshot backpressureWait) {}
+
+    private static final class OpStats {
+        final OpKey key;
+        final ConcurrentHashMap<Integer, LongAdder> resultCodes = new ConcurrentHashMap<>();
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram server = new LatencyHistogram();
+        final LatencyHistogram clientOverhead = new LatencyHistogram();
+        final LatencyHistogram resultConversion = new LatencyHistogram();
+
+        OpStats(OpKey key) {
+            this.key = key;
+        }
+
+        OpSnapshot snapshot() {
+            Map<Integer, Long> codes = new TreeMap<>();
+            resultCodes.forEach((code, count) -> codes.put(code, count.sum()));
+            return new OpSnapshot(Collections.unmodifiableMap(codes), total.snapshot(),
+                    server.snapshot(), clientOverhead.snapshot(), resultConversion.snapshot());
+        }
+    }
+
+    // The groups of each kind and shape, by namespace, so recording needs no key object. Each
+    // group's OpKey is created once, with the group
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, OpStats>[][] operations =
+            new ConcurrentHashMap[OpKind.values().length][OpShape.values().length];
+    private final LatencyHistogram dslParse = new LatencyHistogram();
+    private final LongAdder streamQueueDepth = new LongAdder();
+    private final LatencyHistogram backpressureWait = new LatencyHistogram();
+
+    public ClientMetrics() {
+        for (ConcurrentHashMap<String, OpStats>[] byShape : operations) {
+            for (int i = 0; i < byShape.length; i++) {
+                byShape[i] = new ConcurrentHashMap<>();
+            }
+        }
+    }
+
+    /**
+     * Record a completed operation.
+     *
+     * @param kind the kind of the operation
+     * @param shape the shape of the operation
+     * @param namespace the namespace of the operation
+     * @param resultCode the result code of the operation as a whole
+     * @param totalNanos the time from the start of the operation until it completed
+     * @param serverNanos the part of totalNanos spent waiting for the server
+     */
+    public void record(OpKind kind, OpShape shape, String namespace, int resultCode, long totalNanos, long serverNanos) {
+        OpStats stats = stats(kind, shape, namespace);
+        stats.resultCodes.computeIfAbsent(resultCode, code -> new LongAdder()).increment();
+        stats.total.record(totalNanos);
+        stats.server.record(serverNanos);
+        stats.clientOverhead.record(totalNanos - serverNanos);
+    }
+
+    /**
+     * Record the time taken to convert one result of an operation, when the conversion happens
+     * after the operation itself was recorded.
+     */
+    void recordResultConversion(OpKind kind, OpShape shape, String namespace, long nanos) {
+        stats(kind, shape, namespace).resultConversion.record(nanos);
+    }
+
+    private OpStats stats(OpKind kind, OpShape shape, String namespace) {
+        ConcurrentHashMap<String, OpStats> byNamespace = operations[kind.ordinal()][shape.ordinal()];
+        OpStats stats = byNamespace.get(namespace);
+        if (stats == null) {
+            stats = byNamespace.computeIfAbsent(namespace, ns -> new OpStats(new OpKey(kind, shape, ns)));
+        }
+        return stats;
+    }
+
+    /**
+     * Record the time taken to parse a DSL string.
+     */
+    public void recordDslParse(long nanos) {
+        dslParse.record(nanos);
+    }
+
+    /** Called when a result is added to an asynchronous record stream */
+    void streamResultQueued() {
+        streamQueueDepth.increment();
+    }
+
+    /** Called when a result is taken from an asynchronous record stream, or discarded */
+    void streamResultsRemoved(int count) {
+        streamQueueDepth.add(-count);
+    }
+
+    /** Called when a producer had to wait for space in an asynchronous record stream */
+    void recordBackpressureWait(long nanos) {
+        backpressureWait.record(nanos);
+    }
+
+    /**
+     * @return the current values of all the metrics
+     */
+    public Snapshot snapshot() {
+        Map<OpKey, OpSnapshot> snapshots = new HashMap<>();
+        for (ConcurrentHashMap<String, OpStats>[] byShape : operations) {
+            for (ConcurrentHashMap<String, OpStats> byNamespace : byShape) {
+                byNamespace.forEach((namespace, stats) -> snapshots.put(stats.key, stats.snapshot()));
+            }
+        }
+        return new Snapshot(Collections.unmodifiableMap(snapshots), dslParse.snapshot(),
+                streamQueueDepth.sum(), backpressureWait.snapshot());
+    }
+
+    /**
+     * @return the metrics of one group of operations, or null if there have been none
+     */
+    public OpSnapshot snapshot(OpKind kind, OpShape shape, String namespace) {
+        OpStats stats = operations[kind.ordinal()][shape.ordinal()].get(namespace);
+        return stats == null ? null : stats.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ClientMetrics[");
+        Snapshot snapshot = snapshot();
+        snapshot.operations().forEach((key, ops) -> sb.append(String.format("%n  %s/%s/%s: codes=%s, total=%s, server=%s",
+                key.kind(), key.shape(), key.namespace(), ops.resultCodes(), ops.total(), ops.server())));
+        sb.append(String.format("%n  dslParse=%s, streamQueueDepth=%d, backpressureWait=%s]",
+                snapshot.dslParse(), snapshot.streamQueueDepth(), snapshot.backpressureWait()));
+        return sb.toString();
+    }
+}
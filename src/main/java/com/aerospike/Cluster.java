@@ -8,6 +8,7 @@ import com.aerospike.client.IAerospikeClient;
 import com.aerospike.client.Log;
 import com.aerospike.dsl.Index;
 import com.aerospike.policy.Behavior;
+import com.aerospike.query.DslCache;
 
 /**
  * Represents a connection to an Aerospike cluster.
@@ -36,15 +37,19 @@ public class Cluster implements Closeable {
 
     private final IAerospikeClient client;
     private final IndexesMonitor indexesMonitor;
+    private final OperationScheduler operationScheduler;
+    private final DslCache dslCache = new DslCache();
+    private volatile ClientMetrics metrics = null;
     private volatile String clusterName;  // May be null initially, discovered later
     // TODO: Where should this live?
     private RecordMappingFactory recordMappingFactory = null;
 
     
     // package visibility
-    Cluster(IAerospikeClient client, String providedClusterName) {
+    Cluster(IAerospikeClient client, String providedClusterName, SystemSettings settings) {
         this.client = client;
         this.clusterName = providedClusterName;
+        this.operationScheduler = new OperationScheduler(client, settings);
         this.indexesMonitor = new IndexesMonitor();
         this.indexesMonitor.startMonitor(createSession(Behavior.DEFAULT), INDEX_REFRESH);
         
@@ -81,6 +86,70 @@ public class Cluster implements Closeable {
         return indexesMonitor.getIndexes();
     }
     
+    /**
+     * Gets the version of the index information returned by {@link #getIndexes()}.
+     * 
+     * <p>The version increases every time the set of indexes in the cluster changes.</p>
+     * 
+     * @return the current version of the index information
+     */
+    public long getIndexesVersion() {
+        return indexesMonitor.getVersion();
+    }
+    
+    /**
+     * Gets the cache of parsed DSL where clauses used by sessions on this cluster.
+     * 
+     * <p>The cache exposes hit, miss, eviction and invalidation counters which can be
+     * used to monitor its effectiveness.</p>
+     * 
+     * @return the DSL cache for this cluster
+     */
+    public DslCache getDslCache() {
+        return dslCache;
+    }
+    
+    /**
+     * Turns on the recording of operation counts and latencies for sessions on this cluster.
+     * Has no effect if they are already on.
+     * 
+     * @return this Cluster for method chaining
+     * @see ClientMetrics
+     */
+    public synchronized Cluster enableMetrics() {
+        if (metrics == null) {
+            metrics = new ClientMetrics();
+        }
+        return this;
+    }
+    
+    /**
+     * Turns off the recording of metrics, discarding those recorded so far.
+     * 
+     * @return this Cluster for method chaining
+     */
+    public synchronized Cluster disableMetrics() {
+        metrics = null;
+        return this;
+    }
+    
+    /**
+     * Gets the metrics of the operations made through sessions on this cluster.
+     * 
+     * @return the metrics, or null if they are not enabled
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Gets the scheduler which limits the number of concurrent single-key operations
+     * issued by sessions on this cluster.
+     */
+    OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+    
     /**
      * Sets the record mapping factory for this cluster.
      * 
@@ -177,7 +246,9 @@ public class Cluster implements Closeable {
      * <p><b>Limitation:</b> Most system settings cannot be changed dynamically with
      * the current Aerospike client API. They are applied at connection time via
      * {@link com.aerospike.client.policy.ClientPolicy}. This method is provided for
-     * future compatibility when dynamic updates become available.</p>
+     * future compatibility when dynamic updates become available. The scheduling
+     * settings are the exception: they are enforced by this library and take
+     * effect immediately.</p>
      * 
      * @param settings the system settings to apply
      */
@@ -186,6 +257,8 @@ public class Cluster implements Closeable {
             return;
         }
         
+        operationScheduler.applySettings(settings);
+        
         // Currently, the Aerospike Java client does not support dynamic updates
         // to system-level settings like connection pool sizes, socket idle times,
         // circuit breaker settings, or tend intervals.
@@ -394,7 +394,7 @@ public class ClusterDefinition {
         
         Host[] effectiveHosts = getEffectiveHosts();
         IAerospikeClient client = new AerospikeClient(policy, effectiveHosts);
-        Cluster cluster = new Cluster(client, clusterName);
+        Cluster cluster = new Cluster(client, clusterName, effectiveSettings);
         
         // Register with registry for dynamic updates
         SystemSettingsRegistry.getInstance()
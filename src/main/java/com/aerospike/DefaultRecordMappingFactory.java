@@ -2,6 +2,9 @@ package com.aerospike;
 
 import java.util.Map;
 
+import com.aerospike.mapping.MappedRecord;
+import com.aerospike.mapping.MapperSupport;
+
 /**
  * Default implementation of {@link RecordMappingFactory} that uses a map to store
  * record mappers for different Java classes.
@@ -24,6 +27,10 @@ import java.util.Map;
  * cluster.setRecordMappingFactory(factory);
  * }</pre>
  * 
+ * <p>Classes annotated with {@link MappedRecord} have their mappers generated at compile time,
+ * and these are found automatically, so they do not need to be registered. A mapper given
+ * in the map takes precedence over a generated one.</p>
+ * 
  * @see RecordMappingFactory
  * @see RecordMapper
  * @see Cluster#setRecordMappingFactory(RecordMappingFactory)
@@ -32,6 +39,14 @@ public class DefaultRecordMappingFactory implements RecordMappingFactory {
     
     private final Map<Class<? extends Object>, RecordMapper<? extends Object>> map;
     
+    /**
+     * Creates a new DefaultRecordMappingFactory which uses only the mappers generated for
+     * classes annotated with {@link MappedRecord}.
+     */
+    public DefaultRecordMappingFactory() {
+        this(Map.of());
+    }
+    
     /**
      * Creates a new DefaultRecordMappingFactory with the specified mapper mappings.
      * 
@@ -86,7 +101,8 @@ public class DefaultRecordMappingFactory implements RecordMappingFactory {
      * Gets the record mapper for the specified class.
      * 
      * <p>This method looks up the appropriate RecordMapper for the given class
-     * in the internal map. If no mapper is found for the class, null is returned.</p>
+     * in the internal map, then for a mapper generated for a {@link MappedRecord} class. If no
+     * mapper is found for the class, null is returned.</p>
      * 
      * @param <T> the type of object the mapper handles
      * @param clazz the class to get a mapper for
@@ -95,6 +111,7 @@ public class DefaultRecordMappingFactory implements RecordMappingFactory {
     @Override
     @SuppressWarnings("unchecked")
     public <T> RecordMapper<T> getMapper(Class<T> clazz) {
-        return (RecordMapper<T>) this.map.get(clazz);
+        RecordMapper<T> mapper = (RecordMapper<T>) this.map.get(clazz);
+        return mapper != null ? mapper : MapperSupport.generatedMapper(clazz);
     }
 }
@@ -0,0 +1,295 @@
+package com.aerospike;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.aerospike.client.Log;
+
+/**
+ * Holds the records of a {@link NavigatableRecordStream} which do not fit in its memory budget.
+ *
+ * <p>Records are buffered until their estimated size reaches the budget, then the buffer is sorted
+ * and written to a temporary file as a run. The runs are k-way merged lazily as records are read,
+ * so only one record per run is held in memory. Reading is positional but optimized for reading
+ * forwards: moving backwards restarts the merge from the first record.</p>
+ *
+ * <p>With no comparator the runs are simply read one after the other, in the order the records
+ * were added.</p>
+ */
+final class ExternalRecordSort implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private record Run(Path file, int size) {}
+
+    private final long maxHeapBytes;
+    private Comparator<RecordResult> comparator;
+    private List<Run> runs = new ArrayList<>();
+    private final List<RecordResult> buffer = new ArrayList<>();
+    private long bufferBytes = 0;
+    private int size = 0;
+
+    // Read position
+    private Merge merge;
+    private int position;
+
+    /**
+     * @param comparator the sort order of the records, or null to keep them in the order they are added
+     * @param maxHeapBytes the estimated size of the records held in memory at which a run is spilled
+     */
+    ExternalRecordSort(Comparator<RecordResult> comparator, long maxHeapBytes) {
+        this.comparator = comparator;
+        this.maxHeapBytes = maxHeapBytes;
+    }
+
+    /**
+     * Add a record, spilling the buffered records to a new run if the memory budget is reached.
+     */
+    void add(RecordResult rec) {
+        buffer.add(rec);
+        bufferBytes += RecordResultCodec.estimateSize(rec);
+        size++;
+        if (bufferBytes >= maxHeapBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Spill any buffered records, after which the records can be read.
+     */
+    void finish() {
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    /**
+     * Re-sort the records into a new order. The existing runs are merged in their current order
+     * and written out again as runs in the new order.
+     */
+    void sort(Comparator<RecordResult> newComparator) {
+        closeMerge();
+        List<Run> oldRuns = runs;
+        runs = new ArrayList<>();
+        // Read the old runs sequentially, there is no benefit to merging them
+        Merge oldRecords = new Merge(oldRuns, null);
+        try {
+            this.comparator = newComparator;
+            while (oldRecords.hasNext()) {
+                RecordResult rec = oldRecords.next();
+                buffer.add(rec);
+                bufferBytes += RecordResultCodec.estimateSize(rec);
+                if (bufferBytes >= maxHeapBytes) {
+                    spill();
+                }
+            }
+            finish();
+        }
+        finally {
+            oldRecords.close();
+            delete(oldRuns);
+        }
+    }
+
+    /**
+     * Get the record at the given position in the sorted order.
+     */
+    RecordResult get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (merge == null || index < position) {
+            closeMerge();
+            merge = new Merge(runs, comparator);
+            position = 0;
+        }
+        while (position < index) {
+            merge.next();
+            position++;
+        }
+        position++;
+        return merge.next();
+    }
+
+    private void spill() {
+        if (comparator != null) {
+            buffer.sort(comparator);
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("aerospike-sort-", ".run");
+            file.toFile().deleteOnExit();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                for (RecordResult rec : buffer) {
+                    RecordResultCodec.write(out, rec);
+                }
+            }
+        }
+        catch (IOException e) {
+            if (file != null) {
+                delete(List.of(new Run(file, 0)));
+            }
+            throw new UncheckedIOException("Unable to spill sorted records to disk", e);
+        }
+        runs.add(new Run(file, buffer.size()));
+        if (Log.debugEnabled()) {
+            Log.debug(String.format("Spilled sorted run of %,d records (~%,d bytes) to %s",
+                    buffer.size(), bufferBytes, file));
+        }
+        buffer.clear();
+        bufferBytes = 0;
+    }
+
+    private void closeMerge() {
+        if (merge != null) {
+            merge.close();
+            merge = null;
+        }
+    }
+
+    private static void delete(List<Run> runs) {
+        for (Run run : runs) {
+            try {
+                Files.deleteIfExists(run.file());
+            }
+            catch (IOException e) {
+                Log.warn("Unable to delete sort run " + run.file() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeMerge();
+        delete(runs);
+        runs = new ArrayList<>();
+        buffer.clear();
+        size = 0;
+    }
+
+    /**
+     * Reads one run sequentially.
+     */
+    private static class RunReader {
+        private final DataInputStream in;
+        private final int runIndex;
+        private int remaining;
+        private RecordResult head;
+
+        RunReader(Run run, int runIndex) {
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file()), BUFFER_SIZE));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Unable to read sorted records from " + run.file(), e);
+            }
+            this.runIndex = runIndex;
+            this.remaining = run.size();
+            advance();
+        }
+
+        /** Move onto the next record of the run, leaving {@code head} null at the end */
+        void advance() {
+            if (remaining == 0) {
+                head = null;
+                return;
+            }
+            try {
+                head = RecordResultCodec.read(in);
+                remaining--;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Unable to read sorted records", e);
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+            }
+            catch (IOException ignored) {
+                // Only reading, nothing is lost
+            }
+        }
+    }
+
+    /**
+     * A k-way merge over all runs. Ties are broken by run order, which keeps the merge stable.
+     */
+    private static class Merge implements Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> heads;
+        private int current = 0;
+
+        Merge(List<Run> runs, Comparator<RecordResult> comparator) {
+            Comparator<RunReader> order = comparator == null
+                    ? Comparator.comparingInt(reader -> reader.runIndex)
+                    : Comparator.<RunReader, RecordResult>comparing(reader -> reader.head, comparator)
+                            .thenComparingInt(reader -> reader.runIndex);
+            this.heads = comparator == null ? null : new PriorityQueue<>(Math.max(1, runs.size()), order);
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunReader reader = new RunReader(runs.get(i), i);
+                    readers.add(reader);
+                    if (heads != null && reader.head != null) {
+                        heads.add(reader);
+                    }
+                }
+            }
+            catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        boolean hasNext() {
+            if (heads != null) {
+                return !heads.isEmpty();
+            }
+            while (current < readers.size() && readers.get(current).head == null) {
+                current++;
+            }
+            return current < readers.size();
+        }
+
+        RecordResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RunReader reader = heads != null ? heads.poll() : readers.get(current);
+            RecordResult result = reader.head;
+            reader.advance();
+            if (heads != null && reader.head != null) {
+                heads.add(reader);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -40,18 +40,23 @@ import com.aerospike.dsl.Index;
 // Package level visibility
 class IndexesMonitor {
     private Set<Index> indexes = new HashSet<>();
+    private volatile long version = 0;
     private Thread monitorThread = null;
     
     /**
      * Updates the internal cache of indexes.
      * 
      * <p>This method is called by the monitoring thread to update the cached
-     * index information. The method is synchronized to ensure thread safety.</p>
+     * index information. The method is synchronized to ensure thread safety.
+     * The version is only incremented if the set of indexes has actually changed.</p>
      * 
      * @param indexes the new set of indexes to cache
      */
     private synchronized void setIndexes(Set<Index> indexes) {
-        this.indexes = indexes;
+        if (!indexes.equals(this.indexes)) {
+            this.indexes = indexes;
+            this.version++;
+        }
     }
 
     /**
@@ -138,6 +143,20 @@ class IndexesMonitor {
         return indexes;
     }
     
+    /**
+     * Gets the version of the cached index information.
+     * 
+     * <p>The version starts at 0 and increases every time the monitor observes a
+     * change to the set of indexes, so anything derived from the indexes (such as a
+     * parsed DSL expression which selected a secondary index) can be invalidated
+     * when the version moves on. This method does not block.</p>
+     * 
+     * @return the current version of the index information
+     */
+    long getVersion() {
+        return version;
+    }
+    
     /**
      * Stops the index monitoring thread.
      * 
@@ -0,0 +1,185 @@
+package com.aerospike;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds, with log-linear buckets: each power of two
+ * is divided into {@value #SUB_BUCKETS} equal buckets, so a recorded value is known to within
+ * 12.5% whatever its size. Recording is lock-free and allocation-free.
+ *
+ * <p>The bucket counts start as a single array. When two threads collide updating the same
+ * count, the counts are spread over more arrays, up to one for each processor, each thread
+ * counting in the array its id hashes to, so threads recording similar latencies do not all
+ * contend on the same counter.</p>
+ *
+ * <p>Percentiles are read from a {@link Snapshot}, which is a consistent copy of the counts at
+ * the time it was taken.</p>
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any non-negative long
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final int MAX_STRIPES = maxStripes();
+
+    private volatile AtomicLongArray[] stripes = { new AtomicLongArray(BUCKETS) };
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = bucketOf(nanos);
+        AtomicLongArray[] current = stripes;
+        AtomicLongArray counts = current[stripeHash() & (current.length - 1)];
+        long seen = counts.get(bucket);
+        if (!counts.compareAndSet(bucket, seen, seen + 1)) {
+            // Another thread is counting in the same array, so spread the threads out
+            current = grow(current);
+            current[stripeHash() & (current.length - 1)].incrementAndGet(bucket);
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    private static int maxStripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private static int stripeHash() {
+        return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * Double the number of arrays of counts, unless another thread has already done so or the
+     * maximum has been reached.
+     */
+    private synchronized AtomicLongArray[] grow(AtomicLongArray[] current) {
+        if (stripes == current && current.length < MAX_STRIPES) {
+            AtomicLongArray[] grown = Arrays.copyOf(current, current.length * 2);
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new AtomicLongArray(BUCKETS);
+            }
+            stripes = grown;
+        }
+        return stripes;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** @return the largest value which is counted in a bucket */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowest + width - 1;
+    }
+
+    /**
+     * @return a copy of the current counts
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray counts : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long inBucket = counts.get(i);
+                copy[i] += inBucket;
+                total += inBucket;
+            }
+        }
+        // The bucket counts are authoritative, the sum and maximum may be slightly ahead of them
+        return new Snapshot(copy, total, totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * The counts of a histogram at a point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /** @return the number of values recorded */
+        public long getCount() {
+            return count;
+        }
+
+        /** @return the sum of the values recorded, in nanoseconds */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** @return the largest value recorded, in nanoseconds */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** @return the mean of the values recorded in nanoseconds, or 0 if there are none */
+        public double getMeanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+
+        /**
+         * @param percentile the percentile, from 0 to 100
+         * @return the value in nanoseconds which the given percentage of values are at or below,
+         * to the precision of the buckets, or 0 if there are no values
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100, not " + percentile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[count=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, max=%.1fus]",
+                    count, getMeanNanos() / 1000.0, getPercentileNanos(50) / 1000.0,
+                    getPercentileNanos(99) / 1000.0, maxNanos / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.aerospike;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.aerospike.mapping.MapperSupport;
+
+/**
+ * A {@link BinCursor} over the bins map of a record, which can be reset to the next record so a
+ * whole stream is mapped with one cursor.
+ */
+final class MapBinCursor implements BinCursor {
+    private Iterator<Map.Entry<String, Object>> bins = Collections.emptyIterator();
+    private Map.Entry<String, Object> current;
+    
+    MapBinCursor reset(Map<String, Object> bins) {
+        this.bins = bins == null ? Collections.emptyIterator() : bins.entrySet().iterator();
+        this.current = null;
+        return this;
+    }
+    
+    @Override
+    public boolean next() {
+        current = bins.hasNext() ? bins.next() : null;
+        return current != null;
+    }
+    
+    @Override
+    public String name() {
+        return entry().getKey();
+    }
+    
+    @Override
+    public boolean isNull() {
+        return entry().getValue() == null;
+    }
+    
+    @Override
+    public long getLong() {
+        return MapperSupport.toLong(entry().getValue());
+    }
+    
+    @Override
+    public double getDouble() {
+        return MapperSupport.toDouble(entry().getValue());
+    }
+    
+    @Override
+    public boolean getBoolean() {
+        return MapperSupport.toBoolean(entry().getValue());
+    }
+    
+    @Override
+    public String getString() {
+        return MapperSupport.toStringValue(entry().getValue());
+    }
+    
+    @Override
+    public byte[] getBytes() {
+        return MapperSupport.toBytes(entry().getValue());
+    }
+    
+    @Override
+    public Object getObject() {
+        return entry().getValue();
+    }
+    
+    private Map.Entry<String, Object> entry() {
+        if (current == null) {
+            throw new IllegalStateException("The cursor is not on a bin. Call next() first.");
+        }
+        return current;
+    }
+}
@@ -325,7 +325,12 @@ public class MultiValueBuilder {
                 .map(valueSet -> toBatchWrite(settings, valueSet))
                 .collect(Collectors.toList());
         
-        session.getClient().operate(batchPolicy, batchRecords);
+        try {
+            session.getClient().operate(batchPolicy, batchRecords);
+        }
+        finally {
+            session.invalidateCachedWrites(batchRecords);
+        }
         
         AsyncRecordStream stream = new AsyncRecordStream(batchRecords.size());
         try {
@@ -362,12 +367,15 @@ public class MultiValueBuilder {
             wp.txn = this.txnToUse;
             wp.expiration = getExpiration(theseValues);
             try {
+                long start = session.startTiming();
                 Operation[] ops = new Operation[binNames.length];
                 for (int i = 0; i < binNames.length; i++) {
                     ops[i] = Operation.add(new Bin(binNames[i], Value.get(theseValues.values[i])));
                 }
-                Record record = session.getClient().operate(wp, theseValues.key, ops);
-                stream.publish(new RecordResult(theseValues.key, record, count++));
+                Record[] record = new Record[1];
+                session.getOperationQueue().run(theseValues.key,
+                        () -> record[0] = session.operate(start, wp, theseValues.key, ops));
+                stream.publish(new RecordResult(theseValues.key, record[0], count++));
             }
             catch (AerospikeException ae) {
                 stream.publish(new RecordResult(theseValues.key, AeroException.from(ae), count++));
@@ -5,15 +5,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-import com.aerospike.client.Record;
+import com.aerospike.client.Log;
 import com.aerospike.exception.AeroException;
 import com.aerospike.query.RecordComparator;
+import com.aerospike.query.RecordSorter;
 import com.aerospike.query.ResettablePagination;
 import com.aerospike.query.SortDir;
 import com.aerospike.query.SortProperties;
@@ -29,9 +31,34 @@ import com.aerospike.query.SortProperties;
  * <p><strong><b>Note:</b> As Aerospike does not intrinsically support ordering or
  * pagination by a user supplied field, this class will load the contents of the 
  * stream into memory. Please ensure your application server has enough memory 
- * available to support this.
+ * available to support this, or set a memory budget with {@link #maxHeapBytes(long)}.
  * </strong></p>
  * 
+ * <h2>Memory Budget</h2>
+ * 
+ * <p>The records are read from the source stream when the stream is first used. If a budget
+ * has been set with {@link #maxHeapBytes(long)} and the records exceed it, they are sorted in runs
+ * which are spilled to temporary files and merged as the pages are read. Sorting and paging
+ * work as before, but are best used moving forwards through the pages: moving back restarts
+ * the merge from the first record. The temporary files are removed by {@link #close()}.</p>
+ * <pre>{@code
+ * try (NavigatableRecordStream navigatable = results.asNavigatableStream()
+ *         .maxHeapBytes(64 * 1024 * 1024)
+ *         .pageSize(100)
+ *         .sortBy("age")) {
+ *     // Process pages
+ * }
+ * }</pre>
+ *
+ * <p>When only the first few pages will be read, {@link #topK(int)} or {@link #firstPages(int)}
+ * keep just those records in memory, selecting them with a bounded heap as they are read.</p>
+ * <pre>{@code
+ * NavigatableRecordStream navigatable = results.asNavigatableStream()
+ *     .firstPages(2)
+ *     .pageSize(20)
+ *     .sortBy("age", SortDir.SORT_DESC);
+ * }</pre>
+ * 
  * <h2>Sorting Behavior</h2>
  * 
  * <p>Each call to any {@code sortBy()} method replaces the entire sort criteria.
@@ -84,7 +111,22 @@ import com.aerospike.query.SortProperties;
  * }</pre>
  */
 public class NavigatableRecordStream implements ResettablePagination, Closeable {
-    private final RecordResult[] records;
+    // Buffer for the records outside the top k when no memory budget is set
+    private static final long DEFAULT_OVERFLOW_BYTES = 8L * 1024 * 1024;
+    
+    private RecordStream source;
+    private final long limit;
+    private long maxHeapBytes = 0;
+    private int topK = 0;
+    private int firstPages = 0;
+    // Once loaded the records are either all in memory, spilled to disk as sorted runs, or
+    // the best k are in memory with every record held unsorted in the overflow in the order read
+    private RecordResult[] records;
+    private ExternalRecordSort spilled;
+    private ExternalRecordSort overflow;
+    // Holds the sort keys of the in memory records, so they are only read from the bins once
+    private RecordSorter sorter;
+    private int size = 0;
     private int pageSize = 0;
     private int numPages = 1;
     private int currentPage = -1;
@@ -94,8 +136,8 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
     /**
      * Creates a NavigatableRecordStream from an existing RecordStream.
      * 
-     * <p>This constructor reads all records from the source stream into memory.
-     * Once created, the original stream is closed.</p>
+     * <p>All records are read from the source stream when this stream is first used,
+     * after which the original stream is closed.</p>
      * 
      * @param source the source RecordStream to read from
      */
@@ -106,30 +148,315 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
     /**
      * Creates a NavigatableRecordStream from an existing RecordStream with a limit.
      * 
-     * <p>This constructor reads records from the source stream into memory up to
-     * the specified limit. Once the limit is reached or the stream is exhausted,
+     * <p>Records are read from the source stream up to the specified limit when this
+     * stream is first used. Once the limit is reached or the stream is exhausted,
      * the original stream is closed.</p>
      * 
      * @param source the source RecordStream to read from
      * @param limit the maximum number of records to read (0 or negative means no limit)
      */
     public NavigatableRecordStream(RecordStream source, long limit) {
-        List<RecordResult> recordList = new ArrayList<>();
-        
+        this.source = source;
+        this.limit = limit;
+    }
+    
+    /**
+     * Sets the estimated amount of memory the records may use before they are spilled to disk.
+     * 
+     * <p>Once the records read from the source exceed this budget, they are sorted in runs of
+     * about this size which are written to temporary files in a compact binary form. The runs
+     * are merged lazily as the records are read, so only one record from each run is held in
+     * memory. The size of each record is estimated from its bins.</p>
+     * 
+     * <p>This must be called before the stream is used, as the records are read then.</p>
+     * 
+     * @param maxHeapBytes the memory budget in bytes (must be > 0, or 0 for no budget)
+     * @return this NavigatableRecordStream for method chaining
+     * @throws IllegalArgumentException if maxHeapBytes is negative
+     * @throws IllegalStateException if the records have already been read
+     */
+    public NavigatableRecordStream maxHeapBytes(long maxHeapBytes) {
+        if (maxHeapBytes < 0) {
+            throw new IllegalArgumentException("Max heap bytes must be >= 0, not " + maxHeapBytes);
+        }
+        checkNotLoaded("maxHeapBytes");
+        this.maxHeapBytes = maxHeapBytes;
+        return this;
+    }
+    
+    /**
+     * Keeps only the best {@code k} records in the current sort order in memory.
+     * 
+     * <p>This suits the common case where only the first page or two of a sorted result is
+     * read. The records are passed through a bounded heap as they are read, so sorting takes
+     * O(n log k) time and O(k) memory. The other records are written unsorted to temporary
+     * files: if the caller pages past the first {@code k} records, or re-sorts the stream,
+     * they are read back to sort all the records.</p>
+     * 
+     * <p>This must be called before the stream is used, as the records are read then.</p>
+     * 
+     * @param k the number of records to keep in memory (must be > 0, or 0 to keep all records)
+     * @return this NavigatableRecordStream for method chaining
+     * @throws IllegalArgumentException if k is negative
+     * @throws IllegalStateException if the records have already been read
+     */
+    public NavigatableRecordStream topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("topK must be >= 0, not " + k);
+        }
+        checkNotLoaded("topK");
+        this.topK = k;
+        return this;
+    }
+    
+    /**
+     * Keeps only the records on the first {@code pages} pages in memory. This is the same as
+     * {@link #topK(int)} with {@code pages * pageSize} records, using the page size in effect
+     * when the records are read.
+     * 
+     * @param pages the number of pages expected to be read (must be > 0, or 0 to keep all records)
+     * @return this NavigatableRecordStream for method chaining
+     * @throws IllegalArgumentException if pages is negative
+     * @throws IllegalStateException if the records have already been read
+     */
+    public NavigatableRecordStream firstPages(int pages) {
+        if (pages < 0) {
+            throw new IllegalArgumentException("firstPages must be >= 0, not " + pages);
+        }
+        checkNotLoaded("firstPages");
+        this.firstPages = pages;
+        return this;
+    }
+    
+    private void checkNotLoaded(String option) {
+        if (source == null) {
+            throw new IllegalStateException(option + " must be set before the records are read");
+        }
+    }
+    
+    /**
+     * @return the number of records to keep in memory, or 0 for all of them
+     */
+    private int bound() {
+        if (topK > 0) {
+            return topK;
+        }
+        if (firstPages > 0 && pageSize > 0) {
+            return (int) Math.min(Integer.MAX_VALUE, (long) firstPages * pageSize);
+        }
+        return 0;
+    }
+    
+    /**
+     * Reads the records from the source stream if this has not already been done, sorting
+     * them in the current sort order.
+     */
+    private void load() {
+        if (source == null) {
+            return;
+        }
+        RecordStream input = source;
+        source = null;
+        int k = bound();
+        Collector collector = k > 0 ? new BestRecords(k) : new AllRecords();
         try {
-            int count = 0;
-            while (source.hasNext() && (limit <= 0 || count < limit)) {
-                recordList.add(source.next());
-                count++;
-            }
+            long count = 0;
+            // A chunked stream stops at the end of every chunk, so read until there are no more
+            do {
+                while (input.hasNext() && (limit <= 0 || count < limit)) {
+                    collector.accept(input.next());
+                    count++;
+                }
+            } while ((limit <= 0 || count < limit) && input.hasMoreChunks());
+            collector.finish();
+        } catch (RuntimeException e) {
+            collector.abort();
+            records = new RecordResult[0];
+            throw e;
         } finally {
-            source.close();
+            input.close();
         }
-        
-        this.records = recordList.toArray(new RecordResult[0]);
         recalculatePages();
     }
     
+    /**
+     * Replaces the top k records and overflow with a new form of the same records. The overflow
+     * holds every record in the order it was read, so ties are ordered as on the first load.
+     */
+    private void reload(Collector collector) {
+        ExternalRecordSort previous = overflow;
+        try {
+            for (int i = 0; i < previous.size(); i++) {
+                collector.accept(previous.get(i));
+            }
+            collector.finish();
+        } catch (RuntimeException e) {
+            collector.abort();
+            throw e;
+        }
+        previous.close();
+    }
+    
+    private RecordComparator comparator() {
+        return (sortInfo != null && !sortInfo.isEmpty()) ? RecordComparator.forSingleSort(sortInfo) : null;
+    }
+    
+    /**
+     * @return the record at the given position in the current sort order
+     */
+    private RecordResult recordAt(int position) {
+        if (overflow != null && position >= records.length) {
+            if (Log.debugEnabled()) {
+                Log.debug(String.format("Paged past the top %,d records, sorting all %,d records",
+                        records.length, size));
+            }
+            reload(new AllRecords());
+        }
+        return spilled != null ? spilled.get(position) : records[position];
+    }
+    
+    /**
+     * Receives the records in the order they are read and forms the loaded state from them.
+     */
+    private abstract static class Collector implements Consumer<RecordResult> {
+        /** Called once all records have been received */
+        abstract void finish();
+        /** Called instead of {@link #finish()} if the records could not be read */
+        abstract void abort();
+    }
+    
+    /**
+     * Keeps all the records, in memory or spilled to disk once they exceed the memory budget.
+     */
+    private class AllRecords extends Collector {
+        private final RecordComparator comparator = comparator();
+        private List<RecordResult> recordList = new ArrayList<>();
+        private ExternalRecordSort sort;
+        private long bytes = 0;
+        private int count = 0;
+        
+        @Override
+        public void accept(RecordResult rec) {
+            count++;
+            if (sort != null) {
+                sort.add(rec);
+                return;
+            }
+            recordList.add(rec);
+            if (maxHeapBytes > 0) {
+                bytes += RecordResultCodec.estimateSize(rec);
+                if (bytes >= maxHeapBytes) {
+                    sort = new ExternalRecordSort(comparator, maxHeapBytes);
+                    recordList.forEach(sort::add);
+                    recordList = null;
+                }
+            }
+        }
+        
+        @Override
+        void finish() {
+            if (sort != null) {
+                sort.finish();
+                records = null;
+                sorter = null;
+                spilled = sort;
+            }
+            else {
+                records = recordList.toArray(new RecordResult[0]);
+                sorter = new RecordSorter(records);
+                if (comparator != null) {
+                    records = sorter.sort(sortInfo);
+                }
+            }
+            overflow = null;
+            size = count;
+        }
+        
+        @Override
+        void abort() {
+            if (sort != null) {
+                sort.close();
+            }
+        }
+    }
+    
+    /**
+     * Keeps the best k records in memory using a bounded heap, and every record in the overflow in
+     * the order read. Records which compare equal are kept in the order read, so the result matches
+     * the first k of a full stable sort. Without a sort order the first k records read are kept.
+     */
+    private class BestRecords extends Collector {
+        private final RecordComparator comparator = comparator();
+        private final int k;
+        // The worst of the best records is at the head, so it can be replaced by a better one
+        private final PriorityQueue<Ranked> best;
+        private final List<RecordResult> first;
+        private final ExternalRecordSort rest =
+                new ExternalRecordSort(null, maxHeapBytes > 0 ? maxHeapBytes : DEFAULT_OVERFLOW_BYTES);
+        private int count = 0;
+        
+        /** A record with its position in the order read, which breaks ties between equal records */
+        private record Ranked(RecordResult rec, int seq) {}
+        
+        BestRecords(int k) {
+            this.k = k;
+            this.best = comparator == null ? null : new PriorityQueue<>(Math.min(k, 1024) + 1, (a, b) -> {
+                int result = comparator.compare(b.rec(), a.rec());
+                return result != 0 ? result : Integer.compare(b.seq(), a.seq());
+            });
+            this.first = comparator == null ? new ArrayList<>() : null;
+        }
+        
+        @Override
+        public void accept(RecordResult rec) {
+            int seq = count++;
+            rest.add(rec);
+            if (best == null) {
+                if (first.size() < k) {
+                    first.add(rec);
+                }
+            }
+            else if (best.size() < k) {
+                best.add(new Ranked(rec, seq));
+            }
+            else if (comparator.compare(rec, best.peek().rec()) < 0) {
+                // An equal record read later is not better, so it never displaces an earlier one
+                best.poll();
+                best.add(new Ranked(rec, seq));
+            }
+        }
+        
+        @Override
+        void finish() {
+            rest.finish();
+            if (best == null) {
+                records = first.toArray(new RecordResult[0]);
+                sorter = new RecordSorter(records);
+            }
+            else {
+                // The sorter is stable, so give it the records in the order read
+                Ranked[] kept = best.toArray(new Ranked[0]);
+                Arrays.sort(kept, (a, b) -> Integer.compare(a.seq(), b.seq()));
+                sorter = new RecordSorter(Arrays.stream(kept).map(Ranked::rec).toArray(RecordResult[]::new));
+                records = sorter.sort(sortInfo);
+            }
+            spilled = null;
+            if (count > k) {
+                overflow = rest;
+            }
+            else {
+                rest.close();
+                overflow = null;
+            }
+            size = count;
+        }
+        
+        @Override
+        void abort() {
+            rest.close();
+        }
+    }
+    
     /**
      * Sets the page size for pagination.
      * 
@@ -145,7 +472,9 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
             throw new IllegalArgumentException("Page size must be >= 0, not " + pageSize);
         }
         this.pageSize = pageSize;
-        recalculatePages();
+        if (source == null) {
+            recalculatePages();
+        }
         resetIteration();
         return this;
     }
@@ -283,8 +612,27 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * Applies the current sort criteria to the records.
      */
     private void applySort() {
-        if (sortInfo != null && !sortInfo.isEmpty()) {
-            Arrays.sort(this.records, new RecordComparator(sortInfo));
+        if (source != null) {
+            // Not loaded yet, the records are sorted as they are read
+            resetIteration();
+            return;
+        }
+        if (overflow != null) {
+            int k = bound();
+            reload(k > 0 ? new BestRecords(k) : new AllRecords());
+        }
+        else if (spilled != null) {
+            RecordComparator comparator = comparator();
+            if (comparator != null) {
+                spilled.sort(comparator);
+            }
+        }
+        else if (sortInfo != null && !sortInfo.isEmpty()) {
+            // The sorter keeps the sort keys it has already read, so re-sorting by the same bins is cheap
+            if (sorter == null) {
+                sorter = new RecordSorter(records);
+            }
+            records = sorter.sort(sortInfo);
         }
         resetIteration();
     }
@@ -293,7 +641,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * Recalculates the number of pages based on current page size.
      */
     private void recalculatePages() {
-        this.numPages = (pageSize > 0) ? ((records.length + pageSize - 1) / pageSize) : 1;
+        this.numPages = (pageSize > 0) ? ((size + pageSize - 1) / pageSize) : 1;
     }
     
     /**
@@ -313,6 +661,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * @return true if there are more pages, false otherwise
      */
     public boolean hasMorePages() {
+        load();
         if (currentPage == -1) {
             currentPage = 0;
             return true;
@@ -327,7 +676,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * @return true if there are more records, false otherwise
      */
     public boolean hasNext() {
-        if (index >= records.length) {
+        if (index >= size()) {
             return false;
         }
         long pageOfIndex = pageSize == 0 ? 0 : (index / pageSize);
@@ -341,8 +690,8 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * @return the next RecordResult, or null if no more records
      */
     public RecordResult next() {
-        if (index >= 0 && index < records.length) {
-            return records[index++];
+        if (index >= 0 && index < size()) {
+            return recordAt(index++);
         }
         return null;
     }
@@ -364,6 +713,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      */
     @Override
     public int maxPages() {
+        load();
         return numPages;
     }
     
@@ -378,6 +728,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      */
     @Override
     public void setPageTo(int newPage) {
+        load();
         if (newPage < 1 || newPage > numPages) {
             throw new IllegalArgumentException(String.format(
                     "setPageTo must take page number in the range of 1 to %,d, not %,d", 
@@ -408,7 +759,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
                     
                     @Override
                     public boolean hasNext() {
-                        if (streamIndex >= records.length) {
+                        if (streamIndex >= size()) {
                             return false;
                         }
                         long pageOfIndex = pageSize == 0 ? 0 : (streamIndex / pageSize);
@@ -417,8 +768,8 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
                     
                     @Override
                     public RecordResult next() {
-                        if (streamIndex >= 0 && streamIndex < records.length) {
-                            return records[streamIndex++];
+                        if (streamIndex >= 0 && streamIndex < size()) {
+                            return recordAt(streamIndex++);
                         }
                         return null;
                     }
@@ -448,11 +799,10 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * @return a list of mapped objects
      */
     public <T> List<T> toObjectList(RecordMapper<T> mapper) {
+        RecordObjectReader<T> reader = new RecordObjectReader<>(mapper);
         List<T> result = new ArrayList<>();
         while (hasNext()) {
-            RecordResult keyRecord = next();
-            Record rec = keyRecord.recordOrThrow();
-            result.add(mapper.fromMap(rec.bins, keyRecord.key(), rec.generation));
+            result.add(reader.read(next()));
         }
         return result;
     }
@@ -499,9 +849,7 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      */
     public <T> Optional<T> getFirst(RecordMapper<T> mapper) {
         if (hasNext()) {
-            RecordResult item = next();
-            Record rec = item.recordOrThrow();
-            return Optional.of(mapper.fromMap(rec.bins, item.key(), rec.generation));
+            return Optional.of(new RecordObjectReader<>(mapper).read(next()));
         }
         return Optional.empty();
     }
@@ -512,7 +860,8 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
      * @return the total number of records
      */
     public int size() {
-        return records.length;
+        load();
+        return size;
     }
     
     /**
@@ -527,7 +876,22 @@ public class NavigatableRecordStream implements ResettablePagination, Closeable
     
     @Override
     public void close() {
-        // Nothing to close - all records are in memory
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        // Remove the temporary files holding any spilled records
+        if (spilled != null) {
+            spilled.close();
+            spilled = null;
+        }
+        if (overflow != null) {
+            overflow.close();
+            overflow = null;
+        }
+        records = new RecordResult[0];
+        sorter = null;
+        size = 0;
     }
 }
 
@@ -21,13 +21,11 @@ import com.aerospike.client.Record;
 import com.aerospike.client.ResultCode;
 import com.aerospike.client.Txn;
 import com.aerospike.client.Value;
-import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
 import com.aerospike.client.policy.BatchPolicy;
 import com.aerospike.client.policy.BatchWritePolicy;
 import com.aerospike.client.policy.GenerationPolicy;
 import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.exception.AeroException;
 import com.aerospike.policy.Behavior.Mode;
 import com.aerospike.policy.Behavior.OpKind;
@@ -380,6 +378,7 @@ public class ObjectBuilder<T> {
     }
     
     private RecordStream executeSingle(T element) {
+        long start = this.opBuilder.getSession().startTiming();
         RecordMapper<T> recordMapper = getMapper(element);
         Key key = getKeyForElement(recordMapper, element); 
         Operation[] operations = operationsForElement(recordMapper, element);
@@ -400,18 +399,17 @@ public class ObjectBuilder<T> {
         
         // Apply where clause if present
         if (opBuilder.getDsl() != null) {
-            ParseResult parseResult = opBuilder.getDsl().process(key.namespace, opBuilder.getSession());
-            wp.filterExp = Exp.build(parseResult.getExp());
+            wp.filterExp = opBuilder.getDsl().processExpression(key.namespace, opBuilder.getSession());
         }
         
         try {
-            Record record = this.opBuilder.getSession().getClient().operate(
-                    wp,
-                    key,
-                    operations
-                );
+            // Run on this thread once the scheduler admits it, so it stays ordered with queued
+            // operations on the same key
+            Record[] record = new Record[1];
+            this.opBuilder.getSession().getOperationQueue().run(key,
+                    () -> record[0] = this.opBuilder.getSession().operate(start, wp, key, operations));
                     
-            return new RecordStream(key, record);
+            return new RecordStream(key, record[0]);
         } catch (AerospikeException ae) {
             if (ae.getResultCode() == ResultCode.FILTERED_OUT) {
                 if (opBuilder.isFailOnFilteredOut() || opBuilder.isRespondAllKeys()) {
@@ -426,13 +424,25 @@ public class ObjectBuilder<T> {
     }
     
     private RecordStream executeSingleAsync(T element) {
-        // Single element: use async execution with virtual thread
+        // Single element: use async execution through the scheduler
         AsyncRecordStream asyncStream = new AsyncRecordStream(1);
+        RecordMapper<T> recordMapper;
+        Key key;
+        try {
+            recordMapper = getMapper(element);
+            key = getKeyForElement(recordMapper, element);
+        }
+        catch (RuntimeException e) {
+            // The key is needed to schedule the operation. Report the failure through the stream,
+            // as it would be if the operation itself had failed.
+            asyncStream.error(e);
+            asyncStream.complete();
+            return new RecordStream(asyncStream);
+        }
         
-        Thread.startVirtualThread(() -> {
+        this.opBuilder.getSession().getOperationQueue().submit(key, () -> {
             try {
-                RecordMapper<T> recordMapper = getMapper(element);
-                Key key = getKeyForElement(recordMapper, element);
+                long start = this.opBuilder.getSession().startTiming();
                 Operation[] operations = operationsForElement(recordMapper, element);
                 
                 OpKind type = OperationBuilder.areOperationsRetryable(operations) ? 
@@ -453,12 +463,11 @@ public class ObjectBuilder<T> {
                 
                 // Apply where clause if present
                 if (opBuilder.getDsl() != null) {
-                    ParseResult parseResult = opBuilder.getDsl().process(key.namespace, opBuilder.getSession());
-                    wp.filterExp = Exp.build(parseResult.getExp());
+                    wp.filterExp = opBuilder.getDsl().processExpression(key.namespace, opBuilder.getSession());
                 }
                 
                 try {
-                    Record record = this.opBuilder.getSession().getClient().operate(wp, key, operations);
+                    Record record = this.opBuilder.getSession().operate(start, wp, key, operations);
                     if (opBuilder.isRespondAllKeys() || record != null) {
                         asyncStream.publish(new RecordResult(key, record, 0)); // Single key operation, index = 0
                     }
@@ -547,7 +556,7 @@ public class ObjectBuilder<T> {
     
     /**
      * Execute operations synchronously for individual objects (< batch threshold).
-     * All virtual threads are joined before returning.
+     * All scheduled operations are joined before returning.
      */
     private RecordStream executeIndividualSync() {
         // Apply where clause if present
@@ -559,10 +568,22 @@ public class ObjectBuilder<T> {
         for (int i = 0; i < elements.size(); i++) {
             final int index = i;
             final T element = elements.get(i);
-            Thread.startVirtualThread(() -> {
+            final RecordMapper<T> recordMapper;
+            final Key key;
+            try {
+                recordMapper = getMapper(element);
+                key = getKeyForElement(recordMapper, element);
+            }
+            catch (RuntimeException e) {
+                // The key is needed to schedule the operation. Report the failure through the
+                // stream, as it would be if the operation itself had failed.
+                recordStream.error(e);
+                latch.countDown();
+                continue;
+            }
+            this.opBuilder.getSession().getOperationQueue().submit(key, () -> {
                 try {
-                    RecordMapper<T> recordMapper = getMapper(element);
-                    Key key = getKeyForElement(recordMapper, element);
+                    long start = this.opBuilder.getSession().startTiming();
                     Operation[] operations = operationsForElement(recordMapper, element);
                     
                     OpKind type = OperationBuilder.areOperationsRetryable(operations) ? 
@@ -583,7 +604,7 @@ public class ObjectBuilder<T> {
                     wp.filterExp = whereExp;
                     
                     try {
-                        Record record = this.opBuilder.getSession().getClient().operate(wp, key, operations);
+                        Record record = this.opBuilder.getSession().operate(start, wp, key, operations);
                         if (opBuilder.isRespondAllKeys() || record != null) {
                             recordStream.publish(new RecordResult(key, record, index));
                         }
@@ -614,7 +635,7 @@ public class ObjectBuilder<T> {
     
     /**
      * Execute operations asynchronously for individual objects (< batch threshold).
-     * Returns immediately; virtual threads complete in background.
+     * Returns immediately; operations are scheduled and complete in background.
      */
     private RecordStream executeIndividualAsync() {
         // Apply where clause if present
@@ -626,10 +647,24 @@ public class ObjectBuilder<T> {
         for (int i = 0; i < elements.size(); i++) {
             final int index = i;
             final T element = elements.get(i);
-            Thread.startVirtualThread(() -> {
+            final RecordMapper<T> recordMapper;
+            final Key key;
+            try {
+                recordMapper = getMapper(element);
+                key = getKeyForElement(recordMapper, element);
+            }
+            catch (RuntimeException e) {
+                // Report the failure through the stream rather than to the caller, as for
+                // any other failure of an asynchronous operation
+                asyncStream.error(e);
+                if (pendingOps.decrementAndGet() == 0) {
+                    asyncStream.complete();
+                }
+                continue;
+            }
+            this.opBuilder.getSession().getOperationQueue().submit(key, () -> {
                 try {
-                    RecordMapper<T> recordMapper = getMapper(element);
-                    Key key = getKeyForElement(recordMapper, element);
+                    long start = this.opBuilder.getSession().startTiming();
                     Operation[] operations = operationsForElement(recordMapper, element);
                     
                     OpKind type = OperationBuilder.areOperationsRetryable(operations) ? 
@@ -650,7 +685,7 @@ public class ObjectBuilder<T> {
                     wp.filterExp = whereExp;
                     
                     try {
-                        Record record = this.opBuilder.getSession().getClient().operate(wp, key, operations);
+                        Record record = this.opBuilder.getSession().operate(start, wp, key, operations);
                         if (opBuilder.isRespondAllKeys() || record != null) {
                             asyncStream.publish(new RecordResult(key, record, index));
                         }
@@ -711,43 +746,48 @@ public class ObjectBuilder<T> {
         batchPolicy.failOnFilteredOut = opBuilder.isFailOnFilteredOut();
         batchPolicy.filterExp = whereExp;
 
-        AsyncRecordStream recordStream = new AsyncRecordStream(elements.size());
+        // Every element uses the same write policy, so share one instance across the batch
+        BatchWritePolicy bwp = new BatchWritePolicy();
+        bwp.sendKey = batchPolicy.sendKey;
+        if (generation > 0) {
+            bwp.generation = generation;
+            bwp.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+        }
+        bwp.expiration = expirationAsInt;
+        bwp.durableDelete = settings.getUseDurableDelete();
+
+        batchPolicy.setTxn(this.txnToUse);
+        
+        // Start sending sub-batches while the later elements are still being mapped
+        BatchSplitter.Pipeline pipeline = BatchSplitter.pipeline(this.opBuilder.getSession().getClient(), batchPolicy, settings);
         try {
             for (T element : elements) {
                 RecordMapper<T> recordMapper = getMapper(element);
                 Key key = getKeyForElement(recordMapper, element);
                 Operation[] operations = operationsForElement(recordMapper, element);
                 
-                BatchWritePolicy bwp = new BatchWritePolicy();
-                bwp.sendKey = batchPolicy.sendKey;
-                if (generation > 0) {
-                    bwp.generation = generation;
-                    bwp.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
-                }
-                bwp.expiration = expirationAsInt;
-                bwp.durableDelete = settings.getUseDurableDelete();
-
-                batchWrites.add(new BatchWrite(bwp, key, operations));
-            }
-        
-            batchPolicy.setTxn(this.txnToUse);
-            
-            this.opBuilder.getSession().getClient().operate(
-                    batchPolicy,
-                    batchWrites);
-            
-            // Convert BatchRecord to RecordResult with proper stack trace handling
-            for (int i = 0; i < batchWrites.size(); i++) {
-                BatchRecord br = batchWrites.get(i);
-                if (opBuilder.shouldIncludeResult(br.resultCode)) {
-                    recordStream.publish(opBuilder.createRecordResultFromBatchRecord(br, settings, i));
-                }
+                BatchWrite batchWrite = new BatchWrite(bwp, key, operations);
+                batchWrites.add(batchWrite);
+                pipeline.add(batchWrite);
             }
-            
-            return new RecordStream(recordStream);
+        }
+        catch (RuntimeException e) {
+            pipeline.cancel();
+            this.opBuilder.getSession().invalidateCachedWrites(batchWrites);
+            throw e;
+        }
+        try {
+            pipeline.await();
         }
         finally {
-            recordStream.complete();
+            this.opBuilder.getSession().invalidateCachedWrites(batchWrites);
         }
+        
+        // Convert BatchRecord to RecordResult lazily, with proper stack trace handling
+        return new RecordStream(ArrayRecordStream.of(
+                batchWrites,
+                i -> opBuilder.shouldIncludeResult(batchWrites.get(i).resultCode),
+                (br, i) -> opBuilder.createRecordResultFromBatchRecord(br, settings, i),
+                0));
     }
 }
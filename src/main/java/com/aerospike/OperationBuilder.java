@@ -556,51 +556,34 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
                 .map(key -> new BatchWrite(batchWritePolicy, key, operations))
                 .collect(Collectors.toList());
         
-        session.getClient().operate(batchPolicy, batchRecords);
-        
-        // Convert BatchRecord to RecordResult with proper filtering and stack trace handling
-        AsyncRecordStream recordStream = new AsyncRecordStream(batchRecords.size());
         try {
-            for (int i = 0; i < batchRecords.size(); i++) {
-                BatchRecord br = batchRecords.get(i);
-                if (shouldIncludeResult(br.resultCode)) {
-                    recordStream.publish(createRecordResultFromBatchRecord(br, settings, i));
-                }
-            }
-            
-            return new RecordStream(recordStream);
+            BatchSplitter.operate(session.getClient(), batchPolicy, batchRecords, settings);
         }
         finally {
-            recordStream.complete();
+            session.invalidateCachedWrites(batchRecords);
         }
+        
+        // Convert BatchRecord to RecordResult lazily, with proper filtering and stack trace handling
+        return new RecordStream(ArrayRecordStream.of(
+                batchRecords,
+                i -> shouldIncludeResult(batchRecords.get(i).resultCode),
+                (br, i) -> createRecordResultFromBatchRecord(br, settings, i),
+                0));
     }
     
     protected RecordStream executeBatchAsync(Settings settings, Operation[] operations) {
-        AsyncRecordStream asyncStream = new AsyncRecordStream(keys.size());
-        Thread.startVirtualThread(() -> {
-            try {
-                BatchWritePolicy batchWritePolicy = getBatchWritePolicy();
-    
-                BatchPolicy batchPolicy = settingsToBatchPolicy(settings);
-                List<BatchRecord> batchRecords = keys.stream()
-                        .map(key -> new BatchWrite(batchWritePolicy, key, operations))
-                        .collect(Collectors.toList());
-                
-                session.getClient().operate(batchPolicy, batchRecords);
-                
-                for (int i = 0; i < keys.size(); i++) {
-                    BatchRecord br = batchRecords.get(i);
-                    // Use inherited shouldIncludeResult method
-                    if (shouldIncludeResult(br.resultCode)) {
-                        asyncStream.publish(createRecordResultFromBatchRecord(br, settings, i));
-                    }
-                }
-            }
-            finally {
-                asyncStream.complete();
-            }
-        });
-        return new RecordStream(asyncStream);
+        BatchWritePolicy batchWritePolicy = getBatchWritePolicy();
+
+        BatchPolicy batchPolicy = settingsToBatchPolicy(settings);
+        List<BatchRecord> batchRecords = keys.stream()
+                .map(key -> new BatchWrite(batchWritePolicy, key, operations))
+                .collect(Collectors.toList());
+        
+        // Results are published per node as they complete, keeping their original index
+        return StreamingBatch.execute(session, batchPolicy, batchRecords, settings,
+                i -> shouldIncludeResult(batchRecords.get(i).resultCode),
+                (br, i) -> createRecordResultFromBatchRecord(br, settings, i),
+                0);
     }
     
     protected void showWarningsOnExceptionAndThrow(AerospikeException ae, Txn txn, Key key, int expiration) {
@@ -637,7 +620,7 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
             boolean stackTraceOnException) {
         
         try {
-            Record record = session.getClient().operate(wp, key, operations);
+            Record record = session.operate(wp, key, operations);
             if (respondAllKeys || record != null) {
                 asyncStream.publish(new RecordResult(key, record, index));
             }
@@ -656,7 +639,7 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
 
     /**
      * Execute operations asynchronously for individual keys (< batch threshold).
-     * Returns immediately; virtual threads complete in background.
+     * Returns immediately; operations are scheduled and complete in background.
      */
     protected RecordStream executeIndividualAsync(Settings settings, Operation[] operations) {
         // Apply where clause if present
@@ -666,7 +649,7 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
     }
     
     /**
-     * Execute operations in parallel using virtual threads, JOINING all threads before return.
+     * Execute operations in parallel through the session's scheduler, JOINING all operations before return.
      * Guarantees all operations complete (successfully or exceptionally) before returning.
      */
     protected RecordStream executeIndividualParallelSync(
@@ -678,20 +661,21 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
         Expression filterExp = keys.isEmpty() ? null : processWhereClause(keys.get(0).namespace, session);
         WritePolicy wp = settingsToWritePolicy(settings, filterExp);
         try {
-            // Single key: synchronous execution (no threads needed)
+            // Single key: run on this thread once the scheduler admits it, so it stays ordered
+            // with queued operations on the same key
             if (keysToProcess.size() == 1) {
-                
                 Key key = keysToProcess.get(0);
-                executeAndPublishSingleOperation(wp, key, operations, stream, 0, settings.getStackTraceOnException());
+                session.getOperationQueue().run(key,
+                        () -> executeAndPublishSingleOperation(wp, key, operations, stream, 0, settings.getStackTraceOnException()));
             }
             else {
-                // Multiple keys: parallel execution with virtual threads, JOINED before return
+                // Multiple keys: parallel execution through the session's scheduler, JOINED before return
                 CountDownLatch latch = new CountDownLatch(keysToProcess.size());
                 
                 for (int i = 0; i < keysToProcess.size(); i++) {
                     final int index = i;
                     final Key key = keysToProcess.get(i);
-                    Thread.startVirtualThread(() -> {
+                    session.getOperationQueue().submit(key, () -> {
                         try {
                             // Execute operation and collect result
                             executeAndPublishSingleOperation(wp, key, operations, stream, index, settings.getStackTraceOnException());
@@ -718,8 +702,8 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
     }
     
     /**
-     * Execute operations in parallel using virtual threads, WITHOUT joining.
-     * Returns immediately with AsyncRecordStream; threads complete in background.
+     * Execute operations in parallel through the session's scheduler, WITHOUT joining.
+     * Returns immediately with AsyncRecordStream; operations complete in background.
      */
     protected RecordStream executeIndividualParallelAsync(
             Settings settings, 
@@ -727,7 +711,7 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
             Operation[] operations,
             List<Key> keysToProcess) {
         
-        // Even single key: use async execution with virtual thread
+        // Even single key: use async execution through the scheduler
         AsyncRecordStream asyncStream = new AsyncRecordStream(keysToProcess.size());
         AtomicInteger pendingOps = new AtomicInteger(keysToProcess.size());
 
@@ -736,7 +720,7 @@ public class OperationBuilder extends AbstractOperationBuilder<OperationBuilder>
             final int index = i;
             final Key key = keysToProcess.get(i);
 
-            Thread.startVirtualThread(() -> {
+            session.getOperationQueue().submit(key, () -> {
                 try {
                     executeAndPublishSingleOperation(wp, key, operations, asyncStream, index, settings.getStackTraceOnException());
                 } finally {
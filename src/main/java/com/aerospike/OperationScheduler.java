@@ -0,0 +1,329 @@
+package com.aerospike;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Log;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.cluster.Partitions;
+
+/**
+ * Admission control for single-key commands which are fanned out in parallel.
+ *
+ * <p>Rather than starting one virtual thread per key with no upper bound, individual-key
+ * paths submit their work here. A command is only started when:</p>
+ * <ul>
+ *   <li>the node owning the key's partition has fewer than {@code maximumInFlightPerNode}
+ *   commands running,</li>
+ *   <li>the submitting session has fewer than {@code maximumInFlightPerSession} commands
+ *   admitted, and</li>
+ *   <li>no earlier command on the same key is still queued or running.</li>
+ * </ul>
+ * <p>Work which cannot start immediately is queued in FIFO order, so callers are served in
+ * the order they arrived and operations on a given key are executed in submission order.</p>
+ *
+ * <p>A synchronous command on a single key is run on the caller's thread with
+ * {@link SessionQueue#run(Key, Runnable)}, which waits for the same admission.</p>
+ *
+ * <p>There is one scheduler per {@link Cluster}; each {@link Session} obtains its own
+ * {@link SessionQueue} so the per-session limit is tracked independently. The limits are
+ * taken from {@link SystemSettings} and may be changed dynamically.</p>
+ */
+class OperationScheduler {
+    /** Used when the owning node of a key cannot be determined (unknown namespace, cluster not ready) */
+    private static final String UNKNOWN_NODE = "";
+
+    private final IAerospikeClient client;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, NodeQueue> nodeQueues = new HashMap<>();
+    private final Map<Key, ArrayDeque<Task>> busyKeys = new HashMap<>();
+    private volatile int maximumInFlightPerNode;
+    private volatile int maximumInFlightPerSession;
+    /** The settings in effect, which later partial updates are merged with */
+    private SystemSettings settings = SystemSettings.DEFAULT;
+
+    OperationScheduler(IAerospikeClient client, SystemSettings settings) {
+        this.client = client;
+        applySettings(settings);
+    }
+
+    /**
+     * Update the admission limits. Settings which are not given keep their current values.
+     * Work already running is unaffected; queued work is released if the limits have been raised.
+     */
+    void applySettings(SystemSettings settings) {
+        List<Task> toStart = new ArrayList<>();
+        lock.lock();
+        try {
+            SystemSettings effective = settings.mergeWith(this.settings);
+            applyLimits(effective);
+            this.settings = effective;
+            for (NodeQueue nodeQueue : nodeQueues.values()) {
+                drainNode(nodeQueue, toStart);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        start(toStart);
+    }
+
+    private void applyLimits(SystemSettings effective) {
+        int perNode = effective.getMaximumInFlightPerNode();
+        int perSession = effective.getMaximumInFlightPerSession();
+        if (perNode <= 0 || perSession <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Maximum in-flight operations must be > 0, not %d per node and %d per session",
+                    perNode, perSession));
+        }
+        this.maximumInFlightPerNode = perNode;
+        this.maximumInFlightPerSession = perSession;
+    }
+
+    int getMaximumInFlightPerNode() {
+        return maximumInFlightPerNode;
+    }
+
+    int getMaximumInFlightPerSession() {
+        return maximumInFlightPerSession;
+    }
+
+    /**
+     * Create a new queue for a session. Each session has its own in-flight limit, but
+     * shares the per-node limits and the per-key ordering with all other sessions on the cluster.
+     */
+    SessionQueue newSessionQueue() {
+        return new SessionQueue();
+    }
+
+    /**
+     * The per-session view of the scheduler.
+     */
+    class SessionQueue {
+        private final ArrayDeque<Task> waiting = new ArrayDeque<>();
+        private int inFlight = 0;
+
+        private SessionQueue() {}
+
+        /**
+         * Submit a single-key command. The work is run on a virtual thread once it has
+         * been admitted. This method never blocks.
+         *
+         * @param key the key the command operates on, used for node routing and ordering
+         * @param work the command to execute. It should not throw, but if it does the
+         * scheduler's bookkeeping is still released.
+         */
+        public void submit(Key key, Runnable work) {
+            enqueue(new Task(this, key, work, null));
+        }
+
+        /**
+         * Run a single-key command on the calling thread. The caller waits until the command
+         * is admitted exactly as {@link #submit(Key, Runnable)} would admit it, so it is ordered
+         * with the other commands on the same key and counts against the same limits, but no
+         * thread is started for it.
+         *
+         * @param key the key the command operates on, used for node routing and ordering
+         * @param work the command to execute
+         */
+        public void run(Key key, Runnable work) {
+            CountDownLatch admitted = new CountDownLatch(1);
+            Task task = new Task(this, key, work, admitted);
+            enqueue(task);
+            // The task must run once admitted or the commands queued behind it never start, so
+            // an interrupt is only passed on once it has run
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    admitted.await();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            try {
+                work.run();
+            }
+            finally {
+                completed(task);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void enqueue(Task task) {
+            Key key = task.key;
+            List<Task> toStart = new ArrayList<>(1);
+            lock.lock();
+            try {
+                ArrayDeque<Task> followers = busyKeys.get(key);
+                if (followers != null) {
+                    // Another command on this key is pending, run after it.
+                    followers.add(task);
+                }
+                else {
+                    busyKeys.put(key, new ArrayDeque<>());
+                    admit(task, toStart);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+            start(toStart);
+        }
+
+        /**
+         * @return the number of commands admitted for this session but not yet finished.
+         */
+        public int getInFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class NodeQueue {
+        private final ArrayDeque<Task> waiting = new ArrayDeque<>();
+        private int inFlight = 0;
+    }
+
+    private static class Task {
+        private final SessionQueue session;
+        private final Key key;
+        private final Runnable work;
+        /** Set if the caller runs the work itself, and released when the task is admitted */
+        private final CountDownLatch admitted;
+        private NodeQueue node;
+
+        Task(SessionQueue session, Key key, Runnable work, CountDownLatch admitted) {
+            this.session = session;
+            this.key = key;
+            this.work = work;
+            this.admitted = admitted;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------
+    // All methods below which mutate state must be called with the lock held
+    // -----------------------------------------------------------------------------------
+
+    /**
+     * Pass a task which is at the head of its key chain through session then node admission.
+     */
+    private void admit(Task task, List<Task> toStart) {
+        SessionQueue session = task.session;
+        if (session.inFlight < maximumInFlightPerSession) {
+            session.inFlight++;
+            admitToNode(task, toStart);
+        }
+        else {
+            session.waiting.add(task);
+        }
+    }
+
+    private void admitToNode(Task task, List<Task> toStart) {
+        NodeQueue nodeQueue = nodeQueues.computeIfAbsent(nodeNameFor(client, task.key), name -> new NodeQueue());
+        task.node = nodeQueue;
+        if (nodeQueue.inFlight < maximumInFlightPerNode) {
+            nodeQueue.inFlight++;
+            toStart.add(task);
+        }
+        else {
+            nodeQueue.waiting.add(task);
+        }
+    }
+
+    private void drainNode(NodeQueue nodeQueue, List<Task> toStart) {
+        while (nodeQueue.inFlight < maximumInFlightPerNode && !nodeQueue.waiting.isEmpty()) {
+            nodeQueue.inFlight++;
+            toStart.add(nodeQueue.waiting.poll());
+        }
+    }
+
+    private void drainSession(SessionQueue session, List<Task> toStart) {
+        while (session.inFlight < maximumInFlightPerSession && !session.waiting.isEmpty()) {
+            session.inFlight++;
+            admitToNode(session.waiting.poll(), toStart);
+        }
+    }
+
+    private void completed(Task task) {
+        List<Task> toStart = new ArrayList<>();
+        lock.lock();
+        try {
+            task.node.inFlight--;
+            task.session.inFlight--;
+
+            ArrayDeque<Task> followers = busyKeys.get(task.key);
+            Task next = followers.poll();
+            if (next == null) {
+                busyKeys.remove(task.key);
+            }
+            else {
+                admit(next, toStart);
+            }
+            drainSession(task.session, toStart);
+            drainNode(task.node, toStart);
+        }
+        finally {
+            lock.unlock();
+        }
+        start(toStart);
+    }
+
+    private void start(List<Task> tasks) {
+        for (Task task : tasks) {
+            if (task.admitted != null) {
+                task.admitted.countDown();
+                continue;
+            }
+            Thread.startVirtualThread(() -> {
+                try {
+                    task.work.run();
+                }
+                finally {
+                    completed(task);
+                }
+            });
+        }
+    }
+
+    /**
+     * Determine which node currently masters the partition of the key. Routing is best-effort:
+     * if the partition map is not available the empty string is returned, so all such keys
+     * are grouped together.
+     */
+    static String nodeNameFor(IAerospikeClient client, Key key) {
+        try {
+            Partitions partitions = client.getCluster().partitionMap.get(key.namespace);
+            if (partitions != null) {
+                AtomicReferenceArray<Node> master = partitions.replicas[0];
+                Node node = master.get(Partition.getPartitionId(key.digest));
+                if (node != null) {
+                    return node.getName();
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            if (Log.debugEnabled()) {
+                Log.debug("Unable to determine node for key " + key + ": " + e.getMessage());
+            }
+        }
+        return UNKNOWN_NODE;
+    }
+}
@@ -244,21 +244,22 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
     
     /**
      * Apply filter expression and respondAllKeys to a batch policy.
-     * Creates a new BatchPolicy if modifications are needed.
+     * The passed policy may be shared so is never modified: it is copied once if anything needs to be set.
      */
     private BatchPolicy applyBatchPolicySettings(BatchPolicy batchPolicy, String namespace) {
-        // Apply filter expression if set
         Expression filterExp = processWhereClause(namespace, session);
+        if (filterExp == null && !respondAllKeys) {
+            return batchPolicy;
+        }
+        batchPolicy = new BatchPolicy(batchPolicy);
+        
+        // Apply filter expression if set
         if (filterExp != null) {
-            batchPolicy = new BatchPolicy(batchPolicy);
             batchPolicy.filterExp = filterExp;
         }
         
         // Apply respondAllKeys flag
         if (respondAllKeys) {
-            if (batchPolicy == null || filterExp == null) {
-                batchPolicy = new BatchPolicy(batchPolicy);
-            }
             batchPolicy.respondAllKeys = true;
         }
         
@@ -301,38 +302,39 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
     
     /**
      * Apply all settings to a write policy for single-key operations.
-     * Creates a new WritePolicy as needed for modifications.
+     * The passed policy may be shared so is never modified: it is copied once if anything needs to be set.
      */
     private WritePolicy applyWritePolicySettings(WritePolicy wp, String namespace) {
+        Expression filterExp = processWhereClause(namespace, session);
+        boolean applyDurableDelete = durablyDelete != null && opType == OpType.DELETE;
+        if (expirationInSeconds == 0 && generation <= 0 && filterExp == null && txnToUse == null && !applyDurableDelete) {
+            return wp;
+        }
+        wp = new WritePolicy(wp);
+        
         // Apply expiration settings
         if (expirationInSeconds != 0) {
-            wp = new WritePolicy(wp);
             wp.expiration = getExpirationAsInt();
         }
         
         // Apply generation if set
         if (generation > 0) {
-            wp = new WritePolicy(wp);
             wp.generationPolicy = com.aerospike.client.policy.GenerationPolicy.EXPECT_GEN_EQUAL;
             wp.generation = generation;
         }
         
         // Apply filter expression if set
-        Expression filterExp = processWhereClause(namespace, session);
         if (filterExp != null) {
-            wp = new WritePolicy(wp);
             wp.filterExp = filterExp;
         }
         
         // Apply transaction if set
         if (txnToUse != null) {
-            wp = new WritePolicy(wp);
             wp.txn = txnToUse;
         }
         
         // Apply durable delete if specified and operation is DELETE
-        if (durablyDelete != null && opType == OpType.DELETE) {
-            wp = new WritePolicy(wp);
+        if (applyDurableDelete) {
             wp.durableDelete = durablyDelete;
         }
         
@@ -348,7 +350,7 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
         case EXISTS: {
             BatchPolicy batchPolicy = session.getBehavior()
                     .getSettings(OpKind.READ, OpShape.BATCH, session.isNamespaceSC(namespace))
-                    .asBatchPolicy();
+                    .getSharedBatchPolicy();
             batchPolicy = applyBatchPolicySettings(batchPolicy, namespace);
             
             boolean[] results = session.getClient().exists(batchPolicy, keyArray);
@@ -359,7 +361,7 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
         case TOUCH: {
             BatchPolicy batchPolicy = session.getBehavior()
                     .getSettings(OpKind.WRITE_RETRYABLE, OpShape.BATCH, session.isNamespaceSC(namespace))
-                    .asBatchPolicy();
+                    .getSharedBatchPolicy();
             batchPolicy = applyBatchPolicySettings(batchPolicy, namespace);
             
             BatchWritePolicy batchWritePolicy = new BatchWritePolicy();
@@ -370,7 +372,13 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
             }
             applyGenerationPolicy(batchWritePolicy);
             
-            BatchResults results = session.getClient().operate(batchPolicy, batchWritePolicy, keyArray, Operation.touch());
+            BatchResults results;
+            try {
+                results = session.getClient().operate(batchPolicy, batchWritePolicy, keyArray, Operation.touch());
+            }
+            finally {
+                session.invalidateCached(keys);
+            }
             recordResults = processBatchResults(results);
             break;
         }
@@ -378,7 +386,7 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
         case DELETE: {
             BatchPolicy batchPolicy = session.getBehavior()
                     .getSettings(OpKind.WRITE_RETRYABLE, OpShape.BATCH, session.isNamespaceSC(namespace))
-                    .asBatchPolicy();
+                    .getSharedBatchPolicy();
             batchPolicy = applyBatchPolicySettings(batchPolicy, namespace);
 
             BatchDeletePolicy batchDeletePolicy = new BatchDeletePolicy();
@@ -390,7 +398,13 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
                 batchDeletePolicy.durableDelete = durablyDelete;
             }
             
-            BatchResults results = session.getClient().delete(batchPolicy, batchDeletePolicy, keyArray);
+            BatchResults results;
+            try {
+                results = session.getClient().delete(batchPolicy, batchDeletePolicy, keyArray);
+            }
+            finally {
+                session.invalidateCached(keys);
+            }
             recordResults = processBatchResults(results);
             break;
         }
@@ -411,7 +425,7 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
             // Multi-key (batch) operation
             WritePolicy wp = session.getBehavior()
                     .getSettings(OpKind.WRITE_RETRYABLE, OpShape.BATCH, session.isNamespaceSC(getAnyKey().namespace))
-                    .asWritePolicy();
+                    .getSharedWritePolicy();
             return batchExecute(wp);
         }
     }
@@ -420,7 +434,7 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
         OpKind opKind = (opType == OpType.EXISTS) ? OpKind.READ : OpKind.WRITE_RETRYABLE;
         WritePolicy wp = session.getBehavior()
                 .getSettings(opKind, OpShape.POINT, session.isNamespaceSC(key.namespace))
-                .asWritePolicy();
+                .getSharedWritePolicy();
         
         wp = applyWritePolicySettings(wp, key.namespace);
         
@@ -446,6 +460,11 @@ public class OperationWithNoBinsBuilder extends AbstractSessionOperationBuilder<
             // For other exceptions, wrap in RecordResult
             return new RecordStream(new RecordResult(key, AeroException.from(e), 0));
         }
+        finally {
+            if (opType != OpType.EXISTS) {
+                session.invalidateCached(key);
+            }
+        }
         
         // Convert boolean result to RecordResult
         // true -> ResultCode.OK, false -> ResultCode.KEY_NOT_FOUND_ERROR
@@ -0,0 +1,157 @@
+package com.aerospike;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Log;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * Executes a dataset query or scan as a number of partition shards, each read by its own
+ * virtual thread, merging the results into one bounded {@link AsyncRecordStream}.
+ *
+ * <p>The partition range is split into contiguous shards of as equal size as possible. Every
+ * shard publishes its records as they arrive, so the results are not in any defined order. A
+ * limit is enforced across all shards: once it has been reached every shard is stopped. Closing
+ * the stream, or a failure in any shard, also stops every shard.</p>
+ *
+ * <p>A records-per-second limit on the statement applies to the query as a whole, so it is
+ * divided between the shards.</p>
+ */
+public final class ParallelQuery {
+    /** Number of results buffered between the shards and the consumer when no chunk size is given */
+    static final int DEFAULT_CAPACITY = 1000;
+
+    private ParallelQuery() {}
+
+    /**
+     * Split a partition range into shards.
+     *
+     * @return the shard boundaries: shard {@code i} covers partitions {@code [result[i], result[i+1])}
+     */
+    static int[] shards(int startPartition, int endPartition, int parallelism) {
+        int partitions = endPartition - startPartition;
+        int count = Math.max(1, Math.min(parallelism, partitions));
+        int[] boundaries = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            boundaries[i] = startPartition + (int) ((long) partitions * i / count);
+        }
+        return boundaries;
+    }
+
+    /**
+     * @return the share of a records-per-second limit given to each shard, rounded up so the
+     * shards never get less than 1 between them
+     */
+    static int recordsPerSecondPerShard(int recordsPerSecond, int shardCount) {
+        return Math.max(1, (recordsPerSecond + shardCount - 1) / shardCount);
+    }
+
+    /**
+     * Start the query and return immediately.
+     *
+     * @param session the session to execute the query on
+     * @param policy the query policy. This is not modified.
+     * @param statements supplies a new statement for each shard, as statements are not shared between queries
+     * @param startPartition the first partition of the query (inclusive)
+     * @param endPartition the last partition of the query (exclusive)
+     * @param parallelism the number of shards to use
+     * @param capacity the number of results which can be buffered before the shards block
+     * @param limit the maximum number of results to publish across all shards (0 or negative means no limit)
+     * @return a stream which receives the results as they arrive
+     */
+    public static RecordStream execute(Session session, QueryPolicy policy, Supplier<Statement> statements,
+            int startPartition, int endPartition, int parallelism, int capacity, long limit) {
+
+        int[] boundaries = shards(startPartition, endPartition, parallelism);
+        int shardCount = boundaries.length - 1;
+        if (Log.debugEnabled()) {
+            Log.debug(String.format("Parallel query over partitions %d-%d split into %d shard(s)",
+                    startPartition, endPartition, shardCount));
+        }
+
+        AsyncRecordStream asyncStream = new AsyncRecordStream(capacity, session.getMetrics());
+        IAerospikeClient client = session.getClient();
+        AtomicReferenceArray<RecordSet> recordSets = new AtomicReferenceArray<>(shardCount);
+        AtomicInteger pendingShards = new AtomicInteger(shardCount);
+        AtomicLong published = new AtomicLong();
+        // Shards blocked waiting on the server only notice the stream is closed once their record set is
+        asyncStream.onClose(() -> closeAll(recordSets));
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            int index = shard;
+            PartitionFilter filter = PartitionFilter.range(boundaries[shard], boundaries[shard + 1] - boundaries[shard]);
+            Thread.startVirtualThread(() -> {
+                try {
+                    if (asyncStream.cancelled().getAsBoolean()) {
+                        return;
+                    }
+                    Statement statement = statements.get();
+                    if (statement.getRecordsPerSecond() > 0) {
+                        statement.setRecordsPerSecond(recordsPerSecondPerShard(statement.getRecordsPerSecond(), shardCount));
+                    }
+                    RecordSet recordSet = client.queryPartitions(new QueryPolicy(policy), statement, filter);
+                    recordSets.set(index, recordSet);
+                    try {
+                        while (!asyncStream.cancelled().getAsBoolean() && recordSet.next()) {
+                            boolean last = false;
+                            if (limit > 0) {
+                                long count = published.incrementAndGet();
+                                if (count > limit) {
+                                    break;
+                                }
+                                last = count == limit;
+                            }
+                            if (!asyncStream.publish(new RecordResult(recordSet.getKeyRecord(), -1)) || last) {
+                                break;
+                            }
+                        }
+                    }
+                    finally {
+                        recordSet.close();
+                    }
+                    if (limit > 0 && published.get() >= limit) {
+                        // Other shards may be waiting on the server for records which are no longer needed
+                        closeAll(recordSets);
+                    }
+                }
+                catch (RuntimeException e) {
+                    // A shard which was closed because the limit was reached or the stream was closed
+                    // may fail, which is expected
+                    if (!(limit > 0 && published.get() >= limit) && !asyncStream.cancelled().getAsBoolean()) {
+                        asyncStream.error(e);
+                        // Completing the stream releases the other shards if they are blocked publishing
+                        asyncStream.complete();
+                        closeAll(recordSets);
+                    }
+                }
+                finally {
+                    if (pendingShards.decrementAndGet() == 0) {
+                        asyncStream.complete();
+                    }
+                }
+            });
+        }
+        return new RecordStream(asyncStream);
+    }
+
+    private static void closeAll(AtomicReferenceArray<RecordSet> recordSets) {
+        for (int i = 0; i < recordSets.length(); i++) {
+            RecordSet recordSet = recordSets.get(i);
+            if (recordSet != null) {
+                try {
+                    recordSet.close();
+                }
+                catch (RuntimeException ignored) {
+                    // The shard is being abandoned, so failures closing it are of no interest
+                }
+            }
+        }
+    }
+}
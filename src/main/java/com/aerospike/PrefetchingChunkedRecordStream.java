@@ -0,0 +1,259 @@
+package com.aerospike;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.query.RecordStreamImpl;
+
+/**
+ * A chunked record stream which fetches the following chunks in the background while the
+ * consumer processes the current one, removing the server round trip from each chunk boundary.
+ *
+ * <p>Chunks are fetched sequentially by a single virtual thread, as each query resumes from
+ * where the partition filter of the previous one finished. Up to {@code prefetchDepth} complete
+ * chunks are held ahead of the consumer, so memory use is bounded by roughly
+ * {@code (prefetchDepth + 2) * chunkSize} records: the chunk being consumed, the chunks waiting
+ * and the chunk being fetched.</p>
+ *
+ * <p>The iteration semantics match {@link ChunkedRecordStream}: {@link #hasNext()} returns
+ * false at the end of each chunk and {@link #hasMoreChunks()} reports whether another chunk
+ * follows. When the limit is reached, or the stream is closed, the background fetch is
+ * cancelled and its {@code RecordSet} closed so the server stops scanning.</p>
+ *
+ * <p>The fetching thread only holds the stream weakly. If the stream is dropped without being
+ * closed, the thread stops once the stream has been garbage collected rather than holding its
+ * chunks, and any running query, for the life of the application.</p>
+ */
+public class PrefetchingChunkedRecordStream implements RecordStreamImpl {
+    private static final Chunk END = new Chunk(null, null, null, null);
+    // The start and end positions are taken while no query is running. The end is null if the
+    // chunk was cut short, as the filter may then have moved past records which were not kept.
+    private record Chunk(List<KeyRecord> records, RuntimeException error, QueryCursor start, QueryCursor end) {}
+
+    private final Fetcher fetcher;
+    private final long limit;
+
+    // Consumer state
+    private Iterator<KeyRecord> currentChunk;
+    private Chunk currentChunkData;
+    private KeyRecord current;
+    private boolean finished = false;
+    private long recordCount = 0;
+    private QueryCursor position;
+
+    /**
+     * @param session the session to query on
+     * @param queryPolicy the query policy. This is not modified.
+     * @param statement the statement, whose {@code maxRecords} is the chunk size
+     * @param filter the partition filter, which tracks progress through the partitions
+     * @param limit the maximum number of records to return
+     * @param prefetchDepth the number of complete chunks which may be held ahead of the consumer (must be > 0)
+     */
+    public PrefetchingChunkedRecordStream(Session session, QueryPolicy queryPolicy, Statement statement,
+            PartitionFilter filter, long limit, int prefetchDepth) {
+        if (prefetchDepth <= 0) {
+            throw new IllegalArgumentException("prefetchDepth must be > 0, not " + prefetchDepth);
+        }
+        this.limit = limit;
+        this.position = QueryCursor.of(statement, queryPolicy, filter);
+        this.fetcher = new Fetcher(this, session, queryPolicy, statement, filter, limit, prefetchDepth);
+        Thread.startVirtualThread(fetcher);
+    }
+
+    /**
+     * Fetches the chunks on a background thread. This must not refer to the stream other than
+     * through {@code owner}, otherwise the thread would keep an abandoned stream reachable.
+     */
+    private static final class Fetcher implements Runnable {
+        private final WeakReference<PrefetchingChunkedRecordStream> owner;
+        private final Session session;
+        private final QueryPolicy queryPolicy;
+        private final Statement statement;
+        private final PartitionFilter filter;
+        private final long limit;
+        private final BlockingQueue<Chunk> chunks;
+        private volatile boolean closed = false;
+        private volatile RecordSet fetching;
+
+        Fetcher(PrefetchingChunkedRecordStream owner, Session session, QueryPolicy queryPolicy, Statement statement,
+                PartitionFilter filter, long limit, int prefetchDepth) {
+            this.owner = new WeakReference<>(owner);
+            this.session = session;
+            this.queryPolicy = queryPolicy;
+            this.statement = statement;
+            this.filter = filter;
+            this.limit = limit;
+            this.chunks = new ArrayBlockingQueue<>(prefetchDepth);
+        }
+
+        /**
+         * @return true if the stream was closed, or dropped without being closed
+         */
+        private boolean stopped() {
+            if (!closed && owner.get() == null) {
+                close();
+            }
+            return closed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long fetched = 0;
+                do {
+                    QueryCursor start = QueryCursor.of(statement, queryPolicy, filter);
+                    boolean complete = false;
+                    RecordSet recordSet = session.getClient().queryPartitions(queryPolicy, statement, filter);
+                    fetching = recordSet;
+                    List<KeyRecord> records = new ArrayList<>();
+                    try {
+                        while (!stopped() && fetched < limit) {
+                            if (!recordSet.next()) {
+                                complete = true;
+                                break;
+                            }
+                            records.add(recordSet.getKeyRecord());
+                            fetched++;
+                        }
+                    }
+                    finally {
+                        fetching = null;
+                        recordSet.close();
+                    }
+                    QueryCursor end = complete ? QueryCursor.of(statement, queryPolicy, filter) : null;
+                    if (!offer(new Chunk(records, null, start, end))) {
+                        return;
+                    }
+                } while (!stopped() && fetched < limit && !filter.isDone());
+            }
+            catch (RuntimeException e) {
+                if (!stopped()) {
+                    offer(new Chunk(null, e, null, null));
+                }
+            }
+            offer(END);
+        }
+
+        /**
+         * Queue a chunk for the consumer, waiting while the prefetch depth is reached.
+         * @return false if the stream was closed or dropped while waiting
+         */
+        private boolean offer(Chunk chunk) {
+            try {
+                while (!stopped()) {
+                    if (chunks.offer(chunk, 50, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                RecordSet recordSet = fetching;
+                if (recordSet != null) {
+                    recordSet.close();
+                }
+                chunks.clear();
+            }
+        }
+    }
+
+    /**
+     * Move the consumer onto the next chunk, waiting for it to be fetched if necessary.
+     * @return false if there are no more chunks
+     */
+    private boolean nextChunk() {
+        if (finished) {
+            return false;
+        }
+        Chunk chunk;
+        try {
+            // Wake up periodically, as nothing more will be queued once the stream is closed
+            while ((chunk = fetcher.chunks.poll(50, TimeUnit.MILLISECONDS)) == null) {
+                if (fetcher.closed) {
+                    finished = true;
+                    return false;
+                }
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            finished = true;
+            return false;
+        }
+        if (chunk == END) {
+            finished = true;
+            return false;
+        }
+        if (chunk.error() != null) {
+            finished = true;
+            close();
+            throw chunk.error();
+        }
+        currentChunk = chunk.records().iterator();
+        currentChunkData = chunk;
+        position = chunk.start();
+        return true;
+    }
+
+    @Override
+    public boolean hasMoreChunks() {
+        if (recordCount >= limit) {
+            return false;
+        }
+        return currentChunk != null || nextChunk();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (recordCount >= limit) {
+            close();
+            return false;
+        }
+        if (currentChunk == null && !nextChunk()) {
+            return false;
+        }
+        if (currentChunk.hasNext()) {
+            current = currentChunk.next();
+            recordCount++;
+            return true;
+        }
+        // End of this chunk, the next call moves onto the following one
+        currentChunk = null;
+        if (currentChunkData.end() != null) {
+            position = currentChunkData.end();
+        }
+        return false;
+    }
+
+    @Override
+    public RecordResult next() {
+        return new RecordResult(current, -1); // Query operation, index = -1
+    }
+
+    @Override
+    public QueryCursor cursor() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        fetcher.close();
+    }
+}
@@ -0,0 +1,297 @@
+package com.aerospike;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.PartitionStatus;
+import com.aerospike.client.query.Statement;
+
+/**
+ * The position of a chunked dataset query, captured so the query can be continued later, possibly
+ * by another process. Obtain a cursor from {@link RecordStream#cursor()} and continue the query
+ * with {@link com.aerospike.query.QueryBuilder#resumeFrom(QueryCursor)}.
+ *
+ * <p>The cursor holds the namespace, set and partition range of the query and the position reached
+ * in each partition (the digest or value of the last record returned). Partitions which have not
+ * been started are omitted, so the cursor stays small. It can be serialized with Java serialization
+ * or, more compactly, as a URL-safe string with {@link #toString()} and {@link #fromString(String)},
+ * which suits stateless paging through a REST tier. Neither the client nor the server holds any
+ * state for a cursor.</p>
+ *
+ * <p>The cursor also holds a fingerprint of the query: its where clause, bins, namespace, set and
+ * chunk size. The positions are only meaningful for the same query, so a cursor is rejected if
+ * the query it is resumed with has a different fingerprint. A cursor taken part way through a
+ * chunk is positioned at the start of that chunk, so records of the current chunk may be
+ * returned again when resuming.</p>
+ */
+public final class QueryCursor implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private static final byte FORMAT_VERSION = 2;
+    private static final int FLAG_RETRY = 1;
+    private static final int FLAG_DIGEST = 2;
+
+    private final String namespace;
+    private final String setName;
+    private final int begin;
+    private final int count;
+    private final boolean done;
+    private final long fingerprint;
+    // Only partitions which have been started, in partition id order
+    private final PartitionPosition[] positions;
+
+    private record PartitionPosition(int id, boolean retry, long bval, byte[] digest) implements Serializable {}
+
+    private QueryCursor(String namespace, String setName, int begin, int count, boolean done, long fingerprint,
+            PartitionPosition[] positions) {
+        this.namespace = namespace;
+        this.setName = setName;
+        this.begin = begin;
+        this.count = count;
+        this.done = done;
+        this.fingerprint = fingerprint;
+        this.positions = positions;
+    }
+
+    /**
+     * Capture the position of a query. The query must not be running, otherwise the partition
+     * filter may be updated while it is being read.
+     */
+    static QueryCursor of(Statement statement, QueryPolicy policy, PartitionFilter filter) {
+        PartitionStatus[] partitions = filter.getPartitions();
+        PartitionPosition[] positions;
+        if (partitions == null) {
+            positions = new PartitionPosition[0];
+        }
+        else {
+            positions = Arrays.stream(partitions)
+                    .filter(part -> !part.retry || part.digest != null || part.bval != 0)
+                    .map(part -> new PartitionPosition(part.id, part.retry, part.bval,
+                            part.digest == null ? null : part.digest.clone()))
+                    .toArray(PartitionPosition[]::new);
+        }
+        return new QueryCursor(statement.getNamespace(), statement.getSetName(),
+                filter.getBegin(), filter.getCount(), filter.isDone(), fingerprint(statement, policy), positions);
+    }
+
+    /**
+     * @return a hash of everything about the query which determines which records it returns
+     * and in what chunks: the index filter and filter expression, the bins, the namespace, the
+     * set and the chunk size
+     */
+    static long fingerprint(Statement statement, QueryPolicy policy) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeNullable(out, statement.getNamespace());
+            writeNullable(out, statement.getSetName());
+            String[] binNames = statement.getBinNames();
+            out.writeInt(binNames == null ? -1 : binNames.length);
+            if (binNames != null) {
+                for (String binName : binNames) {
+                    out.writeUTF(binName);
+                }
+            }
+            out.writeBoolean(policy.includeBinData);
+            out.writeLong(statement.getMaxRecords());
+            Filter filter = statement.getFilter();
+            out.writeBoolean(filter != null);
+            if (filter != null) {
+                out.writeUTF(filter.getName());
+                out.writeInt(filter.getValType());
+                writeNullable(out, Objects.toString(filter.getBegin(), null));
+                writeNullable(out, Objects.toString(filter.getEnd(), null));
+            }
+            byte[] expression = policy.filterExp == null ? null : policy.filterExp.getBytes();
+            out.writeInt(expression == null ? -1 : expression.length);
+            if (expression != null) {
+                out.write(expression);
+            }
+            out.flush();
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+            return ByteBuffer.wrap(hash).getLong();
+        }
+        catch (IOException | NoSuchAlgorithmException e) {
+            // Cannot happen writing to memory, and every JVM provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Check this cursor can be used to continue a query.
+     *
+     * @param statement the statement of the query being resumed
+     * @param policy the policy of the query being resumed, holding its filter expression
+     * @throws IllegalArgumentException if the query is not the one this cursor was taken from
+     */
+    public void checkResumes(Statement statement, QueryPolicy policy) {
+        if (!Objects.equals(namespace, statement.getNamespace()) || !Objects.equals(setName, statement.getSetName())) {
+            throw new IllegalArgumentException(String.format(
+                    "Query cursor is for namespace '%s', set '%s' but the query is on namespace '%s', set '%s'",
+                    namespace, setName, statement.getNamespace(), statement.getSetName()));
+        }
+        if (fingerprint != fingerprint(statement, policy)) {
+            throw new IllegalArgumentException("Query cursor was taken from a different query. The where clause, "
+                    + "bins and chunk size of the resumed query must be the same as the original's");
+        }
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getSetName() {
+        return setName;
+    }
+
+    /** @return the first partition of the query (inclusive) */
+    public int getStartPartition() {
+        return begin;
+    }
+
+    /** @return the last partition of the query (exclusive) */
+    public int getEndPartition() {
+        return begin + count;
+    }
+
+    /** @return true if the query had returned all its records when this cursor was taken */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Create a partition filter which continues the query from this position. A new filter is
+     * created on every call, as the filter is updated as the query progresses.
+     */
+    public PartitionFilter toPartitionFilter() {
+        PartitionFilter filter = PartitionFilter.range(begin, count);
+        if (positions.length > 0) {
+            PartitionStatus[] partitions = new PartitionStatus[count];
+            for (int i = 0; i < count; i++) {
+                partitions[i] = new PartitionStatus(begin + i);
+            }
+            for (PartitionPosition position : positions) {
+                PartitionStatus part = partitions[position.id() - begin];
+                part.retry = position.retry();
+                part.bval = position.bval();
+                part.digest = position.digest() == null ? null : position.digest().clone();
+            }
+            filter.setPartitions(partitions);
+        }
+        return filter;
+    }
+
+    /**
+     * Encode this cursor in a compact binary form.
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + positions.length * 16);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(namespace);
+            out.writeBoolean(setName != null);
+            if (setName != null) {
+                out.writeUTF(setName);
+            }
+            out.writeShort(begin);
+            out.writeShort(count);
+            out.writeBoolean(done);
+            out.writeLong(fingerprint);
+            out.writeShort(positions.length);
+            for (PartitionPosition position : positions) {
+                out.writeShort(position.id());
+                int flags = (position.retry() ? FLAG_RETRY : 0) | (position.digest() != null ? FLAG_DIGEST : 0);
+                out.writeByte(flags);
+                out.writeLong(position.bval());
+                if (position.digest() != null) {
+                    out.writeByte(position.digest().length);
+                    out.write(position.digest());
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+        catch (IOException e) {
+            // Cannot happen writing to memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decode a cursor encoded with {@link #toBytes()}.
+     * @throws IllegalArgumentException if the bytes are not a valid cursor
+     */
+    public static QueryCursor fromBytes(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            int version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported query cursor version " + version);
+            }
+            String namespace = in.readUTF();
+            String setName = in.readBoolean() ? in.readUTF() : null;
+            int begin = in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            boolean done = in.readBoolean();
+            long fingerprint = in.readLong();
+            if (begin + count > 4096 || count == 0) {
+                throw new IllegalArgumentException("Invalid partition range in query cursor: " + begin + " + " + count);
+            }
+            PartitionPosition[] positions = new PartitionPosition[in.readUnsignedShort()];
+            for (int i = 0; i < positions.length; i++) {
+                int id = in.readUnsignedShort();
+                if (id < begin || id >= begin + count) {
+                    throw new IllegalArgumentException("Partition " + id + " in query cursor is outside its range");
+                }
+                int flags = in.readUnsignedByte();
+                long bval = in.readLong();
+                byte[] digest = null;
+                if ((flags & FLAG_DIGEST) != 0) {
+                    digest = new byte[in.readUnsignedByte()];
+                    in.readFully(digest);
+                }
+                positions[i] = new PartitionPosition(id, (flags & FLAG_RETRY) != 0, bval, digest);
+            }
+            return new QueryCursor(namespace, setName, begin, count, done, fingerprint, positions);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Invalid query cursor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decode a cursor from the string form returned by {@link #toString()}.
+     * @throws IllegalArgumentException if the string is not a valid cursor
+     */
+    public static QueryCursor fromString(String token) {
+        return fromBytes(Base64.getUrlDecoder().decode(token));
+    }
+
+    /**
+     * @return the cursor as a compact, URL-safe string which can be passed to {@link #fromString(String)}
+     */
+    @Override
+    public String toString() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(toBytes());
+    }
+}
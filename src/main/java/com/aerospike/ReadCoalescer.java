@@ -0,0 +1,278 @@
+package com.aerospike;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.ReadModeAP;
+import com.aerospike.client.policy.ReadModeSC;
+
+/**
+ * Coalesces concurrent identical reads, so that when many threads read the same record at the
+ * same time only one of them goes to the server and the others wait for its result.
+ *
+ * <p>Reads are identical if they are for the same key with the same bins, the same filter
+ * expression and the same read mode. The first such read becomes the leader of a flight and is
+ * sent to the server. Reads which arrive while the flight is in progress wait for it to complete
+ * and are given the leader's result, or the exception it failed with. Once the flight has
+ * completed the next read starts a new one, so results are never reused after the fact. A write
+ * through the session also ends the flights for the record it writes, so a read which follows a
+ * write is never given the result of a read which started before it.</p>
+ *
+ * <p>The coalescer is opt-in: attach one to a session with
+ * {@link Session#setReadCoalescer(ReadCoalescer)}. Point and batch reads through that session
+ * are then coalesced, except in transactions, where every read must be made by the
+ * transaction itself. A coalescer may be shared by several sessions.</p>
+ */
+public final class ReadCoalescer {
+    /**
+     * Identifies reads which will return the same result.
+     */
+    public record ReadKey(Key key, List<String> binNames, boolean withNoBins, ByteBuffer filterExp,
+            boolean failOnFilteredOut, ReadModeAP readModeAP, ReadModeSC readModeSC) {
+
+        /**
+         * @param key the key of the record
+         * @param binNames the bins to read, or null for all bins
+         * @param withNoBins true if only the record's metadata is read
+         * @param policy the policy of the read, which provides the filter expression and read mode
+         */
+        public static ReadKey of(Key key, String[] binNames, boolean withNoBins, Policy policy) {
+            return new ReadKey(key,
+                    binNames == null ? null : Arrays.asList(binNames),
+                    withNoBins,
+                    policy.filterExp == null ? null : ByteBuffer.wrap(policy.filterExp.getBytes()),
+                    policy.failOnFilteredOut,
+                    policy.readModeAP,
+                    policy.readModeSC);
+        }
+    }
+
+    /**
+     * The outcome of a read: the record, or null if it was not found, and the result code.
+     */
+    public record Result(Record record, int resultCode) {
+        public static Result of(Record record) {
+            return new Result(record, record == null ? ResultCode.KEY_NOT_FOUND_ERROR : ResultCode.OK);
+        }
+
+        /**
+         * @return the record, or null if it was not found or was filtered out
+         * @throws AerospikeException if the read failed
+         */
+        public Record recordOrThrow() {
+            switch (resultCode) {
+            case ResultCode.OK:
+            case ResultCode.KEY_NOT_FOUND_ERROR:
+                return record;
+            default:
+                throw new AerospikeException(resultCode);
+            }
+        }
+
+        /**
+         * Each waiter is given its own copy of the record, so one caller modifying its bins
+         * does not affect the others. Bin values are shared.
+         */
+        Result copy() {
+            if (record == null) {
+                return this;
+            }
+            return new Result(new Record(record.bins == null ? null : new HashMap<>(record.bins),
+                    record.generation, record.expiration), resultCode);
+        }
+    }
+
+    /**
+     * A read in progress. The thread which started the flight is its leader and must complete it,
+     * through {@link ReadCoalescer#complete} or {@link ReadCoalescer#fail}.
+     */
+    public static final class Flight {
+        private final ReadKey key;
+        private final boolean leader;
+        private final CompletableFuture<Result> result;
+
+        private Flight(ReadKey key, boolean leader, CompletableFuture<Result> result) {
+            this.key = key;
+            this.leader = leader;
+            this.result = result;
+        }
+
+        /** @return true if the caller must perform the read and complete the flight */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Wait for the leader's result. This must not be called by the leader before it has
+         * completed the flight.
+         *
+         * @return a copy of the leader's result
+         * @throws RuntimeException the exception the leader's read failed with
+         */
+        public Result await() {
+            try {
+                return result.join().copy();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (e.getCause() instanceof Error err) {
+                    throw err;
+                }
+                throw e;
+            }
+        }
+    }
+
+    // The flights in progress, grouped by the key of their record so a write can end them all
+    // without scanning every flight. Each key's map is only used inside compute calls on inFlight
+    private final ConcurrentHashMap<Key, Map<ReadKey, CompletableFuture<Result>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+
+    /**
+     * Join the flight for a read, starting one if none is in progress.
+     */
+    public Flight begin(ReadKey key) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Flight[] flight = new Flight[1];
+        inFlight.compute(key.key(), (k, flights) -> {
+            if (flights == null) {
+                flights = new HashMap<>();
+            }
+            CompletableFuture<Result> existing = flights.putIfAbsent(key, future);
+            if (existing != null) {
+                flight[0] = new Flight(key, false, existing);
+            }
+            else {
+                inFlightCount.incrementAndGet();
+                flight[0] = new Flight(key, true, future);
+            }
+            return flights;
+        });
+        (flight[0].isLeader() ? leaders : followers).increment();
+        return flight[0];
+    }
+
+    /**
+     * Complete a flight with the result of the leader's read, releasing any waiters.
+     */
+    public void complete(Flight flight, Result result) {
+        checkLeader(flight);
+        remove(flight);
+        flight.result.complete(result);
+    }
+
+    /**
+     * Complete a flight with the exception the leader's read failed with, releasing any waiters.
+     * This has no effect if the flight has already been completed.
+     */
+    public void fail(Flight flight, Throwable t) {
+        checkLeader(flight);
+        remove(flight);
+        flight.result.completeExceptionally(t);
+    }
+
+    private void remove(Flight flight) {
+        inFlight.computeIfPresent(flight.key.key(), (k, flights) -> {
+            if (flights.remove(flight.key, flight.result)) {
+                inFlightCount.decrementAndGet();
+            }
+            return flights.isEmpty() ? null : flights;
+        });
+    }
+
+    /**
+     * Stop any reads of a record which are in progress from being joined, as they may have
+     * started before the record was written. Reads which have already joined them are unaffected.
+     */
+    public void invalidate(Key key) {
+        Map<ReadKey, CompletableFuture<Result>> flights = inFlight.remove(key);
+        if (flights != null) {
+            // Once removed the map is no longer reachable, so it cannot change
+            inFlightCount.addAndGet(-flights.size());
+        }
+    }
+
+    /**
+     * Stop any reads of records in a set, or in a namespace, which are in progress from being
+     * joined, as the set is being truncated or changed by a background operation.
+     *
+     * @param namespace the namespace of the records
+     * @param setName the set of the records, or null for every record in the namespace
+     */
+    public void invalidateSet(String namespace, String setName) {
+        for (Key key : inFlight.keySet()) {
+            if (Objects.equals(key.namespace, namespace) && (setName == null || Objects.equals(key.setName, setName))) {
+                invalidate(key);
+            }
+        }
+    }
+
+    private static void checkLeader(Flight flight) {
+        if (!flight.leader) {
+            throw new IllegalStateException("Only the leader of a flight can complete it");
+        }
+    }
+
+    /**
+     * Perform a read, or wait for an identical read which is already in progress.
+     *
+     * @param key identifies the read
+     * @param reader performs the read if this caller is the leader
+     * @return the result of the read
+     */
+    public Result read(ReadKey key, Supplier<Result> reader) {
+        Flight flight = begin(key);
+        if (!flight.isLeader()) {
+            return flight.await();
+        }
+        try {
+            Result result = reader.get();
+            complete(flight, result);
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            fail(flight, e);
+            throw e;
+        }
+    }
+
+    /** @return the number of reads currently in progress */
+    public int getInFlight() {
+        return inFlightCount.get();
+    }
+
+    /** @return the number of reads which were sent to the server */
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    /** @return the number of reads which were given the result of another read */
+    public long getCoalesced() {
+        return followers.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReadCoalescer[inFlight=%d, leaders=%d, coalesced=%d]",
+                getInFlight(), getLeaders(), getCoalesced());
+    }
+}
@@ -0,0 +1,373 @@
+package com.aerospike;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+/**
+ * A bounded, concurrent, client-side cache of records read through a {@link Session}, so that
+ * repeated point and batch reads of the same keys can be answered without a round trip to the
+ * server.
+ *
+ * <p>The cache is opt-in: attach one to a session with {@link Session#setRecordCache(RecordCache)}.
+ * Reads through that session are then served from the cache where possible and the records
+ * returned by the server are added to it. Reads are not cached when they run in a transaction,
+ * have a {@code where} clause or are restricted to a partition range.</p>
+ *
+ * <p>A cached record is discarded when:</p>
+ * <ul>
+ *   <li>it would have expired on the server, according to the record's time to live</li>
+ *   <li>it has been held for longer than the maximum staleness</li>
+ *   <li>the record is written, touched or deleted through the same session</li>
+ *   <li>its set or namespace is truncated, or a background operation is started on its set,
+ *   through the same session</li>
+ *   <li>the cache is full, in which case the least recently used record is evicted</li>
+ * </ul>
+ *
+ * <p>Writes made through other sessions or other clients are not seen, so the maximum staleness
+ * bounds how out of date a cached record can be. For the same reason a read which started before
+ * a write through this session completed never adds its result to the cache. A background
+ * operation runs on the server after it has been started, so records of its set read while it
+ * is running may be cached with their earlier values, again for at most the maximum staleness.</p>
+ *
+ * <p>The cache is split into segments, each holding an equal share of the entries in least
+ * recently used order, so threads reading different keys rarely contend. The maximum size is
+ * therefore approximate when there is more than one segment. Overlapping writes are also tracked
+ * per segment, so a write only stops reads of keys in its own segment from being cached.</p>
+ *
+ * <p>Records handed out by the cache are copies of the cached record, but the bin values in them
+ * are shared, so lists and maps read from a cached record must not be modified.</p>
+ */
+public final class RecordCache {
+    /** The default maximum number of records held */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    /** The default longest time a record is served from the cache after it was read */
+    public static final Duration DEFAULT_MAX_STALENESS = Duration.ofSeconds(5);
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 64;
+
+    /**
+     * A cached record. {@code binNames} is null if the record holds all of its bins.
+     */
+    private record Entry(Record record, Set<String> binNames, long staleAtNanos, long expiresAtNanos) {
+        boolean isLiveAt(long now) {
+            return now - staleAtNanos < 0 && now - expiresAtNanos < 0;
+        }
+
+        boolean holds(String[] requestedBins) {
+            if (binNames == null) {
+                return true;
+            }
+            if (requestedBins == null) {
+                return false;
+            }
+            for (String bin : requestedBins) {
+                if (!binNames.contains(bin)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Key, Entry> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        // The value of the invalidation clock when a record in this segment was last invalidated
+        private long invalidatedAt = 0;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int maximumSize;
+    private final long maxStalenessNanos;
+    private final LongSupplier nanoClock;
+    // Incremented on every invalidation. Each segment records the value of its last invalidation,
+    // so a read can tell whether a write to a key of the same segment overlapped it.
+    private final AtomicLong invalidationClock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public RecordCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAX_STALENESS);
+    }
+
+    /**
+     * @param maximumSize the maximum number of records to hold
+     * @param maxStaleness the longest time a record is served from the cache after it was read from the server
+     */
+    public RecordCache(int maximumSize, Duration maxStaleness) {
+        this(maximumSize, maxStaleness, System::nanoTime);
+    }
+
+    RecordCache(int maximumSize, Duration maxStaleness, LongSupplier nanoClock) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be > 0, not " + maximumSize);
+        }
+        if (maxStaleness == null || maxStaleness.isNegative() || maxStaleness.isZero()) {
+            throw new IllegalArgumentException("maxStaleness must be positive, not " + maxStaleness);
+        }
+        this.maximumSize = maximumSize;
+        this.maxStalenessNanos = saturatedNanos(maxStaleness);
+        this.nanoClock = nanoClock;
+
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maximumSize / (segmentCount * 2) >= MIN_ENTRIES_PER_SEGMENT) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maximumSize / segmentCount);
+        }
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        }
+        catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * Look up a record.
+     *
+     * @param key the key of the record
+     * @param binNames the bins to read, or null for all bins
+     * @param withNoBins true if only the record's metadata is required
+     * @return a copy of the cached record holding just the requested bins, or null if the
+     * cache cannot answer the read
+     */
+    public Record get(Key key, String[] binNames, boolean withNoBins) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && !entry.isLiveAt(nanoClock.getAsLong())) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null || !(withNoBins || entry.holds(binNames))) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        Record record = entry.record();
+        if (withNoBins) {
+            return new Record(null, record.generation, record.expiration);
+        }
+        Map<String, Object> bins;
+        if (binNames == null) {
+            bins = record.bins == null ? null : new HashMap<>(record.bins);
+        }
+        else {
+            bins = new HashMap<>();
+            for (String bin : binNames) {
+                if (record.bins != null && record.bins.containsKey(bin)) {
+                    bins.put(bin, record.bins.get(bin));
+                }
+            }
+        }
+        return new Record(bins, record.generation, record.expiration);
+    }
+
+    /**
+     * @return a stamp to pass to {@link #put} for a record about to be read from the server
+     */
+    public long stamp() {
+        return invalidationClock.get();
+    }
+
+    /**
+     * Add a record read from the server. The record is not added if a record in the same
+     * segment has been invalidated since the stamp was taken, as the read may have overlapped a
+     * write. Writes to keys in other segments do not stop the record being added.
+     *
+     * @param key the key of the record
+     * @param binNames the bins which were read, or null if all bins were read
+     * @param record the record, or null if the record was not found
+     * @param stamp the result of {@link #stamp()} before the read was started
+     */
+    public void put(Key key, String[] binNames, Record record, long stamp) {
+        if (record == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        long staleAt = now + maxStalenessNanos;
+        long expiresAt = staleAt;
+        if (record.expiration != 0) {
+            int ttl = record.getTimeToLive();
+            if (ttl >= 0) {
+                expiresAt = now + ttl * 1_000_000_000L;
+            }
+        }
+        Set<String> bins = binNames == null ? null : new HashSet<>(Arrays.asList(binNames));
+        Entry entry = new Entry(record, bins, staleAt, expiresAt);
+
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            // Checked under the lock, invalidation of a key takes the same lock
+            if (segment.invalidatedAt > stamp) {
+                return;
+            }
+            Entry existing = segment.get(key);
+            if (existing != null && existing.binNames() == null && bins != null
+                    && existing.record().generation == record.generation && existing.isLiveAt(now)) {
+                // Keep the full record rather than replacing it with a subset of its bins
+                return;
+            }
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * Discard the cached copy of a record, which is about to be or has been written.
+     */
+    public void invalidate(Key key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.invalidatedAt = invalidationClock.incrementAndGet();
+            if (segment.remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Discard the cached copies of some records.
+     */
+    public void invalidateAll(Collection<Key> keys) {
+        for (Key key : keys) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Discard the cached copies of every record in a set, or in a namespace, which is about to
+     * be or has been truncated or changed by a background operation.
+     *
+     * @param namespace the namespace of the records
+     * @param setName the set of the records, or null for every record in the namespace
+     */
+    public void invalidateSet(String namespace, String setName) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.invalidatedAt = invalidationClock.incrementAndGet();
+                int before = segment.size();
+                segment.keySet().removeIf(key -> Objects.equals(key.namespace, namespace)
+                        && (setName == null || Objects.equals(key.setName, setName)));
+                invalidations.add(before - segment.size());
+            }
+        }
+    }
+
+    /**
+     * Remove all entries. The counters are not reset.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.invalidatedAt = invalidationClock.incrementAndGet();
+                segment.clear();
+            }
+        }
+    }
+
+    /** @return the number of records currently cached, including any which have expired but not yet been removed */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /** @return the maximum number of records this cache will hold */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the longest time a record is served from the cache after it was read */
+    public Duration getMaxStaleness() {
+        return Duration.ofNanos(maxStalenessNanos);
+    }
+
+    /** @return the number of reads which were served from the cache */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return the number of reads which had to go to the server */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return the fraction of reads served from the cache, or 0 if there have been no reads */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /** @return the number of records removed to keep the cache within its maximum size */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** @return the number of records removed because they had expired or become too stale */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /** @return the number of records removed because they were written through the session */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RecordCache[size=%d/%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, expirations=%d, invalidations=%d]",
+                size(), maximumSize, getHits(), getMisses(), getHitRate(), getEvictions(), getExpirations(), getInvalidations());
+    }
+}
@@ -0,0 +1,38 @@
+package com.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+/**
+ * Converts the records of one stream to objects with a mapper, reusing a single
+ * {@link BinCursor} for every record if the mapper is a {@link StreamingRecordMapper}. Not
+ * thread safe, as the streams are consumed by one thread.
+ */
+final class RecordObjectReader<T> {
+    private final RecordMapper<T> mapper;
+    private final StreamingRecordMapper<T> streamingMapper;
+    private final MapBinCursor cursor;
+    
+    RecordObjectReader(RecordMapper<T> mapper) {
+        this.mapper = mapper;
+        if (mapper instanceof StreamingRecordMapper<T> streaming) {
+            this.streamingMapper = streaming;
+            this.cursor = new MapBinCursor();
+        }
+        else {
+            this.streamingMapper = null;
+            this.cursor = null;
+        }
+    }
+    
+    T read(Key key, Record rec) {
+        if (streamingMapper != null) {
+            return streamingMapper.fromBins(cursor.reset(rec.bins), key, rec.generation);
+        }
+        return mapper.fromMap(rec.bins, key, rec.generation);
+    }
+    
+    T read(RecordResult result) {
+        return read(result.key(), result.recordOrThrow());
+    }
+}
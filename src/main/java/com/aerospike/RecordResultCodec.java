@@ -0,0 +1,310 @@
+package com.aerospike;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.exception.AeroException;
+
+/**
+ * A compact binary encoding of {@link RecordResult}, used to spill sorted runs to disk.
+ *
+ * <p>Bin values are written with a one byte type tag followed by the value, so the common
+ * Aerospike types (integers, doubles, strings, booleans, blobs, lists and maps) cost little more
+ * than their raw size. Any other {@code Serializable} value falls back to Java serialization.
+ * An exception held by a result is not written; it is recreated from the result code, message
+ * and in doubt flag when the result is read back.</p>
+ */
+final class RecordResultCodec {
+    private static final int NULL = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int STRING = 3;
+    private static final int TRUE = 4;
+    private static final int FALSE = 5;
+    private static final int BYTES = 6;
+    private static final int LIST = 7;
+    private static final int MAP = 8;
+    private static final int INTEGER = 9;
+    private static final int GEOJSON = 10;
+    private static final int HLL = 11;
+    private static final int SERIALIZED = 12;
+
+    private static final int HAS_SET = 1;
+    private static final int HAS_USER_KEY = 2;
+    private static final int HAS_RECORD = 4;
+    private static final int HAS_MESSAGE = 8;
+    private static final int HAS_EXCEPTION = 16;
+    private static final int IN_DOUBT = 32;
+
+    private RecordResultCodec() {}
+
+    static void write(DataOutput out, RecordResult result) throws IOException {
+        Key key = result.key();
+        Record rec = result.recordOrNull();
+        int flags = (key.setName != null ? HAS_SET : 0)
+                | (key.userKey != null && key.userKey.getObject() != null ? HAS_USER_KEY : 0)
+                | (rec != null ? HAS_RECORD : 0)
+                | (result.message() != null ? HAS_MESSAGE : 0)
+                | (result.exception() != null ? HAS_EXCEPTION : 0)
+                | (result.inDoubt() ? IN_DOUBT : 0);
+        out.writeByte(flags);
+        out.writeUTF(key.namespace);
+        if ((flags & HAS_SET) != 0) {
+            out.writeUTF(key.setName);
+        }
+        out.write(key.digest);
+        if ((flags & HAS_USER_KEY) != 0) {
+            writeValue(out, key.userKey.getObject());
+        }
+        if (rec != null) {
+            out.writeInt(rec.generation);
+            out.writeInt(rec.expiration);
+            if (rec.bins == null) {
+                out.writeInt(-1);
+            }
+            else {
+                out.writeInt(rec.bins.size());
+                for (Map.Entry<String, Object> bin : rec.bins.entrySet()) {
+                    out.writeUTF(bin.getKey());
+                    writeValue(out, bin.getValue());
+                }
+            }
+        }
+        out.writeInt(result.resultCode());
+        if ((flags & HAS_MESSAGE) != 0) {
+            writeString(out, result.message());
+        }
+        out.writeInt(result.index());
+    }
+
+    static RecordResult read(DataInput in) throws IOException {
+        int flags = in.readUnsignedByte();
+        String namespace = in.readUTF();
+        String setName = (flags & HAS_SET) != 0 ? in.readUTF() : null;
+        byte[] digest = new byte[20];
+        in.readFully(digest);
+        Value userKey = (flags & HAS_USER_KEY) != 0 ? Value.get(readValue(in)) : null;
+        Key key = new Key(namespace, digest, setName, userKey);
+
+        Record rec = null;
+        if ((flags & HAS_RECORD) != 0) {
+            int generation = in.readInt();
+            int expiration = in.readInt();
+            int binCount = in.readInt();
+            Map<String, Object> bins = null;
+            if (binCount >= 0) {
+                bins = new LinkedHashMap<>(Math.max(4, binCount * 4 / 3 + 1));
+                for (int i = 0; i < binCount; i++) {
+                    String name = in.readUTF();
+                    bins.put(name, readValue(in));
+                }
+            }
+            rec = new Record(bins, generation, expiration);
+        }
+        int resultCode = in.readInt();
+        String message = (flags & HAS_MESSAGE) != 0 ? readString(in) : null;
+        int index = in.readInt();
+        boolean inDoubt = (flags & IN_DOUBT) != 0;
+        AeroException exception = (flags & HAS_EXCEPTION) != 0
+                ? AeroException.resultCodeToException(resultCode, message, inDoubt)
+                : null;
+        return new RecordResult(key, rec, resultCode, exception, inDoubt, message, index);
+    }
+
+    /**
+     * Estimate the heap used by a result. This does not need to be accurate, only proportional
+     * to the real size, as it is used to decide when a run should be spilled.
+     */
+    static long estimateSize(RecordResult result) {
+        // RecordResult, Key with its digest and the Record object
+        long size = 160;
+        Record rec = result.recordOrNull();
+        if (rec != null && rec.bins != null) {
+            for (Map.Entry<String, Object> bin : rec.bins.entrySet()) {
+                // Map entry plus the name
+                size += 48 + 2L * bin.getKey().length() + estimateSize(bin.getValue());
+            }
+        }
+        if (result.message() != null) {
+            size += 40 + 2L * result.message().length();
+        }
+        return size;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return 40 + 2L * s.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof List<?> list) {
+            long size = 40 + 8L * list.size();
+            for (Object item : list) {
+                size += estimateSize(item);
+            }
+            return size;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        // Boxed primitives and small value objects
+        return 24;
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        }
+        else if (value instanceof Integer i) {
+            out.writeByte(INTEGER);
+            out.writeInt(i);
+        }
+        else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        }
+        else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeString(out, s);
+        }
+        else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        }
+        else if (value instanceof byte[] bytes) {
+            out.writeByte(BYTES);
+            writeBytes(out, bytes);
+        }
+        else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        }
+        else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        else if (value instanceof Value.GeoJSONValue geo) {
+            out.writeByte(GEOJSON);
+            writeString(out, geo.toString());
+        }
+        else if (value instanceof Value.HLLValue hll) {
+            out.writeByte(HLL);
+            writeBytes(out, hll.getBytes());
+        }
+        else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeByte(SERIALIZED);
+            writeBytes(out, bytes.toByteArray());
+        }
+        else {
+            throw new IllegalArgumentException("Cannot spill a bin value of type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case LONG:
+            return in.readLong();
+        case INTEGER:
+            return in.readInt();
+        case DOUBLE:
+            return in.readDouble();
+        case STRING:
+            return readString(in);
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        case BYTES:
+            return readBytes(in);
+        case LIST: {
+            int size = in.readInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(in));
+            }
+            return list;
+        }
+        case MAP: {
+            int size = in.readInt();
+            Map<Object, Object> map = new LinkedHashMap<>(Math.max(4, size * 4 / 3 + 1));
+            for (int i = 0; i < size; i++) {
+                Object mapKey = readValue(in);
+                map.put(mapKey, readValue(in));
+            }
+            return map;
+        }
+        case GEOJSON:
+            return new Value.GeoJSONValue(readString(in));
+        case HLL:
+            return new Value.HLLValue(readBytes(in));
+        case SERIALIZED:
+            try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                return objectIn.readObject();
+            }
+            catch (ClassNotFoundException e) {
+                throw new IOException("Cannot read spilled bin value: " + e.getMessage(), e);
+            }
+        default:
+            throw new IOException("Unknown type " + type + " in spilled record");
+        }
+    }
+
+    // writeUTF is limited to 64KB, which bin values can exceed
+    private static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
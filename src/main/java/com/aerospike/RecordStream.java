@@ -16,7 +16,6 @@ import com.aerospike.client.Record;
 import com.aerospike.client.ResultCode;
 import com.aerospike.client.policy.QueryPolicy;
 import com.aerospike.client.query.PartitionFilter;
-import com.aerospike.client.query.RecordSet;
 import com.aerospike.client.query.Statement;
 import com.aerospike.exception.AeroException;
 import com.aerospike.query.RecordStreamImpl;
@@ -40,29 +39,29 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
      * Creates a RecordStream from a list of RecordResult objects.
      * This is typically used for batch query results.
      * 
+     * The list is iterated in place rather than copied, so it must not be modified afterwards.
+     * 
      * @param records the list of results
      * @param limit the maximum number of records to include (0 or negative means no limit)
-     * @param respondAllKeys if false, null records are filtered out
      */
     public RecordStream(List<RecordResult> records, long limit) {
-        AsyncRecordStream asyncStream = new AsyncRecordStream(Math.max(100, records.size()));
-        
-        // Filter and limit records
-        int count = 0;
-        for (RecordResult record : records) {
-            if (limit <= 0 || count < limit) {
-                asyncStream.publish(record);
-                count++;
-            }
-        }
-        asyncStream.complete();
-        impl = asyncStream;
+        impl = ArrayRecordStream.of(records, limit);
     }
     
     public RecordStream(AsyncRecordStream asyncStream) {
         impl = asyncStream;
     }
     
+    /**
+     * Creates a RecordStream over results which are already in memory, typically the
+     * {@code BatchRecord}s of a completed batch call.
+     * 
+     * @param arrayStream the in-memory stream
+     */
+    public RecordStream(ArrayRecordStream arrayStream) {
+        impl = arrayStream;
+    }
+    
     /**
      * Creates a RecordStream for index/scan queries with server-side chunking.
      * 
@@ -84,8 +83,51 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
         }
         
         // Use chunked streaming for all index queries
-        RecordSet recordSet = session.getClient().queryPartitions(queryPolicy, statement, filter);
-        impl = new ChunkedRecordStream(session, queryPolicy, statement, filter, recordSet, limit);
+        impl = new ChunkedRecordStream(session, queryPolicy, statement, filter, limit);
+    }
+    
+    /**
+     * Creates a RecordStream for index/scan queries with server-side chunking, fetching up to
+     * {@code prefetchChunks} chunks in the background ahead of the consumer.
+     * 
+     * @param session the Aerospike session
+     * @param queryPolicy the query policy
+     * @param statement the query statement, whose {@code maxRecords} is the chunk size
+     * @param filter the partition filter
+     * @param limit the maximum number of records to return (0 or negative means no limit)
+     * @param prefetchChunks the number of chunks to fetch ahead. If 0 the next chunk is only
+     * fetched once the current one has been consumed.
+     */
+    public RecordStream(Session session, QueryPolicy queryPolicy, Statement statement,
+            PartitionFilter filter, long limit, int prefetchChunks) {
+
+        if (limit <= 0) {
+            limit = Long.MAX_VALUE;
+        }
+        if (prefetchChunks > 0) {
+            impl = new PrefetchingChunkedRecordStream(session, queryPolicy, statement, filter, limit, prefetchChunks);
+        }
+        else {
+            impl = new ChunkedRecordStream(session, queryPolicy, statement, filter, limit);
+        }
+    }
+    
+    /**
+     * Capture the position of this stream, so the query can be continued later with
+     * {@link com.aerospike.query.QueryBuilder#resumeFrom(QueryCursor)}, possibly in another
+     * process. The cursor is serializable and has a compact string form.
+     * 
+     * <p>If taken part way through a chunk, the cursor is positioned at the start of that chunk so
+     * no records are skipped when resuming, but records of the chunk may be returned again.</p>
+     * 
+     * @return the position of the query
+     * @throws IllegalStateException if this stream is not a single shard dataset query
+     */
+    public QueryCursor cursor() {
+        if (impl == null) {
+            throw new IllegalStateException("Cursors are only available for single shard dataset queries");
+        }
+        return impl.cursor();
     }
     
     /**
@@ -175,12 +217,27 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
         // TODO: What should happen if there is an exception in the stream of records? At the moment it is just thrown
         // to the detriment of the other recods
         List<T> result = new ArrayList<>();
+        forEachObject(mapper, result::add);
+        return result;
+    }
+
+    /**
+     * Convert each record in the stream to an object and pass it to the consumer as it arrives,
+     * so a large query can be processed without holding all of its objects in memory. If the
+     * mapper is a {@link StreamingRecordMapper}, its bins are read through one {@link BinCursor}
+     * reused for every record.
+     * <p>
+     * If a record in the stream failed, its exception is thrown and the remaining records are
+     * not converted.
+     * @param <T> - The type of the objects
+     * @param mapper - The mapper to use to convert each record
+     * @param consumer - Called with each object, in stream order
+     */
+    public <T> void forEachObject(RecordMapper<T> mapper, Consumer<? super T> consumer) {
+        RecordObjectReader<T> reader = new RecordObjectReader<>(mapper);
         while (hasNext()) {
-            RecordResult keyRecord = next();
-            Record rec = keyRecord.recordOrThrow();
-            result.add(mapper.fromMap(rec.bins, keyRecord.key(), rec.generation));
+            consumer.accept(reader.read(next()));
         }
-        return result;
     }
 
     /**
@@ -276,8 +333,7 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
         while (hasNext()) {
             RecordResult thisRecord = next();
             if (thisRecord.key().equals(key)) {
-                Record rec = thisRecord.recordOrThrow();
-                return Optional.of(mapper.fromMap(rec.bins, thisRecord.key(), rec.generation));
+                return Optional.of(new RecordObjectReader<>(mapper).read(thisRecord));
             }
         }
         return Optional.empty();
@@ -326,9 +382,7 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
      */
     public <T> Optional<T> getFirst(RecordMapper<T> mapper) {
         if (hasNext()) {
-            RecordResult item = next();
-            Record rec = item.recordOrThrow();
-            return Optional.of(mapper.fromMap(rec.bins, item.key(), item.recordOrThrow().generation));
+            return Optional.of(new RecordObjectReader<>(mapper).read(next()));
         }
         return Optional.empty();
     }
@@ -366,7 +420,7 @@ public class RecordStream implements Iterator<RecordResult>, Iterable<RecordResu
         if (hasNext()) {
             RecordResult item = next();
             Record rec = item.recordOrThrow();
-            T object = mapper.fromMap(rec.bins, item.key(), rec.generation);
+            T object = new RecordObjectReader<>(mapper).read(item.key(), rec);
             return Optional.of(new ObjectWithMetadata<T>(object, rec));
         }
         return Optional.empty();
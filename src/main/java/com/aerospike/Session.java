@@ -1,17 +1,26 @@
 package com.aerospike;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
 import com.aerospike.client.IAerospikeClient;
 import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
 import com.aerospike.client.Txn;
 import com.aerospike.client.cluster.Partitions;
 import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
+import com.aerospike.client.policy.WritePolicy;
 import com.aerospike.info.InfoCommands;
 import com.aerospike.policy.Behavior;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
 import com.aerospike.query.IndexBasedQueryBuilderInterface;
 import com.aerospike.query.KeyBasedQueryBuilderInterface;
 import com.aerospike.query.QueryBuilder;
@@ -20,11 +29,16 @@ public class Session {
     private final Cluster cluster;
     private final Behavior behavior;
     private final IAerospikeClient client;
+    private final OperationScheduler.SessionQueue operationQueue;
+    private volatile RecordCache recordCache;
+    private volatile ReadCoalescer readCoalescer;
+    private volatile WriteBatcher writeBatcher;
     
     protected Session(Cluster cluster, Behavior behavior) {
         this.cluster = cluster;
         this.behavior = behavior;
         this.client = cluster.getUnderlyingClient();
+        this.operationQueue = cluster.getOperationScheduler().newSessionQueue();
     }
     
     public class ExpressionBuilder {
@@ -61,13 +75,230 @@ public class Session {
         return client;
     }
     
+    /**
+     * Gets the metrics of the operations made through sessions on this session's cluster.
+     * 
+     * @return the metrics, or null if they are not enabled
+     * @see Cluster#enableMetrics()
+     */
+    public ClientMetrics getMetrics() {
+        return cluster.getMetrics();
+    }
+    
+    /**
+     * Single-key operations which are executed in parallel must be submitted through this
+     * queue rather than starting their own threads, so that the in-flight limits in
+     * {@link SystemSettings} are honored.
+     */
+    OperationScheduler.SessionQueue getOperationQueue() {
+        return operationQueue;
+    }
+    
+    /**
+     * Remove every record in a set. Any cached copies of its records in this session's
+     * {@link RecordCache} are discarded.
+     */
     public void truncate(DataSet set) {
         this.client.truncate(null, set.getNamespace(), set.getSet(), null);
+        invalidateCachedSet(set.getNamespace(), set.getSet());
     }
     
     public RecordMappingFactory getRecordMappingFactory() {
         return this.cluster.getRecordMappingFactory();
     }
+
+    /**
+     * Attach a cache of records to this session. Point and batch reads through this session are
+     * then answered from the cache where possible, and writes through this session invalidate
+     * the records they change. Transactions started from this session share the cache.
+     *
+     * @param recordCache the cache to use, or null to stop caching
+     * @return this Session for method chaining
+     * @see RecordCache
+     */
+    public Session setRecordCache(RecordCache recordCache) {
+        this.recordCache = recordCache;
+        return this;
+    }
+
+    /**
+     * @return the cache of records attached to this session, or null if reads are not cached
+     */
+    public RecordCache getRecordCache() {
+        return recordCache;
+    }
+
+    /**
+     * Coalesce concurrent identical point and batch reads through this session, so that only one
+     * of them is sent to the server and the others share its result. Reads in transactions are
+     * never coalesced.
+     *
+     * @param readCoalescer the coalescer to use, or null to send every read to the server
+     * @return this Session for method chaining
+     * @see ReadCoalescer
+     */
+    public Session setReadCoalescer(ReadCoalescer readCoalescer) {
+        this.readCoalescer = readCoalescer;
+        return this;
+    }
+
+    /**
+     * @return the read coalescer attached to this session, or null if reads are not coalesced
+     */
+    public ReadCoalescer getReadCoalescer() {
+        return readCoalescer;
+    }
+
+    /**
+     * Send single record writes made concurrently through this session to the server together
+     * in batches. Each write waits for up to {@code maxDelay} for others to join it, or until
+     * {@code maxBatchSize} writes are waiting, and is then sent with them in one batch. Each
+     * caller still receives the result of its own write, and writes to the same record are
+     * applied in the order they were made. Writes in transactions, and writes whose policy has no
+     * batch equivalent, are not batched; see {@link WriteBatcher}.
+     *
+     * <p>This trades a small amount of latency for far fewer round trips when many threads
+     * write one record at a time.</p>
+     *
+     * @param maxDelay the longest a write waits for others to join its batch
+     * @param maxBatchSize the number of waiting writes which causes a batch to be sent at once
+     * @return this Session for method chaining
+     * @see WriteBatcher
+     */
+    public Session enableWriteBatching(Duration maxDelay, int maxBatchSize) {
+        this.writeBatcher = new WriteBatcher(client,
+                namespace -> behavior.getSettings(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, isNamespaceSC(namespace)),
+                maxDelay, maxBatchSize);
+        return this;
+    }
+
+    /**
+     * Send each single record write to the server on its own. Writes already waiting to be
+     * batched are still sent.
+     *
+     * @return this Session for method chaining
+     */
+    public Session disableWriteBatching() {
+        this.writeBatcher = null;
+        return this;
+    }
+
+    /**
+     * @return the write batcher for this session, or null if writes are not batched
+     */
+    public WriteBatcher getWriteBatcher() {
+        return writeBatcher;
+    }
+
+    /**
+     * Discard any cached copy of a record which is being written through this session, and stop
+     * later reads of it from sharing the result of a read which is already in progress.
+     */
+    void invalidateCached(Key key) {
+        RecordCache cache = recordCache;
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+        ReadCoalescer coalescer = readCoalescer;
+        if (coalescer != null) {
+            coalescer.invalidate(key);
+        }
+    }
+
+    /**
+     * Discard any cached copies of records in a set which is being truncated or written by a
+     * background operation through this session.
+     */
+    void invalidateCachedSet(String namespace, String setName) {
+        RecordCache cache = recordCache;
+        if (cache != null) {
+            cache.invalidateSet(namespace, setName);
+        }
+        ReadCoalescer coalescer = readCoalescer;
+        if (coalescer != null) {
+            coalescer.invalidateSet(namespace, setName);
+        }
+    }
+
+    /**
+     * Discard any cached copies of records which are being written through this session.
+     */
+    void invalidateCached(Collection<Key> keys) {
+        if (keys != null && (recordCache != null || readCoalescer != null)) {
+            for (Key key : keys) {
+                invalidateCached(key);
+            }
+        }
+    }
+
+    /**
+     * Discard any cached copies of the records written by a batch. Reads in the batch are ignored.
+     */
+    void invalidateCachedWrites(List<? extends BatchRecord> batchRecords) {
+        if (recordCache != null || readCoalescer != null) {
+            for (BatchRecord batchRecord : batchRecords) {
+                if (batchRecord.hasWrite) {
+                    invalidateCached(batchRecord.key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the time to pass to {@link #operate(long, WritePolicy, Key, Operation...)} when a
+     * builder starts to build a write, or 0 if metrics are off
+     */
+    long startTiming() {
+        return getMetrics() == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Perform a single record write, discarding any cached copy of the record. The cached copy
+     * is discarded once the write has completed, whether or not it succeeded, so a concurrent
+     * read cannot cache the value from before the write. If write batching is enabled the write
+     * is sent in the next batch.
+     */
+    Record operate(WritePolicy policy, Key key, Operation... operations) {
+        return operate(0, policy, key, operations);
+    }
+
+    /**
+     * Perform a single record write as {@link #operate(WritePolicy, Key, Operation...)}, timing
+     * it from when the builder started to build it.
+     *
+     * @param start the value of {@link #startTiming()} when the builder started, or 0 to time
+     * the write from this call
+     */
+    Record operate(long start, WritePolicy policy, Key key, Operation... operations) {
+        ClientMetrics metrics = getMetrics();
+        long serverStart = metrics == null ? 0 : System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            WriteBatcher batcher = writeBatcher;
+            if (batcher != null && WriteBatcher.canBatch(policy)) {
+                return batcher.operate(policy, key, operations);
+            }
+            return client.operate(policy, key, operations);
+        }
+        catch (AerospikeException ae) {
+            resultCode = ae.getResultCode();
+            throw ae;
+        }
+        catch (RuntimeException e) {
+            resultCode = ResultCode.CLIENT_ERROR;
+            throw e;
+        }
+        finally {
+            long serverEnd = metrics == null ? 0 : System.nanoTime();
+            invalidateCached(key);
+            if (metrics != null) {
+                long end = System.nanoTime();
+                OpKind kind = OperationBuilder.areOperationsRetryable(operations) ? OpKind.WRITE_RETRYABLE : OpKind.WRITE_NON_RETRYABLE;
+                metrics.record(kind, OpShape.POINT, key.namespace, resultCode,
+                        end - (start == 0 ? serverStart : start), serverEnd - serverStart);
+            }
+        }
+    }
     
     private List<Key> buildKeyList(Key key1, Key key2, Key ...keys) {
         List<Key> keyList = new ArrayList<>();
@@ -364,7 +595,10 @@ public class Session {
      * @see #doInTransaction(TransactionalVoid)
      */
     public <T> T doInTransactionReturning(Transactional<T> operation) {
-        return new TransactionalSession(cluster, behavior).doInTransactionReturning(operation);
+        TransactionalSession txnSession = new TransactionalSession(cluster, behavior);
+        txnSession.setRecordCache(recordCache);
+        txnSession.setReadCoalescer(readCoalescer);
+        return txnSession.doInTransactionReturning(operation);
     }
     
     /**
@@ -397,7 +631,10 @@ public class Session {
      * @see #doInTransactionReturning(Transactional)
      */
     public void doInTransaction(TransactionalVoid operation) {
-        new TransactionalSession(cluster, behavior).doInTransaction(txn -> {
+        TransactionalSession txnSession = new TransactionalSession(cluster, behavior);
+        txnSession.setRecordCache(recordCache);
+        txnSession.setReadCoalescer(readCoalescer);
+        txnSession.doInTransaction(txn -> {
             operation.execute(txn);
 //            return null; // Hidden from user
         });
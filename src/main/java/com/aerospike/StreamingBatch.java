@@ -0,0 +1,342 @@
+package com.aerospike;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Log;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.listener.BatchRecordSequenceListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.policy.Settings;
+
+/**
+ * Executes a batch without blocking the caller, publishing each result into an
+ * {@link AsyncRecordStream} as soon as it is available rather than after the slowest node
+ * has responded.
+ *
+ * <p>If the underlying client has been configured with event loops, the client's
+ * {@link BatchRecordSequenceListener} batch API is used and each record is published as the
+ * server returns it. Otherwise the batch is split by the node which owns each key and every
+ * node's sub-batch is run concurrently, publishing that node's results as soon as its
+ * sub-batch completes.</p>
+ *
+ * <p>In both cases results carry the position of the record in the original batch as their
+ * index, so callers can correlate them even though they may arrive out of order.</p>
+ *
+ * <p>If the batch exceeds the {@code maxRecordsPerBatch} or {@code maxBytesPerBatch} batch
+ * settings it is instead split into consecutive sub-batches by {@link BatchSplitter}. Up to
+ * {@code maxBatchesInFlight} sub-batches run at once and their results are published in the
+ * original order as each sub-batch completes.</p>
+ *
+ * <p>Any records written by the batch are discarded from the session's {@link RecordCache} as
+ * soon as the server has responded for them.</p>
+ */
+public final class StreamingBatch {
+    private StreamingBatch() {}
+
+    /**
+     * Notified once, when the stream has received its last result or the batch has failed.
+     */
+    @FunctionalInterface
+    public interface CompletionListener {
+        /**
+         * @param failure the error the batch failed with, or {@code null} if it succeeded
+         */
+        void onComplete(Throwable failure);
+    }
+
+    /**
+     * @param failure the failure passed to a {@link CompletionListener}
+     * @return the result code of the batch as a whole
+     */
+    public static int resultCodeOf(Throwable failure) {
+        if (failure == null) {
+            return ResultCode.OK;
+        }
+        return failure instanceof AerospikeException ae ? ae.getResultCode() : ResultCode.CLIENT_ERROR;
+    }
+
+    /**
+     * Start the batch and return immediately.
+     *
+     * @param session the session to execute the batch on
+     * @param policy the batch policy. This is not modified.
+     * @param records the batch records, which are populated as results are received
+     * @param settings the batch settings, which determine whether and how the batch is split
+     * @param include determines whether the batch record at a given position should be published.
+     * Pass {@code null} to publish every record.
+     * @param converter creates the {@code RecordResult} for a batch record
+     * @param limit the maximum number of results to publish (0 or negative means no limit)
+     * @return a stream which receives the results as they arrive
+     */
+    public static RecordStream execute(Session session, BatchPolicy policy, List<BatchRecord> records,
+            Settings settings, IntPredicate include, ArrayRecordStream.BatchRecordConverter converter, long limit) {
+        return execute(session, policy, records, settings, include, converter, limit, null);
+    }
+
+    /**
+     * Start the batch and return immediately, notifying the listener when it finishes.
+     *
+     * @param listener notified once when the stream is complete or has failed. May be {@code null}.
+     * @see #execute(Session, BatchPolicy, List, Settings, IntPredicate, ArrayRecordStream.BatchRecordConverter, long)
+     */
+    public static RecordStream execute(Session session, BatchPolicy policy, List<BatchRecord> records,
+            Settings settings, IntPredicate include, ArrayRecordStream.BatchRecordConverter converter, long limit,
+            CompletionListener listener) {
+
+        if (records.isEmpty()) {
+            if (listener != null) {
+                listener.onComplete(null);
+            }
+            return new RecordStream();
+        }
+        AsyncRecordStream asyncStream = new AsyncRecordStream(records.size(), session.getMetrics());
+        Publisher publisher = new Publisher(asyncStream, records, include, converter, limit, listener);
+        IAerospikeClient client = session.getClient();
+
+        int[] boundaries = BatchSplitter.boundaries(records, settings);
+        if (boundaries.length > 2) {
+            executeInSubBatches(session, policy, records, boundaries, settings.getMaxBatchesInFlight(),
+                    publisher);
+        }
+        else if (hasEventLoops(client)) {
+            client.operate(null, new BatchRecordSequenceListener() {
+                @Override
+                public void onRecord(BatchRecord record, int index) {
+                    if (record.hasWrite) {
+                        session.invalidateCached(record.key);
+                    }
+                    publisher.publish(index);
+                }
+
+                @Override
+                public void onSuccess() {
+                    // The publisher may already have completed the stream at the limit
+                    publisher.complete();
+                }
+
+                @Override
+                public void onFailure(AerospikeException ae) {
+                    session.invalidateCachedWrites(records);
+                    publisher.fail(ae);
+                }
+            }, policy, records);
+        }
+        else {
+            executeByNode(session, policy, records, publisher);
+        }
+        return new RecordStream(asyncStream);
+    }
+
+    private static boolean hasEventLoops(IAerospikeClient client) {
+        try {
+            return client.getCluster().eventLoops != null;
+        }
+        catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void executeByNode(Session session, BatchPolicy policy, List<BatchRecord> records,
+            Publisher publisher) {
+
+        IAerospikeClient client = session.getClient();
+        // Group the positions of the records by the node which currently owns them
+        Map<String, List<Integer>> positionsByNode = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            String node = OperationScheduler.nodeNameFor(client, records.get(i).key);
+            positionsByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(i);
+        }
+        if (Log.debugEnabled()) {
+            Log.debug("Streaming batch of " + records.size() + " records split across " + positionsByNode.size() + " node(s)");
+        }
+
+        AtomicInteger pendingNodes = new AtomicInteger(positionsByNode.size());
+        for (List<Integer> positions : positionsByNode.values()) {
+            List<BatchRecord> subBatch = new ArrayList<>(positions.size());
+            for (int position : positions) {
+                subBatch.add(records.get(position));
+            }
+            Thread.startVirtualThread(() -> {
+                try {
+                    // The sub-batch shares the BatchRecord instances, so results land in the original list
+                    try {
+                        client.operate(new BatchPolicy(policy), subBatch);
+                    }
+                    finally {
+                        session.invalidateCachedWrites(subBatch);
+                    }
+                    for (int position : positions) {
+                        if (!publisher.publish(position)) {
+                            break;
+                        }
+                    }
+                }
+                catch (AerospikeException ae) {
+                    publisher.fail(ae);
+                }
+                catch (RuntimeException e) {
+                    publisher.fail(e);
+                }
+                finally {
+                    if (pendingNodes.decrementAndGet() == 0) {
+                        publisher.complete();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void executeInSubBatches(Session session, BatchPolicy policy, List<BatchRecord> records,
+            int[] boundaries, int maxInFlight, Publisher publisher) {
+
+        int subBatches = boundaries.length - 1;
+        int window = Math.max(1, maxInFlight);
+        if (Log.debugEnabled()) {
+            Log.debug("Streaming batch of " + records.size() + " records split into " + subBatches
+                    + " sub-batches, " + window + " in flight");
+        }
+        Thread.startVirtualThread(() -> {
+            // Sliding window: sub-batch i + window is only started once sub-batch i has been published
+            List<CompletableFuture<Void>> pending = new ArrayList<>(subBatches);
+            try {
+                for (int i = 0; i < Math.min(window, subBatches); i++) {
+                    pending.add(startSubBatch(session, policy, records.subList(boundaries[i], boundaries[i+1])));
+                }
+                for (int i = 0; i < subBatches; i++) {
+                    pending.get(i).join();
+                    pending.set(i, null);
+                    boolean open = true;
+                    for (int position = boundaries[i]; position < boundaries[i+1] && open; position++) {
+                        open = publisher.publish(position);
+                    }
+                    if (!open) {
+                        // Consumer has gone away or the limit has been reached, start nothing further
+                        break;
+                    }
+                    int next = i + window;
+                    if (next < subBatches) {
+                        pending.add(startSubBatch(session, policy, records.subList(boundaries[next], boundaries[next+1])));
+                    }
+                }
+            }
+            catch (CompletionException e) {
+                publisher.fail(e.getCause());
+            }
+            catch (RuntimeException e) {
+                publisher.fail(e);
+            }
+            finally {
+                publisher.complete();
+            }
+        });
+    }
+
+    private static CompletableFuture<Void> startSubBatch(Session session, BatchPolicy policy, List<BatchRecord> subBatch) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                // The sub-batch is a view of the original list, so results land in place
+                session.getClient().operate(new BatchPolicy(policy), subBatch);
+                session.invalidateCachedWrites(subBatch);
+                future.complete(null);
+            }
+            catch (Throwable t) {
+                session.invalidateCachedWrites(subBatch);
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Applies the include filter and limit, then publishes. May be called concurrently. The
+     * stream is completed or failed only once, by whichever of the limit, the end of the batch
+     * or an error comes first.
+     */
+    private static class Publisher {
+        private final AsyncRecordStream asyncStream;
+        private final List<BatchRecord> records;
+        private final IntPredicate include;
+        private final ArrayRecordStream.BatchRecordConverter converter;
+        private final long limit;
+        private final CompletionListener listener;
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Publisher(AsyncRecordStream asyncStream, List<BatchRecord> records, IntPredicate include,
+                ArrayRecordStream.BatchRecordConverter converter, long limit, CompletionListener listener) {
+            this.asyncStream = asyncStream;
+            this.records = records;
+            this.include = include;
+            this.converter = converter;
+            this.limit = limit;
+            this.listener = listener;
+        }
+
+        /** Complete the stream, unless it has already been completed or failed. */
+        void complete() {
+            if (finished.compareAndSet(false, true)) {
+                // Notify first, so the listener has run by the time the consumer sees the end
+                try {
+                    notifyListener(null);
+                }
+                finally {
+                    asyncStream.complete();
+                }
+            }
+        }
+
+        /** Fail the stream, unless it has already been completed or failed. */
+        void fail(Throwable t) {
+            if (finished.compareAndSet(false, true)) {
+                try {
+                    notifyListener(t);
+                }
+                finally {
+                    asyncStream.error(t);
+                    asyncStream.complete();
+                }
+            }
+        }
+
+        private void notifyListener(Throwable failure) {
+            if (listener != null) {
+                listener.onComplete(failure);
+            }
+        }
+
+        /**
+         * @return false if no more results will be accepted, true otherwise.
+         */
+        boolean publish(int position) {
+            if (include != null && !include.test(position)) {
+                return true;
+            }
+            if (limit > 0) {
+                long count = published.incrementAndGet();
+                if (count > limit) {
+                    return false;
+                }
+                boolean open = asyncStream.publish(converter.convert(records.get(position), position));
+                if (count == limit) {
+                    complete();
+                    return false;
+                }
+                return open;
+            }
+            return asyncStream.publish(converter.convert(records.get(position), position));
+        }
+    }
+}
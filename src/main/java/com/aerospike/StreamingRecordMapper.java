@@ -0,0 +1,57 @@
+package com.aerospike;
+
+import java.util.Map;
+
+import com.aerospike.client.Key;
+
+/**
+ * A {@link RecordMapper} which reads the bins of a record through a {@link BinCursor} rather
+ * than by looking each one up in a map.
+ * 
+ * <p>The record streams map objects with {@link #fromBins(BinCursor, Key, int)} when the mapper
+ * implements this interface, visiting each bin once with one cursor for the whole stream, and
+ * reading values through the typed accessors. This suits records with many bins, or reads of
+ * a few bins into a class with many fields, where most lookups by name would miss. Mappers
+ * generated for {@link com.aerospike.mapping.MappedRecord} classes implement it.</p>
+ * 
+ * <p>Example implementation:</p>
+ * <pre>{@code
+ * public class CustomerMapper implements StreamingRecordMapper<Customer> {
+ *     @Override
+ *     public Customer fromBins(BinCursor bins, Key recordKey, int generation) {
+ *         Customer customer = new Customer();
+ *         while (bins.next()) {
+ *             switch (bins.name()) {
+ *                 case "id" -> customer.setId(bins.getLong());
+ *                 case "name" -> customer.setName(bins.getString());
+ *                 default -> {}
+ *             }
+ *         }
+ *         return customer;
+ *     }
+ *     // toMap and id as for any RecordMapper
+ * }
+ * }</pre>
+ *
+ * @param <T> the type of Java object this mapper handles
+ * @see BinCursor
+ */
+public interface StreamingRecordMapper<T> extends RecordMapper<T> {
+    /**
+     * Converts the bins of a record to a Java object.
+     * 
+     * @param bins a cursor positioned before the first bin of the record
+     * @param recordKey the key of the record, or null for an object nested in another record
+     * @param generation the generation of the record
+     * @return the Java object created from the record
+     */
+    T fromBins(BinCursor bins, Key recordKey, int generation);
+    
+    /**
+     * Converts a map of bins by visiting it with a cursor.
+     */
+    @Override
+    default T fromMap(Map<String, Object> map, Key recordKey, int generation) {
+        return fromBins(BinCursor.over(map), recordKey, generation);
+    }
+}
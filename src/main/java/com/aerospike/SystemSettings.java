@@ -10,7 +10,8 @@ import com.aerospike.client.policy.ClientPolicy;
  * System-level settings that apply to an entire Cluster instance.
  * 
  * <p>These settings are cluster-wide and cannot vary per Behavior. They include
- * connection pool settings, circuit breaker configuration, and cluster refresh intervals.</p>
+ * connection pool settings, circuit breaker configuration, cluster refresh intervals and
+ * the limits on in-flight single-key operations.</p>
  * 
  * <p><b>Priority Hierarchy</b> (highest to lowest):</p>
  * <ol>
@@ -68,6 +69,10 @@ public class SystemSettings {
     // ===== Refresh Settings =====
     private final Duration tendInterval;
     
+    // ===== Scheduling Settings =====
+    private final Integer maximumInFlightPerNode;
+    private final Integer maximumInFlightPerSession;
+    
     /**
      * Hard-coded default system settings.
      * These are the lowest priority and serve as the base for all other settings.
@@ -85,6 +90,10 @@ public class SystemSettings {
         .refresh(ops -> ops
             .tendInterval(Duration.ofSeconds(1))
         )
+        .scheduling(ops -> ops
+            .maximumInFlightPerNode(100)
+            .maximumInFlightPerSession(256)
+        )
         .build();
     
     private SystemSettings(Builder builder) {
@@ -94,6 +103,8 @@ public class SystemSettings {
         this.numTendIntervalsInErrorWindow = builder.numTendIntervalsInErrorWindow;
         this.maximumErrorsInErrorWindow = builder.maximumErrorsInErrorWindow;
         this.tendInterval = builder.tendInterval;
+        this.maximumInFlightPerNode = builder.maximumInFlightPerNode;
+        this.maximumInFlightPerSession = builder.maximumInFlightPerSession;
     }
     
     /**
@@ -135,11 +146,18 @@ public class SystemSettings {
         merged.tendInterval = this.tendInterval != null 
             ? this.tendInterval : base.tendInterval;
         
+        // Scheduling
+        merged.maximumInFlightPerNode = this.maximumInFlightPerNode != null 
+            ? this.maximumInFlightPerNode : base.maximumInFlightPerNode;
+        merged.maximumInFlightPerSession = this.maximumInFlightPerSession != null 
+            ? this.maximumInFlightPerSession : base.maximumInFlightPerSession;
+        
         return merged.build();
     }
     
     /**
-     * Applies these system settings to a ClientPolicy.
+     * Applies these system settings to a ClientPolicy. Scheduling settings are not part of
+     * the ClientPolicy and are applied by the {@link Cluster} instead.
      * 
      * @param policy the ClientPolicy to configure
      */
@@ -171,6 +189,8 @@ public class SystemSettings {
     public Integer getNumTendIntervalsInErrorWindow() { return numTendIntervalsInErrorWindow; }
     public Integer getMaximumErrorsInErrorWindow() { return maximumErrorsInErrorWindow; }
     public Duration getTendInterval() { return tendInterval; }
+    public Integer getMaximumInFlightPerNode() { return maximumInFlightPerNode; }
+    public Integer getMaximumInFlightPerSession() { return maximumInFlightPerSession; }
     
     @Override
     public boolean equals(Object o) {
@@ -186,13 +206,16 @@ public class SystemSettings {
                Objects.equals(maximumSocketIdleTime, that.maximumSocketIdleTime) &&
                Objects.equals(numTendIntervalsInErrorWindow, that.numTendIntervalsInErrorWindow) &&
                Objects.equals(maximumErrorsInErrorWindow, that.maximumErrorsInErrorWindow) &&
-               Objects.equals(tendInterval, that.tendInterval);
+               Objects.equals(tendInterval, that.tendInterval) &&
+               Objects.equals(maximumInFlightPerNode, that.maximumInFlightPerNode) &&
+               Objects.equals(maximumInFlightPerSession, that.maximumInFlightPerSession);
     }
     
     @Override
     public int hashCode() {
         return Objects.hash(minimumConnectionsPerNode, maximumConnectionsPerNode, maximumSocketIdleTime,
-                           numTendIntervalsInErrorWindow, maximumErrorsInErrorWindow, tendInterval);
+                           numTendIntervalsInErrorWindow, maximumErrorsInErrorWindow, tendInterval,
+                           maximumInFlightPerNode, maximumInFlightPerSession);
     }
     
     @Override
@@ -204,6 +227,8 @@ public class SystemSettings {
                ", errorWindow=" + numTendIntervalsInErrorWindow +
                ", maxErrors=" + maximumErrorsInErrorWindow +
                ", tendInterval=" + tendInterval +
+               ", maxInFlightPerNode=" + maximumInFlightPerNode +
+               ", maxInFlightPerSession=" + maximumInFlightPerSession +
                '}';
     }
     
@@ -217,6 +242,8 @@ public class SystemSettings {
         private Integer numTendIntervalsInErrorWindow;
         private Integer maximumErrorsInErrorWindow;
         private Duration tendInterval;
+        private Integer maximumInFlightPerNode;
+        private Integer maximumInFlightPerSession;
         
         /**
          * Configure connection settings using a lambda.
@@ -274,6 +301,25 @@ public class SystemSettings {
             return this;
         }
         
+        /**
+         * Configure the admission limits for single-key operations using a lambda.
+         * 
+         * <p>Example:</p>
+         * <pre>{@code
+         * builder.scheduling(ops -> ops
+         *     .maximumInFlightPerNode(64)
+         *     .maximumInFlightPerSession(128)
+         * )
+         * }</pre>
+         * 
+         * @param configurator lambda to configure scheduling settings
+         * @return this builder for method chaining
+         */
+        public Builder scheduling(Consumer<SchedulingTweaks> configurator) {
+            configurator.accept(new SchedulingTweaksImpl(this));
+            return this;
+        }
+        
         /**
          * Builds the SystemSettings instance.
          */
@@ -351,6 +397,31 @@ public class SystemSettings {
         RefreshTweaks tendInterval(Duration interval);
     }
     
+    /**
+     * Interface for configuring how many single-key operations may be in flight at once.
+     * Operations over these limits are queued in arrival order until capacity frees up.
+     */
+    public interface SchedulingTweaks {
+        /**
+         * Sets the maximum number of single-key operations which may be executing against
+         * any one server node, across all sessions on the cluster. This should normally
+         * not exceed the maximum connections per node.
+         * 
+         * @param n maximum in-flight operations per node (must be greater than 0)
+         * @return this tweaks instance for method chaining
+         */
+        SchedulingTweaks maximumInFlightPerNode(int n);
+        
+        /**
+         * Sets the maximum number of single-key operations which any one session may have
+         * executing at once.
+         * 
+         * @param n maximum in-flight operations per session (must be greater than 0)
+         * @return this tweaks instance for method chaining
+         */
+        SchedulingTweaks maximumInFlightPerSession(int n);
+    }
+    
     // -----------------------------------------------------------------------------------
     // Internal implementations of tweaks interfaces
     // -----------------------------------------------------------------------------------
@@ -414,5 +485,24 @@ public class SystemSettings {
             return this;
         }
     }
+    
+    private static class SchedulingTweaksImpl implements SchedulingTweaks {
+        private final Builder builder;
+        
+        SchedulingTweaksImpl(Builder builder) {
+            this.builder = builder;
+        }
+        
+        @Override
+        public SchedulingTweaks maximumInFlightPerNode(int n) {
+            builder.maximumInFlightPerNode = n;
+            return this;
+        }
+        
+        @Override
+        public SchedulingTweaks maximumInFlightPerSession(int n) {
+            builder.maximumInFlightPerSession = n;
+            return this;
+        }
+    }
 }
-
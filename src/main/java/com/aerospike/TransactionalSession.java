@@ -139,6 +139,10 @@ public class TransactionalSession extends Session{
             }
         }
         finally {
+            if (count == 1) {
+                // Reads outside the transaction may have cached the records from before it committed
+                invalidateCached(txn.getWrites());
+            }
             count--;
         }
     }
@@ -212,6 +216,10 @@ public class TransactionalSession extends Session{
             }
         }
         finally {
+            if (count == 1) {
+                // Reads outside the transaction may have cached the records from before it committed
+                invalidateCached(txn.getWrites());
+            }
             count--;
         }
     }
@@ -0,0 +1,348 @@
+package com.aerospike;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Log;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.BatchWritePolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.Replica;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.policy.Settings;
+
+/**
+ * Collects single record writes made concurrently through a {@link Session} and sends them to
+ * the server together as one batch, so that many threads each writing one record share a few
+ * round trips rather than making one each.
+ *
+ * <p>Writes are held until either {@code maxBatchSize} writes are waiting, in which case the
+ * thread which made the last of them sends the batch, or the oldest waiting write has waited
+ * for {@code maxDelay}. Each caller blocks until the batch holding its write has completed and
+ * is given the result of its own write, exactly as if it had been sent on its own.</p>
+ *
+ * <p>Writes to the same record are applied in the order they were made: a batch never holds two
+ * writes to the same record, and a write is not sent while an earlier write to the same record
+ * is still in progress. Such a write may therefore wait for longer than {@code maxDelay}.</p>
+ *
+ * <p>Each namespace is batched separately, and so are writes with different timeouts, retries or
+ * replica: a batch is sent with the timeouts of the writes it holds, so each write keeps those
+ * of its own policy. Writes whose policy has no batch equivalent, such as those in a transaction
+ * or with {@code respondAllOps}, {@code onLockingOnly} or {@code xdr} set, are never batched; see
+ * {@link #canBatch(WritePolicy)}.</p>
+ *
+ * <p>A write which fails is thrown the exception the client raised for it. If its batch failed,
+ * that is the exception which stopped the batch, with the server's message and node; if only
+ * the write failed, it is an exception with the write's result code.</p>
+ *
+ * <p>Enable batching with {@link Session#enableWriteBatching(Duration, int)}.</p>
+ */
+public final class WriteBatcher {
+    private final IAerospikeClient client;
+    private final Function<String, Settings> settingsForNamespace;
+    private final Duration maxDelay;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<LaneKey, Lane> lanes = new ConcurrentHashMap<>();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param client the client to send the batches with
+     * @param settingsForNamespace provides the batch write settings for a namespace
+     * @param maxDelay the longest a write waits for others to join its batch
+     * @param maxBatchSize the number of waiting writes which causes a batch to be sent at once
+     */
+    WriteBatcher(IAerospikeClient client, Function<String, Settings> settingsForNamespace, Duration maxDelay, int maxBatchSize) {
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative, not " + maxDelay);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0, not " + maxBatchSize);
+        }
+        this.client = client;
+        this.settingsForNamespace = settingsForNamespace;
+        this.maxDelay = maxDelay;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Write a record in the next batch, waiting for the batch to complete. The policy must be
+     * one which {@link #canBatch(WritePolicy)} accepts.
+     *
+     * @return the record returned by the write, as {@link com.aerospike.client.IAerospikeClient#operate}
+     * @throws AerospikeException if the write failed
+     */
+    Record operate(WritePolicy policy, Key key, Operation[] operations) {
+        BatchWrite batchWrite = new BatchWrite(toBatchWritePolicy(policy), key, operations);
+        execute(batchWrite, policy);
+        switch (batchWrite.resultCode) {
+        case ResultCode.OK:
+            return batchWrite.record;
+        case ResultCode.FILTERED_OUT:
+            if (!policy.failOnFilteredOut) {
+                return null;
+            }
+            // Fall through
+        default:
+            AerospikeException ae = new AerospikeException(batchWrite.resultCode, batchWrite.inDoubt);
+            ae.setPolicy(policy);
+            throw ae;
+        }
+    }
+
+    /**
+     * Execute a record in the next batch, waiting for the batch to complete. The result is set
+     * in the record.
+     *
+     * @param policy provides the timeouts, retries and replica the batch is sent with
+     * @throws RuntimeException the exception which stopped the batch, if the record was not
+     * written because of it
+     */
+    void execute(BatchRecord record, Policy policy) {
+        writes.increment();
+        PendingWrite write = new PendingWrite(record);
+        lanes.computeIfAbsent(LaneKey.of(record.key.namespace, policy), Lane::new).submit(write);
+        write.await();
+    }
+
+    /**
+     * @return true if a write with this policy can be sent in a batch and behave as it would on
+     * its own: it is not in a transaction, and it uses no write policy field which a batch write
+     * does not have
+     */
+    static boolean canBatch(WritePolicy policy) {
+        return policy.txn == null && !policy.respondAllOps && !policy.onLockingOnly && !policy.xdr;
+    }
+
+    static BatchWritePolicy toBatchWritePolicy(WritePolicy policy) {
+        BatchWritePolicy batchWritePolicy = new BatchWritePolicy();
+        batchWritePolicy.filterExp = policy.filterExp;
+        batchWritePolicy.recordExistsAction = policy.recordExistsAction;
+        batchWritePolicy.commitLevel = policy.commitLevel;
+        batchWritePolicy.generationPolicy = policy.generationPolicy;
+        batchWritePolicy.generation = policy.generation;
+        batchWritePolicy.expiration = policy.expiration;
+        batchWritePolicy.durableDelete = policy.durableDelete;
+        batchWritePolicy.sendKey = policy.sendKey;
+        return batchWritePolicy;
+    }
+
+    /**
+     * The writes which can share a batch: those to one namespace with the same timeouts,
+     * retries and replica.
+     */
+    private record LaneKey(String namespace, int connectTimeout, int socketTimeout, int totalTimeout,
+            int timeoutDelay, int maxRetries, int sleepBetweenRetries, Replica replica, boolean compress) {
+
+        static LaneKey of(String namespace, Policy policy) {
+            return new LaneKey(namespace, policy.connectTimeout, policy.socketTimeout, policy.totalTimeout,
+                    policy.timeoutDelay, policy.maxRetries, policy.sleepBetweenRetries, policy.replica, policy.compress);
+        }
+
+        /** Give a batch policy the timeouts, retries and replica of this lane's writes */
+        void applyTo(BatchPolicy batchPolicy) {
+            batchPolicy.connectTimeout = connectTimeout;
+            batchPolicy.socketTimeout = socketTimeout;
+            batchPolicy.totalTimeout = totalTimeout;
+            batchPolicy.timeoutDelay = timeoutDelay;
+            batchPolicy.maxRetries = maxRetries;
+            batchPolicy.sleepBetweenRetries = sleepBetweenRetries;
+            batchPolicy.replica = replica;
+            batchPolicy.compress = compress;
+        }
+    }
+
+    private static class PendingWrite {
+        final BatchRecord record;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(BatchRecord record) {
+            this.record = record;
+        }
+
+        void await() {
+            try {
+                done.join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (e.getCause() instanceof Error err) {
+                    throw err;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The writes waiting to share a batch.
+     */
+    private final class Lane {
+        private final LaneKey key;
+        // Guarded by this
+        private List<PendingWrite> pending = new ArrayList<>();
+        private final Set<Key> keysInFlight = new HashSet<>();
+        private boolean timerStarted = false;
+
+        Lane(LaneKey key) {
+            this.key = key;
+        }
+
+        void submit(PendingWrite write) {
+            List<PendingWrite> batch = null;
+            synchronized (this) {
+                pending.add(write);
+                if (pending.size() >= maxBatchSize) {
+                    batch = takeBatch();
+                }
+                startTimerIfNeeded();
+            }
+            if (batch != null) {
+                send(batch);
+            }
+        }
+
+        /**
+         * Remove the writes for the next batch, skipping any for records which are already in
+         * the batch or in a batch in progress. Skipped writes keep their order.
+         */
+        private List<PendingWrite> takeBatch() {
+            List<PendingWrite> batch = new ArrayList<>();
+            List<PendingWrite> remaining = new ArrayList<>();
+            for (PendingWrite write : pending) {
+                if (batch.size() < maxBatchSize && keysInFlight.add(write.record.key)) {
+                    batch.add(write);
+                }
+                else {
+                    remaining.add(write);
+                }
+            }
+            pending = remaining;
+            return batch;
+        }
+
+        private void startTimerIfNeeded() {
+            if (timerStarted || pending.isEmpty()) {
+                return;
+            }
+            timerStarted = true;
+            Thread.startVirtualThread(() -> {
+                try {
+                    Thread.sleep(maxDelay);
+                }
+                catch (InterruptedException e) {
+                    // Send the batch now
+                }
+                List<PendingWrite> batch;
+                synchronized (this) {
+                    timerStarted = false;
+                    batch = takeBatch();
+                    // If every waiting write is held back, the batch holding them restarts the timer
+                    if (!batch.isEmpty()) {
+                        startTimerIfNeeded();
+                    }
+                }
+                send(batch);
+            });
+        }
+
+        private void send(List<PendingWrite> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<BatchRecord> records = new ArrayList<>(batch.size());
+            for (PendingWrite write : batch) {
+                records.add(write.record);
+            }
+            try {
+                Settings settings = settingsForNamespace.apply(key.namespace());
+                BatchPolicy batchPolicy = settings.asBatchPolicy();
+                key.applyTo(batchPolicy);
+                // Report filtered out records individually, each caller decides what that means for it
+                batchPolicy.failOnFilteredOut = true;
+                if (Log.debugEnabled()) {
+                    Log.debug("Sending " + records.size() + " batched write(s) to namespace " + key.namespace());
+                }
+                batches.increment();
+                BatchSplitter.operate(client, batchPolicy, records, settings);
+                for (PendingWrite write : batch) {
+                    write.done.complete(null);
+                }
+            }
+            catch (Throwable t) {
+                // The client wraps the exception which stopped a batch with the batch's records.
+                // Each write is given that exception, unless the record holds a result of its own
+                Throwable cause = t instanceof AerospikeException.BatchRecordArray && t.getCause() != null ? t.getCause() : t;
+                int failedCode = cause instanceof AerospikeException ae ? ae.getResultCode() : ResultCode.CLIENT_ERROR;
+                for (PendingWrite write : batch) {
+                    int resultCode = write.record.resultCode;
+                    if (t instanceof AerospikeException && resultCode != ResultCode.NO_RESPONSE && resultCode != failedCode) {
+                        write.done.complete(null);
+                    }
+                    else {
+                        write.done.completeExceptionally(cause);
+                    }
+                }
+            }
+            finally {
+                synchronized (this) {
+                    for (PendingWrite write : batch) {
+                        keysInFlight.remove(write.record.key);
+                    }
+                    // Writes held back behind this batch can now be sent
+                    startTimerIfNeeded();
+                }
+            }
+        }
+    }
+
+    /** @return the longest a write waits for others to join its batch */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /** @return the number of writes which fill a batch and cause it to be sent at once */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** @return the number of writes made through this batcher */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /** @return the number of batches sent to the server */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /** @return the mean number of writes in each batch, or 0 if no batches have been sent */
+    public double getAverageBatchSize() {
+        long batches = getBatches();
+        return batches == 0 ? 0.0 : (double) getWrites() / batches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriteBatcher[maxDelay=%s, maxBatchSize=%d, writes=%d, batches=%d]",
+                maxDelay, maxBatchSize, getWrites(), getBatches());
+    }
+}
@@ -9,6 +9,7 @@ public class ArithmeticExpression implements NumericExpression {
     private final NumericExpression left;
     private final ArithmeticOp operator;
     private final NumericExpression right;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public ArithmeticExpression(NumericExpression left, ArithmeticOp operator, NumericExpression right) {
         this.left = left;
@@ -54,6 +55,10 @@ public class ArithmeticExpression implements NumericExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         switch (operator) {
         case PLUS:  return Exp.add(left.toAerospikeExp(), right.toAerospikeExp()); 
         case MINUS:  return Exp.sub(left.toAerospikeExp(), right.toAerospikeExp()); 
@@ -1,5 +1,8 @@
 package com.aerospike.dslobjects;
 
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+
 /**
  * Represents a boolean expression that can be used in logical operations.
  * This is the base interface for all expressions that can be combined with AND, OR, NOT.
@@ -12,4 +15,13 @@ public interface BooleanExpression extends DslExpression {
     // Comparison operations for boolean values
     BooleanExpression eq(Boolean value);
     BooleanExpression ne(Boolean value);
+    
+    /**
+     * Build the packed form of this expression, as used for a policy's {@code filterExp}.
+     * Implementations whose trees are immutable memoize the result, so the same packed bytes are
+     * shared by every operation using this expression.
+     */
+    default Expression toAerospikeExpression() {
+        return Exp.build(toAerospikeExp());
+    }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.aerospike.dslobjects;
 
 import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
 
 /**
  * Represents a comparison operation between two values or expressions.
@@ -9,6 +10,8 @@ public class Comparison<T> implements BooleanExpression {
     private final DslExpression left;
     private final ComparisonOp operator;
     private final Object right;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
+    private final Memoized<Expression> expression = new Memoized<>(() -> Exp.build(toAerospikeExp()));
 
     public Comparison(DslExpression left, ComparisonOp operator, Object right) {
         this.left = left;
@@ -91,6 +94,15 @@ public class Comparison<T> implements BooleanExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    @Override
+    public Expression toAerospikeExpression() {
+        return expression.get();
+    }
+
+    private Exp buildExp() {
         switch (operator) {
         case EQ:  return Exp.eq(left.toAerospikeExp(), rightAsExp());
         case NE:  return Exp.ne(left.toAerospikeExp(), rightAsExp());
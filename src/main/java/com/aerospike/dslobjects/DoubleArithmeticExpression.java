@@ -9,6 +9,7 @@ public class DoubleArithmeticExpression implements DoubleExpression {
     private final DoubleExpression left;
     private final ArithmeticOp operator;
     private final DoubleExpression right;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public DoubleArithmeticExpression(DoubleExpression left, ArithmeticOp operator, DoubleExpression right) {
         this.left = left;
@@ -223,6 +224,10 @@ public class DoubleArithmeticExpression implements DoubleExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         switch (operator) {
         case PLUS:  return Exp.add(left.toAerospikeExp(), right.toAerospikeExp()); 
         case MINUS:  return Exp.sub(left.toAerospikeExp(), right.toAerospikeExp()); 
@@ -7,6 +7,7 @@ import com.aerospike.client.exp.Exp;
  */
 public class DoubleToLongExpression implements LongExpression {
     private final DoubleExpression doubleExpr;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public DoubleToLongExpression(DoubleExpression doubleExpr) {
         this.doubleExpr = doubleExpr;
@@ -213,6 +214,10 @@ public class DoubleToLongExpression implements LongExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         return Exp.toInt(doubleExpr.toAerospikeExp());
     }
 } 
\ No newline at end of file
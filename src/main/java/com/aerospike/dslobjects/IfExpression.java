@@ -13,10 +13,11 @@ public class IfExpression implements DslExpression {
     private final List<BooleanExpression> conditions;
     private final List<DslExpression> results;
     private final DslExpression elseResult;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public IfExpression(List<BooleanExpression> conditions, List<DslExpression> results, DslExpression elseResult) {
-        this.conditions = conditions;
-        this.results = results;
+        this.conditions = List.copyOf(conditions);
+        this.results = List.copyOf(results);
         this.elseResult = elseResult;
     }
 
@@ -63,6 +64,10 @@ public class IfExpression implements DslExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         Exp[] conds = new Exp[conditions.size() * 2 + 1];
         for (int i = 0; i < conditions.size(); i++) {
             conds[i*2] = conditions.get(i).toAerospikeExp();
@@ -11,9 +11,10 @@ import com.aerospike.client.exp.Exp;
 public class LocalVariableExpression implements DslExpression {
     private final List<VariableDefinition> variables;
     private final DslExpression resultExpression;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public LocalVariableExpression(List<VariableDefinition> variables, DslExpression resultExpression) {
-        this.variables = variables;
+        this.variables = List.copyOf(variables);
         this.resultExpression = resultExpression;
     }
 
@@ -59,6 +60,10 @@ public class LocalVariableExpression implements DslExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         Exp[] exps = new Exp[variables.size() + 1];
         for (int i = 0; i < variables.size(); i++) {
             exps[i] = Exp.def(variables.get(i).getName(), variables.get(i).getValue().toAerospikeExp());
@@ -1,6 +1,7 @@
 package com.aerospike.dslobjects;
 
 import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
 
 /**
  * Represents a logical operation (AND, OR, NOT) between boolean expressions.
@@ -9,6 +10,8 @@ public class LogicalExpression implements BooleanExpression {
     private final LogicalOp op;
     private final BooleanExpression left;
     private final BooleanExpression right;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
+    private final Memoized<Expression> expression = new Memoized<>(() -> Exp.build(toAerospikeExp()));
 
     public LogicalExpression(LogicalOp op, BooleanExpression left, BooleanExpression right) {
         this.op = op;
@@ -62,6 +65,15 @@ public class LogicalExpression implements BooleanExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    @Override
+    public Expression toAerospikeExpression() {
+        return expression.get();
+    }
+
+    private Exp buildExp() {
         switch (op) {
         case AND: return Exp.and(left.toAerospikeExp(), right.toAerospikeExp());
         case OR: return Exp.or(left.toAerospikeExp(), right.toAerospikeExp());
@@ -9,6 +9,7 @@ public class LongArithmeticExpression implements LongExpression {
     private final LongExpression left;
     private final ArithmeticOp operator;
     private final LongExpression right;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public LongArithmeticExpression(LongExpression left, ArithmeticOp operator, LongExpression right) {
         this.left = left;
@@ -223,6 +224,10 @@ public class LongArithmeticExpression implements LongExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         switch (operator) {
         case PLUS:  return Exp.add(left.toAerospikeExp(), right.toAerospikeExp()); 
         case MINUS:  return Exp.sub(left.toAerospikeExp(), right.toAerospikeExp()); 
@@ -7,6 +7,7 @@ import com.aerospike.client.exp.Exp;
  */
 public class LongToDoubleExpression implements DoubleExpression {
     private final LongExpression longExpr;
+    private final Memoized<Exp> exp = new Memoized<>(this::buildExp);
 
     public LongToDoubleExpression(LongExpression longExpr) {
         this.longExpr = longExpr;
@@ -213,6 +214,10 @@ public class LongToDoubleExpression implements DoubleExpression {
     
     @Override
     public Exp toAerospikeExp() {
+        return exp.get();
+    }
+
+    private Exp buildExp() {
         return Exp.toFloat(longExpr.toAerospikeExp());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.aerospike.dslobjects;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds a value which is built on first use and then returned to every later caller. The
+ * composite expression nodes use this for their {@code Exp} and packed {@code Expression}:
+ * a node's children cannot change once it is constructed, so the result of building it never
+ * changes either, and a tree used as a where clause is built and packed only once however
+ * often it is executed.
+ *
+ * <p>Two threads racing on the first call may both build the value; they build equal values,
+ * and one of them is kept.</p>
+ */
+final class Memoized<T> {
+    private final Supplier<T> builder;
+    private volatile T value;
+
+    Memoized(Supplier<T> builder) {
+        this.builder = builder;
+    }
+
+    T get() {
+        T result = value;
+        if (result == null) {
+            result = builder.get();
+            value = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.aerospike.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a field of a {@link MappedRecord} in a bin with a different name. By default the bin
+ * has the name of the field. Bin names are limited to 15 bytes, so this is often used to
+ * shorten long field names:
+ * <pre>
+ *    &#64;BinName("addrCountry")
+ *    private String addressCountry;
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface BinName {
+    String value();
+}
@@ -0,0 +1,19 @@
+package com.aerospike.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides {@link MappedRecord#enums()} for one enum field, or a list or map of enums.
+ * <pre>
+ *    &#64;EnumAs(EnumEncoding.ORDINAL)
+ *    private Status status;
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface EnumAs {
+    EnumEncoding value();
+}
@@ -0,0 +1,12 @@
+package com.aerospike.mapping;
+
+/**
+ * How a generated mapper stores an enum value. Either form is accepted when reading, so the
+ * encoding of a field can be changed without rewriting existing records.
+ */
+public enum EnumEncoding {
+    /** Store the constant's name. Constants can be reordered, but not renamed. */
+    NAME,
+    /** Store the constant's ordinal, which is smaller. Constants can be renamed, but not reordered. */
+    ORDINAL
+}
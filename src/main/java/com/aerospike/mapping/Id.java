@@ -0,0 +1,21 @@
+package com.aerospike.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the field of a {@link MappedRecord} which forms the record's key, returned by
+ * {@link com.aerospike.RecordMapper#id(Object)}. Without it, a field called {@code id} is used
+ * if there is one.
+ * <p/>
+ * The id is also stored as a bin. If the bin is missing when reading, for example because it
+ * was not written by this mapper, the field is set from the user key of the record if the key
+ * was sent to the server.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface Id {
+
+}
@@ -0,0 +1,17 @@
+package com.aerospike.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Excludes a field of a {@link MappedRecord} class from its generated mapper. The field is not
+ * written, and keeps its initial value when an object is read. Record components cannot be
+ * ignored as they are needed to construct the record.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Ignore {
+
+}
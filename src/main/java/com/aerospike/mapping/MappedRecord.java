@@ -0,0 +1,42 @@
+package com.aerospike.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.aerospike.DefaultRecordMappingFactory;
+
+/**
+ * Generates a {@link com.aerospike.RecordMapper} for this class at compile time. The mapper is
+ * placed in the same package and named after the class with {@code RecordMapper} appended, with
+ * the names of any enclosing classes joined by underscores, so {@code Customer} is mapped by
+ * {@code CustomerRecordMapper} and {@code Order.Line} by {@code Order_LineRecordMapper}.
+ * <p/>
+ * Generated mappers read and write each field directly, with no reflection. They are found
+ * automatically by {@link DefaultRecordMappingFactory}, so an annotated class needs no
+ * registration:
+ * <pre>
+ *    &#64;MappedRecord
+ *    public record Customer(&#64;Id long id, String name, &#64;BinName("addr") Address address) {}
+ *
+ *    cluster.setRecordMappingFactory(new DefaultRecordMappingFactory());
+ * </pre>
+ * Java records are created with their canonical constructor. Other classes need a non-private
+ * no-argument constructor, and each mapped field needs either a non-private getter and setter
+ * or to be non-private itself. Static and transient fields, and fields marked {@link Ignore},
+ * are not mapped.
+ * <p/>
+ * Supported field types are primitives and their wrappers, {@code String}, {@code byte[]},
+ * enums, {@code Date} and {@code Instant} (stored as epoch milliseconds), {@code LocalDate}
+ * (stored as the epoch day), other {@code @MappedRecord} classes (stored as maps), and
+ * {@code List}s and {@code Map}s of any of these.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MappedRecord {
+    /**
+     * How enum fields are stored, unless overridden on the field with {@link EnumAs}.
+     */
+    EnumEncoding enums() default EnumEncoding.NAME;
+}
@@ -0,0 +1,177 @@
+package com.aerospike.mapping;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.RecordMapper;
+
+/**
+ * Conversions used by mappers generated for {@link MappedRecord} classes, and the lookup of
+ * those mappers. The conversions accept the types the server returns for a bin, so integers
+ * may be read as any {@code Number}, and booleans as either a {@code Boolean} or an integer.
+ */
+public final class MapperSupport {
+    /** Appended to the name of a class to give the name of its generated mapper */
+    public static final String MAPPER_SUFFIX = "RecordMapper";
+
+    private static final ClassValue<RecordMapper<?>> GENERATED = new ClassValue<>() {
+        @Override
+        protected RecordMapper<?> computeValue(Class<?> type) {
+            if (!type.isAnnotationPresent(MappedRecord.class)) {
+                return null;
+            }
+            String name = mapperClassName(type.getPackageName(), type.getName());
+            try {
+                Class<?> mapperClass = Class.forName(name, true, type.getClassLoader());
+                return (RecordMapper<?>) mapperClass.getDeclaredConstructor().newInstance();
+            }
+            catch (ClassNotFoundException e) {
+                // The annotation processor did not run when the class was compiled
+                return null;
+            }
+            catch (ReflectiveOperationException | ClassCastException e) {
+                Throwable cause = e instanceof InvocationTargetException ite ? ite.getCause() : e;
+                throw new IllegalStateException("Could not create the generated mapper " + name, cause);
+            }
+        }
+    };
+
+    private MapperSupport() {
+    }
+
+    /**
+     * Gets the mapper generated for a {@link MappedRecord} class. The mapper is created the
+     * first time it is needed and shared after that.
+     *
+     * @param type the mapped class
+     * @return the generated mapper, or null if the class is not annotated or its mapper was not
+     *         generated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RecordMapper<T> generatedMapper(Class<T> type) {
+        return (RecordMapper<T>) GENERATED.get(type);
+    }
+
+    /**
+     * Gets the fully qualified name of the mapper generated for a class.
+     *
+     * @param packageName the package of the class, empty for the unnamed package
+     * @param binaryName the binary name of the class, with {@code $} separating nested classes
+     */
+    public static String mapperClassName(String packageName, String binaryName) {
+        String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        String mapperName = simpleName.replace('$', '_') + MAPPER_SUFFIX;
+        return packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+    }
+
+    public static long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+        throw mismatch(value, "a number");
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        throw mismatch(value, "a number");
+    }
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof Number number) {
+            return number.longValue() != 0;
+        }
+        throw mismatch(value, "a boolean");
+    }
+
+    public static String toStringValue(Object value) {
+        if (value instanceof String string) {
+            return string;
+        }
+        throw mismatch(value, "a string");
+    }
+
+    public static byte[] toBytes(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        throw mismatch(value, "a blob");
+    }
+
+    /**
+     * @return the date for the given epoch milliseconds, or null for 0 as written by
+     *         {@link com.aerospike.MapUtil.MapBuilder#addAsLong(String, Date)} for a null date
+     */
+    public static Date toDate(Object value) {
+        long millis = toLong(value);
+        return millis == 0 ? null : new Date(millis);
+    }
+
+    public static Instant toInstant(Object value) {
+        return Instant.ofEpochMilli(toLong(value));
+    }
+
+    public static LocalDate toLocalDate(Object value) {
+        return LocalDate.ofEpochDay(toLong(value));
+    }
+
+    /**
+     * Reads an enum stored either by name or by ordinal.
+     *
+     * @param type the enum class
+     * @param values the constants of the enum, in ordinal order
+     * @param value the stored value
+     */
+    public static <E extends Enum<E>> E toEnum(Class<E> type, E[] values, Object value) {
+        if (value instanceof String name) {
+            return Enum.valueOf(type, name);
+        }
+        if (value instanceof Number number) {
+            long ordinal = number.longValue();
+            if (ordinal < 0 || ordinal >= values.length) {
+                throw new IllegalArgumentException(String.format("%d is not an ordinal of %s", ordinal, type.getSimpleName()));
+            }
+            return values[(int) ordinal];
+        }
+        throw mismatch(value, "a " + type.getSimpleName());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<Object, Object> toMap(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<Object, Object>) map;
+        }
+        throw mismatch(value, "a map");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toBins(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        throw mismatch(value, "a map");
+    }
+
+    public static List<?> toList(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        throw mismatch(value, "a list");
+    }
+
+    private static IllegalArgumentException mismatch(Object value, String expected) {
+        return new IllegalArgumentException(String.format("Expected %s but found %s (%s)",
+                expected, value, value == null ? "null" : value.getClass().getSimpleName()));
+    }
+}
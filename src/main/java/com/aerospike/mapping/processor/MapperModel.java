@@ -0,0 +1,62 @@
+package com.aerospike.mapping.processor;
+
+import java.util.List;
+
+/**
+ * Everything needed to write the mapper for one {@code @MappedRecord} class, resolved from the
+ * source by {@link RecordMapperProcessor} and written out by {@link MapperWriter}.
+ *
+ * @param packageName the package of the mapped class and its mapper
+ * @param mapperName the simple name of the mapper
+ * @param typeName the canonical name of the mapped class
+ * @param isRecord whether the class is a Java record, created with its canonical constructor
+ * @param properties the mapped fields, in constructor order for records
+ */
+record MapperModel(String packageName, String mapperName, String typeName, boolean isRecord, List<Property> properties) {
+
+    /**
+     * One mapped field.
+     *
+     * @param name the name of the field
+     * @param binName the name of the bin it is stored in
+     * @param typeName the declared type of the field
+     * @param conversion how the value is converted to and from its bin
+     * @param getter the expression reading the field from {@code element}, without the
+     *        {@code element.} prefix
+     * @param setter the name of the setter, or null to assign the field directly. Not used for
+     *        records.
+     * @param isId whether this field is the record's id
+     */
+    record Property(String name, String binName, String typeName, Conversion conversion, String getter, String setter, boolean isId) {
+    }
+
+    /**
+     * How a value of a field, or of an element of a list or map, is stored.
+     */
+    sealed interface Conversion permits Scalar, ListOf, MapOf {
+        String typeName();
+    }
+
+    enum Kind {
+        LONG, INT, SHORT, BYTE, DOUBLE, FLOAT, BOOLEAN,
+        STRING, BYTES, DATE, INSTANT, LOCAL_DATE,
+        ENUM_NAME, ENUM_ORDINAL, MAPPED_RECORD
+    }
+
+    /**
+     * A value stored directly in a bin or element.
+     *
+     * @param kind the kind of value
+     * @param typeName the Java type, which is a primitive if {@code primitive} is set
+     * @param primitive whether the value is a primitive, so can never be null
+     * @param mapperName the fully qualified name of the mapper for a {@link Kind#MAPPED_RECORD}
+     */
+    record Scalar(Kind kind, String typeName, boolean primitive, String mapperName) implements Conversion {
+    }
+
+    record ListOf(String typeName, Conversion element) implements Conversion {
+    }
+
+    record MapOf(String typeName, Conversion key, Conversion value) implements Conversion {
+    }
+}
@@ -0,0 +1,494 @@
+package com.aerospike.mapping.processor;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.aerospike.mapping.processor.MapperModel.Conversion;
+import com.aerospike.mapping.processor.MapperModel.Kind;
+import com.aerospike.mapping.processor.MapperModel.ListOf;
+import com.aerospike.mapping.processor.MapperModel.MapOf;
+import com.aerospike.mapping.processor.MapperModel.Property;
+import com.aerospike.mapping.processor.MapperModel.Scalar;
+
+/**
+ * Writes the source of a generated mapper. Each field is read and written by straight-line
+ * code, with lists and maps converted by a pair of static helper methods per field. Objects
+ * can be read either from a map of bins or from a {@code BinCursor}, which uses the typed
+ * accessors for primitives, strings and blobs. Names of
+ * mapped types are written fully qualified, so they cannot clash with the imports.
+ */
+class MapperWriter {
+    private static final String VALUE = "Value";
+    private static final String SUPPORT = "MapperSupport";
+
+    private final MapperModel model;
+    private final StringBuilder out = new StringBuilder();
+    /** Bin name constants by field name */
+    private final Map<String, String> binConstants = new LinkedHashMap<>();
+    /** Static fields holding enum constants and nested mappers, keyed by type and value */
+    private final Map<String, String> staticFields = new LinkedHashMap<>();
+    private final Map<String, String> staticFieldValues = new LinkedHashMap<>();
+    /** Helper methods converting lists and maps, written after the main methods */
+    private final StringBuilder helpers = new StringBuilder();
+    private final Set<String> helperNames = new HashSet<>();
+
+    MapperWriter(MapperModel model) {
+        this.model = model;
+    }
+
+    String write() {
+        for (Property property : model.properties()) {
+            binConstants.put(property.name(), uniqueConstant("BIN_" + upperSnake(property.name()), binConstants.values()));
+        }
+        String fromMap = fromMap();
+        String fromBins = fromBins();
+        String toMap = toMap();
+
+        if (!model.packageName().isEmpty()) {
+            line(0, "package %s;", model.packageName());
+            line(0, "");
+        }
+        line(0, "import java.util.ArrayList;");
+        line(0, "import java.util.HashMap;");
+        line(0, "import java.util.List;");
+        line(0, "import java.util.Map;");
+        line(0, "");
+        line(0, "import javax.annotation.processing.Generated;");
+        line(0, "");
+        line(0, "import com.aerospike.BinCursor;");
+        line(0, "import com.aerospike.StreamingRecordMapper;");
+        line(0, "import com.aerospike.client.Key;");
+        line(0, "import com.aerospike.client.Value;");
+        line(0, "import com.aerospike.mapping.MapperSupport;");
+        line(0, "");
+        line(0, "/**");
+        line(0, " * Maps {@link %s} to and from records. Generated from its {@code @MappedRecord} annotation.", model.typeName());
+        line(0, " */");
+        line(0, "@Generated(\"%s\")", RecordMapperProcessor.class.getName());
+        line(0, "public final class %s implements StreamingRecordMapper<%s> {", model.mapperName(), model.typeName());
+        for (Property property : model.properties()) {
+            line(1, "public static final String %s = \"%s\";", binConstants.get(property.name()), escape(property.binName()));
+        }
+        if (!staticFields.isEmpty()) {
+            line(0, "");
+        }
+        for (Map.Entry<String, String> field : staticFields.entrySet()) {
+            line(1, "private static final %s %s = %s;", field.getKey().substring(field.getKey().indexOf(' ') + 1),
+                    field.getValue(), staticFieldValues.get(field.getKey()));
+        }
+        line(0, "");
+        out.append(fromMap);
+        line(0, "");
+        out.append(fromBins);
+        line(0, "");
+        out.append(toMap);
+        line(0, "");
+        line(1, "@Override");
+        line(1, "public Object id(%s element) {", model.typeName());
+        String id = model.properties().stream()
+                .filter(Property::isId)
+                .map(property -> "element." + property.getter())
+                .findFirst()
+                .orElse("null");
+        line(2, "return %s;", id);
+        line(1, "}");
+        out.append(helpers);
+        line(0, "}");
+        return out.toString();
+    }
+
+    private String fromMap() {
+        StringBuilder saved = swap();
+        line(1, "@Override");
+        line(1, "public %s fromMap(Map<String, Object> map, Key recordKey, int generation) {", model.typeName());
+        if (!model.isRecord()) {
+            line(2, "%s result = new %s();", model.typeName(), model.typeName());
+        }
+        line(2, "Object value;");
+        for (Property property : model.properties()) {
+            line(2, "value = map.get(%s);", binConstants.get(property.name()));
+            if (property.isId()) {
+                line(2, "if (value == null && recordKey != null && recordKey.userKey != null) {");
+                line(3, "value = recordKey.userKey.getObject();");
+                line(2, "}");
+            }
+            String read = read(property.conversion(), "value", property.name());
+            if (model.isRecord()) {
+                line(2, "%s %s = value == null ? %s : %s;", property.typeName(), local(property),
+                        defaultValue(property.conversion()), read);
+            }
+            else {
+                line(2, "if (value != null) {");
+                line(3, "%s", assign(property, read));
+                line(2, "}");
+            }
+        }
+        if (model.isRecord()) {
+            line(2, "return new %s(%s);", model.typeName(), constructorArguments());
+        }
+        else {
+            line(2, "return result;");
+        }
+        line(1, "}");
+        return restore(saved);
+    }
+
+    private String fromBins() {
+        StringBuilder saved = swap();
+        Property id = model.properties().stream().filter(Property::isId).findFirst().orElse(null);
+        line(1, "@Override");
+        line(1, "public %s fromBins(BinCursor bins, Key recordKey, int generation) {", model.typeName());
+        if (model.isRecord()) {
+            for (Property property : model.properties()) {
+                line(2, "%s %s = %s;", property.typeName(), local(property), defaultValue(property.conversion()));
+            }
+        }
+        else {
+            line(2, "%s result = new %s();", model.typeName(), model.typeName());
+        }
+        if (id != null) {
+            line(2, "boolean hasId = false;");
+        }
+        line(2, "while (bins.next()) {");
+        line(3, "if (bins.isNull()) {");
+        line(4, "continue;");
+        line(3, "}");
+        line(3, "switch (bins.name()) {");
+        for (Property property : model.properties()) {
+            String assignment = assign(property, readCursor(property.conversion(), property.name()));
+            if (property == id) {
+                line(4, "case %s -> {", binConstants.get(property.name()));
+                line(5, "%s", assignment);
+                line(5, "hasId = true;");
+                line(4, "}");
+            }
+            else {
+                line(4, "case %s -> %s", binConstants.get(property.name()), assignment);
+            }
+        }
+        line(4, "default -> {");
+        line(4, "}");
+        line(3, "}");
+        line(2, "}");
+        if (id != null) {
+            line(2, "if (!hasId && recordKey != null && recordKey.userKey != null && recordKey.userKey.getObject() != null) {");
+            line(3, "%s", assign(id, read(id.conversion(), "recordKey.userKey.getObject()", id.name())));
+            line(2, "}");
+        }
+        if (model.isRecord()) {
+            line(2, "return new %s(%s);", model.typeName(), constructorArguments());
+        }
+        else {
+            line(2, "return result;");
+        }
+        line(1, "}");
+        return restore(saved);
+    }
+
+    /**
+     * @return a statement setting the property on {@code result}, or its local for a record
+     */
+    private String assign(Property property, String value) {
+        if (model.isRecord()) {
+            return String.format("%s = %s;", local(property), value);
+        }
+        if (property.setter() == null) {
+            return String.format("result.%s = %s;", property.name(), value);
+        }
+        return String.format("result.%s(%s);", property.setter(), value);
+    }
+
+    /**
+     * @return an expression reading the current bin of {@code bins}, with a typed accessor where
+     *         there is one
+     */
+    private String readCursor(Conversion conversion, String name) {
+        if (conversion instanceof Scalar scalar) {
+            String accessor = switch (scalar.kind()) {
+                case LONG -> "bins.getLong()";
+                case INT -> "(int) bins.getLong()";
+                case SHORT -> "(short) bins.getLong()";
+                case BYTE -> "(byte) bins.getLong()";
+                case DOUBLE -> "bins.getDouble()";
+                case FLOAT -> "(float) bins.getDouble()";
+                case BOOLEAN -> "bins.getBoolean()";
+                case STRING -> "bins.getString()";
+                case BYTES -> "bins.getBytes()";
+                default -> null;
+            };
+            if (accessor != null) {
+                return accessor;
+            }
+        }
+        return read(conversion, "bins.getObject()", name);
+    }
+
+    private String toMap() {
+        StringBuilder saved = swap();
+        line(1, "@Override");
+        line(1, "public Map<String, Value> toMap(%s element) {", model.typeName());
+        line(2, "if (element == null) {");
+        line(3, "return null;");
+        line(2, "}");
+        line(2, "Map<String, Value> map = HashMap.newHashMap(%d);", model.properties().size());
+        for (Property property : model.properties()) {
+            String local = local(property);
+            line(2, "%s %s = element.%s;", property.typeName(), local, property.getter());
+            line(2, "map.put(%s, %s);", binConstants.get(property.name()), writeNullable(property.conversion(), local, property.name()));
+        }
+        line(2, "return map;");
+        line(1, "}");
+        return restore(saved);
+    }
+
+    /**
+     * @return an expression converting the non-null object in {@code variable} to the type of
+     *         the conversion
+     */
+    private String read(Conversion conversion, String variable, String name) {
+        if (conversion instanceof Scalar scalar) {
+            return switch (scalar.kind()) {
+                case LONG -> String.format("%s.toLong(%s)", SUPPORT, variable);
+                case INT -> String.format("(int) %s.toLong(%s)", SUPPORT, variable);
+                case SHORT -> String.format("(short) %s.toLong(%s)", SUPPORT, variable);
+                case BYTE -> String.format("(byte) %s.toLong(%s)", SUPPORT, variable);
+                case DOUBLE -> String.format("%s.toDouble(%s)", SUPPORT, variable);
+                case FLOAT -> String.format("(float) %s.toDouble(%s)", SUPPORT, variable);
+                case BOOLEAN -> String.format("%s.toBoolean(%s)", SUPPORT, variable);
+                case STRING -> String.format("%s.toStringValue(%s)", SUPPORT, variable);
+                case BYTES -> String.format("%s.toBytes(%s)", SUPPORT, variable);
+                case DATE -> String.format("%s.toDate(%s)", SUPPORT, variable);
+                case INSTANT -> String.format("%s.toInstant(%s)", SUPPORT, variable);
+                case LOCAL_DATE -> String.format("%s.toLocalDate(%s)", SUPPORT, variable);
+                case ENUM_NAME, ENUM_ORDINAL -> String.format("%s.toEnum(%s.class, %s, %s)",
+                        SUPPORT, scalar.typeName(), enumValues(scalar.typeName()), variable);
+                case MAPPED_RECORD -> String.format("%s.fromMap(%s.toBins(%s), null, 0)",
+                        mapper(scalar), SUPPORT, variable);
+            };
+        }
+        return String.format("%s(%s)", readHelper(conversion, name), variable);
+    }
+
+    /**
+     * @return an expression converting the value in {@code variable}, which may be null, to a
+     *         {@code Value}
+     */
+    private String writeNullable(Conversion conversion, String variable, String name) {
+        String write = write(conversion, variable, name);
+        if (conversion instanceof Scalar scalar && scalar.primitive()) {
+            return write;
+        }
+        return String.format("%s == null ? %s.getAsNull() : %s", variable, VALUE, write);
+    }
+
+    /**
+     * @return an expression converting the non-null value in {@code variable} to a {@code Value}
+     */
+    private String write(Conversion conversion, String variable, String name) {
+        if (conversion instanceof Scalar scalar) {
+            return switch (scalar.kind()) {
+                case LONG, DOUBLE -> scalar.primitive()
+                        ? String.format("%s.get(%s)", VALUE, variable)
+                        : String.format("%s.get(%s.%sValue())", VALUE, variable, scalar.kind() == Kind.LONG ? "long" : "double");
+                case INT, SHORT, BYTE -> scalar.primitive()
+                        ? String.format("%s.get((long) %s)", VALUE, variable)
+                        : String.format("%s.get(%s.longValue())", VALUE, variable);
+                case FLOAT -> scalar.primitive()
+                        ? String.format("%s.get((double) %s)", VALUE, variable)
+                        : String.format("%s.get(%s.doubleValue())", VALUE, variable);
+                case BOOLEAN -> scalar.primitive()
+                        ? String.format("%s.get(%s)", VALUE, variable)
+                        : String.format("%s.get(%s.booleanValue())", VALUE, variable);
+                case STRING, BYTES -> String.format("%s.get(%s)", VALUE, variable);
+                case DATE -> String.format("%s.get(%s.getTime())", VALUE, variable);
+                case INSTANT -> String.format("%s.get(%s.toEpochMilli())", VALUE, variable);
+                case LOCAL_DATE -> String.format("%s.get(%s.toEpochDay())", VALUE, variable);
+                case ENUM_NAME -> String.format("%s.get(%s.name())", VALUE, variable);
+                case ENUM_ORDINAL -> String.format("%s.get(%s.ordinal())", VALUE, variable);
+                case MAPPED_RECORD -> String.format("%s.get(%s.toMap(%s))", VALUE, mapper(scalar), variable);
+            };
+        }
+        return String.format("%s.get(%s(%s))", VALUE, writeHelper(conversion, name), variable);
+    }
+
+    private String readHelper(Conversion conversion, String name) {
+        String method = helperName("read" + capitalize(name));
+        StringBuilder saved = swap();
+        line(0, "");
+        line(1, "private static %s %s(Object value) {", conversion.typeName(), method);
+        if (conversion instanceof ListOf list) {
+            line(2, "List<?> source = %s.toList(value);", SUPPORT);
+            line(2, "%s result = new ArrayList<>(source.size());", conversion.typeName());
+            line(2, "for (Object item : source) {");
+            line(3, "result.add(item == null ? null : %s);", read(list.element(), "item", name));
+            line(2, "}");
+        }
+        else {
+            MapOf map = (MapOf) conversion;
+            line(2, "Map<Object, Object> source = %s.toMap(value);", SUPPORT);
+            line(2, "%s result = HashMap.newHashMap(source.size());", conversion.typeName());
+            line(2, "for (Map.Entry<Object, Object> entry : source.entrySet()) {");
+            line(3, "Object key = entry.getKey();");
+            line(3, "Object item = entry.getValue();");
+            line(3, "result.put(key == null ? null : %s, item == null ? null : %s);",
+                    read(map.key(), "key", name), read(map.value(), "item", name));
+            line(2, "}");
+        }
+        line(2, "return result;");
+        line(1, "}");
+        helpers.append(restore(saved));
+        return method;
+    }
+
+    private String writeHelper(Conversion conversion, String name) {
+        String method = helperName("write" + capitalize(name));
+        StringBuilder saved = swap();
+        line(0, "");
+        if (conversion instanceof ListOf list) {
+            String elementType = list.element().typeName();
+            line(1, "private static List<Value> %s(%s list) {", method, conversion.typeName());
+            line(2, "List<Value> result = new ArrayList<>(list.size());");
+            line(2, "for (%s item : list) {", elementType);
+            line(3, "result.add(%s);", writeNullable(list.element(), "item", name));
+            line(2, "}");
+        }
+        else {
+            MapOf map = (MapOf) conversion;
+            line(1, "private static Map<Value, Value> %s(%s map) {", method, conversion.typeName());
+            line(2, "Map<Value, Value> result = HashMap.newHashMap(map.size());");
+            line(2, "for (Map.Entry<%s, %s> entry : map.entrySet()) {", map.key().typeName(), map.value().typeName());
+            line(3, "%s key = entry.getKey();", map.key().typeName());
+            line(3, "%s item = entry.getValue();", map.value().typeName());
+            line(3, "result.put(%s, %s);", writeNullable(map.key(), "key", name), writeNullable(map.value(), "item", name));
+            line(2, "}");
+        }
+        line(2, "return result;");
+        line(1, "}");
+        helpers.append(restore(saved));
+        return method;
+    }
+
+    private String enumValues(String typeName) {
+        return staticField("VALUES", typeName + "[]", typeName + ".values()");
+    }
+
+    private String mapper(Scalar scalar) {
+        return staticField("MAPPER", scalar.mapperName(), "new " + scalar.mapperName() + "()");
+    }
+
+    /**
+     * @return the name of a static field holding the given value, declaring it if needed
+     */
+    private String staticField(String suffix, String type, String value) {
+        String key = suffix + " " + type;
+        String existing = staticFields.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        String simpleName = type.replace("[]", "");
+        simpleName = simpleName.substring(simpleName.lastIndexOf('.') + 1);
+        if (simpleName.endsWith("RecordMapper")) {
+            simpleName = simpleName.substring(0, simpleName.length() - "RecordMapper".length());
+        }
+        String name = uniqueConstant(upperSnake(simpleName) + "_" + suffix, staticFields.values());
+        staticFields.put(key, name);
+        staticFieldValues.put(key, value);
+        return name;
+    }
+
+    private String constructorArguments() {
+        StringBuilder arguments = new StringBuilder();
+        for (Property property : model.properties()) {
+            arguments.append(arguments.length() == 0 ? "" : ", ").append(local(property));
+        }
+        return arguments.toString();
+    }
+
+    private String defaultValue(Conversion conversion) {
+        if (conversion instanceof Scalar scalar && scalar.primitive()) {
+            return switch (scalar.kind()) {
+                case BOOLEAN -> "false";
+                case LONG -> "0L";
+                case DOUBLE -> "0.0";
+                case FLOAT -> "0.0f";
+                case SHORT -> "(short) 0";
+                case BYTE -> "(byte) 0";
+                default -> "0";
+            };
+        }
+        return "null";
+    }
+
+    /**
+     * @return the given name, with a number appended if it is already used by a helper, as
+     *         happens for lists of lists
+     */
+    private String helperName(String name) {
+        String candidate = name;
+        for (int i = 2; !helperNames.add(candidate); i++) {
+            candidate = name + i;
+        }
+        return candidate;
+    }
+
+    private static String local(Property property) {
+        return "f" + capitalize(property.name());
+    }
+
+    private static String uniqueConstant(String name, Iterable<String> existing) {
+        String candidate = name;
+        for (int i = 2; contains(existing, candidate); i++) {
+            candidate = name + "_" + i;
+        }
+        return candidate;
+    }
+
+    private static boolean contains(Iterable<String> values, String value) {
+        for (String existing : values) {
+            if (existing.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String upperSnake(String name) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            char previous = i == 0 ? '_' : name.charAt(i - 1);
+            if (Character.isUpperCase(c) && !Character.isUpperCase(previous) && previous != '_') {
+                result.append('_');
+            }
+            result.append(Character.toUpperCase(c));
+        }
+        return result.toString();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private StringBuilder swap() {
+        StringBuilder saved = new StringBuilder(out);
+        out.setLength(0);
+        return saved;
+    }
+
+    private String restore(StringBuilder saved) {
+        String written = out.toString();
+        out.setLength(0);
+        out.append(saved);
+        return written;
+    }
+
+    private void line(int indent, String format, Object... args) {
+        out.append("    ".repeat(indent)).append(args.length == 0 ? format : String.format(format, args)).append('\n');
+    }
+}
@@ -0,0 +1,393 @@
+package com.aerospike.mapping.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.aerospike.mapping.BinName;
+import com.aerospike.mapping.EnumAs;
+import com.aerospike.mapping.EnumEncoding;
+import com.aerospike.mapping.Id;
+import com.aerospike.mapping.Ignore;
+import com.aerospike.mapping.MappedRecord;
+import com.aerospike.mapping.MapperSupport;
+import com.aerospike.mapping.processor.MapperModel.Conversion;
+import com.aerospike.mapping.processor.MapperModel.Kind;
+import com.aerospike.mapping.processor.MapperModel.ListOf;
+import com.aerospike.mapping.processor.MapperModel.MapOf;
+import com.aerospike.mapping.processor.MapperModel.Property;
+import com.aerospike.mapping.processor.MapperModel.Scalar;
+import com.google.auto.service.AutoService;
+
+/**
+ * Generates a {@link com.aerospike.RecordMapper} for each class annotated with
+ * {@link MappedRecord}. Problems with a class, such as an unsupported field type or a field
+ * which cannot be set, are reported as compile errors against the class or field.
+ */
+@AutoService(Processor.class)
+@SupportedAnnotationTypes("com.aerospike.mapping.MappedRecord")
+public class RecordMapperProcessor extends AbstractProcessor {
+    /** The longest bin name the server accepts, in bytes */
+    private static final int MAX_BIN_NAME_LENGTH = 15;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(MappedRecord.class)) {
+            if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.RECORD) {
+                error(element, "@MappedRecord can only be used on classes and records");
+                continue;
+            }
+            MapperModel model = buildModel((TypeElement) element);
+            if (model != null) {
+                write((TypeElement) element, model);
+            }
+        }
+        return false;
+    }
+
+    private void write(TypeElement type, MapperModel model) {
+        String qualifiedName = model.packageName().isEmpty() ? model.mapperName() : model.packageName() + "." + model.mapperName();
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(new MapperWriter(model).write());
+        }
+        catch (IOException e) {
+            error(type, "Could not write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the model of the mapper, or null if the class cannot be mapped, in which case the
+     *         reasons have been reported
+     */
+    private MapperModel buildModel(TypeElement type) {
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            valid = error(type, "A @MappedRecord class cannot be private");
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            valid = error(type, "A @MappedRecord class cannot be abstract");
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                && type.getKind() != ElementKind.RECORD) {
+            valid = error(type, "A nested @MappedRecord class must be static");
+        }
+        else if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            valid = error(type, "A @MappedRecord class must be a top level or nested class");
+        }
+        boolean isRecord = type.getKind() == ElementKind.RECORD;
+        if (!isRecord && !hasNoArgConstructor(type)) {
+            valid = error(type, "A @MappedRecord class which is not a record needs a non-private constructor with no arguments");
+        }
+        EnumEncoding defaultEnums = type.getAnnotation(MappedRecord.class).enums();
+
+        List<Property> properties = new ArrayList<>();
+        if (isRecord) {
+            for (RecordComponentElement component : type.getRecordComponents()) {
+                Property property = recordProperty(component, defaultEnums);
+                if (property == null) {
+                    valid = false;
+                }
+                else {
+                    properties.add(property);
+                }
+            }
+        }
+        else {
+            for (VariableElement field : fields(type)) {
+                Property property = classProperty(type, field, defaultEnums);
+                if (property == null) {
+                    valid = false;
+                }
+                else {
+                    properties.add(property);
+                }
+            }
+        }
+        valid &= checkBinNames(type, properties);
+        valid &= checkIds(type, properties);
+        if (!valid) {
+            return null;
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String mapperName = simpleName(mapperClassName(type));
+        return new MapperModel(packageName, mapperName, type.getQualifiedName().toString(), isRecord, markDefaultId(properties));
+    }
+
+    private Property recordProperty(RecordComponentElement component, EnumEncoding defaultEnums) {
+        String name = component.getSimpleName().toString();
+        Conversion conversion = conversion(component, component.asType(), enumEncoding(component, defaultEnums));
+        if (conversion == null) {
+            return null;
+        }
+        return new Property(name, binName(component), component.asType().toString(), conversion,
+                component.getAccessor().getSimpleName() + "()", null, component.getAnnotation(Id.class) != null);
+    }
+
+    private Property classProperty(TypeElement type, VariableElement field, EnumEncoding defaultEnums) {
+        String name = field.getSimpleName().toString();
+        Conversion conversion = conversion(field, field.asType(), enumEncoding(field, defaultEnums));
+        if (conversion == null) {
+            return null;
+        }
+        String getter = getter(type, field);
+        String setter = setter(type, field);
+        boolean fieldAccessible = !field.getModifiers().contains(Modifier.PRIVATE);
+        if (getter == null && !fieldAccessible) {
+            error(field, "Field %s needs a non-private getter, or must not be private", name);
+            return null;
+        }
+        if (setter == null && (!fieldAccessible || field.getModifiers().contains(Modifier.FINAL))) {
+            error(field, "Field %s needs a non-private setter, or must not be private or final", name);
+            return null;
+        }
+        return new Property(name, binName(field), field.asType().toString(), conversion,
+                getter == null ? name : getter + "()", setter, field.getAnnotation(Id.class) != null);
+    }
+
+    /**
+     * @return the instance fields of the class and its superclasses which are mapped, superclass
+     *         fields first
+     */
+    private List<VariableElement> fields(TypeElement type) {
+        List<VariableElement> result = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement superType = (TypeElement) ((DeclaredType) superclass).asElement();
+            if (!superType.getQualifiedName().contentEquals("java.lang.Object")) {
+                result.addAll(fields(superType));
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)
+                    && field.getAnnotation(Ignore.class) == null) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getter(TypeElement type, VariableElement field) {
+        String suffix = capitalize(field.getSimpleName().toString());
+        boolean isBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+        for (ExecutableElement method : methods(type)) {
+            String name = method.getSimpleName().toString();
+            if ((name.equals("get" + suffix) || (isBoolean && name.equals("is" + suffix)))
+                    && method.getParameters().isEmpty()
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private String setter(TypeElement type, VariableElement field) {
+        String name = "set" + capitalize(field.getSimpleName().toString());
+        for (ExecutableElement method : methods(type)) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the non-private instance methods of the class, including inherited ones
+     */
+    private List<ExecutableElement> methods(TypeElement type) {
+        List<ExecutableElement> result = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC)) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Works out how a value of the given type is stored, reporting an error against the element
+     * if it cannot be.
+     */
+    private Conversion conversion(Element element, TypeMirror type, EnumEncoding enums) {
+        switch (type.getKind()) {
+            case LONG: return new Scalar(Kind.LONG, "long", true, null);
+            case INT: return new Scalar(Kind.INT, "int", true, null);
+            case SHORT: return new Scalar(Kind.SHORT, "short", true, null);
+            case BYTE: return new Scalar(Kind.BYTE, "byte", true, null);
+            case DOUBLE: return new Scalar(Kind.DOUBLE, "double", true, null);
+            case FLOAT: return new Scalar(Kind.FLOAT, "float", true, null);
+            case BOOLEAN: return new Scalar(Kind.BOOLEAN, "boolean", true, null);
+            case ARRAY:
+                if (type.toString().equals("byte[]")) {
+                    return new Scalar(Kind.BYTES, "byte[]", false, null);
+                }
+                break;
+            case DECLARED:
+                return declaredConversion(element, (DeclaredType) type, enums);
+            default:
+                break;
+        }
+        error(element, "Type %s of %s is not supported", type, element.getSimpleName());
+        return null;
+    }
+
+    private Conversion declaredConversion(Element element, DeclaredType type, EnumEncoding enums) {
+        TypeElement typeElement = (TypeElement) type.asElement();
+        String name = typeElement.getQualifiedName().toString();
+        String typeName = type.toString();
+        Kind kind = switch (name) {
+            case "java.lang.Long" -> Kind.LONG;
+            case "java.lang.Integer" -> Kind.INT;
+            case "java.lang.Short" -> Kind.SHORT;
+            case "java.lang.Byte" -> Kind.BYTE;
+            case "java.lang.Double" -> Kind.DOUBLE;
+            case "java.lang.Float" -> Kind.FLOAT;
+            case "java.lang.Boolean" -> Kind.BOOLEAN;
+            case "java.lang.String" -> Kind.STRING;
+            case "java.util.Date" -> Kind.DATE;
+            case "java.time.Instant" -> Kind.INSTANT;
+            case "java.time.LocalDate" -> Kind.LOCAL_DATE;
+            default -> null;
+        };
+        if (kind != null) {
+            return new Scalar(kind, typeName, false, null);
+        }
+        if (typeElement.getKind() == ElementKind.ENUM) {
+            return new Scalar(enums == EnumEncoding.ORDINAL ? Kind.ENUM_ORDINAL : Kind.ENUM_NAME, typeName, false, null);
+        }
+        if (typeElement.getAnnotation(MappedRecord.class) != null) {
+            return new Scalar(Kind.MAPPED_RECORD, typeName, false, mapperClassName(typeElement));
+        }
+        List<? extends TypeMirror> arguments = type.getTypeArguments();
+        if (name.equals("java.util.List") && arguments.size() == 1) {
+            Conversion elementConversion = typeArgument(element, arguments.get(0), enums);
+            return elementConversion == null ? null : new ListOf(typeName, elementConversion);
+        }
+        if (name.equals("java.util.Map") && arguments.size() == 2) {
+            Conversion key = typeArgument(element, arguments.get(0), enums);
+            Conversion value = typeArgument(element, arguments.get(1), enums);
+            return key == null || value == null ? null : new MapOf(typeName, key, value);
+        }
+        error(element, "Type %s of %s is not supported. Nested classes need to be annotated with @MappedRecord.",
+                typeName, element.getSimpleName());
+        return null;
+    }
+
+    private Conversion typeArgument(Element element, TypeMirror argument, EnumEncoding enums) {
+        if (argument.getKind() != TypeKind.DECLARED) {
+            error(element, "Type argument %s of %s must be a class, not a wildcard or type variable", argument, element.getSimpleName());
+            return null;
+        }
+        return conversion(element, argument, enums);
+    }
+
+    private EnumEncoding enumEncoding(Element element, EnumEncoding defaultEnums) {
+        EnumAs enumAs = element.getAnnotation(EnumAs.class);
+        return enumAs == null ? defaultEnums : enumAs.value();
+    }
+
+    private String binName(Element element) {
+        BinName binName = element.getAnnotation(BinName.class);
+        return binName == null ? element.getSimpleName().toString() : binName.value();
+    }
+
+    private boolean checkBinNames(TypeElement type, List<Property> properties) {
+        boolean valid = true;
+        Set<String> names = new HashSet<>();
+        for (Property property : properties) {
+            String binName = property.binName();
+            if (binName.isEmpty() || binName.getBytes(StandardCharsets.UTF_8).length > MAX_BIN_NAME_LENGTH) {
+                valid = error(type, "Bin name \"%s\" of %s must be 1 to %d bytes long. Use @BinName to give it a shorter name.",
+                        binName, property.name(), MAX_BIN_NAME_LENGTH);
+            }
+            if (!names.add(binName)) {
+                valid = error(type, "Bin name \"%s\" is used by more than one field", binName);
+            }
+        }
+        return valid;
+    }
+
+    private boolean checkIds(TypeElement type, List<Property> properties) {
+        if (properties.stream().filter(Property::isId).count() > 1) {
+            return error(type, "Only one field can be annotated with @Id");
+        }
+        return true;
+    }
+
+    /**
+     * Without an {@code @Id} field, a field called {@code id} is the id.
+     */
+    private List<Property> markDefaultId(List<Property> properties) {
+        if (properties.stream().anyMatch(Property::isId)) {
+            return properties;
+        }
+        List<Property> result = new ArrayList<>(properties.size());
+        for (Property property : properties) {
+            result.add(!property.name().equals("id") ? property : new Property(property.name(), property.binName(),
+                    property.typeName(), property.conversion(), property.getter(), property.setter(), true));
+        }
+        return result;
+    }
+
+    private String mapperClassName(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return MapperSupport.mapperClassName(packageName, binaryName);
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Reports a compile error against an element.
+     *
+     * @return false, so callers can record that the class is invalid
+     */
+    private boolean error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+        return false;
+    }
+}
@@ -2,13 +2,12 @@ package com.aerospike.policy;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -163,6 +162,8 @@ public final class Behavior {
                     .maxConcurrentNodes(1)  // Old: maxConcurrentServers
                     .allowInlineMemoryAccess(true)
                     .allowInlineSsdAccess(false)
+                    .maxBytesPerBatch(0)  // No limit on estimated size
+                    .maxBatchesInFlight(4)
             )
             // Query defaults
             .on(Selectors.reads().query(), ops -> ops
@@ -190,11 +191,15 @@ public final class Behavior {
                     .maxConcurrentNodes(1)
                     .allowInlineMemoryAccess(true)
                     .allowInlineSsdAccess(false)
+                    .maxBytesPerBatch(0)  // No limit on estimated size
+                    .maxBatchesInFlight(4)
             )
             .on(Selectors.writes().nonRetryable().batch(), ops -> ops
                     .maxConcurrentNodes(1)
                     .allowInlineMemoryAccess(true)
                     .allowInlineSsdAccess(false)
+                    .maxBytesPerBatch(0)  // No limit on estimated size
+                    .maxBatchesInFlight(4)
             )
             // Query write defaults (background operations)
             // Background operations run server-side on entire sets and require different timeout/retry settings
@@ -241,29 +246,63 @@ public final class Behavior {
     private final String name;
     private final List<Patch> patches; // in call order
     private final Behavior base;       // defaults (may be null)
-    private final List<Behavior> children;
-    private Map<OpKey, Settings> resolved; // fully-resolved matrix
+    // Held weakly so a derived behavior which is no longer used can be collected
+    private final List<WeakReference<Behavior>> children;
+    // The index of this behavior's resolved settings in Matrices.bySlot
+    private final int slot;
 
     private Behavior(String name, List<Patch> patches, Behavior base) {
         this.name = name;
         this.patches = List.copyOf(patches);
         this.base = base;
-        this.resolved = formMatrix();
         this.children = new ArrayList<>();
         
-        if (base != null) {
-            base.children.add(this);
+        synchronized (Matrices.LOCK) {
+            this.slot = Matrices.allocateSlot(this);
+            Settings[][] next = Matrices.copyForUpdate();
+            next[slot] = formMatrix(base == null ? null : base.matrix());
+            Matrices.bySlot = next;
+            if (base != null) {
+                base.children.removeIf(child -> child.get() == null);
+                base.children.add(new WeakReference<>(this));
+            }
         }
     }
 
+    /** @return the resolved settings of this behavior, indexed by {@link Matrices#indexOf} */
+    private Settings[] matrix() {
+        return Matrices.bySlot[slot];
+    }
+
+    /**
+     * Reform the resolved matrix of this behavior and all its descendants. The new matrices are
+     * all built before any of them is published, and are then published together by a single
+     * write, so no reader can see a child's new settings alongside its parent's old ones.
+     */
     public void clearCache() {
-        this.resolved = formMatrix();
-        // Notify all children
-        for (Behavior child : children) {
-            child.clearCache();
+        synchronized (Matrices.LOCK) {
+            Settings[][] next = Matrices.copyForUpdate();
+            reform(base == null ? null : base.matrix(), next);
+            Matrices.bySlot = next;
         }
     }
     
+    private void reform(Settings[] parentMatrix, Settings[][] next) {
+        Settings[] matrix = formMatrix(parentMatrix);
+        next[slot] = matrix;
+        for (Behavior child : liveChildren()) {
+            child.reform(matrix, next);
+        }
+    }
+    
+    /**
+     * Reform the resolved matrices of every behavior. Used when the behaviors are reloaded. Every
+     * behavior derives from {@link #DEFAULT}, so this reforms it and all of its descendants.
+     */
+    static void clearAllCaches() {
+        DEFAULT.clearCache();
+    }
+    
     /**
      * Invoke this method whenever the behavior is changed after construction. It will reform
      * its values from its parent and then notify children of the change.
@@ -272,6 +311,19 @@ public final class Behavior {
         clearCache();
     }
 
+    private List<Behavior> liveChildren() {
+        synchronized (Matrices.LOCK) {
+            List<Behavior> live = new ArrayList<>(children.size());
+            for (WeakReference<Behavior> child : children) {
+                Behavior behavior = child.get();
+                if (behavior != null) {
+                    live.add(behavior);
+                }
+            }
+            return live;
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -281,32 +333,44 @@ public final class Behavior {
     }
     
     public List<Behavior> getChildren() {
-        return Collections.unmodifiableList(children);
+        return Collections.unmodifiableList(liveChildren());
     }
     
-    private Map<OpKey, Settings> formMatrix() {
+    /**
+     * Form the resolved matrix of this behavior from its parent's, which may be a new matrix which
+     * has not been published yet.
+     */
+    private Settings[] formMatrix(Settings[] parentMatrix) {
         // 1) Start with parent's resolved matrix (if any).
-        Map<OpKey, Settings> matrix = new HashMap<>();
-        if (base != null && base.resolved != null) {
+        Settings[] matrix = new Settings[Matrices.SIZE];
+        if (parentMatrix != null) {
             // deep copy of settings
-            for (Map.Entry<OpKey, Settings> e : base.resolved.entrySet()) {
-                matrix.put(e.getKey(), copyOf(e.getValue()));
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] = copyOf(parentMatrix[i]);
             }
         }
 
         // 2) Apply this behavior's patches in insertion order.
         //    For each concrete key matched by a patch, overwrite only non-null fields.
-        List<OpKey> allKeys = listAllKeys();
         for (Patch p : patches) {
-            for (OpKey key : allKeys) {
+            for (OpKey key : Matrices.ALL_KEYS) {
                 if (applies(p.spec, key)) {
-                    Settings acc = matrix.get(key);
+                    int index = Matrices.indexOf(key.kind, key.shape, key.mode);
+                    Settings acc = matrix[index];
                     if (acc == null) acc = new Settings();
                     mergeInto(acc, p.settings);
-                    matrix.put(key, acc);
+                    matrix[index] = acc;
                 }
             }
         }
+
+        // 3) The settings are now final, so precompute the client policies each operation clones.
+        //    As they live in the new matrix, they are replaced along with it when the behavior changes.
+        for (Settings settings : matrix) {
+            if (settings != null) {
+                settings.buildPolicyTemplates();
+            }
+        }
         return matrix;
     }
 
@@ -320,8 +384,9 @@ public final class Behavior {
             sb.append(", parent=").append(base.name);
         }
         sb.append(", patches=").append(patches.size());
-        if (!children.isEmpty()) {
-            sb.append(", children=").append(children.size());
+        List<Behavior> live = liveChildren();
+        if (!live.isEmpty()) {
+            sb.append(", children=").append(live.size());
         }
         sb.append("]");
         return sb.toString();
@@ -334,7 +399,7 @@ public final class Behavior {
      */
     public Settings getSystemSettings(OpKind kind) {
         if (kind.isSystem()) {
-            return resolved.get(new OpKey(kind, OpShape.SYSTEM, Mode.ANY));
+            return matrix()[Matrices.indexOf(kind, OpShape.SYSTEM, Mode.ANY)];
         }
         else {
             throw new IllegalArgumentException("Only SYSYTEM_* OpKinds are supported");
@@ -349,7 +414,7 @@ public final class Behavior {
         if (kind.isSystem()) {
             return getSystemSettings(kind);
         }
-        return resolved.get(new OpKey(kind, shape, mode));
+        return matrix()[Matrices.indexOf(kind, shape, mode)];
     }
 
     /**
@@ -361,7 +426,7 @@ public final class Behavior {
         if (kind.isSystem()) {
             return getSystemSettings(kind);
         }
-        return resolved.get(new OpKey(kind, shape, isNamespaceSC ? Mode.CP : Mode.AP));
+        return matrix()[Matrices.indexOf(kind, shape, isNamespaceSC ? Mode.CP : Mode.AP)];
     }
 
     /**
@@ -517,8 +582,9 @@ public final class Behavior {
         }
 
         sb.append("--- Resolved Matrix ---").append('\n');
-        for (OpKey k : listAllKeys()) {
-            Settings s = resolved.get(k);
+        Settings[] matrix = matrix();
+        for (OpKey k : Matrices.ALL_KEYS) {
+            Settings s = matrix[Matrices.indexOf(k.kind, k.shape, k.mode)];
             if (s != null) sb.append(k).append(" => ").append(s).append('\n');
         }
         return sb.toString();
@@ -728,6 +794,59 @@ public final class Behavior {
         }
     }
 
+    /**
+     * The layout of the resolved matrix of a behavior, which is indexed by
+     * {@link #indexOf(OpKind, OpShape, Mode)}, and the table holding the matrix of every behavior.
+     * Lookups are a volatile read of the table plus two array indexes, so they never allocate or
+     * block. Neither the table nor a matrix is changed once it is published: any change builds
+     * the new matrices under {@link #LOCK} into a copy of the table, and replaces the table.
+     *
+     * <p>This is a nested class so that it is initialized before {@link Behavior#DEFAULT} is built.</p>
+     */
+    private static final class Matrices {
+        private static final int SHAPES = OpShape.values().length;
+        private static final int MODES = Mode.values().length;
+        static final int SIZE = OpKind.values().length * SHAPES * MODES;
+        static final List<OpKey> ALL_KEYS = List.copyOf(listAllKeys());
+        // Guards the children of every behavior, the slots, and the reforming of matrices
+        static final Object LOCK = new Object();
+        // The resolved matrix of every behavior, indexed by the behavior's slot
+        static volatile Settings[][] bySlot = new Settings[0][];
+        // The behavior in each slot. Held weakly, so the slot of a collected behavior can be reused
+        private static final List<WeakReference<Behavior>> slots = new ArrayList<>();
+
+        /** Allocate a slot for a new behavior, reusing one whose behavior has been collected. */
+        static int allocateSlot(Behavior behavior) {
+            for (int i = 0; i < slots.size(); i++) {
+                if (slots.get(i).get() == null) {
+                    slots.set(i, new WeakReference<>(behavior));
+                    return i;
+                }
+            }
+            slots.add(new WeakReference<>(behavior));
+            return slots.size() - 1;
+        }
+
+        /**
+         * @return a copy of the table with room for every allocated slot, in which the matrices of
+         * collected behaviors have been dropped
+         */
+        static Settings[][] copyForUpdate() {
+            Settings[][] current = bySlot;
+            Settings[][] next = new Settings[slots.size()][];
+            for (int i = 0; i < next.length; i++) {
+                if (i < current.length && slots.get(i).get() != null) {
+                    next[i] = current[i];
+                }
+            }
+            return next;
+        }
+
+        static int indexOf(OpKind kind, OpShape shape, Mode mode) {
+            return (kind.ordinal() * SHAPES + shape.ordinal()) * MODES + mode.ordinal();
+        }
+    }
+
     /** Resolution key (concrete kind, shape, mode). */
     static final class OpKey {
         final OpKind kind; final OpShape shape; final Mode mode;
@@ -807,6 +926,9 @@ public final class Behavior {
         if (src.maxConcurrentNodes != null) dst.maxConcurrentNodes = src.maxConcurrentNodes;
         if (src.allowInlineMemoryAccess != null) dst.allowInlineMemoryAccess = src.allowInlineMemoryAccess;
         if (src.allowInlineSsdAccess != null) dst.allowInlineSsdAccess = src.allowInlineSsdAccess;
+        if (src.maxRecordsPerBatch != null) dst.maxRecordsPerBatch = src.maxRecordsPerBatch;
+        if (src.maxBytesPerBatch != null) dst.maxBytesPerBatch = src.maxBytesPerBatch;
+        if (src.maxBatchesInFlight != null) dst.maxBatchesInFlight = src.maxBatchesInFlight;
         
         if (src.useDurableDelete != null) dst.useDurableDelete = src.useDurableDelete;
         if (src.simulateXdrWrite != null) dst.simulateXdrWrite = src.simulateXdrWrite;
@@ -855,6 +977,9 @@ public final class Behavior {
         BatchTweaks maxConcurrentNodes(int n);
         BatchTweaks allowInlineMemoryAccess(boolean v);
         BatchTweaks allowInlineSsdAccess(boolean v);
+        BatchTweaks maxRecordsPerBatch(int n);
+        BatchTweaks maxBytesPerBatch(long bytes);
+        BatchTweaks maxBatchesInFlight(int n);
     }
     public interface WriteTweaks extends CommonTweaks {
         @Override WriteTweaks stackTraceOnException(boolean enabled);
@@ -905,6 +1030,9 @@ public final class Behavior {
         AllAnyModeTweaks maxConcurrentNodes(int n);
         AllAnyModeTweaks allowInlineMemoryAccess(boolean v);
         AllAnyModeTweaks allowInlineSsdAccess(boolean v);
+        AllAnyModeTweaks maxRecordsPerBatch(int n);
+        AllAnyModeTweaks maxBytesPerBatch(long bytes);
+        AllAnyModeTweaks maxBatchesInFlight(int n);
         
         // Query-specific settings
         AllAnyModeTweaks recordQueueSize(int n);
@@ -1021,6 +1149,9 @@ public final class Behavior {
         @Override ReadBatchAnyModeTweaks maxConcurrentNodes(int n);
         @Override ReadBatchAnyModeTweaks allowInlineMemoryAccess(boolean v);
         @Override ReadBatchAnyModeTweaks allowInlineSsdAccess(boolean v);
+        @Override ReadBatchAnyModeTweaks maxRecordsPerBatch(int n);
+        @Override ReadBatchAnyModeTweaks maxBytesPerBatch(long bytes);
+        @Override ReadBatchAnyModeTweaks maxBatchesInFlight(int n);
     }
     public interface ReadQueryAnyModeTweaks extends QueryTweaks {
         @Override ReadQueryAnyModeTweaks abandonCallAfter(Duration d);
@@ -1077,6 +1208,9 @@ public final class Behavior {
         @Override ReadBatchApTweaks maxConcurrentNodes(int n);
         @Override ReadBatchApTweaks allowInlineMemoryAccess(boolean v);
         @Override ReadBatchApTweaks allowInlineSsdAccess(boolean v);
+        @Override ReadBatchApTweaks maxRecordsPerBatch(int n);
+        @Override ReadBatchApTweaks maxBytesPerBatch(long bytes);
+        @Override ReadBatchApTweaks maxBatchesInFlight(int n);
         @Override ReadBatchApTweaks readMode(ReadModeAP mode);
         @Override ReadBatchApTweaks resetTtlOnReadAtPercent(int percent);
     }
@@ -1094,6 +1228,9 @@ public final class Behavior {
         @Override ReadBatchCpTweaks maxConcurrentNodes(int n);
         @Override ReadBatchCpTweaks allowInlineMemoryAccess(boolean v);
         @Override ReadBatchCpTweaks allowInlineSsdAccess(boolean v);
+        @Override ReadBatchCpTweaks maxRecordsPerBatch(int n);
+        @Override ReadBatchCpTweaks maxBytesPerBatch(long bytes);
+        @Override ReadBatchCpTweaks maxBatchesInFlight(int n);
         @Override ReadBatchCpTweaks consistency(ReadModeSC c);
         @Override ReadBatchCpTweaks resetTtlOnReadAtPercent(int percent);
     }
@@ -1186,6 +1323,9 @@ public final class Behavior {
         @Override WriteBatchAnyModeTweaks maxConcurrentNodes(int n);
         @Override WriteBatchAnyModeTweaks allowInlineMemoryAccess(boolean v);
         @Override WriteBatchAnyModeTweaks allowInlineSsdAccess(boolean v);
+        @Override WriteBatchAnyModeTweaks maxRecordsPerBatch(int n);
+        @Override WriteBatchAnyModeTweaks maxBytesPerBatch(long bytes);
+        @Override WriteBatchAnyModeTweaks maxBatchesInFlight(int n);
         @Override WriteBatchAnyModeTweaks useDurableDelete(boolean b);
         @Override WriteBatchAnyModeTweaks simulateXdrWrite(boolean b);
     }
@@ -1203,6 +1343,9 @@ public final class Behavior {
         @Override WriteBatchApTweaks maxConcurrentNodes(int n);
         @Override WriteBatchApTweaks allowInlineMemoryAccess(boolean v);
         @Override WriteBatchApTweaks allowInlineSsdAccess(boolean v);
+        @Override WriteBatchApTweaks maxRecordsPerBatch(int n);
+        @Override WriteBatchApTweaks maxBytesPerBatch(long bytes);
+        @Override WriteBatchApTweaks maxBatchesInFlight(int n);
         @Override WriteBatchApTweaks useDurableDelete(boolean b);
         @Override WriteBatchApTweaks simulateXdrWrite(boolean b);
         @Override WriteBatchApTweaks commitLevel(CommitLevel level);
@@ -1221,6 +1364,9 @@ public final class Behavior {
         @Override WriteBatchCpTweaks maxConcurrentNodes(int n);
         @Override WriteBatchCpTweaks allowInlineMemoryAccess(boolean v);
         @Override WriteBatchCpTweaks allowInlineSsdAccess(boolean v);
+        @Override WriteBatchCpTweaks maxRecordsPerBatch(int n);
+        @Override WriteBatchCpTweaks maxBytesPerBatch(long bytes);
+        @Override WriteBatchCpTweaks maxBatchesInFlight(int n);
         @Override WriteBatchCpTweaks useDurableDelete(boolean b);
         @Override WriteBatchCpTweaks simulateXdrWrite(boolean b);
     }
@@ -1297,6 +1443,9 @@ public final class Behavior {
         @Override RetryableWriteBatchAnyModeTweaks maxConcurrentNodes(int n);
         @Override RetryableWriteBatchAnyModeTweaks allowInlineMemoryAccess(boolean v);
         @Override RetryableWriteBatchAnyModeTweaks allowInlineSsdAccess(boolean v);
+        @Override RetryableWriteBatchAnyModeTweaks maxRecordsPerBatch(int n);
+        @Override RetryableWriteBatchAnyModeTweaks maxBytesPerBatch(long bytes);
+        @Override RetryableWriteBatchAnyModeTweaks maxBatchesInFlight(int n);
         @Override RetryableWriteBatchAnyModeTweaks useDurableDelete(boolean b);
         @Override RetryableWriteBatchAnyModeTweaks simulateXdrWrite(boolean b);
     }
@@ -1314,6 +1463,9 @@ public final class Behavior {
         @Override RetryableWriteBatchApTweaks maxConcurrentNodes(int n);
         @Override RetryableWriteBatchApTweaks allowInlineMemoryAccess(boolean v);
         @Override RetryableWriteBatchApTweaks allowInlineSsdAccess(boolean v);
+        @Override RetryableWriteBatchApTweaks maxRecordsPerBatch(int n);
+        @Override RetryableWriteBatchApTweaks maxBytesPerBatch(long bytes);
+        @Override RetryableWriteBatchApTweaks maxBatchesInFlight(int n);
         @Override RetryableWriteBatchApTweaks useDurableDelete(boolean b);
         @Override RetryableWriteBatchApTweaks simulateXdrWrite(boolean b);
         @Override RetryableWriteBatchApTweaks commitLevel(CommitLevel level);
@@ -1332,6 +1484,9 @@ public final class Behavior {
         @Override RetryableWriteBatchCpTweaks maxConcurrentNodes(int n);
         @Override RetryableWriteBatchCpTweaks allowInlineMemoryAccess(boolean v);
         @Override RetryableWriteBatchCpTweaks allowInlineSsdAccess(boolean v);
+        @Override RetryableWriteBatchCpTweaks maxRecordsPerBatch(int n);
+        @Override RetryableWriteBatchCpTweaks maxBytesPerBatch(long bytes);
+        @Override RetryableWriteBatchCpTweaks maxBatchesInFlight(int n);
         @Override RetryableWriteBatchCpTweaks useDurableDelete(boolean b);
         @Override RetryableWriteBatchCpTweaks simulateXdrWrite(boolean b);
     }
@@ -1407,6 +1562,9 @@ public final class Behavior {
         @Override NonRetryableWriteBatchAnyModeTweaks maxConcurrentNodes(int n);
         @Override NonRetryableWriteBatchAnyModeTweaks allowInlineMemoryAccess(boolean v);
         @Override NonRetryableWriteBatchAnyModeTweaks allowInlineSsdAccess(boolean v);
+        @Override NonRetryableWriteBatchAnyModeTweaks maxRecordsPerBatch(int n);
+        @Override NonRetryableWriteBatchAnyModeTweaks maxBytesPerBatch(long bytes);
+        @Override NonRetryableWriteBatchAnyModeTweaks maxBatchesInFlight(int n);
         @Override NonRetryableWriteBatchAnyModeTweaks useDurableDelete(boolean b);
         @Override NonRetryableWriteBatchAnyModeTweaks simulateXdrWrite(boolean b);
     }
@@ -1424,6 +1582,9 @@ public final class Behavior {
         @Override NonRetryableWriteBatchApTweaks maxConcurrentNodes(int n);
         @Override NonRetryableWriteBatchApTweaks allowInlineMemoryAccess(boolean v);
         @Override NonRetryableWriteBatchApTweaks allowInlineSsdAccess(boolean v);
+        @Override NonRetryableWriteBatchApTweaks maxRecordsPerBatch(int n);
+        @Override NonRetryableWriteBatchApTweaks maxBytesPerBatch(long bytes);
+        @Override NonRetryableWriteBatchApTweaks maxBatchesInFlight(int n);
         @Override NonRetryableWriteBatchApTweaks useDurableDelete(boolean b);
         @Override NonRetryableWriteBatchApTweaks simulateXdrWrite(boolean b);
         @Override NonRetryableWriteBatchApTweaks commitLevel(CommitLevel level);
@@ -1442,6 +1603,9 @@ public final class Behavior {
         @Override NonRetryableWriteBatchCpTweaks maxConcurrentNodes(int n);
         @Override NonRetryableWriteBatchCpTweaks allowInlineMemoryAccess(boolean v);
         @Override NonRetryableWriteBatchCpTweaks allowInlineSsdAccess(boolean v);
+        @Override NonRetryableWriteBatchCpTweaks maxRecordsPerBatch(int n);
+        @Override NonRetryableWriteBatchCpTweaks maxBytesPerBatch(long bytes);
+        @Override NonRetryableWriteBatchCpTweaks maxBatchesInFlight(int n);
         @Override NonRetryableWriteBatchCpTweaks useDurableDelete(boolean b);
         @Override NonRetryableWriteBatchCpTweaks simulateXdrWrite(boolean b);
     }
@@ -2188,6 +2352,9 @@ public final class Behavior {
         @Override public TweaksProxy maxConcurrentNodes(int n) { patch.settings.maxConcurrentNodes = n; return this; }
         @Override public TweaksProxy allowInlineMemoryAccess(boolean v) { patch.settings.allowInlineMemoryAccess = v; return this; }
         @Override public TweaksProxy allowInlineSsdAccess(boolean v) { patch.settings.allowInlineSsdAccess = v; return this; }
+        @Override public TweaksProxy maxRecordsPerBatch(int n) { patch.settings.maxRecordsPerBatch = n; return this; }
+        @Override public TweaksProxy maxBytesPerBatch(long bytes) { patch.settings.maxBytesPerBatch = bytes; return this; }
+        @Override public TweaksProxy maxBatchesInFlight(int n) { patch.settings.maxBatchesInFlight = n; return this; }
 
         // Write
         @Override public TweaksProxy useDurableDelete(boolean b) { patch.settings.useDurableDelete = b; return this; }
@@ -205,14 +205,8 @@ class BehaviorFileMonitor implements Closeable {
             File yamlFile = yamlFilePath.toFile();
             Map<String, Behavior> updatedBehaviors = BehaviorYamlLoader.loadBehaviorsFromFile(yamlFile);
             
-            // Clear caches of all behaviors to ensure they pick up any changes
-            Map<String, Behavior> allBehaviors = registry.getAllBehaviors();
-            for (Behavior behavior : allBehaviors.values()) {
-                if (behavior != Behavior.DEFAULT) {
-                    behavior.clearCache();
-                }
-            }
-            Behavior.DEFAULT.clearCache();
+            // Reform every behavior so they pick up any changes. The new matrices are published together
+            Behavior.clearAllCaches();
             
             Log.info("Updated " + updatedBehaviors.size() + " behaviors from: " + yamlFilePath);
             
@@ -166,6 +166,9 @@ public class BehaviorYamlConfig {
         private Integer maxConcurrentServers;
         private Boolean allowInlineMemoryAccess;
         private Boolean allowInlineSsdAccess;
+        private Integer maxRecordsPerBatch;
+        private Long maxBytesPerBatch;
+        private Integer maxBatchesInFlight;
         
         public Integer getMaxConcurrentServers() { return maxConcurrentServers; }
         public void setMaxConcurrentServers(Integer maxConcurrentServers) { this.maxConcurrentServers = maxConcurrentServers; }
@@ -175,6 +178,15 @@ public class BehaviorYamlConfig {
         
         public Boolean getAllowInlineSsdAccess() { return allowInlineSsdAccess; }
         public void setAllowInlineSsdAccess(Boolean allowInlineSsdAccess) { this.allowInlineSsdAccess = allowInlineSsdAccess; }
+        
+        public Integer getMaxRecordsPerBatch() { return maxRecordsPerBatch; }
+        public void setMaxRecordsPerBatch(Integer maxRecordsPerBatch) { this.maxRecordsPerBatch = maxRecordsPerBatch; }
+        
+        public Long getMaxBytesPerBatch() { return maxBytesPerBatch; }
+        public void setMaxBytesPerBatch(Long maxBytesPerBatch) { this.maxBytesPerBatch = maxBytesPerBatch; }
+        
+        public Integer getMaxBatchesInFlight() { return maxBatchesInFlight; }
+        public void setMaxBatchesInFlight(Integer maxBatchesInFlight) { this.maxBatchesInFlight = maxBatchesInFlight; }
     }
     
     // Query configuration
@@ -244,11 +256,24 @@ public class BehaviorYamlConfig {
         public void setTendInterval(Duration tendInterval) { this.tendInterval = tendInterval; }
     }
     
+    // System - Scheduling configuration
+    public static class SystemSchedulingConfig {
+        private Integer maximumInFlightPerNode;
+        private Integer maximumInFlightPerSession;
+        
+        public Integer getMaximumInFlightPerNode() { return maximumInFlightPerNode; }
+        public void setMaximumInFlightPerNode(Integer maximumInFlightPerNode) { this.maximumInFlightPerNode = maximumInFlightPerNode; }
+        
+        public Integer getMaximumInFlightPerSession() { return maximumInFlightPerSession; }
+        public void setMaximumInFlightPerSession(Integer maximumInFlightPerSession) { this.maximumInFlightPerSession = maximumInFlightPerSession; }
+    }
+    
     // System settings configuration (for cluster-level settings)
     public static class SystemSettingsConfig {
         private SystemConnectionsConfig connections;
         private SystemCircuitBreakerConfig circuitBreaker;
         private SystemRefreshConfig refresh;
+        private SystemSchedulingConfig scheduling;
         
         public SystemConnectionsConfig getConnections() { return connections; }
         public void setConnections(SystemConnectionsConfig connections) { this.connections = connections; }
@@ -258,5 +283,8 @@ public class BehaviorYamlConfig {
         
         public SystemRefreshConfig getRefresh() { return refresh; }
         public void setRefresh(SystemRefreshConfig refresh) { this.refresh = refresh; }
+        
+        public SystemSchedulingConfig getScheduling() { return scheduling; }
+        public void setScheduling(SystemSchedulingConfig scheduling) { this.scheduling = scheduling; }
     }
 } 
\ No newline at end of file
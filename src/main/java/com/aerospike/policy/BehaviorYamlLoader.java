@@ -405,6 +405,15 @@ public class BehaviorYamlLoader {
         if (config.getAllowInlineSsdAccess() != null) {
             tweaks.allowInlineSsdAccess(config.getAllowInlineSsdAccess());
         }
+        if (config.getMaxRecordsPerBatch() != null) {
+            tweaks.maxRecordsPerBatch(config.getMaxRecordsPerBatch());
+        }
+        if (config.getMaxBytesPerBatch() != null) {
+            tweaks.maxBytesPerBatch(config.getMaxBytesPerBatch());
+        }
+        if (config.getMaxBatchesInFlight() != null) {
+            tweaks.maxBatchesInFlight(config.getMaxBatchesInFlight());
+        }
     }
     
     /**
@@ -482,6 +491,19 @@ public class BehaviorYamlLoader {
             });
         }
         
+        // Apply scheduling settings
+        if (config.getScheduling() != null) {
+            BehaviorYamlConfig.SystemSchedulingConfig schedConfig = config.getScheduling();
+            builder.scheduling(ops -> {
+                if (schedConfig.getMaximumInFlightPerNode() != null) {
+                    ops.maximumInFlightPerNode(schedConfig.getMaximumInFlightPerNode());
+                }
+                if (schedConfig.getMaximumInFlightPerSession() != null) {
+                    ops.maximumInFlightPerSession(schedConfig.getMaximumInFlightPerSession());
+                }
+            });
+        }
+        
         return builder.build();
     }
 } 
\ No newline at end of file
@@ -34,6 +34,9 @@ public final class Settings {
     Integer maxConcurrentNodes;
     Boolean allowInlineMemoryAccess;
     Boolean allowInlineSsdAccess;
+    Integer maxRecordsPerBatch;
+    Long maxBytesPerBatch;
+    Integer maxBatchesInFlight;
 
     // Write-mode-specific
     Boolean useDurableDelete;
@@ -47,6 +50,13 @@ public final class Settings {
     ReadModeSC readModeSC; // CP
     Integer resetTtlOnReadAtPercent;
 
+    // Client policies precomputed from the values above once they are fully resolved. Null if the
+    // template could not be built, in which case the policy is built on each call instead.
+    private Policy readPolicyTemplate;
+    private WritePolicy writePolicyTemplate;
+    private BatchPolicy batchPolicyTemplate;
+    private QueryPolicy queryPolicyTemplate;
+
     Settings() {}
 
     public Settings(Settings orig) {
@@ -63,6 +73,9 @@ public final class Settings {
         this.maxConcurrentNodes = orig.maxConcurrentNodes;
         this.allowInlineMemoryAccess = orig.allowInlineMemoryAccess;
         this.allowInlineSsdAccess = orig.allowInlineSsdAccess;
+        this.maxRecordsPerBatch = orig.maxRecordsPerBatch;
+        this.maxBytesPerBatch = orig.maxBytesPerBatch;
+        this.maxBatchesInFlight = orig.maxBatchesInFlight;
         this.useDurableDelete = orig.useDurableDelete;
         this.simulateXdrWrite = orig.simulateXdrWrite;
         this.commitLevel = orig.commitLevel;
@@ -115,6 +128,15 @@ public final class Settings {
         if (allowInlineSsdAccess != null) {
 			m.put("allowInlineSsdAccess", allowInlineSsdAccess);
 		}
+        if (maxRecordsPerBatch != null) {
+			m.put("maxRecordsPerBatch", maxRecordsPerBatch);
+		}
+        if (maxBytesPerBatch != null) {
+			m.put("maxBytesPerBatch", maxBytesPerBatch);
+		}
+        if (maxBatchesInFlight != null) {
+			m.put("maxBatchesInFlight", maxBatchesInFlight);
+		}
 
         if (useDurableDelete != null) {
 			m.put("useDurableDelete", useDurableDelete);
@@ -195,6 +217,27 @@ public final class Settings {
         return allowInlineSsdAccess;
     }
 
+    /**
+     * @return the maximum number of records sent in a single batch call, or 0 if there is no limit.
+     */
+    public int getMaxRecordsPerBatch() {
+        return maxRecordsPerBatch == null ? 0 : maxRecordsPerBatch;
+    }
+
+    /**
+     * @return the maximum estimated size in bytes of a single batch call, or 0 if there is no limit.
+     */
+    public long getMaxBytesPerBatch() {
+        return maxBytesPerBatch == null ? 0 : maxBytesPerBatch;
+    }
+
+    /**
+     * @return the maximum number of sub-batches of one logical batch which may be executing at once.
+     */
+    public int getMaxBatchesInFlight() {
+        return maxBatchesInFlight == null ? 1 : maxBatchesInFlight;
+    }
+
     public boolean getUseDurableDelete() {
         return useDurableDelete;
     }
@@ -222,7 +265,56 @@ public final class Settings {
         return stackTraceOnException;
     }
     
+    /**
+     * Precompute the client policies for these settings so the {@code as...Policy()} methods only need
+     * to clone a template rather than convert every value. This is called by {@link Behavior} once the
+     * settings have been fully resolved, and the settings must not be changed afterwards.
+     */
+    void buildPolicyTemplates() {
+        // Not every value is set for every operation type (eg a write-only value on a read), and a behavior
+        // which does not derive from DEFAULT may be missing others. Without a template the policy is built on
+        // each call instead, which reports the problem if the policy is actually used.
+        boolean common = hasCommonPolicyValues();
+        this.readPolicyTemplate = common ? newReadPolicy() : null;
+        this.writePolicyTemplate = common && useDurableDelete != null ? newWritePolicy() : null;
+        this.batchPolicyTemplate = common && allowInlineMemoryAccess != null && allowInlineSsdAccess != null
+                && maxConcurrentNodes != null ? newBatchPolicy() : null;
+        this.queryPolicyTemplate = common && recordQueueSize != null ? newQueryPolicy() : null;
+    }
+
+    /**
+     * @return whether every value read by all of the {@code new...Policy()} methods is set
+     */
+    private boolean hasCommonPolicyValues() {
+        return useCompression != null
+                && waitForConnectionToComplete != null
+                && maximumNumberOfCallAttempts != null
+                && resetTtlOnReadAtPercent != null
+                && sendKey != null
+                && delayBetweenRetries != null
+                && waitForCallToComplete != null
+                && abandonCallAfter != null
+                && waitForSocketResponseAfterCallFails != null;
+    }
+
+    /**
+     * Get a new write policy for these settings, which the caller is free to modify.
+     */
     public WritePolicy asWritePolicy() {
+        WritePolicy template = writePolicyTemplate;
+        return template != null ? new WritePolicy(template) : newWritePolicy();
+    }
+
+    /**
+     * Get the shared write policy for these settings. This avoids any allocation but the returned
+     * policy <b>must not be modified</b>; use {@link #asWritePolicy()} if anything needs to be set per call.
+     */
+    public WritePolicy getSharedWritePolicy() {
+        WritePolicy template = writePolicyTemplate;
+        return template != null ? template : newWritePolicy();
+    }
+
+    WritePolicy newWritePolicy() {
         WritePolicy writePolicy = new WritePolicy();
         writePolicy.commitLevel = this.commitLevel;
         writePolicy.compress = this.useCompression;
@@ -244,6 +336,20 @@ public final class Settings {
 
     @Deprecated(forRemoval = true)
     public BatchPolicy asBatchPolicy() {
+        BatchPolicy template = batchPolicyTemplate;
+        return template != null ? new BatchPolicy(template) : newBatchPolicy();
+    }
+
+    /**
+     * Get the shared batch policy for these settings. This avoids any allocation but the returned
+     * policy <b>must not be modified</b>; use {@link #asBatchPolicy()} if anything needs to be set per call.
+     */
+    public BatchPolicy getSharedBatchPolicy() {
+        BatchPolicy template = batchPolicyTemplate;
+        return template != null ? template : newBatchPolicy();
+    }
+
+    BatchPolicy newBatchPolicy() {
         BatchPolicy batchPolicy = new BatchPolicy();
         batchPolicy.compress = this.useCompression;
         batchPolicy.connectTimeout = (int)this.waitForConnectionToComplete.toMillis();
@@ -266,6 +372,11 @@ public final class Settings {
 
     @Deprecated(forRemoval = true)
     public QueryPolicy asQueryPolicy() {
+        QueryPolicy template = queryPolicyTemplate;
+        return template != null ? new QueryPolicy(template) : newQueryPolicy();
+    }
+
+    QueryPolicy newQueryPolicy() {
         QueryPolicy queryPolicy = new QueryPolicy();
         queryPolicy.compress = this.useCompression;
         queryPolicy.connectTimeout = (int)this.waitForConnectionToComplete.toMillis();
@@ -290,6 +401,20 @@ public final class Settings {
     }
     @Deprecated(forRemoval = true)
     public Policy asReadPolicy() {
+        Policy template = readPolicyTemplate;
+        return template != null ? new Policy(template) : newReadPolicy();
+    }
+
+    /**
+     * Get the shared read policy for these settings. This avoids any allocation but the returned
+     * policy <b>must not be modified</b>; use {@link #asReadPolicy()} if anything needs to be set per call.
+     */
+    public Policy getSharedReadPolicy() {
+        Policy template = readPolicyTemplate;
+        return template != null ? template : newReadPolicy();
+    }
+
+    Policy newReadPolicy() {
         Policy readPolicy = new Policy();
         readPolicy.compress = this.useCompression;
         readPolicy.connectTimeout = (int)this.waitForConnectionToComplete.toMillis();
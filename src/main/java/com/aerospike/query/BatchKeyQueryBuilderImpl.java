@@ -1,23 +1,30 @@
 package com.aerospike.query;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import com.aerospike.RecordResult;
+import com.aerospike.ArrayRecordStream;
+import com.aerospike.BatchSplitter;
+import com.aerospike.ClientMetrics;
+import com.aerospike.ReadCoalescer;
+import com.aerospike.RecordCache;
 import com.aerospike.RecordStream;
 import com.aerospike.Session;
+import com.aerospike.StreamingBatch;
 import com.aerospike.client.AerospikeException;
 import com.aerospike.client.BatchRead;
 import com.aerospike.client.BatchRecord;
 import com.aerospike.client.Key;
 import com.aerospike.client.Log;
+import com.aerospike.client.Record;
 import com.aerospike.client.ResultCode;
-import com.aerospike.client.exp.Exp;
 import com.aerospike.client.exp.Expression;
 import com.aerospike.client.policy.BatchPolicy;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.policy.Behavior.OpKind;
 import com.aerospike.policy.Behavior.OpShape;
 import com.aerospike.policy.Behavior.Mode;
@@ -47,7 +54,7 @@ class BatchKeyQueryBuilderImpl extends QueryImpl {
     
     @Override
     public RecordStream executeSync() {
-        return executeInternal();
+        return executeInternal(false);
     }
     
     @Override
@@ -60,24 +67,55 @@ class BatchKeyQueryBuilderImpl extends QueryImpl {
                 "Consider using executeSync() or execute() for transactional safety."
             );
         }
-        // For batch operations, async and sync are effectively the same
-        // since we need to wait for the batch to complete anyway
-        return executeInternal();
+        // Keys outside the partition range are answered locally rather than by the server,
+        // so streaming is only used when every key is sent to the server
+        return executeInternal(!hasPartitionFilter());
     }
     
-    private RecordStream executeInternal() {
+    /**
+     * Execute the batch read.
+     * 
+     * @param stream if true, return immediately and publish each node's results as they arrive,
+     * otherwise wait for the whole batch to complete.
+     */
+    private RecordStream executeInternal(boolean stream) {
         if (keyList.size() == 0) {
             return new RecordStream();
         }
+        ClientMetrics metrics = getSession().getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         Expression whereExp = null;
         if (getQueryBuilder().getDsl() != null) {
-            ParseResult parseResult = getQueryBuilder().getDsl().process(this.keyList.get(0).namespace, getSession());
-            whereExp = Exp.build(parseResult.getExp());
+            whereExp = getQueryBuilder().getDsl().processExpression(this.keyList.get(0).namespace, getSession());
         }
         
+        boolean isNamespaceSC = getSession().isNamespaceSC(this.keyList.get(0).namespace);
+        BatchPolicy policy = getSession().getBehavior().getSettings(OpKind.READ, OpShape.BATCH, isNamespaceSC ? Mode.CP : Mode.AP).asBatchPolicy();
+        policy.filterExp = whereExp;
+        policy.setTxn(this.getQueryBuilder().getTxnToUse());
+        policy.failOnFilteredOut = this.getQueryBuilder().isFailOnFilteredOut();
+        
+        Settings settings = getSession().getBehavior()
+                .getSettings(OpKind.READ, OpShape.BATCH, isNamespaceSC);
+        
         long limit = getQueryBuilder().getLimit();
+        // Records found in the cache, or being read by an identical concurrent read, are answered
+        // without this batch, so only the remainder are sent to the server
+        RecordCache cache = getRecordCache();
+        long cacheStamp = cache == null ? 0 : cache.stamp();
+        ReadCoalescer coalescer = getReadCoalescer();
+        boolean answeredLocally = cache != null || coalescer != null;
+        // A key which is repeated is read once, and its result is given to each of its positions
+        Map<Key, BatchRecord> readsByKey = hasRepeatedKeys() ? new HashMap<>() : null;
+        List<RepeatedRead> repeatedReads = new ArrayList<>();
+        // If true, batchRecords holds every record in the order of the keys, otherwise it only
+        // holds those not sent to the server, which are added to the server's records at the end
+        boolean inKeyOrder = answeredLocally || readsByKey != null;
         List<BatchRecord> batchRecords = new ArrayList<>(keyList.size());
-        List<BatchRecord> batchRecordsForServer = hasPartitionFilter() ? new ArrayList<>() : batchRecords;
+        List<BatchRecord> batchRecordsForServer = hasPartitionFilter() || inKeyOrder ? new ArrayList<>() : batchRecords;
+        // The flights led by this batch, in the same order as batchRecordsForServer
+        List<ReadCoalescer.Flight> ledFlights = new ArrayList<>();
+        List<FollowedRead> followedReads = new ArrayList<>();
         
         for (Key thisKey : keyList) {
             // If there is no "where" clause and the limit has been exceeded, exit the loop
@@ -96,6 +134,21 @@ class BatchKeyQueryBuilderImpl extends QueryImpl {
                 }
             }
             else {
+                Record cached = cache == null ? null
+                        : cache.get(thisKey, getQueryBuilder().getBinNames(), getQueryBuilder().getWithNoBins());
+                if (cached != null) {
+                    BatchRecord hit = new BatchRecord(thisKey, false);
+                    hit.setRecord(cached);
+                    batchRecords.add(hit);
+                    continue;
+                }
+                BatchRecord firstRead = readsByKey == null ? null : readsByKey.get(thisKey);
+                if (firstRead != null) {
+                    BatchRecord repeat = new BatchRecord(thisKey, false);
+                    batchRecords.add(repeat);
+                    repeatedReads.add(new RepeatedRead(repeat, firstRead));
+                    continue;
+                }
                 BatchRecord thisBatchRecord;
                 if (getQueryBuilder().getWithNoBins()) {
                     thisBatchRecord = new BatchRead(thisKey, false);
@@ -106,55 +159,184 @@ class BatchKeyQueryBuilderImpl extends QueryImpl {
                 else {
                     thisBatchRecord = new BatchRead(thisKey, true);
                 }
+                if (inKeyOrder) {
+                    batchRecords.add(thisBatchRecord);
+                }
+                if (readsByKey != null) {
+                    readsByKey.put(thisKey, thisBatchRecord);
+                }
+                if (coalescer != null) {
+                    ReadCoalescer.Flight flight = coalescer.begin(ReadCoalescer.ReadKey.of(
+                            thisKey, getQueryBuilder().getBinNames(), getQueryBuilder().getWithNoBins(), policy));
+                    if (!flight.isLeader()) {
+                        followedReads.add(new FollowedRead(thisBatchRecord, flight));
+                        continue;
+                    }
+                    ledFlights.add(flight);
+                }
                 batchRecordsForServer.add(thisBatchRecord);
             }
         }
 
-        boolean isNamespaceSC = getSession().isNamespaceSC(this.keyList.get(0).namespace);
-        BatchPolicy policy = getSession().getBehavior().getSettings(OpKind.READ, OpShape.BATCH, isNamespaceSC ? Mode.CP : Mode.AP).asBatchPolicy();
-        policy.filterExp = whereExp;
-        policy.setTxn(this.getQueryBuilder().getTxnToUse());
-        policy.failOnFilteredOut = this.getQueryBuilder().isFailOnFilteredOut();
+        long serverStart = metrics == null ? 0 : System.nanoTime();
+        // Only stream when every record is read by this batch. Records answered locally are
+        // returned with the remainder once the server has responded
+        if (stream && coalescer == null && batchRecordsForServer.size() == batchRecords.size()) {
+            boolean respondAllKeys = getQueryBuilder().isRespondAllKeys();
+            boolean failOnFilteredOut = getQueryBuilder().isFailOnFilteredOut();
+            return StreamingBatch.execute(getSession(), policy, batchRecordsForServer, settings,
+                    i -> {
+                        BatchRecord br = batchRecordsForServer.get(i);
+                        if (!respondAllKeys && ((br.resultCode == ResultCode.OK && br.record == null)
+                                || (br.resultCode == ResultCode.KEY_NOT_FOUND_ERROR)
+                                || (br.resultCode == ResultCode.FILTERED_OUT && !failOnFilteredOut))) {
+                            return false;
+                        }
+                        return getQueryBuilder().shouldIncludeResult(br.resultCode);
+                    },
+                    (br, i) -> {
+                        if (cache != null && br.resultCode == ResultCode.OK && !getQueryBuilder().getWithNoBins()) {
+                            cache.put(br.key, getQueryBuilder().getBinNames(), br.record, cacheStamp);
+                        }
+                        return getQueryBuilder().createRecordResultFromBatchRecord(br, settings, i);
+                    },
+                    limit,
+                    failure -> {
+                        // The batch completes after this returns, so it is timed when it completes
+                        if (metrics != null) {
+                            long end = System.nanoTime();
+                            metrics.record(OpKind.READ, OpShape.BATCH, keyList.get(0).namespace,
+                                    StreamingBatch.resultCodeOf(failure), end - start, end - serverStart);
+                        }
+                        if (failure instanceof AerospikeException ae) {
+                            showWarningsOnException(ae);
+                        }
+                    });
+        }
         
+        long serverEnd = 0;
         try {
-            getSession().getClient().operate(policy, batchRecordsForServer);
+            try {
+                if (!batchRecordsForServer.isEmpty()) {
+                    BatchSplitter.operate(getSession().getClient(), policy, batchRecordsForServer, settings);
+                }
+            }
+            catch (RuntimeException | Error e) {
+                for (ReadCoalescer.Flight flight : ledFlights) {
+                    coalescer.fail(flight, e);
+                }
+                throw e;
+            }
+            // Release the waiters on this batch's reads before waiting on any other reads, so
+            // batches which are waiting on each other cannot deadlock
+            for (int i = 0; i < ledFlights.size(); i++) {
+                BatchRecord br = batchRecordsForServer.get(i);
+                coalescer.complete(ledFlights.get(i), new ReadCoalescer.Result(br.record, br.resultCode));
+            }
+            if (cache != null && !getQueryBuilder().getWithNoBins()) {
+                String[] binNames = getQueryBuilder().getBinNames();
+                for (BatchRecord br : batchRecordsForServer) {
+                    if (br.resultCode == ResultCode.OK) {
+                        cache.put(br.key, binNames, br.record, cacheStamp);
+                    }
+                }
+            }
+            for (FollowedRead followedRead : followedReads) {
+                followedRead.await();
+            }
+            if (metrics != null) {
+                serverEnd = System.nanoTime();
+            }
+            for (RepeatedRead repeatedRead : repeatedReads) {
+                repeatedRead.copyResult();
+            }
             if (!getQueryBuilder().isRespondAllKeys()) {
-                // Remove any items which have been filtered out.
-                batchRecordsForServer.removeIf(br -> (br.resultCode == ResultCode.OK && br.record == null) 
+                // Remove any items which have been filtered out. If batchRecords holds the records
+                // in their original order, that is the list to filter
+                (inKeyOrder ? batchRecords : batchRecordsForServer).removeIf(br -> (br.resultCode == ResultCode.OK && br.record == null) 
                         || (br.resultCode == ResultCode.KEY_NOT_FOUND_ERROR)
                         || (br.resultCode == ResultCode.FILTERED_OUT && !getQueryBuilder().isFailOnFilteredOut()));
             }
-            if (hasPartitionFilter()) {
+            if (hasPartitionFilter() && !inKeyOrder) {
                 // Add the server results into any that were filtered out earlier
                 batchRecords.addAll(batchRecordsForServer);
             }
             
-            // Convert BatchRecord to RecordResult
-            List<RecordResult> results = new ArrayList<>();
-            Settings settings = getSession().getBehavior()
-                    .getSettings(OpKind.READ, OpShape.BATCH, getSession().isNamespaceSC(keyList.get(0).namespace));
-            for (int i = 0; i < batchRecords.size(); i++) {
-                BatchRecord br = batchRecords.get(i);
-                if (getQueryBuilder().shouldIncludeResult(br.resultCode)) {
-                    results.add(getQueryBuilder().createRecordResultFromBatchRecord(br, settings, i));
-                }
+            if (metrics != null) {
+                metrics.record(OpKind.READ, OpShape.BATCH, keyList.get(0).namespace, ResultCode.OK,
+                        System.nanoTime() - start, serverEnd - serverStart);
             }
             
-            return new RecordStream(results, limit);
+            // Convert BatchRecord to RecordResult lazily as the stream is consumed
+            return new RecordStream(ArrayRecordStream.of(
+                    batchRecords,
+                    i -> getQueryBuilder().shouldIncludeResult(batchRecords.get(i).resultCode),
+                    (br, i) -> getQueryBuilder().createRecordResultFromBatchRecord(br, settings, i),
+                    limit));
         }
         catch (AerospikeException ae) {
-            if (Log.warnEnabled() && ae.getResultCode() == ResultCode.UNSUPPORTED_FEATURE) {
-                if (this.getQueryBuilder().getTxnToUse() != null) {
-                    Set<String> namespaces = keyList.stream().map(key->key.namespace).collect(Collectors.toSet());
-                    namespaces.forEach(ns -> {
-                        if (!getSession().isNamespaceSC(ns)) {
-                            Log.warn(String.format("Namespace '%s' is involved in transaction, but it is not an SC namespace. "
-                                    + "This will throw an Unsupported Server Feature exception.", ns));
-                        }
-                    });
-                }
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.record(OpKind.READ, OpShape.BATCH, keyList.get(0).namespace, ae.getResultCode(),
+                        end - start, end - serverStart);
             }
+            showWarningsOnException(ae);
             throw ae;
         }
     }
-}
\ No newline at end of file
+
+    private void showWarningsOnException(AerospikeException ae) {
+        if (Log.warnEnabled() && ae.getResultCode() == ResultCode.UNSUPPORTED_FEATURE) {
+            if (this.getQueryBuilder().getTxnToUse() != null) {
+                Set<String> namespaces = keyList.stream().map(key->key.namespace).collect(Collectors.toSet());
+                namespaces.forEach(ns -> {
+                    if (!getSession().isNamespaceSC(ns)) {
+                        Log.warn(String.format("Namespace '%s' is involved in transaction, but it is not an SC namespace. "
+                                + "This will throw an Unsupported Server Feature exception.", ns));
+                    }
+                });
+            }
+        }
+    }
+    
+    /**
+     * @return true if any key appears more than once in the batch
+     */
+    private boolean hasRepeatedKeys() {
+        if (keyList.size() < 2) {
+            return false;
+        }
+        Set<Key> seen = new HashSet<>(keyList.size() * 2);
+        for (Key key : keyList) {
+            if (!seen.add(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * A repeated key in this batch, which is given the result of the first read of the key.
+     */
+    private record RepeatedRead(BatchRecord batchRecord, BatchRecord firstRead) {
+        void copyResult() {
+            Record record = firstRead.record;
+            // Each position has its own copy of the record, so changing one does not change the others
+            batchRecord.record = record == null ? null
+                    : new Record(record.bins == null ? null : new HashMap<>(record.bins), record.generation, record.expiration);
+            batchRecord.resultCode = firstRead.resultCode;
+            batchRecord.inDoubt = firstRead.inDoubt;
+        }
+    }
+    
+    /**
+     * A read in this batch which is answered by an identical read already in progress.
+     */
+    private record FollowedRead(BatchRecord batchRecord, ReadCoalescer.Flight flight) {
+        void await() {
+            ReadCoalescer.Result result = flight.await();
+            batchRecord.record = result.record();
+            batchRecord.resultCode = result.resultCode();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.aerospike.query;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.dsl.ParseResult;
+
+/**
+ * A bounded, concurrent cache of parsed DSL strings, holding both the {@link ParseResult} and the
+ * {@link Expression} built from it, so that repeatedly executing the same {@code where("...")}
+ * clause neither re-parses the text nor rebuilds the expression.
+ *
+ * <p>Entries are keyed by the DSL text, the namespace and the version of the cluster's index
+ * catalog. Parsing with an index context can select a secondary index filter, so once the
+ * index set changes every entry parsed against the previous catalog is discarded. Entries parsed
+ * without an index context do not depend on the catalog and are kept.</p>
+ *
+ * <p>When the cache is full the least recently used entry is evicted to make room. The lock is
+ * only held to look up or insert an entry, never while parsing. There is one cache per
+ * {@link com.aerospike.Cluster}.</p>
+ */
+public final class DslCache {
+    /** The default maximum number of entries held */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /** Index catalog version used for entries which were parsed without an index context */
+    static final long NO_INDEX_CONTEXT = -1;
+
+    private record CacheKey(String dsl, String namespace, long indexesVersion) {}
+
+    /**
+     * A cached parse: the result of the parse and the expression built from it (null if the DSL
+     * only produced a secondary index filter).
+     */
+    public record Entry(ParseResult parseResult, Expression expression) {}
+
+    // In access order, guarded by this
+    private final LinkedHashMap<CacheKey, Entry> entries;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile long currentIndexesVersion = NO_INDEX_CONTEXT;
+
+    public DslCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public DslCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be > 0, not " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() > DslCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up a DSL string, parsing it with the supplied parser on a miss. Parse failures are
+     * not cached.
+     *
+     * @param dsl the DSL text
+     * @param namespace the namespace the DSL was parsed against, or null if no index context was used
+     * @param indexesVersion the version of the index catalog, or {@link #NO_INDEX_CONTEXT}
+     * @param parser parses the DSL on a miss
+     */
+    Entry get(String dsl, String namespace, long indexesVersion, Supplier<ParseResult> parser) {
+        if (indexesVersion != NO_INDEX_CONTEXT && indexesVersion != currentIndexesVersion) {
+            invalidateOlderThan(indexesVersion);
+        }
+        CacheKey key = new CacheKey(dsl, namespace, indexesVersion);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        ParseResult parseResult = parser.get();
+        entry = new Entry(parseResult, parseResult.getExp() == null ? null : Exp.build(parseResult.getExp()));
+        synchronized (this) {
+            // The catalog may have changed while parsing. An entry parsed against an older catalog
+            // is still returned to this caller, but must not be cached
+            if (indexesVersion != NO_INDEX_CONTEXT && indexesVersion < currentIndexesVersion) {
+                return entry;
+            }
+            Entry existing = entries.putIfAbsent(key, entry);
+            return existing != null ? existing : entry;
+        }
+    }
+
+    private synchronized void invalidateOlderThan(long indexesVersion) {
+        if (indexesVersion <= currentIndexesVersion) {
+            // Another thread has already moved on, or this caller saw a stale version
+            return;
+        }
+        currentIndexesVersion = indexesVersion;
+        Iterator<CacheKey> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            long version = iterator.next().indexesVersion();
+            if (version != NO_INDEX_CONTEXT && version < indexesVersion) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Remove all entries. The counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** @return the number of entries currently cached */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return the maximum number of entries this cache will hold */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the number of lookups which were served from the cache */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** @return the number of lookups which required the DSL to be parsed */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return the number of entries removed to keep the cache within its maximum size */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** @return the number of entries removed because the index catalog changed */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DslCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d]",
+                size(), maximumSize, getHits(), getMisses(), getEvictions(), getInvalidations());
+    }
+}
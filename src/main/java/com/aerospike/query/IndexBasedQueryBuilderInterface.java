@@ -1,5 +1,7 @@
 package com.aerospike.query;
 
+import com.aerospike.QueryCursor;
+
 /**
  * Interface for query builders that support index (primary or secondary) based operations.
  * These operations are only available when querying from a DataSet
@@ -13,4 +15,33 @@ public interface IndexBasedQueryBuilderInterface<T extends IndexBasedQueryBuilde
      * @return this QueryBuilder for method chaining
      */
     T recordsPerSecond(int recordsPerSecond);
+    
+    /**
+     * Split the partitions of the query into {@code parallelism} shards, each of which is read
+     * by its own worker. Results from all shards are merged into one stream as they arrive, so
+     * the order of the results is not defined. Any limit applies across all shards.
+     * 
+     * @param parallelism the number of shards (must be > 0). The default is 1, a single reader.
+     * @return this QueryBuilder for method chaining
+     */
+    T parallelism(int parallelism);
+    
+    /**
+     * Set how many chunks are fetched from the server in the background ahead of the consumer
+     * when the query is chunked with {@code chunkSize}. Each prefetched chunk holds up to
+     * {@code chunkSize} records in memory.
+     * 
+     * @param prefetchChunks the number of chunks to fetch ahead (must be >= 0). The default is 0,
+     * which fetches each chunk only once the previous one has been consumed.
+     * @return this QueryBuilder for method chaining
+     */
+    T prefetchChunks(int prefetchChunks);
+    
+    /**
+     * Continue the query from a position captured with {@link com.aerospike.RecordStream#cursor()}.
+     * 
+     * @param cursor the position to continue from
+     * @return this QueryBuilder for method chaining
+     */
+    T resumeFrom(QueryCursor cursor);
 }
@@ -3,15 +3,16 @@ package com.aerospike.query;
 import java.util.List;
 
 import com.aerospike.DataSet;
+import com.aerospike.ParallelQuery;
+import com.aerospike.QueryCursor;
 import com.aerospike.RecordStream;
 import com.aerospike.Session;
 import com.aerospike.client.Log;
-import com.aerospike.client.exp.Exp;
 import com.aerospike.client.policy.QueryDuration;
 import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.Filter;
 import com.aerospike.client.query.PartitionFilter;
 import com.aerospike.client.query.Statement;
-import com.aerospike.dsl.ParseResult;
 import com.aerospike.policy.Behavior.Mode;
 import com.aerospike.policy.Behavior.OpKind;
 import com.aerospike.policy.Behavior.OpShape;
@@ -64,39 +65,69 @@ class IndexQueryBuilderImpl extends QueryImpl {
             queryPolicy.includeBinData = false;
         }
         
-        long chunkSize = getQueryBuilder().getChunkSize();
+        int chunkSize = getQueryBuilder().getChunkSize();
         long limit = getQueryBuilder().getLimit();
+        int parallelism = getQueryBuilder().getParallelism();
         
-        Statement stmt = new Statement();
-        stmt.setNamespace(dataSet.getNamespace());
-        stmt.setSetName(dataSet.getSet());
-        stmt.setBinNames(getQueryBuilder().getBinNames());
         // If an RPS is set, the query type must be long
         if (getQueryBuilder().getRecordsPerSecond() > 0) {
-            stmt.setRecordsPerSecond(getQueryBuilder().getRecordsPerSecond());
             queryPolicy.expectedDuration = QueryDuration.LONG;
         }
 
+        Filter indexFilter = null;
         if (getQueryBuilder().getDsl() != null) {
-            ParseResult parseResult = getQueryBuilder().getDsl().process(this.dataSet.getNamespace(), getSession());
-            queryPolicy.filterExp = parseResult.getExp() == null ? null : Exp.build(parseResult.getExp());
-            stmt.setFilter(parseResult.getFilter());
-        }
-
-        if (chunkSize > 0) {
-            stmt.setMaxRecords(chunkSize);
-        }
-        else if (limit > 0 && chunkSize == 0) {
-            stmt.setMaxRecords(limit);
+            // Take the filter and expression from the same parse so they agree on which index was used
+            DslCache.Entry where = getQueryBuilder().getDsl().processWithExpression(this.dataSet.getNamespace(), getSession());
+            queryPolicy.filterExp = where.expression();
+            indexFilter = where.parseResult().getFilter();
         }
 
         // No need to set transactions, they're not supported by queries
         // queryPolicy.txn = this.getQueryBuilder().getTxnToUse();
 
-        PartitionFilter filter = PartitionFilter.range(
-                getQueryBuilder().getStartPartition(), 
-                getQueryBuilder().getEndPartition() - getQueryBuilder().getStartPartition());
+        int startPartition = getQueryBuilder().getStartPartition();
+        int endPartition = getQueryBuilder().getEndPartition();
+        QueryCursor cursor = getQueryBuilder().getResumeFrom();
+        Statement stmt = createStatement(indexFilter, chunkSize > 0 ? chunkSize : limit);
+        if (cursor != null) {
+            cursor.checkResumes(stmt, queryPolicy);
+            if (cursor.isDone()) {
+                return new RecordStream();
+            }
+        }
+        // A resumed query continues as a single shard, as the cursor holds one position per partition
+        if (parallelism > 1 && endPartition - startPartition > 1 && cursor == null) {
+            // Each shard streams until done, so server-side chunking does not apply. The limit is
+            // enforced across the shards, but no shard needs more than the limit from the server.
+            // The records-per-second limit is divided between the shards by ParallelQuery.
+            Filter shardFilter = indexFilter;
+            return ParallelQuery.execute(getSession(), queryPolicy,
+                    () -> createStatement(shardFilter, limit),
+                    startPartition, endPartition, parallelism,
+                    chunkSize > 0 ? chunkSize : ParallelQuery.DEFAULT_CAPACITY, limit);
+        }
+
+        PartitionFilter filter = cursor != null
+                ? cursor.toPartitionFilter()
+                : PartitionFilter.range(startPartition, endPartition - startPartition);
         
-        return new RecordStream(getSession(), queryPolicy, stmt, filter, limit);
+        // Prefetching only applies to chunked queries, otherwise the whole result would be buffered
+        int prefetchChunks = chunkSize > 0 ? getQueryBuilder().getPrefetchChunks() : 0;
+        return new RecordStream(getSession(), queryPolicy, stmt, filter, limit, prefetchChunks);
+    }
+    
+    private Statement createStatement(Filter indexFilter, long maxRecords) {
+        Statement stmt = new Statement();
+        stmt.setNamespace(dataSet.getNamespace());
+        stmt.setSetName(dataSet.getSet());
+        stmt.setBinNames(getQueryBuilder().getBinNames());
+        if (getQueryBuilder().getRecordsPerSecond() > 0) {
+            stmt.setRecordsPerSecond(getQueryBuilder().getRecordsPerSecond());
+        }
+        stmt.setFilter(indexFilter);
+        if (maxRecords > 0) {
+            stmt.setMaxRecords(maxRecords);
+        }
+        return stmt;
     }
 }
\ No newline at end of file
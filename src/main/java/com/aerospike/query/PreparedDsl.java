@@ -1,30 +1,215 @@
 package com.aerospike.query;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
 
+import com.aerospike.dsl.ParseResult;
+
+/**
+ * A DSL statement with numbered placeholders ({@code $1}, {@code $2}, ...) which are replaced by
+ * values when the statement is used, for example {@code new PreparedDsl("$.age > $1 and $.name == '$2'")}.
+ *
+ * <p>The statement is split around its placeholders once, when it is created, and the kind of
+ * value each placeholder stands for is recorded from where it appears:</p>
+ * <ul>
+ *   <li>A placeholder inside a quoted string, such as {@code '$2'}, takes text: a
+ *   {@code CharSequence}, {@code Character}, {@code Enum}, number or boolean. The text may not
+ *   contain the quote character which encloses it, so a parameter cannot end the string and add
+ *   to the statement.</li>
+ *   <li>Any other placeholder, such as {@code $1} in {@code $.age > $1}, takes a literal: a
+ *   finite number or a boolean.</li>
+ * </ul>
+ * <p>A parameter which does not match its placeholder is rejected with an
+ * {@link IllegalArgumentException} when the statement is bound. A placeholder with no parameter,
+ * or a null one, is left unchanged.</p>
+ *
+ * <p>The parsed form of each bound statement is cached with the statement, keyed by the bound
+ * text and, for index-aware parsing, the namespace and index catalog version. Executing it again
+ * with the same parameters, including ones which select a secondary index filter, does not
+ * re-parse it. The cache is held here rather than in the cluster's {@link DslCache} so that the
+ * many parameter combinations of one statement cannot evict other where clauses.</p>
+ *
+ * <p>Instances are immutable apart from the cache and are safe to share between threads.</p>
+ */
 public class PreparedDsl {
+    /** The maximum number of bound forms of one statement which are cached */
+    static final int MAX_BOUND_STATEMENTS = 64;
+    /** The quote of a hole which is not inside a quoted string */
+    private static final char UNQUOTED = 0;
+
     private final String statement;
+    // The statement split around the placeholders: segments.length == holes.length + 1
+    private final String[] segments;
+    // The placeholder text, parameter index and enclosing quote character of each hole
+    private final String[] placeholders;
+    private final int[] holes;
+    private final char[] quotes;
+    private final int parameterCount;
+    private final DslCache bound = new DslCache(MAX_BOUND_STATEMENTS);
+
     public PreparedDsl(String statement) {
         this.statement = statement;
+        List<String> segmentList = new ArrayList<>();
+        List<String> placeholderList = new ArrayList<>();
+        List<Integer> holeList = new ArrayList<>();
+        StringBuilder quoteList = new StringBuilder();
+        int last = 0;
+        int maxHole = 0;
+        char quote = UNQUOTED;
+        int length = statement.length();
+        for (int i = 0; i < length; i++) {
+            char c = statement.charAt(i);
+            if (c == '$' && i + 1 < length && Character.isDigit(statement.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < length && Character.isDigit(statement.charAt(end))) {
+                    end++;
+                }
+                int index = Integer.parseInt(statement.substring(i + 1, end));
+                segmentList.add(statement.substring(last, i));
+                placeholderList.add(statement.substring(i, end));
+                holeList.add(index - 1);
+                quoteList.append(quote);
+                maxHole = Math.max(maxHole, index);
+                last = end;
+                i = end - 1;
+            }
+            else if (quote == UNQUOTED && (c == '\'' || c == '"')) {
+                quote = c;
+            }
+            else if (c == quote) {
+                quote = UNQUOTED;
+            }
+        }
+        segmentList.add(statement.substring(last));
+        this.segments = segmentList.toArray(new String[0]);
+        this.placeholders = placeholderList.toArray(new String[0]);
+        this.holes = holeList.stream().mapToInt(Integer::intValue).toArray();
+        this.quotes = quoteList.toString().toCharArray();
+        this.parameterCount = maxHole;
     }
-    
+
+    /**
+     * @return the statement text, including its placeholders
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * @return the highest placeholder number used in the statement
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Form the statement with each placeholder replaced by its parameter, after checking the
+     * parameter is the kind of value the placeholder stands for. Placeholders without a
+     * parameter are left unchanged.
+     *
+     * @throws IllegalArgumentException if a parameter does not match its placeholder
+     */
     protected String formValue(Object ...params) {
-        Pattern pattern = Pattern.compile("\\$(\\d+)");
-        Matcher matcher = pattern.matcher(statement);
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder(statement.length() + 16 * holes.length);
+        for (int i = 0; i < holes.length; i++) {
+            int index = holes[i];
+            Object param = (params != null && index >= 0 && index < params.length) ? params[index] : null;
+            sb.append(segments[i]).append(param != null ? convert(i, param) : placeholders[i]);
+        }
+        return sb.append(segments[holes.length]).toString();
+    }
 
-        while (matcher.find()) {
-            int index = Integer.parseInt(matcher.group(1)) - 1;
-            String replacement = (index >= 0 && index < params.length && params[index] != null)
-                    ? params[index].toString()
-                    : matcher.group(); // leave unchanged if no param
+    /**
+     * @return the DSL text of the parameter for a hole
+     * @throws IllegalArgumentException if the parameter cannot be used in the hole
+     */
+    private String convert(int hole, Object param) {
+        char quote = quotes[hole];
+        if (quote == UNQUOTED) {
+            String literal = literal(param);
+            if (literal == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Parameter for %s must be a finite number or a boolean, not %s. Quote the placeholder to pass text",
+                        placeholders[hole], describe(param)));
+            }
+            return literal;
+        }
+        String text;
+        if (param instanceof CharSequence || param instanceof Character || param instanceof Enum<?>) {
+            text = param.toString();
+        }
+        else {
+            text = literal(param);
+            if (text == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Parameter for %s must be text, a number or a boolean, not %s",
+                        placeholders[hole], describe(param)));
+            }
+        }
+        if (text.indexOf(quote) >= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Parameter for %s may not contain the quote character (%c) which encloses it: %s",
+                    placeholders[hole], quote, text));
+        }
+        return text;
+    }
 
-            // quote to avoid treating $ or \ in replacement specially
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+    /**
+     * @return the DSL literal for a number or boolean, or null if the parameter is neither, or
+     * is a number which has no literal form
+     */
+    private static String literal(Object param) {
+        if (param instanceof Boolean) {
+            return param.toString();
+        }
+        if (param instanceof Long || param instanceof Integer || param instanceof Short
+                || param instanceof Byte || param instanceof BigInteger) {
+            return param.toString();
         }
+        if (param instanceof Double || param instanceof Float) {
+            double value = ((Number) param).doubleValue();
+            return Double.isFinite(value) ? floatLiteral(BigDecimal.valueOf(value)) : null;
+        }
+        if (param instanceof BigDecimal decimal) {
+            return floatLiteral(decimal);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value in plain notation, so the literal does not rely on the DSL reading
+     * exponents, and with a decimal point so it is not read as an integer
+     */
+    private static String floatLiteral(BigDecimal value) {
+        String text = value.toPlainString();
+        return text.indexOf('.') >= 0 ? text : text + ".0";
+    }
+
+    private static String describe(Object param) {
+        return param.getClass().getSimpleName() + " (" + param + ")";
+    }
+
+    /**
+     * Bind the parameters, producing the parse result and expression for this statement. The
+     * bound text is only parsed if it is not already cached.
+     *
+     * @param params the parameter values, {@code params[0]} being bound to {@code $1}
+     * @param namespace the namespace the statement is parsed against if an index context is used, otherwise null
+     * @param indexesVersion the index catalog version if an index context is used, otherwise {@link DslCache#NO_INDEX_CONTEXT}
+     * @param parser parses DSL text
+     * @throws IllegalArgumentException if a parameter does not match its placeholder
+     */
+    DslCache.Entry bind(Object[] params, String namespace, long indexesVersion, Function<String, ParseResult> parser) {
+        String text = formValue(params);
+        return bound.get(text, namespace, indexesVersion, () -> parser.apply(text));
+    }
 
-        matcher.appendTail(sb);
-        return sb.toString();
+    @Override
+    public String toString() {
+        return "PreparedDsl[" + statement + ", parameters=" + parameterCount + ", segments=" + Arrays.toString(segments) + "]";
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import com.aerospike.AbstractFilterableBuilder;
 import com.aerospike.DataSet;
 import com.aerospike.NavigatableRecordStream;
+import com.aerospike.QueryCursor;
 import com.aerospike.RecordMapper;
 import com.aerospike.RecordStream;
 import com.aerospike.Session;
@@ -74,6 +75,9 @@ public class QueryBuilder extends AbstractFilterableBuilder implements
     private int endPartition = 4096;
     private Txn txnToUse;
     private int recordsPerSecond = 0;
+    private int parallelism = 1;
+    private int prefetchChunks = 0;
+    private QueryCursor resumeFrom = null;
     
     
     /**
@@ -339,6 +343,94 @@ public class QueryBuilder extends AbstractFilterableBuilder implements
         return this.recordsPerSecond;
     }
 
+    /**
+     * Split the partitions of the query into {@code parallelism} shards, each of which is read
+     * by its own worker and feeds a single result stream. This allows large scans and exports
+     * to use more than one consumer loop. If more shards are requested than there are partitions
+     * in the query's partition range, one shard per partition is used.
+     * 
+     * <p>The order of the results is not defined when more than one shard is used. Any
+     * {@link #limit(long)} is applied across all shards, and closing the stream stops every shard.
+     * Server-side chunking ({@link #chunkSize(int)}) only applies to single shard queries.</p>
+     * 
+     * @param parallelism the number of shards (must be > 0)
+     * @return this QueryBuilder for method chaining
+     * @throws IllegalArgumentException if parallelism is <= 0
+     */
+    public QueryBuilder parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be > 0, not " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+    
+    protected int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Set how many chunks are fetched from the server in the background while the current chunk
+     * is being consumed, so that moving from one chunk to the next does not wait on the server.
+     * This only applies when a {@link #chunkSize(int)} is set. Memory use grows by up to
+     * {@code chunkSize} records for each prefetched chunk.
+     * 
+     * <p>If a {@link #limit(long)} is reached or the stream is closed, any outstanding fetch is
+     * cancelled so the server stops scanning.</p>
+     * 
+     * @param prefetchChunks the number of chunks to fetch ahead (must be >= 0). The default is 0,
+     * which fetches each chunk only once the previous one has been consumed.
+     * @return this QueryBuilder for method chaining
+     * @throws IllegalArgumentException if prefetchChunks is < 0
+     */
+    public QueryBuilder prefetchChunks(int prefetchChunks) {
+        if (prefetchChunks < 0) {
+            throw new IllegalArgumentException("Prefetch chunks must be >= 0, not " + prefetchChunks);
+        }
+        this.prefetchChunks = prefetchChunks;
+        return this;
+    }
+    
+    protected int getPrefetchChunks() {
+        return this.prefetchChunks;
+    }
+
+    /**
+     * Continue a dataset query from a position captured with {@link RecordStream#cursor()}, for
+     * example to restart an export which was interrupted or to fetch the next page of a stateless
+     * paged request. The query must be on the same dataset and have the same where clause, bins
+     * and chunk size as the query the cursor was taken from, otherwise executing it throws an
+     * {@code IllegalArgumentException}. The partition range of the cursor is used.
+     * 
+     * @param cursor the position to continue from
+     * @return this QueryBuilder for method chaining
+     * @throws IllegalArgumentException if a different partition range has already been set
+     */
+    public QueryBuilder resumeFrom(QueryCursor cursor) {
+        sanityCheckPartitionRange(cursor.getStartPartition(), cursor.getEndPartition());
+        this.startPartition = cursor.getStartPartition();
+        this.endPartition = cursor.getEndPartition();
+        this.resumeFrom = cursor;
+        return this;
+    }
+    
+    /**
+     * Continue a dataset query from a position in the string form of a {@link QueryCursor}.
+     * 
+     * @param cursor a cursor string, as returned by {@link QueryCursor#toString()}
+     * @return this QueryBuilder for method chaining
+     * @throws IllegalArgumentException if the string is not a valid cursor or a different
+     * partition range has already been set
+     * @see #resumeFrom(QueryCursor)
+     */
+    public QueryBuilder resumeFrom(String cursor) {
+        return resumeFrom(QueryCursor.fromString(cursor));
+    }
+    
+    protected QueryCursor getResumeFrom() {
+        return this.resumeFrom;
+    }
+
     
     /**
      * Adds a filter condition using a DSL string.
@@ -1,5 +1,7 @@
 package com.aerospike.query;
 
+import com.aerospike.ReadCoalescer;
+import com.aerospike.RecordCache;
 import com.aerospike.RecordStream;
 import com.aerospike.Session;
 
@@ -28,4 +30,26 @@ abstract class QueryImpl {
     public boolean hasPartitionFilter() {
         return queryBuilder.getStartPartition() > 0 || queryBuilder.getEndPartition() < 4096;
     }
+    
+    /**
+     * @return the session's record cache if this read can be answered from it, otherwise null.
+     * Reads in a transaction, with a where clause or over a partition range always go to the server.
+     */
+    protected RecordCache getRecordCache() {
+        if (queryBuilder.getTxnToUse() != null || queryBuilder.getDsl() != null || hasPartitionFilter()) {
+            return null;
+        }
+        return session.getRecordCache();
+    }
+    
+    /**
+     * @return the session's read coalescer if this read can share the result of an identical
+     * concurrent read, otherwise null. Reads in a transaction or over a partition range are never shared.
+     */
+    protected ReadCoalescer getReadCoalescer() {
+        if (queryBuilder.getTxnToUse() != null || hasPartitionFilter()) {
+            return null;
+        }
+        return session.getReadCoalescer();
+    }
 }
\ No newline at end of file
@@ -7,56 +7,76 @@ import java.util.Map;
 import com.aerospike.AerospikeComparator;
 import com.aerospike.RecordResult;
 
+/**
+ * Compares records by the bins named in a list of {@link SortProperties}. To sort an array of
+ * records, {@link RecordSorter} gives the same order without re-reading the bins on every comparison.
+ * Where the records are compared one at a time, as when keeping the best records in a heap or
+ * merging sorted runs, {@link #forSingleSort(List)} avoids re-encoding map bins on every comparison.
+ */
 public class RecordComparator implements Comparator<RecordResult>{
+    /** The number of map encodings a comparator from {@link #forSingleSort(List)} keeps */
+    static final int MAX_CACHED_MAPS = 4096;
+    
     private final List<SortProperties> sortPropertiesList;
     private static final AerospikeComparator aerospikeComparatorCaseSensitive = new AerospikeComparator(true);
     private static final AerospikeComparator aerospikeComparatorCaseInsensitive = new AerospikeComparator(false);;
+    private final AerospikeComparator caseSensitiveComparator;
+    private final AerospikeComparator caseInsensitiveComparator;
     
     public RecordComparator(List<SortProperties> sortProperties) {
+        this(sortProperties, aerospikeComparatorCaseSensitive, aerospikeComparatorCaseInsensitive);
+    }
+    
+    private RecordComparator(List<SortProperties> sortProperties, AerospikeComparator caseSensitive,
+            AerospikeComparator caseInsensitive) {
         this.sortPropertiesList = sortProperties;
+        this.caseSensitiveComparator = caseSensitive;
+        this.caseInsensitiveComparator = caseInsensitive;
+    }
+    
+    /**
+     * Create a comparator for the use of a single sort, which keeps the encoding of each map bin
+     * value it compares rather than encoding it on every comparison. The records must not be
+     * modified while it is in use, and it is not thread safe.
+     * 
+     * @param sortProperties the sort order
+     * @return a comparator to be discarded once the sort is complete
+     */
+    public static RecordComparator forSingleSort(List<SortProperties> sortProperties) {
+        return new RecordComparator(sortProperties, AerospikeComparator.withMapCache(true, MAX_CACHED_MAPS),
+                AerospikeComparator.withMapCache(false, MAX_CACHED_MAPS));
     }
     
     private AerospikeComparator getComparator(boolean caseSensitive) {
         if (caseSensitive) {
-            return aerospikeComparatorCaseSensitive;
+            return caseSensitiveComparator;
         }
         else {
-            return aerospikeComparatorCaseInsensitive;
+            return caseInsensitiveComparator;
         }
     }
 
-    private int compare(int index, Map<String, Object> map1, Map<String, Object> map2) {
-        if (index >= sortPropertiesList.size()) {
-            // Arbitrary sort
-            return -1;
-        }
-        SortProperties sortProperties = sortPropertiesList.get(index);
-        
-        Object o1 = map1.get(sortProperties.name());
-        Object o2 = map2.get(sortProperties.name());
-
-        if (o1 == null && o2 == null) {
-            return compare(index+1, map1, map2);
-        }
-        else if (o1 == null) {
-            return sortProperties.sortDir() == SortDir.SORT_ASC ? -1 : 1;
-        }
-        else if (o2 == null) {
-            return sortProperties.sortDir() == SortDir.SORT_ASC ? 1 : -1;
-        }
-        else {
-            int result = this.getComparator(!sortProperties.caseInsensitive()).compare(o1, o2);
-            if (result == 0) {
-                // Identical elements, move onto the next one
-                return compare(index+1, map1, map2);
+    private int compare(Map<String, Object> map1, Map<String, Object> map2) {
+        for (SortProperties sortProperties : sortPropertiesList) {
+            Object o1 = map1 == null ? null : map1.get(sortProperties.name());
+            Object o2 = map2 == null ? null : map2.get(sortProperties.name());
+    
+            if (o1 == null && o2 == null) {
+                continue;
+            }
+            else if (o1 == null) {
+                return sortProperties.sortDir() == SortDir.SORT_ASC ? -1 : 1;
             }
-            else if (sortProperties.sortDir() == SortDir.SORT_DESC) {
-                return -result;
+            else if (o2 == null) {
+                return sortProperties.sortDir() == SortDir.SORT_ASC ? 1 : -1;
             }
-            else {
-                return result;
+            int result = this.getComparator(!sortProperties.caseInsensitive()).compare(o1, o2);
+            if (result != 0) {
+                return sortProperties.sortDir() == SortDir.SORT_DESC ? -result : result;
             }
+            // Identical elements, move onto the next one
         }
+        return 0;
     }
     
     private Map<String, Object> getBins(RecordResult kr) {
@@ -68,7 +88,7 @@ public class RecordComparator implements Comparator<RecordResult>{
     
     @Override
     public int compare(RecordResult o1, RecordResult o2) {
-        return compare(0, getBins(o1), getBins(o2));
+        return compare(getBins(o1), getBins(o2));
     }
 
 }
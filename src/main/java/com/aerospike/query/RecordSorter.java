@@ -0,0 +1,400 @@
+package com.aerospike.query;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.aerospike.CanonicalValueEncoding;
+import com.aerospike.RecordResult;
+
+/**
+ * Sorts an array of records in the same order as {@link RecordComparator}, but extracts the sort
+ * key of each record only once.
+ *
+ * <p>For every sort property the bin value of each record is read into a column. Where every value
+ * of the bin is an integer, a double or a string the column is held as a {@code long[]}, a
+ * {@code double[]} or an array of strings (pre-folded for case-insensitive sorts), so comparisons
+ * do not need bin lookups or type checks. Other bins are held in their {@link CanonicalValueEncoding},
+ * which orders them as {@link com.aerospike.AerospikeComparator} does.
+ * A primitive array of record positions is sorted over the columns with a merge sort, in parallel
+ * for large inputs, and the records are then placed in that order. When sorting by a single integer
+ * bin whose values span a small enough range, each value is instead packed with its position into
+ * a {@code long} and the packed values are sorted directly.</p>
+ *
+ * <p>The columns are kept, so sorting the same records again by the same bins reuses them. The
+ * sort is stable with respect to the order of the records passed to the constructor.</p>
+ */
+public class RecordSorter {
+    /** Inputs of at least this many records are sorted in parallel */
+    static final int PARALLEL_THRESHOLD = 8192;
+    /** Runs shorter than this are insertion sorted by the merge sort */
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private record ColumnKey(String name, boolean caseInsensitive) {}
+
+    private final RecordResult[] records;
+    private final Map<ColumnKey, Column> columns = new HashMap<>();
+
+    /**
+     * @param records the records to sort. This array is not modified.
+     */
+    public RecordSorter(RecordResult[] records) {
+        this.records = records;
+    }
+
+    /**
+     * Sort the records.
+     *
+     * @param sortProperties the sort order, as for {@link RecordComparator}
+     * @return a new array holding the records in sorted order
+     */
+    public RecordResult[] sort(List<SortProperties> sortProperties) {
+        int count = records.length;
+        if (sortProperties == null || sortProperties.isEmpty() || count < 2) {
+            return records.clone();
+        }
+        Column[] sortColumns = new Column[sortProperties.size()];
+        boolean[] descending = new boolean[sortColumns.length];
+        for (int i = 0; i < sortColumns.length; i++) {
+            SortProperties property = sortProperties.get(i);
+            sortColumns[i] = columns.computeIfAbsent(new ColumnKey(property.name(), property.caseInsensitive()),
+                    key -> extract(key.name(), key.caseInsensitive()));
+            descending[i] = property.sortDir() == SortDir.SORT_DESC;
+        }
+
+        int[] positions = sortColumns.length == 1 && sortColumns[0] instanceof LongColumn longs
+                ? longs.packedSort(descending[0])
+                : null;
+        if (positions == null) {
+            PositionOrder order = (a, b) -> {
+                for (int i = 0; i < sortColumns.length; i++) {
+                    int result = sortColumns[i].compare(a, b);
+                    if (result != 0) {
+                        return descending[i] ? -result : result;
+                    }
+                }
+                return 0;
+            };
+            positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = i;
+            }
+            mergeSort(positions, order);
+        }
+
+        RecordResult[] sorted = new RecordResult[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = records[positions[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Orders two record positions.
+     */
+    @FunctionalInterface
+    private interface PositionOrder {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable sort of the positions, in parallel for large inputs.
+     */
+    private static void mergeSort(int[] positions, PositionOrder order) {
+        int[] buffer = positions.clone();
+        if (positions.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new ParallelMergeSort(buffer, positions, 0, positions.length, order));
+        }
+        else {
+            mergeSort(buffer, positions, 0, positions.length, order);
+        }
+    }
+
+    /**
+     * Sort {@code dest[low, high)} using {@code src}, which holds the same values, as the other
+     * buffer. The two arrays swap roles at each level so no copying back is needed.
+     */
+    private static void mergeSort(int[] src, int[] dest, int low, int high, PositionOrder order) {
+        if (high - low < INSERTION_THRESHOLD) {
+            for (int i = low + 1; i < high; i++) {
+                int value = dest[i];
+                int j = i;
+                while (j > low && order.compare(dest[j - 1], value) > 0) {
+                    dest[j] = dest[j - 1];
+                    j--;
+                }
+                dest[j] = value;
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(dest, src, low, mid, order);
+        mergeSort(dest, src, mid, high, order);
+        merge(src, dest, low, mid, high, order);
+    }
+
+    /**
+     * Merge the sorted runs {@code src[low, mid)} and {@code src[mid, high)} into {@code dest},
+     * taking from the first run on ties so the sort is stable.
+     */
+    private static void merge(int[] src, int[] dest, int low, int mid, int high, PositionOrder order) {
+        if (order.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, low, dest, low, high - low);
+            return;
+        }
+        for (int i = low, p = low, q = mid; i < high; i++) {
+            if (q >= high || (p < mid && order.compare(src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            }
+            else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+
+    private static class ParallelMergeSort extends RecursiveAction {
+        private final int[] src;
+        private final int[] dest;
+        private final int low;
+        private final int high;
+        private final PositionOrder order;
+
+        ParallelMergeSort(int[] src, int[] dest, int low, int high, PositionOrder order) {
+            this.src = src;
+            this.dest = dest;
+            this.low = low;
+            this.high = high;
+            this.order = order;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low < PARALLEL_THRESHOLD) {
+                mergeSort(src, dest, low, high, order);
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            invokeAll(new ParallelMergeSort(dest, src, low, mid, order),
+                    new ParallelMergeSort(dest, src, mid, high, order));
+            merge(src, dest, low, mid, high, order);
+        }
+    }
+
+    /**
+     * Read the values of a bin from every record, choosing the most specific column type which
+     * can hold them all.
+     */
+    private Column extract(String name, boolean caseInsensitive) {
+        Object[] values = new Object[records.length];
+        boolean allIntegers = true;
+        boolean allDoubles = true;
+        boolean allStrings = true;
+        for (int i = 0; i < records.length; i++) {
+            RecordResult rec = records[i];
+            Object value = (rec == null || rec.recordOrNull() == null || rec.recordOrNull().bins == null)
+                    ? null
+                    : rec.recordOrNull().bins.get(name);
+            values[i] = value;
+            if (value != null) {
+                allIntegers &= value instanceof Long || value instanceof Integer || value instanceof Short
+                        || value instanceof Byte || value instanceof Character;
+                allDoubles &= value instanceof Double || value instanceof Float;
+                allStrings &= value instanceof String;
+            }
+        }
+        if (allIntegers) {
+            return LongColumn.of(values);
+        }
+        if (allDoubles) {
+            return DoubleColumn.of(values);
+        }
+        if (allStrings) {
+            return StringColumn.of(values, caseInsensitive);
+        }
+        return new EncodedColumn(values, caseInsensitive);
+    }
+
+    /**
+     * The sort keys of one bin, indexed by record position. Missing values sort before all others.
+     */
+    private abstract static class Column {
+        abstract int compare(int a, int b);
+    }
+
+    private static class LongColumn extends Column {
+        private final long[] values;
+        private final boolean[] missing;
+
+        private LongColumn(long[] values, boolean[] missing) {
+            this.values = values;
+            this.missing = missing;
+        }
+
+        static LongColumn of(Object[] objects) {
+            long[] values = new long[objects.length];
+            boolean[] missing = new boolean[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    missing[i] = true;
+                }
+                else if (objects[i] instanceof Character c) {
+                    values[i] = c;
+                }
+                else {
+                    values[i] = ((Number) objects[i]).longValue();
+                }
+            }
+            return new LongColumn(values, missing);
+        }
+
+        @Override
+        int compare(int a, int b) {
+            if (missing[a] || missing[b]) {
+                return Boolean.compare(missing[b], missing[a]);
+            }
+            return Long.compare(values[a], values[b]);
+        }
+
+        /**
+         * Sort the positions by packing each value, offset from the smallest, above its position in
+         * a {@code long}. The position in the low bits keeps equal values in their original order.
+         *
+         * @return the sorted positions, or null if the range of the values is too wide to pack
+         */
+        int[] packedSort(boolean descending) {
+            int count = values.length;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                if (!missing[i]) {
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                }
+            }
+            if (min > max) {
+                // Every value is missing
+                min = max = 0;
+            }
+            int positionBits = 32 - Integer.numberOfLeadingZeros(Math.max(count - 1, 1));
+            long range = max - min;
+            // The keys run from 0 to range + 1, with 0 or range + 1 for missing values, and
+            // must stay positive once shifted
+            if (range < 0 || range >= (1L << (63 - positionBits)) - 1) {
+                return null;
+            }
+            long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                long key;
+                if (missing[i]) {
+                    // Missing values sort first, and so last when descending
+                    key = descending ? range + 1 : 0;
+                }
+                else {
+                    key = descending ? max - values[i] : values[i] - min + 1;
+                }
+                packed[i] = (key << positionBits) | i;
+            }
+            if (count >= PARALLEL_THRESHOLD) {
+                Arrays.parallelSort(packed);
+            }
+            else {
+                Arrays.sort(packed);
+            }
+            long mask = (1L << positionBits) - 1;
+            int[] positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = (int) (packed[i] & mask);
+            }
+            return positions;
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private final double[] values;
+        private final boolean[] missing;
+
+        private DoubleColumn(double[] values, boolean[] missing) {
+            this.values = values;
+            this.missing = missing;
+        }
+
+        static DoubleColumn of(Object[] objects) {
+            double[] values = new double[objects.length];
+            boolean[] missing = new boolean[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    missing[i] = true;
+                }
+                else {
+                    values[i] = ((Number) objects[i]).doubleValue();
+                }
+            }
+            return new DoubleColumn(values, missing);
+        }
+
+        @Override
+        int compare(int a, int b) {
+            if (missing[a] || missing[b]) {
+                return Boolean.compare(missing[b], missing[a]);
+            }
+            return Double.compare(values[a], values[b]);
+        }
+    }
+
+    private static class StringColumn extends Column {
+        private final String[] keys;
+
+        private StringColumn(String[] keys) {
+            this.keys = keys;
+        }
+
+        static StringColumn of(Object[] objects, boolean caseInsensitive) {
+            String[] keys = new String[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                String value = (String) objects[i];
+                keys[i] = (value != null && caseInsensitive) ? CanonicalValueEncoding.foldCase(value) : value;
+            }
+            return new StringColumn(keys);
+        }
+
+        @Override
+        int compare(int a, int b) {
+            String s1 = keys[a];
+            String s2 = keys[b];
+            if (s1 == null || s2 == null) {
+                return Boolean.compare(s2 == null, s1 == null);
+            }
+            return s1.compareTo(s2);
+        }
+    }
+
+    /**
+     * Values of mixed types, lists and maps, held in their canonical encoding so each comparison
+     * is a comparison of bytes.
+     */
+    private static class EncodedColumn extends Column {
+        private final byte[][] keys;
+
+        EncodedColumn(Object[] values, boolean caseInsensitive) {
+            this.keys = new byte[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    keys[i] = CanonicalValueEncoding.encode(values[i], !caseInsensitive);
+                }
+            }
+        }
+
+        @Override
+        int compare(int a, int b) {
+            byte[] k1 = keys[a];
+            byte[] k2 = keys[b];
+            if (k1 == null || k2 == null) {
+                return Boolean.compare(k2 == null, k1 == null);
+            }
+            return CanonicalValueEncoding.compare(k1, k2);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.aerospike.query;
 
 import java.util.Iterator;
 
+import com.aerospike.QueryCursor;
 import com.aerospike.RecordResult;
 
 /**
@@ -29,4 +30,14 @@ public interface RecordStreamImpl extends Iterator<RecordResult>{
     boolean hasNext();
     RecordResult next();
     void close();
+    
+    /**
+     * Capture the position of the stream so the query can be resumed later. Only chunked
+     * dataset queries support cursors.
+     * 
+     * @throws IllegalStateException if this stream does not support cursors
+     */
+    default QueryCursor cursor() {
+        throw new IllegalStateException("Cursors are only available for single shard dataset queries");
+    }
 }
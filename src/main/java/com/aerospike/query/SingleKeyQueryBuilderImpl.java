@@ -1,5 +1,8 @@
 package com.aerospike.query;
 
+import com.aerospike.ClientMetrics;
+import com.aerospike.ReadCoalescer;
+import com.aerospike.RecordCache;
 import com.aerospike.RecordResult;
 import com.aerospike.RecordStream;
 import com.aerospike.Session;
@@ -8,11 +11,13 @@ import com.aerospike.client.Key;
 import com.aerospike.client.Log;
 import com.aerospike.client.Record;
 import com.aerospike.client.ResultCode;
+import com.aerospike.client.Txn;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.exception.AeroException;
 import com.aerospike.policy.Behavior.Mode;
 import com.aerospike.policy.Behavior.OpKind;
 import com.aerospike.policy.Behavior.OpShape;
+import com.aerospike.policy.Settings;
 
 class SingleKeyQueryBuilderImpl extends QueryImpl {
     private final Key key;
@@ -55,33 +60,78 @@ class SingleKeyQueryBuilderImpl extends QueryImpl {
         return executeInternal();
     }
     
+    /**
+     * Read the record from the server, adding it to the cache if there is one.
+     */
+    private Record readFromServer(Policy policy, RecordCache cache, long cacheStamp) {
+        QueryBuilder qb = getQueryBuilder();
+        if (qb.getWithNoBins()) {
+            return getSession().getClient().getHeader(policy, key);
+        }
+        Record record = getSession().getClient().get(policy, key, qb.getBinNames());
+        if (cache != null) {
+            cache.put(key, qb.getBinNames(), record, cacheStamp);
+        }
+        return record;
+    }
+    
     private RecordStream executeInternal() {
     	Session session = getSession();
+        ClientMetrics metrics = session.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         boolean isNamespaceSC = session.isNamespaceSC(this.key.namespace);
     	QueryBuilder qb = getQueryBuilder();
         boolean failOnFilteredOut = qb.isFailOnFilteredOut();
 
-        Policy policy = getSession().getBehavior().getSettings(OpKind.READ, OpShape.POINT, isNamespaceSC ? Mode.CP : Mode.AP).asReadPolicy();
-        policy.txn = qb.getTxnToUse();
-        policy.failOnFilteredOut = failOnFilteredOut;
+        Settings settings = getSession().getBehavior().getSettings(OpKind.READ, OpShape.POINT, isNamespaceSC ? Mode.CP : Mode.AP);
+        Txn txn = qb.getTxnToUse();
+        Policy policy;
+        if (txn == null && !failOnFilteredOut) {
+            // Nothing to set per call, so the shared policy can be used as is
+            policy = settings.getSharedReadPolicy();
+        }
+        else {
+            policy = settings.asReadPolicy();
+            policy.txn = txn;
+            policy.failOnFilteredOut = failOnFilteredOut;
+        }
         if (!qb.isKeyInPartitionRange(key)) {
             if (qb.isRespondAllKeys()) {
                 return new RecordStream(key, null);
             }
             return new RecordStream();
         }
+        RecordCache cache = getRecordCache();
+        long cacheStamp = 0;
+        if (cache != null) {
+            Record cached = cache.get(key, qb.getBinNames(), qb.getWithNoBins());
+            if (cached != null) {
+                if (metrics != null) {
+                    metrics.record(OpKind.READ, OpShape.POINT, key.namespace, ResultCode.OK, System.nanoTime() - start, 0);
+                }
+                return new RecordStream(key, cached);
+            }
+            cacheStamp = cache.stamp();
+        }
+        long serverStart = metrics == null ? 0 : System.nanoTime();
         try {
             Record record;
-            if (qb.getWithNoBins()) {
-                record = session.getClient().getHeader(policy, key);
-                //return new RecordStream(key, getSession().getClient().getHeader(policy, key), this.getQueryBuilder().isRespondAllKeys());
+            ReadCoalescer coalescer = getReadCoalescer();
+            if (coalescer != null) {
+                // Identical concurrent reads share a single call to the server. Only the read which
+                // made the call adds the record to the cache, as the call may predate a waiter's stamp
+                Policy readPolicy = policy;
+                long leaderStamp = cacheStamp;
+                record = coalescer.read(ReadCoalescer.ReadKey.of(key, qb.getBinNames(), qb.getWithNoBins(), policy),
+                        () -> ReadCoalescer.Result.of(readFromServer(readPolicy, cache, leaderStamp))).recordOrThrow();
             }
             else {
-                record = session.getClient().get(policy, key, qb.getBinNames());
-//                return new RecordStream(key, 
-//                        getSession().getClient().get(policy, key, getQueryBuilder().getBinNames()),
-//                        this.getQueryBuilder().isRespondAllKeys()
-//                    );
+                record = readFromServer(policy, cache, cacheStamp);
+            }
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.record(OpKind.READ, OpShape.POINT, key.namespace,
+                        record == null ? ResultCode.KEY_NOT_FOUND_ERROR : ResultCode.OK, end - start, end - serverStart);
             }
             if (record != null || qb.isRespondAllKeys()) {
 	        	return new RecordStream(key, record);
@@ -89,6 +139,10 @@ class SingleKeyQueryBuilderImpl extends QueryImpl {
 			return new RecordStream();
         }
         catch (AerospikeException ae) {
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.record(OpKind.READ, OpShape.POINT, key.namespace, ae.getResultCode(), end - start, end - serverStart);
+            }
             if (Log.warnEnabled() && ae.getResultCode() == ResultCode.UNSUPPORTED_FEATURE) {
                 if (this.getQueryBuilder().getTxnToUse() != null && !getSession().isNamespaceSC(key.namespace)) {
                     Log.warn(String.format("Namespace '%s' is involved in transaction, but it is not an SC namespace. "
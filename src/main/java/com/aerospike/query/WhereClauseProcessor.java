@@ -3,11 +3,14 @@ package com.aerospike.query;
 import java.util.Collection;
 import java.util.Set;
 
+import com.aerospike.ClientMetrics;
+import com.aerospike.Cluster;
 import com.aerospike.Session;
 import com.aerospike.client.Log;
 import com.aerospike.client.Value;
 import com.aerospike.client.command.ParticleType;
 import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
 import com.aerospike.client.query.Filter;
 import com.aerospike.dsl.DslParseException;
 import com.aerospike.dsl.ExpressionContext;
@@ -30,6 +33,25 @@ public abstract class WhereClauseProcessor {
     
     public abstract ParseResult process(String namespace, Session session);
     
+    /**
+     * Process the where clause, returning both the parse result and the expression built from it.
+     * The two are always consistent with each other, which matters when the parse has selected a
+     * secondary index filter and removed that part of the predicate from the expression.
+     */
+    public DslCache.Entry processWithExpression(String namespace, Session session) {
+        ParseResult result = process(namespace, session);
+        return new DslCache.Entry(result, result.getExp() == null ? null : Exp.build(result.getExp()));
+    }
+    
+    /**
+     * Process the where clause and build the filter expression from it.
+     * 
+     * @return the built expression, or null if the where clause only resulted in a secondary index filter
+     */
+    public Expression processExpression(String namespace, Session session) {
+        return processWithExpression(namespace, session).expression();
+    }
+    
     
     public WhereClauseProcessor(boolean allowsIndex) {
         this.allowsIndex = allowsIndex;
@@ -80,6 +102,27 @@ public abstract class WhereClauseProcessor {
     }
 
     public ParseResult process(String dsl, String namespace, Session session) {
+        return lookup(dsl, namespace, session).parseResult();
+    }
+    
+    /**
+     * Find the parsed form of the DSL in the cluster's {@link DslCache}, parsing it on a miss. If the
+     * index context is used the entry is tied to the current index catalog version, so a change in
+     * the cluster's indexes forces a re-parse.
+     */
+    protected DslCache.Entry lookup(String dsl, String namespace, Session session) {
+        Cluster cluster = session.getCluster();
+        if (allowsIndex) {
+            return cluster.getDslCache().get(dsl, namespace, cluster.getIndexesVersion(),
+                    () -> parse(dsl, namespace, session));
+        }
+        return cluster.getDslCache().get(dsl, null, DslCache.NO_INDEX_CONTEXT,
+                () -> parse(dsl, namespace, session));
+    }
+
+    protected ParseResult parse(String dsl, String namespace, Session session) {
+        ClientMetrics metrics = session.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         DSLParser parser = new DSLParserImpl();
         
         ParsedExpression parseResult;
@@ -94,6 +137,9 @@ public abstract class WhereClauseProcessor {
             parseResult = parser.parseExpression(context);
         }
         ParseResult result = parseResult.getResult();
+        if (metrics != null) {
+            metrics.recordDslParse(System.nanoTime() - start);
+        }
         if (result.getExp() == null && result.getFilter() == null) {
             throw new DslParseException("Unknown error parsing DSL: '" + dsl + "'");
         }
@@ -128,7 +174,12 @@ public abstract class WhereClauseProcessor {
         
         @Override
         public ParseResult process(String namespace, Session session) {
-            return process(this.dsl, namespace, session);
+            return lookup(this.dsl, namespace, session).parseResult();
+        }
+        
+        @Override
+        public DslCache.Entry processWithExpression(String namespace, Session session) {
+            return lookup(this.dsl, namespace, session);
         }
     }
     
@@ -143,9 +194,18 @@ public abstract class WhereClauseProcessor {
         
         @Override
         public ParseResult process(String namespace, Session session) {
-            // TODO: For now, until DSL supports prepared statements
-            String dslStr = dsl.formValue(params);
-            return process(dslStr, namespace,  session);
+            return processWithExpression(namespace, session).parseResult();
+        }
+
+        @Override
+        public DslCache.Entry processWithExpression(String namespace, Session session) {
+            // The bound statements are not put in the DslCache as every set of parameters
+            // would create a new entry. The prepared statement caches its own bound forms instead.
+            if (allowsIndex) {
+                return dsl.bind(params, namespace, session.getCluster().getIndexesVersion(),
+                        text -> parse(text, namespace, session));
+            }
+            return dsl.bind(params, null, DslCache.NO_INDEX_CONTEXT, text -> parse(text, namespace, session));
         }
     }
     
@@ -160,6 +220,12 @@ public abstract class WhereClauseProcessor {
         public ParseResult process(String namespace, Session session) {
             return new ParseResult(null, dsl.toAerospikeExp());
         }
+        
+        @Override
+        public DslCache.Entry processWithExpression(String namespace, Session session) {
+            // The expression tree memoizes both forms, so repeated use does not rebuild or re-pack it
+            return new DslCache.Entry(process(namespace, session), dsl.toAerospikeExpression());
+        }
     }
     
     private static class WhereExpImpl extends WhereClauseProcessor {
@@ -0,0 +1,101 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Tests for ArrayRecordStream: limits, filtering, random access and lazy conversion.
+ */
+class ArrayRecordStreamTest {
+
+    private List<BatchRecord> createBatchRecords(int count) {
+        List<BatchRecord> batchRecords = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Key key = new Key("test", "set", i);
+            // Every third record is missing
+            if (i % 3 == 0) {
+                batchRecords.add(new BatchRecord(key, null, ResultCode.KEY_NOT_FOUND_ERROR, false, false));
+            }
+            else {
+                batchRecords.add(new BatchRecord(key, new Record(null, 1, 0), false));
+            }
+        }
+        return batchRecords;
+    }
+
+    @Test
+    @DisplayName("List of results respects limit and supports random access")
+    void testResultListWithLimit() {
+        List<RecordResult> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(new RecordResult(new Key("test", "set", i), new Record(null, 0, 0), i));
+        }
+        ArrayRecordStream stream = ArrayRecordStream.of(results, 4);
+        assertEquals(4, stream.size());
+        assertSame(results.get(3), stream.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> stream.get(4));
+
+        int count = 0;
+        while (stream.hasNext()) {
+            assertSame(results.get(count), stream.next());
+            count++;
+        }
+        assertEquals(4, count);
+        assertThrows(NoSuchElementException.class, stream::next);
+    }
+
+    @Test
+    @DisplayName("Filtered batch records keep their original index")
+    void testFilteredBatchRecords() {
+        List<BatchRecord> batchRecords = createBatchRecords(9);
+        ArrayRecordStream stream = ArrayRecordStream.of(
+                batchRecords,
+                i -> batchRecords.get(i).resultCode == ResultCode.OK,
+                (br, i) -> new RecordResult(br, i),
+                0);
+        assertEquals(6, stream.size());
+
+        List<Integer> indexes = new ArrayList<>();
+        RecordStream recordStream = new RecordStream(stream);
+        recordStream.forEach(result -> indexes.add(result.index()));
+        assertEquals(List.of(1, 2, 4, 5, 7, 8), indexes);
+    }
+
+    @Test
+    @DisplayName("Batch records are only converted when read")
+    void testLazyConversion() {
+        List<BatchRecord> batchRecords = createBatchRecords(100);
+        AtomicInteger conversions = new AtomicInteger();
+        ArrayRecordStream stream = ArrayRecordStream.of(
+                batchRecords,
+                null,
+                (br, i) -> {
+                    conversions.incrementAndGet();
+                    return new RecordResult(br, i);
+                },
+                10);
+        assertEquals(10, stream.size());
+        assertEquals(0, conversions.get());
+
+        stream.next();
+        stream.next();
+        assertEquals(2, conversions.get());
+        assertEquals(8, stream.remaining());
+
+        stream.close();
+        assertFalse(stream.hasNext());
+        assertEquals(2, conversions.get());
+    }
+}
@@ -398,6 +398,31 @@ class AsyncRecordStreamTest {
 
             assertTrue(stream.cancelled().getAsBoolean());
         }
+
+        @Test
+        @Timeout(value = 2, unit = TimeUnit.SECONDS)
+        @DisplayName("The close action runs once, whether registered before or after close")
+        void testOnClose() {
+            AtomicInteger runs = new AtomicInteger();
+            AsyncRecordStream stream = new AsyncRecordStream(10);
+            stream.onClose(runs::incrementAndGet);
+            assertThrows(IllegalStateException.class, () -> stream.onClose(runs::incrementAndGet));
+            assertEquals(0, runs.get());
+            stream.close();
+            stream.close();
+            assertEquals(1, runs.get());
+
+            AsyncRecordStream closed = new AsyncRecordStream(10);
+            closed.close();
+            closed.onClose(runs::incrementAndGet);
+            assertEquals(2, runs.get());
+
+            // Completion is not a close: producers finish on their own
+            AsyncRecordStream completed = new AsyncRecordStream(10);
+            completed.onClose(runs::incrementAndGet);
+            completed.complete();
+            assertEquals(2, runs.get());
+        }
     }
 
     @Nested
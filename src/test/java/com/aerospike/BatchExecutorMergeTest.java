@@ -0,0 +1,124 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+
+/**
+ * Tests for the merging of consecutive writes to the same keys in BatchExecutor.
+ */
+class BatchExecutorMergeTest {
+    private static final Key KEY1 = new Key("test", "set", 1);
+    private static final Key KEY2 = new Key("test", "set", 2);
+
+    private static OperationSpec spec(OpType opType, Key... keys) {
+        OperationSpec spec = new OperationSpec(List.of(keys), opType);
+        spec.operations.add(Operation.put(new Bin("count", 1)));
+        return spec;
+    }
+
+    /**
+     * Create the records for specs as BatchExecutor does, with the keys of a spec sharing its operations.
+     */
+    private static List<BatchRecord> records(List<OperationSpec> specs) {
+        List<BatchRecord> records = new ArrayList<>();
+        for (OperationSpec spec : specs) {
+            Operation[] ops = spec.operations.toArray(new Operation[0]);
+            for (Key key : spec.keys) {
+                records.add(new BatchWrite(key, ops));
+            }
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("Only writes whose combined outcome matches applying them in turn are merged")
+    void testCanMerge() {
+        assertTrue(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(OpType.UPSERT, KEY1), null));
+        assertTrue(BatchExecutor.canMerge(spec(OpType.REPLACE, KEY1), spec(OpType.UPDATE, KEY1), null));
+        assertTrue(BatchExecutor.canMerge(spec(OpType.UPDATE, KEY1), spec(OpType.UPDATE, KEY1), null));
+
+        // A failed insert or update would not stop the second write on its own
+        assertFalse(BatchExecutor.canMerge(spec(OpType.INSERT, KEY1), spec(OpType.UPSERT, KEY1), null));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPDATE, KEY1), spec(OpType.UPSERT, KEY1), null));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(OpType.INSERT, KEY1), null));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(OpType.DELETE, KEY1), null));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(null, KEY1), null));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(OpType.UPSERT, KEY2), null));
+
+        OperationSpec withGeneration = spec(OpType.UPSERT, KEY1);
+        withGeneration.generation = 3;
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), withGeneration, null));
+        OperationSpec withTtl = spec(OpType.UPSERT, KEY1);
+        withTtl.expirationInSeconds = 60;
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), withTtl, null));
+        Expression filter = Exp.build(Exp.eq(Exp.intBin("count"), Exp.val(1)));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), spec(OpType.UPSERT, KEY1), filter));
+    }
+
+    @Test
+    @DisplayName("Writes with operations which return results or can fail on their own are not merged")
+    void testOnlyPutsMerged() {
+        OperationSpec increment = spec(OpType.UPSERT, KEY1);
+        increment.operations.add(Operation.add(new Bin("count", 1)));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), increment, null));
+        assertFalse(BatchExecutor.canMerge(increment, spec(OpType.UPSERT, KEY1), null));
+
+        OperationSpec append = spec(OpType.UPSERT, KEY1);
+        append.operations.add(ListOperation.append("items", Value.get(1)));
+        assertFalse(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), append, null));
+
+        OperationSpec deleteBin = spec(OpType.UPDATE, KEY1);
+        deleteBin.operations.add(Operation.put(Bin.asNull("name")));
+        assertTrue(BatchExecutor.canMerge(spec(OpType.UPSERT, KEY1), deleteBin, null));
+    }
+
+    @Test
+    @DisplayName("Consecutive writes to the same keys are sent as one record per key with all the operations")
+    void testMergeAndCopyResults() {
+        List<OperationSpec> specs = List.of(
+                spec(OpType.UPSERT, KEY1, KEY2),
+                spec(OpType.UPDATE, KEY1, KEY2),
+                spec(OpType.UPDATE, KEY1, KEY2),
+                spec(OpType.INSERT, KEY1));
+        List<BatchRecord> records = records(specs);
+        int[] sentIndex = new int[records.size()];
+        List<BatchRecord> sent = BatchExecutor.mergeConsecutiveWrites(records, specs, null, sentIndex);
+
+        assertEquals(3, sent.size());
+        assertArrayEquals(new int[] {0, 1, 0, 1, 0, 1, 2}, sentIndex);
+        BatchWrite merged = (BatchWrite) sent.get(0);
+        assertEquals(KEY1, merged.key);
+        assertEquals(3, merged.ops.length);
+        // The keys of the merged specs still share their operations
+        assertSame(merged.ops, ((BatchWrite) sent.get(1)).ops);
+        assertSame(records.get(6), sent.get(2));
+
+        for (BatchRecord record : sent) {
+            record.resultCode = ResultCode.OK;
+            record.record = new Record(Map.of("count", 3L), 1, 0);
+        }
+        BatchExecutor.copyMergedResults(sent, records, sentIndex);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(ResultCode.OK, records.get(i).resultCode);
+            assertSame(sent.get(sentIndex[i]).record, records.get(i).record);
+        }
+    }
+}
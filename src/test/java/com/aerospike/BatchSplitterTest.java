@@ -0,0 +1,182 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.policy.Behavior;
+import com.aerospike.policy.Behavior.Mode;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+import com.aerospike.policy.Behavior.Selectors;
+import com.aerospike.policy.Settings;
+
+/**
+ * Tests for BatchSplitter: sub-batch boundaries and bounded concurrent execution.
+ */
+class BatchSplitterTest {
+
+    private static Settings writeSettings(int maxRecords, long maxBytes, int inFlight) {
+        Behavior behavior = Behavior.DEFAULT.deriveWithChanges("test", builder -> builder
+                .on(Selectors.writes().batch(), ops -> ops
+                        .maxRecordsPerBatch(maxRecords)
+                        .maxBytesPerBatch(maxBytes)
+                        .maxBatchesInFlight(inFlight)
+                )
+        );
+        return behavior.getSettings(OpKind.WRITE_RETRYABLE, OpShape.BATCH, Mode.AP);
+    }
+
+    private static List<BatchRecord> createWrites(int count, int valueSize) {
+        List<BatchRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new BatchWrite(new Key("test", "set", i),
+                    new Operation[] { Operation.put(new Bin("data", new byte[valueSize])) }));
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("Batches within the limits are not split")
+    void testNoSplit() {
+        assertArrayEquals(new int[] {0, 100}, BatchSplitter.boundaries(createWrites(100, 10), writeSettings(100, 0, 2)));
+        assertArrayEquals(new int[] {0, 100}, BatchSplitter.boundaries(createWrites(100, 10), writeSettings(0, 0, 2)));
+    }
+
+    @Test
+    @DisplayName("Batches are split by record count")
+    void testSplitByCount() {
+        assertArrayEquals(new int[] {0, 40, 80, 100}, BatchSplitter.boundaries(createWrites(100, 10), writeSettings(40, 0, 2)));
+    }
+
+    @Test
+    @DisplayName("Batches are split by estimated size, with at least one record per sub-batch")
+    void testSplitByBytes() {
+        List<BatchRecord> records = createWrites(10, 1000);
+        long recordSize = BatchSplitter.estimateSize(records.get(0));
+        int[] boundaries = BatchSplitter.boundaries(records, writeSettings(0, recordSize * 3, 2));
+        assertArrayEquals(new int[] {0, 3, 6, 9, 10}, boundaries);
+
+        // A single record larger than the limit still forms its own sub-batch
+        assertEquals(11, BatchSplitter.boundaries(records, writeSettings(0, 1, 2)).length);
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Sub-batches populate the original records with bounded concurrency")
+    void testOperateBoundsInFlight() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("operate") && args.length == 2 && args[1] instanceof List<?> list) {
+                        calls.incrementAndGet();
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(10);
+                        for (Object record : list) {
+                            ((BatchRecord) record).resultCode = ResultCode.OK;
+                        }
+                        running.decrementAndGet();
+                        return true;
+                    }
+                    return null;
+                });
+
+        List<BatchRecord> records = createWrites(95, 10);
+        for (BatchRecord record : records) {
+            record.resultCode = ResultCode.NO_RESPONSE;
+        }
+        BatchSplitter.operate(client, new BatchPolicy(), records, writeSettings(10, 0, 3));
+
+        assertEquals(10, calls.get());
+        assertTrue(peak.get() <= 3, "Peak concurrency was " + peak.get());
+        assertTrue(records.stream().allMatch(record -> record.resultCode == ResultCode.OK));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A failing sub-batch is rethrown to the caller")
+    void testOperatePropagatesFailure() {
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    throw new AerospikeException(ResultCode.TIMEOUT);
+                });
+        AerospikeException ae = assertThrows(AerospikeException.class,
+                () -> BatchSplitter.operate(client, new BatchPolicy(), createWrites(50, 10), writeSettings(10, 0, 2)));
+        assertEquals(ResultCode.TIMEOUT, ae.getResultCode());
+    }
+
+    @Test
+    @DisplayName("Batches are not split unless a limit is set")
+    void testDefaultNoSplit() {
+        Settings settings = Behavior.DEFAULT.getSettings(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, Mode.AP);
+        assertEquals(0, settings.getMaxRecordsPerBatch());
+        assertArrayEquals(new int[] {0, 20_000}, BatchSplitter.boundaries(createWrites(20_000, 1), settings));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A pipelined batch starts full sub-batches while it is still being built")
+    void testPipeline() {
+        List<Integer> sizes = new ArrayList<>();
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("operate") && args.length == 2 && args[1] instanceof List<?> list) {
+                        synchronized (sizes) {
+                            sizes.add(list.size());
+                            sizes.notifyAll();
+                        }
+                        return true;
+                    }
+                    return null;
+                });
+
+        BatchSplitter.Pipeline pipeline = BatchSplitter.pipeline(client, new BatchPolicy(), writeSettings(10, 0, 2));
+        List<BatchRecord> records = createWrites(25, 10);
+        for (int i = 0; i < 21; i++) {
+            pipeline.add(records.get(i));
+        }
+        // The record which did not fit started the first two sub-batches
+        synchronized (sizes) {
+            while (sizes.size() < 2) {
+                assertDoesNotThrow(() -> sizes.wait());
+            }
+        }
+        for (int i = 21; i < 25; i++) {
+            pipeline.add(records.get(i));
+        }
+        pipeline.await();
+        assertEquals(List.of(10, 10, 5), sizes);
+
+        // A batch which never fills a sub-batch is sent as one call on the caller's thread
+        sizes.clear();
+        BatchSplitter.Pipeline small = BatchSplitter.pipeline(client, new BatchPolicy(), writeSettings(10, 0, 2));
+        records.subList(0, 7).forEach(small::add);
+        small.await();
+        assertEquals(List.of(7), sizes);
+    }
+}
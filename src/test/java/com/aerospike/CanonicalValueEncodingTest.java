@@ -0,0 +1,154 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for CanonicalValueEncoding: the byte order of encoded values must be the server's CDT order.
+ */
+class CanonicalValueEncodingTest {
+
+    private static int compare(Object o1, Object o2) {
+        return Integer.signum(CanonicalValueEncoding.compare(
+                CanonicalValueEncoding.encode(o1, true), CanonicalValueEncoding.encode(o2, true)));
+    }
+
+    /** Check each value sorts before all the values after it */
+    private static void assertAscending(Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(0, compare(values[i], values[i]), "Value " + i + " must equal itself");
+            for (int j = i + 1; j < values.length; j++) {
+                assertEquals(-1, compare(values[i], values[j]), "Value " + i + " must be before value " + j);
+                assertEquals(1, compare(values[j], values[i]), "Value " + j + " must be after value " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Values are ordered by type, then by value")
+    void testTypeOrder() {
+        assertAscending(null, false, true, Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE, "", "a",
+                List.of(), Map.of(), new byte[0], Double.NEGATIVE_INFINITY, 0.0, Double.NaN);
+    }
+
+    @Test
+    @DisplayName("Numbers are ordered numerically whatever their boxed type")
+    void testNumbers() {
+        assertEquals(0, compare(5, 5L));
+        assertEquals(0, compare((short) 5, (byte) 5));
+        assertEquals(0, compare(1.5f, 1.5));
+        assertAscending(-Double.MAX_VALUE, -1.0, -Double.MIN_VALUE, -0.0, 0.0, Double.MIN_VALUE, 1.0, Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    @DisplayName("Strings and bytes are ordered as compareTo and unsigned bytes, shorter prefixes first")
+    void testStringsAndBytes() {
+        assertAscending("", "\0", "\0\0", "\0a", "a", "a\0", "ab", "b", "\u00e9", "\uffff");
+        assertAscending(new byte[0], new byte[] {0}, new byte[] {0, 0}, new byte[] {1}, new byte[] {(byte) 0x80}, new byte[] {(byte) 0xff});
+    }
+
+    @Test
+    @DisplayName("Case-insensitive encoding matches compareToIgnoreCase")
+    void testCaseInsensitive() {
+        byte[] upper = CanonicalValueEncoding.encode(List.of("ABC"), false);
+        byte[] lower = CanonicalValueEncoding.encode(List.of("abc"), false);
+        assertArrayEquals(upper, lower);
+    }
+
+    @Test
+    @DisplayName("Lists are ordered element-wise and maps by size, then by keys, then by values in key order")
+    void testCollections() {
+        assertAscending(List.of(), List.of(1L), List.of(1L, 1L), List.of(1L, 2L), List.of(2L), List.of("a"));
+        assertAscending(Map.of("z", 1L), Map.of("a", 1L, "b", 2L), Map.of("a", 1L, "b", 3L), Map.of("a", 2L, "b", 0L));
+        // All the keys are compared before any value
+        assertAscending(Map.of(1L, 9L, 2L, 0L), Map.of(1L, 0L, 3L, 0L));
+        assertEquals(-1, Integer.signum(new AerospikeComparator().compare(Map.of(1L, 9L, 2L, 0L), Map.of(1L, 0L, 3L, 0L))));
+
+        // Key order, not iteration order, determines the encoding
+        Map<Object, Object> m1 = new LinkedHashMap<>();
+        m1.put("a", 1L);
+        m1.put("b", 2L);
+        Map<Object, Object> m2 = new LinkedHashMap<>();
+        m2.put("b", 2L);
+        m2.put("a", 1L);
+        assertArrayEquals(CanonicalValueEncoding.encode(m1, true), CanonicalValueEncoding.encode(m2, true));
+    }
+
+    @Test
+    @DisplayName("AerospikeComparator agrees with the encoding for nested values")
+    void testComparatorAgrees() {
+        Random random = new Random(7);
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add(randomValue(random, 2));
+        }
+        AerospikeComparator comparator = new AerospikeComparator();
+        for (Object v1 : values) {
+            for (Object v2 : values) {
+                assertEquals(compare(v1, v2), Integer.signum(comparator.compare(v1, v2)), v1 + " vs " + v2);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A comparator which keeps map encodings agrees with one which does not")
+    void testMapCacheAgrees() {
+        Random random = new Random(11);
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add(randomValue(random, 2));
+        }
+        AerospikeComparator comparator = new AerospikeComparator(false);
+        // A small cache, so it is emptied and refilled many times
+        AerospikeComparator caching = AerospikeComparator.withMapCache(false, 10);
+        for (Object v1 : values) {
+            for (Object v2 : values) {
+                assertEquals(Integer.signum(comparator.compare(v1, v2)), Integer.signum(caching.compare(v1, v2)), v1 + " vs " + v2);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> AerospikeComparator.withMapCache(true, 0));
+    }
+
+    @Test
+    @DisplayName("AerospikeMap orders list keys")
+    void testAerospikeMapListKeys() {
+        AerospikeMap map = new AerospikeMap();
+        map.put(List.of(2L), "c");
+        map.put(List.of(1L, 5L), "b");
+        map.put(List.of(1L), "a");
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(map.values()));
+        assertEquals("b", map.get(List.of(1L, 5L)));
+    }
+
+    private static Object randomValue(Random random, int depth) {
+        switch (random.nextInt(depth > 0 ? 7 : 5)) {
+        case 0: return random.nextBoolean();
+        case 1: return (long) random.nextInt(4) - 2;
+        case 2: return random.nextInt(3) / 2.0;
+        case 3: return "s" + random.nextInt(3);
+        case 4: return new byte[] {(byte) (random.nextInt(3) * 100)};
+        case 5: {
+            List<Object> list = new ArrayList<>();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                list.add(randomValue(random, depth - 1));
+            }
+            return list;
+        }
+        default: {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                map.put("k" + random.nextInt(3), randomValue(random, depth - 1));
+            }
+            return map;
+        }
+        }
+    }
+}
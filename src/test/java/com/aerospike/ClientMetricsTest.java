@@ -0,0 +1,192 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.policy.Behavior;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+
+/**
+ * Tests for ClientMetrics and LatencyHistogram: bucket precision, percentiles, grouping by
+ * operation and the asynchronous stream gauges.
+ */
+class ClientMetricsTest {
+
+    @Test
+    @DisplayName("Every value falls in a bucket whose bounds are within 12.5% of it")
+    void testBucketPrecision() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueIn(bucket);
+            assertTrue(highest >= value, "Bucket of " + value + " ends at " + highest);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueIn(bucket - 1) < value,
+                    "Value " + value + " belongs in an earlier bucket");
+            assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, "Bucket of " + value + " is too wide");
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles, mean and maximum are read from a snapshot")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getPercentileNanos(99));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500_500.0, snapshot.getMeanNanos());
+        assertEquals(1_000_000, snapshot.getMaxNanos());
+        long p50 = snapshot.getPercentileNanos(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8, "p50 was " + p50);
+        assertEquals(1_000_000, snapshot.getPercentileNanos(100));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentileNanos(101));
+    }
+
+    @Test
+    @DisplayName("Operations are grouped by kind, shape and namespace and split into server and client time")
+    void testRecordOperations() {
+        ClientMetrics metrics = new ClientMetrics();
+        metrics.record(OpKind.READ, OpShape.POINT, "test", ResultCode.OK, 1000, 800);
+        metrics.record(OpKind.READ, OpShape.POINT, "test", ResultCode.KEY_NOT_FOUND_ERROR, 3000, 2000);
+        metrics.record(OpKind.READ, OpShape.BATCH, "test", ResultCode.TIMEOUT, 5000, 5000);
+
+        ClientMetrics.OpSnapshot point = metrics.snapshot(OpKind.READ, OpShape.POINT, "test");
+        assertEquals(2, point.getCount());
+        assertEquals(1L, point.resultCodes().get(ResultCode.OK));
+        assertEquals(1L, point.resultCodes().get(ResultCode.KEY_NOT_FOUND_ERROR));
+        assertEquals(2800, point.server().getTotalNanos());
+        assertEquals(1200, point.clientOverhead().getTotalNanos());
+        assertNull(metrics.snapshot(OpKind.READ, OpShape.POINT, "other"));
+        assertEquals(2, metrics.snapshot().operations().size());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("No count is lost when many threads record the same latencies at once")
+    void testConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            recorders.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(1000 + i % 4);
+                }
+            }));
+        }
+        recorders.forEach(Thread::start);
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals((long) threads * perThread * 2003 / 2, snapshot.getTotalNanos());
+        assertEquals(1003, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    @DisplayName("Single key writes are split into server and client time, and batch write results are timed as they are converted")
+    void testWriteTiming() {
+        Cluster cluster = LoopbackAerospikeClient.builder().build().createCluster();
+        cluster.enableMetrics();
+        Session session = cluster.createSession(Behavior.DEFAULT);
+        Key key1 = new Key("test", "set", 1);
+        Key key2 = new Key("test", "set", 2);
+
+        session.upsert(key1).bins("name").values("Tim").execute();
+        ClientMetrics.OpSnapshot point = cluster.getMetrics().snapshot().operations().entrySet().stream()
+                .filter(entry -> entry.getKey().shape() == OpShape.POINT)
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, point.getCount());
+        assertTrue(point.clientOverhead().getTotalNanos() > 0);
+        assertEquals(point.total().getTotalNanos(), point.server().getTotalNanos() + point.clientOverhead().getTotalNanos());
+
+        RecordStream results = session.upsert(key1).bin("name").setTo("Tom")
+                .upsert(key2).bin("name").setTo("Ann")
+                .execute();
+        ClientMetrics.OpSnapshot batch = cluster.getMetrics().snapshot(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, "test");
+        assertEquals(1, batch.getCount());
+        assertEquals(0, batch.resultConversion().getCount());
+        while (results.hasNext()) {
+            results.next();
+        }
+        batch = cluster.getMetrics().snapshot(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, "test");
+        assertEquals(2, batch.resultConversion().getCount());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Streamed batch reads and async batch writes are recorded when they complete")
+    void testStreamedBatchTiming() {
+        Cluster cluster = LoopbackAerospikeClient.builder().nodes(3).build().createCluster();
+        cluster.enableMetrics();
+        Session session = cluster.createSession(Behavior.DEFAULT);
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(new Key("test", "set", i));
+        }
+
+        RecordStream writes = session.upsert(keys.get(0)).bin("name").setTo("Tim")
+                .upsert(keys.get(1)).bin("name").setTo("Ann")
+                .executeAsync();
+        while (writes.hasNext()) {
+            writes.next();
+        }
+        assertEquals(1, cluster.getMetrics().snapshot(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, "test").getCount());
+
+        RecordStream reads = session.query(keys).executeAsync();
+        while (reads.hasNext()) {
+            reads.next();
+        }
+        ClientMetrics.OpSnapshot batch = cluster.getMetrics().snapshot(OpKind.READ, OpShape.BATCH, "test");
+        assertEquals(1, batch.getCount());
+        assertEquals(1L, batch.resultCodes().get(ResultCode.OK));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Async record streams report their queue depth and how long producers were blocked")
+    void testStreamGauges() throws Exception {
+        ClientMetrics metrics = new ClientMetrics();
+        AsyncRecordStream stream = new AsyncRecordStream(1, metrics);
+        Key key = new Key("test", "set", 1);
+        assertTrue(stream.publish(new RecordResult(key, null, 0)));
+        assertTrue(stream.publish(new RecordResult(key, null, 1)));
+        assertEquals(2, metrics.snapshot().streamQueueDepth());
+        assertEquals(0, metrics.snapshot().backpressureWait().getCount());
+
+        // The queue is full, so this producer waits until a result is consumed
+        Thread producer = Thread.startVirtualThread(() -> stream.publish(new RecordResult(key, null, 2)));
+        Thread.sleep(100);
+        assertTrue(stream.hasNext());
+        stream.next();
+        producer.join();
+        stream.complete();
+
+        ClientMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.backpressureWait().getCount());
+        assertTrue(snapshot.backpressureWait().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        // Two of the three results have been taken from the queue by the consumer
+        assertEquals(1, snapshot.streamQueueDepth());
+
+        stream.close();
+        assertEquals(0, metrics.snapshot().streamQueueDepth());
+    }
+}
@@ -0,0 +1,82 @@
+package com.aerospike;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * The distribution of the time a simulated node of {@link LoopbackAerospikeClient} takes to
+ * answer a command. Models can be combined, for example a log-normal body with an occasional
+ * long pause:
+ *
+ * <pre>{@code
+ * LatencyModel model = LatencyModel.logNormal(Duration.ofMillis(1), Duration.ofMillis(8))
+ *         .withTail(0.001, Duration.ofMillis(200));
+ * }</pre>
+ */
+@FunctionalInterface
+public interface LatencyModel {
+    /** A node which answers immediately */
+    LatencyModel NONE = random -> 0;
+
+    /**
+     * @return the time taken by one command, in nanoseconds
+     */
+    long sampleNanos(RandomGenerator random);
+
+    /**
+     * Every command takes the same time.
+     */
+    static LatencyModel fixed(Duration latency) {
+        long nanos = checkNotNegative(latency, "latency");
+        return random -> nanos;
+    }
+
+    /**
+     * Commands take a time spread evenly between {@code min} and {@code max}.
+     */
+    static LatencyModel uniform(Duration min, Duration max) {
+        long minNanos = checkNotNegative(min, "min");
+        long maxNanos = checkNotNegative(max, "max");
+        if (maxNanos < minNanos) {
+            throw new IllegalArgumentException("max (" + max + ") must not be less than min (" + min + ")");
+        }
+        return random -> minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1);
+    }
+
+    /**
+     * Commands take a log-normally distributed time with the given median and 99th percentile,
+     * which is a reasonable fit for the latency of a loaded server.
+     */
+    static LatencyModel logNormal(Duration median, Duration p99) {
+        long medianNanos = checkNotNegative(median, "median");
+        long p99Nanos = checkNotNegative(p99, "p99");
+        if (medianNanos == 0 || p99Nanos < medianNanos) {
+            throw new IllegalArgumentException(String.format(
+                    "median (%s) must be positive and not more than p99 (%s)", median, p99));
+        }
+        // 2.326 is the standard normal quantile of the 99th percentile
+        double sigma = Math.log((double) p99Nanos / medianNanos) / 2.326;
+        return random -> (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    /**
+     * A fraction of commands instead take {@code tail}, for example to simulate garbage
+     * collection or defragmentation pauses on the node.
+     *
+     * @param probability the fraction of commands affected, between 0 and 1
+     */
+    default LatencyModel withTail(double probability, Duration tail) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability must be between 0 and 1, not " + probability);
+        }
+        long tailNanos = checkNotNegative(tail, "tail");
+        return random -> random.nextDouble() < probability ? tailNanos : sampleNanos(random);
+    }
+
+    private static long checkNotNegative(Duration duration, String name) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException(name + " must be a duration >= 0, not " + duration);
+        }
+        return duration.toNanos();
+    }
+}
@@ -0,0 +1,1236 @@
+package com.aerospike;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchDelete;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchResults;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Host;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Txn;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.cluster.Partitions;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.policy.BatchDeletePolicy;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.BatchWritePolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.PartitionStatus;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * An in-memory stand-in for an Aerospike cluster, so the fluent layer can be benchmarked and
+ * load tested without a server. The {@link IAerospikeClient} it provides stores records in
+ * concurrent maps sharded by partition, and answers point reads and writes, batches, and
+ * partition queries with filter expressions.
+ *
+ * <p>To reproduce production behavior, each simulated node can be given a {@link LatencyModel},
+ * and result codes can be injected at random. Latency is applied as the client would see it:
+ * an attempt slower than the policy's socket or total timeout times out, and is retried as the
+ * policy allows. Contention is simulated too: writes to a key with too many writes already
+ * pending fail with {@link ResultCode#KEY_BUSY}, and a record written in a transaction is
+ * locked until the transaction ends, so other writes to it fail with
+ * {@link ResultCode#MRT_BLOCKED}. Aborting a transaction restores the records it wrote.</p>
+ *
+ * <pre>{@code
+ * LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder()
+ *         .namespace("test", false)
+ *         .nodes(3)
+ *         .latency(LatencyModel.logNormal(Duration.ofMillis(1), Duration.ofMillis(10)))
+ *         .latency(2, LatencyModel.fixed(Duration.ofMillis(50)))
+ *         .resultCode(ResultCode.TIMEOUT, 0.001)
+ *         .hotKeyLimit(4)
+ *         .build();
+ * Session session = loopback.createCluster().createSession(Behavior.DEFAULT);
+ * }</pre>
+ *
+ * <p>The asynchronous API, UDFs, secondary index filters, and list, map, bit and HLL operations
+ * are not supported. Reads are not isolated from transactions which have not ended.</p>
+ */
+public final class LoopbackAerospikeClient implements InvocationHandler {
+    private static final long CITRUSLEAF_EPOCH = 1262304000L;
+    private static final Field PARTITION_FILTER_DONE = partitionFilterDone();
+    // Returned by write() when the record was not found, as null means it was filtered out
+    private static final Record NOT_FOUND = new Record(null, 0, 0);
+
+    /** A record as held by the loopback cluster. The bins are never modified once stored. */
+    record Stored(Key key, Map<String, Object> bins, int generation, int expiration, long lastUpdateNanos) {
+        boolean isExpired(int now) {
+            return expiration != 0 && expiration <= now;
+        }
+
+        int getTimeToLive() {
+            return expiration == 0 ? -1 : Math.max(1, expiration - nowCitrus());
+        }
+
+        Record toRecord(String[] binNames) {
+            Map<String, Object> result = new HashMap<>();
+            if (binNames == null) {
+                bins.forEach((name, value) -> result.put(name, normalize(value)));
+            }
+            else {
+                for (String name : binNames) {
+                    Object value = bins.get(name);
+                    if (value != null) {
+                        result.put(name, normalize(value));
+                    }
+                }
+            }
+            return new Record(result, generation, expiration);
+        }
+
+        Record toHeader() {
+            return new Record(null, generation, expiration);
+        }
+    }
+
+    /** The outcome of a command on one record */
+    private record Result(int resultCode, Record record) {
+        static final Result NOT_FOUND = new Result(ResultCode.KEY_NOT_FOUND_ERROR, null);
+        static final Result FILTERED_OUT = new Result(ResultCode.FILTERED_OUT, null);
+    }
+
+    /** The write policy fields which affect the loopback cluster */
+    private record WriteParams(RecordExistsAction existsAction, GenerationPolicy generationPolicy,
+            int generation, int expiration, boolean sendKey, Expression filter, Txn txn) {
+
+        static WriteParams of(WritePolicy policy) {
+            return new WriteParams(policy.recordExistsAction, policy.generationPolicy, policy.generation,
+                    policy.expiration, policy.sendKey, policy.filterExp, policy.txn);
+        }
+
+        static WriteParams of(BatchWritePolicy policy, BatchPolicy batchPolicy) {
+            return new WriteParams(policy.recordExistsAction, policy.generationPolicy, policy.generation,
+                    policy.expiration, policy.sendKey,
+                    policy.filterExp != null ? policy.filterExp : batchPolicy.filterExp, batchPolicy.txn);
+        }
+
+        static WriteParams of(BatchDeletePolicy policy, BatchPolicy batchPolicy) {
+            return new WriteParams(RecordExistsAction.UPDATE, policy.generationPolicy, policy.generation,
+                    -2, policy.sendKey, policy.filterExp != null ? policy.filterExp : batchPolicy.filterExp,
+                    batchPolicy.txn);
+        }
+    }
+
+    private record InjectedResult(int resultCode, double probability) {}
+
+    private static final class Namespace {
+        private final ConcurrentSkipListMap<byte[], Stored>[] partitions;
+
+        @SuppressWarnings("unchecked")
+        Namespace() {
+            partitions = new ConcurrentSkipListMap[Node.PARTITIONS];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+            }
+        }
+
+        ConcurrentSkipListMap<byte[], Stored> partition(Key key) {
+            return partitions[Partition.getPartitionId(key.digest)];
+        }
+    }
+
+    /**
+     * Builds a {@link LoopbackAerospikeClient}. By default there is one node with no latency,
+     * holding the AP namespace {@code test}.
+     */
+    public static final class Builder {
+        private final Map<String, Boolean> namespaces = new LinkedHashMap<>();
+        private int nodes = 1;
+        private LatencyModel defaultLatency = LatencyModel.NONE;
+        private final Map<Integer, LatencyModel> nodeLatencies = new HashMap<>();
+        private final List<InjectedResult> defaultResults = new ArrayList<>();
+        private final Map<Integer, List<InjectedResult>> nodeResults = new HashMap<>();
+        private int hotKeyLimit;
+
+        private Builder() {
+        }
+
+        /**
+         * Add a namespace to the cluster.
+         *
+         * @param strongConsistency true if the namespace is in SC mode, which selects the CP
+         *        settings of a {@link com.aerospike.policy.Behavior}
+         */
+        public Builder namespace(String name, boolean strongConsistency) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("namespace name must be specified");
+            }
+            namespaces.put(name, strongConsistency);
+            return this;
+        }
+
+        /**
+         * Set the number of simulated nodes. The partitions are spread evenly over the nodes.
+         */
+        public Builder nodes(int nodes) {
+            if (nodes < 1) {
+                throw new IllegalArgumentException("nodes must be > 0, not " + nodes);
+            }
+            this.nodes = nodes;
+            return this;
+        }
+
+        /**
+         * Set the latency of every node without a latency of its own.
+         */
+        public Builder latency(LatencyModel model) {
+            if (model == null) {
+                throw new IllegalArgumentException("latency model must be specified");
+            }
+            this.defaultLatency = model;
+            return this;
+        }
+
+        /**
+         * Set the latency of one node.
+         *
+         * @param node the node, from 0 to {@code nodes - 1}
+         */
+        public Builder latency(int node, LatencyModel model) {
+            if (model == null) {
+                throw new IllegalArgumentException("latency model must be specified");
+            }
+            nodeLatencies.put(checkNode(node), model);
+            return this;
+        }
+
+        /**
+         * Fail a fraction of the commands on every node with a result code, for example
+         * {@link ResultCode#KEY_BUSY} or {@link ResultCode#DEVICE_OVERLOAD}. Injecting
+         * {@link ResultCode#TIMEOUT} makes an attempt hang until the policy's timeout, after
+         * which it is retried as the policy allows.
+         */
+        public Builder resultCode(int resultCode, double probability) {
+            defaultResults.add(injected(resultCode, probability));
+            return this;
+        }
+
+        /**
+         * Fail a fraction of the commands on one node with a result code.
+         *
+         * @param node the node, from 0 to {@code nodes - 1}
+         * @see #resultCode(int, double)
+         */
+        public Builder resultCode(int node, int resultCode, double probability) {
+            nodeResults.computeIfAbsent(checkNode(node), n -> new ArrayList<>()).add(injected(resultCode, probability));
+            return this;
+        }
+
+        /**
+         * Fail a write with {@link ResultCode#KEY_BUSY} if more than this number of writes to the
+         * same key are in progress, as the server does for a hot key.
+         *
+         * @param maxPendingWrites the number of writes allowed on a key at once, or 0 for no limit
+         */
+        public Builder hotKeyLimit(int maxPendingWrites) {
+            if (maxPendingWrites < 0) {
+                throw new IllegalArgumentException("maxPendingWrites must be >= 0, not " + maxPendingWrites);
+            }
+            this.hotKeyLimit = maxPendingWrites;
+            return this;
+        }
+
+        public LoopbackAerospikeClient build() {
+            for (int node : nodeLatencies.keySet()) {
+                checkNode(node);
+            }
+            for (int node : nodeResults.keySet()) {
+                checkNode(node);
+            }
+            return new LoopbackAerospikeClient(this);
+        }
+
+        private int checkNode(int node) {
+            if (node < 0 || node >= nodes) {
+                throw new IllegalArgumentException(String.format("node must be between 0 and %d, not %d", nodes - 1, node));
+            }
+            return node;
+        }
+
+        private static InjectedResult injected(int resultCode, double probability) {
+            if (resultCode == ResultCode.OK) {
+                throw new IllegalArgumentException("The result code to inject must be an error");
+            }
+            if (probability < 0 || probability > 1) {
+                throw new IllegalArgumentException("probability must be between 0 and 1, not " + probability);
+            }
+            return new InjectedResult(resultCode, probability);
+        }
+    }
+
+    private final Map<String, Namespace> namespaces = new HashMap<>();
+    private final LatencyModel[] latencies;
+    private final InjectedResult[][] injectedResults;
+    private final int hotKeyLimit;
+    private final IAerospikeClient client;
+    private final com.aerospike.client.cluster.Cluster clientCluster;
+    private final ConcurrentHashMap<Key, Integer> pendingWrites = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Txn> txnLocks = new ConcurrentHashMap<>();
+    // The records written by each open transaction, as they were before it wrote them
+    private final ConcurrentHashMap<Txn, Map<Key, Optional<Stored>>> txnUndo = new ConcurrentHashMap<>();
+
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder keyBusy = new LongAdder();
+    private final LongAdder txnBlocked = new LongAdder();
+
+    private LoopbackAerospikeClient(Builder builder) {
+        Map<String, Boolean> namespaceModes = builder.namespaces.isEmpty() ? Map.of("test", false) : builder.namespaces;
+        namespaceModes.keySet().forEach(name -> namespaces.put(name, new Namespace()));
+        this.latencies = new LatencyModel[builder.nodes];
+        this.injectedResults = new InjectedResult[builder.nodes][];
+        for (int node = 0; node < builder.nodes; node++) {
+            latencies[node] = builder.nodeLatencies.getOrDefault(node, builder.defaultLatency);
+            List<InjectedResult> results = new ArrayList<>(builder.defaultResults);
+            results.addAll(builder.nodeResults.getOrDefault(node, List.of()));
+            injectedResults[node] = results.toArray(InjectedResult[]::new);
+        }
+        this.hotKeyLimit = builder.hotKeyLimit;
+        this.clientCluster = clientCluster(namespaceModes);
+        this.client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(), new Class<?>[] { IAerospikeClient.class }, this);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Create the client-side view of a cluster holding the given namespaces, which is what
+     * {@link Session#isNamespaceSC(String)} consults. The cluster is never connected.
+     *
+     * @param namespaces the namespaces, each mapped to true if it is in SC mode
+     */
+    static com.aerospike.client.cluster.Cluster clientCluster(Map<String, Boolean> namespaces) {
+        com.aerospike.client.cluster.Cluster cluster = new com.aerospike.client.cluster.Cluster(
+                null, new ClientPolicy(), new Host[] { new Host("127.0.0.1", 3000) });
+        namespaces.forEach((name, strongConsistency) ->
+                cluster.partitionMap.put(name, new Partitions(Node.PARTITIONS, 1, strongConsistency)));
+        return cluster;
+    }
+
+    /**
+     * @return the client, which can be shared by any number of threads
+     */
+    public IAerospikeClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return a fluent cluster connected to this loopback cluster
+     */
+    public Cluster createCluster() {
+        return new Cluster(client, "loopback", SystemSettings.DEFAULT);
+    }
+
+    /**
+     * @return the number of live records in the namespace
+     */
+    public long size(String namespace) {
+        int now = nowCitrus();
+        long count = 0;
+        for (ConcurrentSkipListMap<byte[], Stored> partition : namespace(namespace).partitions) {
+            count += partition.values().stream().filter(stored -> !stored.isExpired(now)).count();
+        }
+        return count;
+    }
+
+    /** @return the number of commands received, counting each batch and query once */
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    /** @return the number of attempts which timed out */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /** @return the number of commands or batch records failed with an injected result code */
+    public long getInjectedErrorCount() {
+        return injectedErrors.sum();
+    }
+
+    /** @return the number of writes rejected because too many writes to the key were in progress */
+    public long getKeyBusyCount() {
+        return keyBusy.sum();
+    }
+
+    /** @return the number of writes rejected because another transaction held the record */
+    public long getBlockedCount() {
+        return txnBlocked.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoopbackAerospikeClient[nodes=%d, commands=%d, timeouts=%d, injectedErrors=%d, keyBusy=%d, blocked=%d]",
+                latencies.length, getCommandCount(), getTimeoutCount(), getInjectedErrorCount(), getKeyBusyCount(), getBlockedCount());
+    }
+
+    // -------------------------
+    // IAerospikeClient dispatch
+    // -------------------------
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length > 0 && types[0] == EventLoop.class) {
+            throw new UnsupportedOperationException("The loopback client does not support the asynchronous API");
+        }
+        String name = method.getName();
+        switch (name) {
+        case "get":
+            if (types[1] == Key.class) {
+                return get(readPolicy(args[0]), (Key) args[1], args.length > 2 ? (String[]) args[2] : null, false);
+            }
+            if (types[1] == Key[].class) {
+                return getBatch(batchPolicy(args[0]), (Key[]) args[1], args.length > 2 ? args[2] : null, false);
+            }
+            if (types[1] == List.class) {
+                return batchStatus(method, operate(batchPolicy(args[0]), castRecords(args[1])));
+            }
+            break;
+        case "getHeader":
+            if (types[1] == Key.class) {
+                return get(readPolicy(args[0]), (Key) args[1], null, true);
+            }
+            if (types[1] == Key[].class) {
+                return getBatch(batchPolicy(args[0]), (Key[]) args[1], null, true);
+            }
+            break;
+        case "exists":
+            if (types[1] == Key.class) {
+                return get(readPolicy(args[0]), (Key) args[1], null, true) != null;
+            }
+            if (types[1] == Key[].class) {
+                Record[] records = getBatch(batchPolicy(args[0]), (Key[]) args[1], null, true);
+                boolean[] exists = new boolean[records.length];
+                for (int i = 0; i < records.length; i++) {
+                    exists[i] = records[i] != null;
+                }
+                return exists;
+            }
+            break;
+        case "put":
+        case "append":
+        case "prepend":
+        case "add":
+            if (types[1] == Key.class) {
+                write(writePolicy(args[0]), (Key) args[1], binOperations(name, (Bin[]) args[2]));
+                return null;
+            }
+            break;
+        case "delete":
+            if (types[1] == Key.class) {
+                Record record = write(writePolicy(args[0]), (Key) args[1], new Operation[] { Operation.delete() });
+                return record != null && record != NOT_FOUND;
+            }
+            if (types.length == 3 && types[2] == Key[].class) {
+                BatchDeletePolicy deletePolicy = args[1] == null ? new BatchDeletePolicy() : (BatchDeletePolicy) args[1];
+                List<BatchRecord> records = new ArrayList<>();
+                for (Key key : (Key[]) args[2]) {
+                    records.add(new BatchDelete(deletePolicy, key));
+                }
+                return batchResults(batchPolicy(args[0]), records);
+            }
+            break;
+        case "touch":
+        case "touched":
+            if (types[1] == Key.class) {
+                Record record = write(writePolicy(args[0]), (Key) args[1], new Operation[] { Operation.touch() });
+                if (record == NOT_FOUND && name.equals("touch")) {
+                    throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+                }
+                return name.equals("touch") ? null : record != null && record != NOT_FOUND;
+            }
+            break;
+        case "operate":
+            if (types[1] == Key.class) {
+                Record record = write(writePolicy(args[0]), (Key) args[1], (Operation[]) args[2]);
+                if (record == NOT_FOUND) {
+                    throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+                }
+                return record;
+            }
+            if (types[1] == List.class) {
+                return batchStatus(method, operate(batchPolicy(args[0]), castRecords(args[1])));
+            }
+            if (types.length == 4 && types[2] == Key[].class) {
+                BatchWritePolicy writePolicy = args[1] == null ? new BatchWritePolicy() : (BatchWritePolicy) args[1];
+                List<BatchRecord> records = new ArrayList<>();
+                for (Key key : (Key[]) args[2]) {
+                    records.add(new BatchWrite(writePolicy, key, (Operation[]) args[3]));
+                }
+                return batchResults(batchPolicy(args[0]), records);
+            }
+            break;
+        case "query":
+            if (method.getReturnType() == RecordSet.class && types.length == 2) {
+                return query(queryPolicy(args[0]), (Statement) args[1], PartitionFilter.all());
+            }
+            break;
+        case "queryPartitions":
+            if (method.getReturnType() == RecordSet.class) {
+                return query(queryPolicy(args[0]), (Statement) args[1], (PartitionFilter) args[2]);
+            }
+            break;
+        case "truncate":
+            truncate((String) args[1], (String) args[2], (Calendar) args[3]);
+            return null;
+        case "commit":
+            endTransaction((Txn) args[0], true);
+            return okStatus(method);
+        case "abort":
+            endTransaction((Txn) args[0], false);
+            return okStatus(method);
+        case "getCluster":
+            return clientCluster;
+        case "getNodes":
+            return new Node[0];
+        case "getNodeNames":
+            return List.of();
+        case "isConnected":
+            return true;
+        case "close":
+            return null;
+        case "toString":
+            return toString();
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        case "equals":
+            return proxy == args[0];
+        default:
+            if (name.endsWith("PolicyDefault") && types.length == 0) {
+                // A new policy holds the defaults, and copying it is harmless for the getters
+                return method.getReturnType().getDeclaredConstructor().newInstance();
+            }
+            break;
+        }
+        throw new UnsupportedOperationException("The loopback client does not support " + method);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BatchRecord> castRecords(Object records) {
+        return (List<BatchRecord>) records;
+    }
+
+    private static Policy readPolicy(Object policy) {
+        return policy == null ? new Policy() : (Policy) policy;
+    }
+
+    private static WritePolicy writePolicy(Object policy) {
+        return policy == null ? new WritePolicy() : (WritePolicy) policy;
+    }
+
+    private static BatchPolicy batchPolicy(Object policy) {
+        return policy == null ? new BatchPolicy() : (BatchPolicy) policy;
+    }
+
+    private static QueryPolicy queryPolicy(Object policy) {
+        return policy == null ? new QueryPolicy() : (QueryPolicy) policy;
+    }
+
+    private static Object batchStatus(Method method, boolean status) {
+        return method.getReturnType() == boolean.class ? status : null;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object okStatus(Method method) {
+        Class<?> type = method.getReturnType();
+        return type.isEnum() ? Enum.valueOf((Class<? extends Enum>) type, "OK") : null;
+    }
+
+    private static Operation[] binOperations(String command, Bin[] bins) {
+        Operation[] ops = new Operation[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            ops[i] = switch (command) {
+                case "append" -> Operation.append(bins[i]);
+                case "prepend" -> Operation.prepend(bins[i]);
+                case "add" -> Operation.add(bins[i]);
+                default -> Operation.put(bins[i]);
+            };
+        }
+        return ops;
+    }
+
+    // -------------------------
+    // Point commands
+    // -------------------------
+    /**
+     * @return the record, or null if it was not found or was filtered out
+     */
+    private Record get(Policy policy, Key key, String[] binNames, boolean header) {
+        commands.increment();
+        Namespace namespace = namespace(key.namespace);
+        int node = nodeOf(key);
+        awaitLatency(policy, false, List.of(node));
+        throwInjected(node);
+        Result result = read(namespace, key, policy.filterExp, binNames, header);
+        return switch (result.resultCode()) {
+            case ResultCode.OK -> result.record();
+            case ResultCode.KEY_NOT_FOUND_ERROR -> null;
+            case ResultCode.FILTERED_OUT -> {
+                if (policy.failOnFilteredOut) {
+                    throw new AerospikeException(ResultCode.FILTERED_OUT);
+                }
+                yield null;
+            }
+            default -> throw new AerospikeException(result.resultCode());
+        };
+    }
+
+    /**
+     * @return the result of the operations, or {@link #NOT_FOUND} if the record is not found
+     *         and they need it to be
+     */
+    private Record write(WritePolicy policy, Key key, Operation[] ops) {
+        commands.increment();
+        Namespace namespace = namespace(key.namespace);
+        int node = nodeOf(key);
+        boolean hasWrite = hasWrite(ops);
+        int pending = hasWrite ? startWrite(key) : 0;
+        try {
+            awaitLatency(policy, hasWrite, List.of(node));
+            throwInjected(node);
+            if (hotKeyLimit > 0 && pending > hotKeyLimit) {
+                keyBusy.increment();
+                throw new AerospikeException(ResultCode.KEY_BUSY);
+            }
+            Result result = execute(namespace, key, ops, WriteParams.of(policy));
+            return switch (result.resultCode()) {
+                case ResultCode.OK -> result.record();
+                case ResultCode.KEY_NOT_FOUND_ERROR -> NOT_FOUND;
+                case ResultCode.FILTERED_OUT -> {
+                    if (policy.failOnFilteredOut) {
+                        throw new AerospikeException(ResultCode.FILTERED_OUT);
+                    }
+                    yield null;
+                }
+                default -> throw new AerospikeException(result.resultCode());
+            };
+        }
+        finally {
+            if (hasWrite) {
+                endWrite(key);
+            }
+        }
+    }
+
+    // -------------------------
+    // Batch commands
+    // -------------------------
+    private Record[] getBatch(BatchPolicy policy, Key[] keys, Object binNamesOrOps, boolean header) {
+        List<BatchRecord> records = new ArrayList<>(keys.length);
+        for (Key key : keys) {
+            if (header) {
+                records.add(new BatchRead(key, false));
+            }
+            else if (binNamesOrOps instanceof String[] binNames && binNames.length > 0) {
+                records.add(new BatchRead(key, binNames));
+            }
+            else if (binNamesOrOps instanceof Operation[] ops && ops.length > 0) {
+                records.add(new BatchRead(key, ops));
+            }
+            else {
+                records.add(new BatchRead(key, true));
+            }
+        }
+        operate(policy, records);
+        Record[] result = new Record[keys.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = records.get(i).record;
+        }
+        return result;
+    }
+
+    private BatchResults batchResults(BatchPolicy policy, List<BatchRecord> records) {
+        boolean status = operate(policy, records);
+        return new BatchResults(records.toArray(BatchRecord[]::new), status);
+    }
+
+    /**
+     * Run a batch. The nodes are sent their part of the batch in parallel, so the batch takes
+     * as long as the slowest node.
+     *
+     * @return true if every record succeeded
+     */
+    private boolean operate(BatchPolicy policy, List<BatchRecord> records) {
+        commands.increment();
+        List<Integer> nodes = new ArrayList<>();
+        int[] pending = new int[records.size()];
+        boolean hasWrite = false;
+        for (int i = 0; i < records.size(); i++) {
+            BatchRecord record = records.get(i);
+            int node = nodeOf(record.key);
+            if (!nodes.contains(node)) {
+                nodes.add(node);
+            }
+            if (record.hasWrite) {
+                hasWrite = true;
+                pending[i] = startWrite(record.key);
+            }
+        }
+        try {
+            awaitLatency(policy, hasWrite, nodes);
+            boolean status = true;
+            for (int i = 0; i < records.size(); i++) {
+                BatchRecord record = records.get(i);
+                Result result;
+                int injected = injectedResult(nodeOf(record.key));
+                if (injected != ResultCode.OK) {
+                    injectedErrors.increment();
+                    result = new Result(injected, null);
+                }
+                else if (record.hasWrite && hotKeyLimit > 0 && pending[i] > hotKeyLimit) {
+                    keyBusy.increment();
+                    result = new Result(ResultCode.KEY_BUSY, null);
+                }
+                else {
+                    result = executeBatchRecord(policy, record);
+                }
+                record.resultCode = result.resultCode();
+                record.record = result.record();
+                record.inDoubt = false;
+                if (result.resultCode() != ResultCode.OK
+                        && !(result.resultCode() == ResultCode.KEY_NOT_FOUND_ERROR && !record.hasWrite)) {
+                    status = false;
+                }
+            }
+            return status;
+        }
+        finally {
+            for (BatchRecord record : records) {
+                if (record.hasWrite) {
+                    endWrite(record.key);
+                }
+            }
+        }
+    }
+
+    private Result executeBatchRecord(BatchPolicy policy, BatchRecord record) {
+        Namespace namespace = namespaces.get(record.key.namespace);
+        if (namespace == null) {
+            return new Result(ResultCode.INVALID_NAMESPACE, null);
+        }
+        if (record instanceof BatchRead read) {
+            Expression filter = read.policy != null && read.policy.filterExp != null ? read.policy.filterExp : policy.filterExp;
+            if (read.ops != null) {
+                return readWithOperations(namespace, read.key, filter, read.ops);
+            }
+            if (read.readAllBins) {
+                return read(namespace, read.key, filter, null, false);
+            }
+            boolean header = read.binNames == null || read.binNames.length == 0;
+            return read(namespace, read.key, filter, read.binNames, header);
+        }
+        if (record instanceof BatchWrite write) {
+            BatchWritePolicy writePolicy = write.policy == null ? new BatchWritePolicy() : write.policy;
+            return execute(namespace, write.key, write.ops, WriteParams.of(writePolicy, policy));
+        }
+        if (record instanceof BatchDelete delete) {
+            BatchDeletePolicy deletePolicy = delete.policy == null ? new BatchDeletePolicy() : delete.policy;
+            return execute(namespace, delete.key, new Operation[] { Operation.delete() }, WriteParams.of(deletePolicy, policy));
+        }
+        return new Result(ResultCode.UNSUPPORTED_FEATURE, null);
+    }
+
+    // -------------------------
+    // Queries
+    // -------------------------
+    /**
+     * Run a query over the partitions of the filter, in partition and then digest order. If the
+     * statement has a maximum number of records, the query stops there and the filter records
+     * where, so the next query on the filter continues from that point.
+     */
+    private RecordSet query(QueryPolicy policy, Statement statement, PartitionFilter filter) {
+        commands.increment();
+        if (statement.getFilter() != null) {
+            throw new AerospikeException(ResultCode.UNSUPPORTED_FEATURE, "The loopback client does not support secondary index queries");
+        }
+        Namespace namespace = namespace(statement.getNamespace());
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = 0; node < latencies.length; node++) {
+            nodes.add(node);
+        }
+        awaitLatency(policy, false, nodes);
+
+        PartitionStatus[] partitions = filter.getPartitions();
+        if (partitions == null) {
+            partitions = new PartitionStatus[filter.getCount()];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new PartitionStatus(filter.getBegin() + i);
+            }
+            if (filter.getDigest() != null) {
+                partitions[0].digest = filter.getDigest();
+            }
+            filter.setPartitions(partitions);
+        }
+        String setName = statement.getSetName();
+        String[] binNames = statement.getBinNames() == null || statement.getBinNames().length == 0 ? null : statement.getBinNames();
+        long maxRecords = statement.getMaxRecords();
+        int now = nowCitrus();
+        List<KeyRecord> results = new ArrayList<>();
+        for (PartitionStatus status : partitions) {
+            if (!status.retry) {
+                continue;
+            }
+            ConcurrentSkipListMap<byte[], Stored> partition = namespace.partitions[status.id];
+            NavigableMap<byte[], Stored> remaining = status.digest == null ? partition : partition.tailMap(status.digest, false);
+            boolean complete = true;
+            for (Stored stored : remaining.values()) {
+                if (maxRecords > 0 && results.size() >= maxRecords) {
+                    complete = false;
+                    break;
+                }
+                if (stored.isExpired(now)
+                        || (setName != null && !setName.equals(stored.key().setName))
+                        || (policy.filterExp != null && !LoopbackExpression.matches(policy.filterExp, stored))) {
+                    continue;
+                }
+                results.add(new KeyRecord(stored.key(), policy.includeBinData ? stored.toRecord(binNames) : stored.toHeader()));
+                status.digest = stored.key().digest;
+            }
+            if (!complete) {
+                break;
+            }
+            status.retry = false;
+        }
+        setDone(filter, Arrays.stream(partitions).noneMatch(status -> status.retry));
+        return new LoopbackRecordSet(results);
+    }
+
+    private void truncate(String namespaceName, String setName, Calendar beforeLastUpdate) {
+        long before = beforeLastUpdate == null ? Long.MAX_VALUE : beforeLastUpdate.getTimeInMillis() * 1_000_000L;
+        for (ConcurrentSkipListMap<byte[], Stored> partition : namespace(namespaceName).partitions) {
+            partition.values().removeIf(stored -> stored.lastUpdateNanos() < before
+                    && (setName == null || setName.equals(stored.key().setName)));
+        }
+    }
+
+    // -------------------------
+    // Transactions
+    // -------------------------
+    private void endTransaction(Txn txn, boolean commit) {
+        Map<Key, Optional<Stored>> undo = txnUndo.remove(txn);
+        if (undo == null) {
+            return;
+        }
+        undo.forEach((key, before) -> {
+            if (!commit) {
+                ConcurrentSkipListMap<byte[], Stored> partition = namespaces.get(key.namespace).partition(key);
+                if (before.isPresent()) {
+                    partition.put(key.digest, before.get());
+                }
+                else {
+                    partition.remove(key.digest);
+                }
+            }
+            txnLocks.remove(key, txn);
+        });
+    }
+
+    // -------------------------
+    // Record access
+    // -------------------------
+    private Result read(Namespace namespace, Key key, Expression filter, String[] binNames, boolean header) {
+        Stored stored = namespace.partition(key).get(key.digest);
+        if (stored == null || stored.isExpired(nowCitrus())) {
+            return Result.NOT_FOUND;
+        }
+        if (filter != null && !LoopbackExpression.matches(filter, stored)) {
+            return Result.FILTERED_OUT;
+        }
+        return new Result(ResultCode.OK, header ? stored.toHeader() : stored.toRecord(binNames));
+    }
+
+    private Result readWithOperations(Namespace namespace, Key key, Expression filter, Operation[] ops) {
+        boolean allBins = false;
+        List<String> binNames = new ArrayList<>();
+        for (Operation op : ops) {
+            if (op.type == Operation.Type.READ) {
+                if (op.binName == null) {
+                    allBins = true;
+                }
+                else {
+                    binNames.add(op.binName);
+                }
+            }
+            else if (op.type != Operation.Type.READ_HEADER) {
+                return new Result(ResultCode.UNSUPPORTED_FEATURE, null);
+            }
+        }
+        boolean header = !allBins && binNames.isEmpty();
+        return read(namespace, key, filter, allBins ? null : binNames.toArray(String[]::new), header);
+    }
+
+    private static boolean hasWrite(Operation[] ops) {
+        for (Operation op : ops) {
+            if (op.type != Operation.Type.READ && op.type != Operation.Type.READ_HEADER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply operations to a record atomically, as the server would.
+     */
+    private Result execute(Namespace namespace, Key key, Operation[] ops, WriteParams params) {
+        if (!hasWrite(ops)) {
+            return readWithOperations(namespace, key, params.filter(), ops);
+        }
+        Txn owner = params.txn() == null ? txnLocks.get(key) : txnLocks.putIfAbsent(key, params.txn());
+        if (owner != null && owner != params.txn()) {
+            txnBlocked.increment();
+            return new Result(ResultCode.MRT_BLOCKED, null);
+        }
+        if (params.txn() != null) {
+            // Holding the lock, the record cannot change before the transaction first writes it
+            txnUndo.computeIfAbsent(params.txn(), txn -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key, k -> Optional.ofNullable(namespace.partition(key).get(key.digest)));
+        }
+        Result[] outcome = new Result[1];
+        namespace.partition(key).compute(key.digest, (digest, existing) -> {
+            // The function may be applied more than once, so it only sets the outcome
+            int now = nowCitrus();
+            Stored current = existing == null || existing.isExpired(now) ? null : existing;
+            outcome[0] = checkWrite(current, params);
+            if (outcome[0] != null) {
+                return existing;
+            }
+            boolean replace = params.existsAction() == RecordExistsAction.REPLACE
+                    || params.existsAction() == RecordExistsAction.REPLACE_ONLY;
+            Map<String, Object> bins = current == null || replace ? new HashMap<>() : new HashMap<>(current.bins());
+            Map<String, Object> results = new HashMap<>();
+            boolean delete = false;
+            boolean touch = false;
+            for (Operation op : ops) {
+                int resultCode = apply(op, bins, results);
+                if (resultCode != ResultCode.OK) {
+                    outcome[0] = new Result(resultCode, null);
+                    return existing;
+                }
+                delete |= op.type == Operation.Type.DELETE;
+                touch |= op.type == Operation.Type.TOUCH;
+            }
+            if (current == null && (touch || delete)) {
+                outcome[0] = Result.NOT_FOUND;
+                return existing;
+            }
+            int generation = current == null ? 1 : current.generation() + 1;
+            int expiration = switch (params.expiration()) {
+                case -2 -> current == null ? 0 : current.expiration();
+                case -1, 0 -> 0;
+                default -> now + params.expiration();
+            };
+            outcome[0] = new Result(ResultCode.OK, new Record(results.isEmpty() ? null : results, generation, expiration));
+            if (delete || bins.isEmpty()) {
+                return null;
+            }
+            Key storedKey;
+            if (params.sendKey()) {
+                storedKey = key;
+            }
+            else if (current != null && current.key().userKey != null) {
+                storedKey = current.key();
+            }
+            else {
+                storedKey = new Key(key.namespace, key.digest, key.setName, null);
+            }
+            return new Stored(storedKey, bins, generation, expiration, System.currentTimeMillis() * 1_000_000L);
+        });
+        return outcome[0];
+    }
+
+    /**
+     * @return the result if the write cannot be applied to the record, otherwise null
+     */
+    private static Result checkWrite(Stored current, WriteParams params) {
+        if (current != null && params.filter() != null && !LoopbackExpression.matches(params.filter(), current)) {
+            return Result.FILTERED_OUT;
+        }
+        RecordExistsAction action = params.existsAction();
+        if (current != null && action == RecordExistsAction.CREATE_ONLY) {
+            return new Result(ResultCode.KEY_EXISTS_ERROR, null);
+        }
+        if (current == null && (action == RecordExistsAction.UPDATE_ONLY || action == RecordExistsAction.REPLACE_ONLY)) {
+            return Result.NOT_FOUND;
+        }
+        if (current != null) {
+            if ((params.generationPolicy() == GenerationPolicy.EXPECT_GEN_EQUAL && current.generation() != params.generation())
+                    || (params.generationPolicy() == GenerationPolicy.EXPECT_GEN_GT && params.generation() <= current.generation())) {
+                return new Result(ResultCode.GENERATION_ERROR, null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Apply one operation to the bins of a record, putting any value it reads in the results.
+     *
+     * @return the result code of the operation
+     */
+    private static int apply(Operation op, Map<String, Object> bins, Map<String, Object> results) {
+        switch (op.type) {
+        case READ:
+            if (op.binName == null) {
+                bins.forEach((name, value) -> results.put(name, normalize(value)));
+            }
+            else if (bins.containsKey(op.binName)) {
+                results.put(op.binName, normalize(bins.get(op.binName)));
+            }
+            return ResultCode.OK;
+        case READ_HEADER:
+        case TOUCH:
+            return ResultCode.OK;
+        case DELETE:
+            bins.clear();
+            return ResultCode.OK;
+        case WRITE:
+            if (op.value == null || op.value.getType() == ParticleType.NULL) {
+                bins.remove(op.binName);
+            }
+            else {
+                bins.put(op.binName, normalize(op.value.getObject()));
+            }
+            return ResultCode.OK;
+        case ADD: {
+            Object current = bins.get(op.binName);
+            Object delta = normalize(op.value.getObject());
+            if (current == null) {
+                bins.put(op.binName, delta);
+            }
+            else if (current instanceof Long l && delta instanceof Long d) {
+                bins.put(op.binName, l + d);
+            }
+            else if (current instanceof Double l && delta instanceof Double d) {
+                bins.put(op.binName, l + d);
+            }
+            else {
+                return ResultCode.BIN_TYPE_ERROR;
+            }
+            return ResultCode.OK;
+        }
+        case APPEND:
+        case PREPEND: {
+            Object current = bins.get(op.binName);
+            Object text = normalize(op.value.getObject());
+            if (!(text instanceof String)) {
+                return ResultCode.PARAMETER_ERROR;
+            }
+            if (current == null) {
+                bins.put(op.binName, text);
+            }
+            else if (current instanceof String string) {
+                bins.put(op.binName, op.type == Operation.Type.APPEND ? string + text : text + string);
+            }
+            else {
+                return ResultCode.BIN_TYPE_ERROR;
+            }
+            return ResultCode.OK;
+        }
+        default:
+            return ResultCode.UNSUPPORTED_FEATURE;
+        }
+    }
+
+    /**
+     * Convert a value to the form the server would return it in: integers as longs, floats as
+     * doubles, and copies of collections and byte arrays, so callers cannot change what is stored.
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Value wrapped) {
+            return normalize(wrapped.getObject());
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float f) {
+            return f.doubleValue();
+        }
+        if (value instanceof Character c) {
+            return c.toString();
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.clone();
+        }
+        if (value instanceof Collection<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(normalize(item));
+            }
+            return copy;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = map instanceof SortedMap ? new TreeMap<>() : new HashMap<>();
+            map.forEach((k, v) -> copy.put(normalize(k), normalize(v)));
+            return copy;
+        }
+        return value;
+    }
+
+    // -------------------------
+    // Simulated nodes
+    // -------------------------
+    private Namespace namespace(String name) {
+        Namespace namespace = namespaces.get(name);
+        if (namespace == null) {
+            throw new AerospikeException(ResultCode.INVALID_NAMESPACE, "Namespace not found: " + name);
+        }
+        return namespace;
+    }
+
+    private int nodeOf(Key key) {
+        return Partition.getPartitionId(key.digest) % latencies.length;
+    }
+
+    /**
+     * Wait for the slowest of the nodes to answer. An attempt which would take longer than the
+     * socket timeout, or the time left of the total timeout, instead waits for the timeout and
+     * is retried if the policy allows.
+     *
+     * @throws AerospikeException with {@link ResultCode#TIMEOUT} if every attempt times out
+     */
+    private void awaitLatency(Policy policy, boolean write, List<Integer> nodes) {
+        long start = System.nanoTime();
+        long total = policy.totalTimeout > 0 ? policy.totalTimeout * 1_000_000L : Long.MAX_VALUE;
+        long socket = policy.socketTimeout > 0 ? policy.socketTimeout * 1_000_000L : Long.MAX_VALUE;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; ; attempt++) {
+            long remaining = total == Long.MAX_VALUE ? Long.MAX_VALUE : total - (System.nanoTime() - start);
+            long limit = Math.min(socket, remaining);
+            long latency = 0;
+            boolean hang = false;
+            for (int node : nodes) {
+                latency = Math.max(latency, latencies[node].sampleNanos(random));
+                for (InjectedResult injected : injectedResults[node]) {
+                    if (injected.resultCode() == ResultCode.TIMEOUT && random.nextDouble() < injected.probability()) {
+                        hang = true;
+                    }
+                }
+            }
+            if (!hang && latency <= limit) {
+                pause(latency);
+                return;
+            }
+            timeouts.increment();
+            // An attempt which hangs with no timeout set fails at once rather than never
+            pause(limit == Long.MAX_VALUE ? 0 : limit);
+            boolean timeLeft = total == Long.MAX_VALUE || System.nanoTime() - start < total;
+            if (attempt >= policy.maxRetries || !timeLeft) {
+                throw new AerospikeException(ResultCode.TIMEOUT, write);
+            }
+            pause(policy.sleepBetweenRetries * 1_000_000L);
+        }
+    }
+
+    /**
+     * @return an injected result code for a command on the node, or OK
+     */
+    private int injectedResult(int node) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (InjectedResult injected : injectedResults[node]) {
+            if (injected.resultCode() != ResultCode.TIMEOUT && random.nextDouble() < injected.probability()) {
+                return injected.resultCode();
+            }
+        }
+        return ResultCode.OK;
+    }
+
+    private void throwInjected(int node) {
+        int resultCode = injectedResult(node);
+        if (resultCode != ResultCode.OK) {
+            injectedErrors.increment();
+            throw new AerospikeException(resultCode);
+        }
+    }
+
+    /**
+     * @return the number of writes to the key in progress, including this one
+     */
+    private int startWrite(Key key) {
+        return pendingWrites.merge(key, 1, Integer::sum);
+    }
+
+    private void endWrite(Key key) {
+        pendingWrites.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    static int nowCitrus() {
+        return (int) (System.currentTimeMillis() / 1000 - CITRUSLEAF_EPOCH);
+    }
+
+    static long citrusToEpochNanos(int voidTime) {
+        return (voidTime + CITRUSLEAF_EPOCH) * 1_000_000_000L;
+    }
+
+    private static void setDone(PartitionFilter filter, boolean done) {
+        try {
+            PARTITION_FILTER_DONE.setBoolean(filter, done);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Field partitionFilterDone() {
+        // The client only marks a filter done from inside its own query executor
+        try {
+            Field field = PartitionFilter.class.getDeclaredField("done");
+            field.setAccessible(true);
+            return field;
+        }
+        catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
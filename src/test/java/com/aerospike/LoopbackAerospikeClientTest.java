@@ -0,0 +1,251 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Bin;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Txn;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Tests for LoopbackAerospikeClient: records are stored and queried as the server would, and
+ * latency, timeouts, injected result codes and contention behave as configured.
+ */
+class LoopbackAerospikeClientTest {
+
+    private static Key key(int id) {
+        return new Key("test", "people", id);
+    }
+
+    @Test
+    @DisplayName("Writes are applied atomically with the server's generation and exists semantics")
+    void testPointCommands() {
+        IAerospikeClient client = LoopbackAerospikeClient.builder().build().getClient();
+        assertNull(client.get(null, key(1)));
+
+        client.put(null, key(1), new Bin("name", "Tim"), new Bin("age", 30));
+        Record record = client.operate(null, key(1), Operation.add(new Bin("age", 1)), Operation.get());
+        assertEquals(31L, record.getLong("age"));
+        assertEquals("Tim", record.getString("name"));
+        assertEquals(2, record.generation);
+
+        WritePolicy stale = new WritePolicy();
+        stale.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+        stale.generation = 1;
+        AerospikeException ae = assertThrows(AerospikeException.class, () -> client.put(stale, key(1), new Bin("age", 0)));
+        assertEquals(ResultCode.GENERATION_ERROR, ae.getResultCode());
+
+        assertTrue(client.delete(null, key(1)));
+        assertFalse(client.delete(null, key(1)));
+        assertFalse(client.exists(null, key(1)));
+    }
+
+    @Test
+    @DisplayName("Batches set a result on each record")
+    void testBatch() {
+        IAerospikeClient client = LoopbackAerospikeClient.builder().build().getClient();
+        client.put(null, key(1), new Bin("age", 30));
+
+        List<BatchRecord> records = new ArrayList<>();
+        records.add(new BatchRead(key(1), true));
+        records.add(new BatchRead(key(2), true));
+        records.add(new BatchWrite(key(3), new Operation[] { Operation.put(new Bin("age", 40)) }));
+        client.operate(null, records);
+
+        assertEquals(ResultCode.OK, records.get(0).resultCode);
+        assertEquals(30L, records.get(0).record.getLong("age"));
+        assertEquals(ResultCode.KEY_NOT_FOUND_ERROR, records.get(1).resultCode);
+        assertEquals(ResultCode.OK, records.get(2).resultCode);
+        assertEquals(40L, client.get(null, key(3)).getLong("age"));
+    }
+
+    @Test
+    @DisplayName("Partition queries apply filter expressions and continue from where the last chunk stopped")
+    void testQueryChunks() {
+        IAerospikeClient client = LoopbackAerospikeClient.builder().build().getClient();
+        for (int i = 0; i < 100; i++) {
+            client.put(null, key(i), new Bin("age", i));
+        }
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName("people");
+        statement.setMaxRecords(15);
+        QueryPolicy policy = new QueryPolicy();
+        policy.filterExp = Exp.build(Exp.ge(Exp.intBin("age"), Exp.val(50)));
+
+        PartitionFilter filter = PartitionFilter.all();
+        Set<Long> ages = new HashSet<>();
+        int chunks = 0;
+        while (!filter.isDone()) {
+            try (RecordSet recordSet = client.queryPartitions(policy, statement, filter)) {
+                int count = 0;
+                while (recordSet.next()) {
+                    assertTrue(ages.add(recordSet.getRecord().getLong("age")));
+                    count++;
+                }
+                assertTrue(count <= 15);
+            }
+            chunks++;
+        }
+        assertEquals(50, ages.size());
+        assertTrue(ages.stream().allMatch(age -> age >= 50));
+        assertEquals(4, chunks);
+    }
+
+    @Test
+    @DisplayName("Slow attempts time out and are retried within the total timeout")
+    void testTimeouts() {
+        LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder()
+                .latency(LatencyModel.fixed(Duration.ofMillis(50)))
+                .build();
+        Policy policy = new Policy();
+        policy.socketTimeout = 10;
+        policy.totalTimeout = 35;
+        policy.maxRetries = 5;
+
+        long start = System.nanoTime();
+        AerospikeException ae = assertThrows(AerospikeException.class, () -> loopback.getClient().get(policy, key(1)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(ResultCode.TIMEOUT, ae.getResultCode());
+        // Three or four 10ms attempts fit in 35ms, depending on how long each pause overruns
+        assertTrue(loopback.getTimeoutCount() >= 3 && loopback.getTimeoutCount() <= 4);
+        assertTrue(elapsedMillis >= 35 && elapsedMillis < 150, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    @DisplayName("Result codes are injected only on the configured node")
+    void testInjectedResultCodes() {
+        LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder()
+                .nodes(2)
+                .resultCode(1, ResultCode.DEVICE_OVERLOAD, 1.0)
+                .build();
+        int failures = 0;
+        for (int i = 0; i < 200; i++) {
+            try {
+                loopback.getClient().get(null, key(i));
+            }
+            catch (AerospikeException ae) {
+                assertEquals(ResultCode.DEVICE_OVERLOAD, ae.getResultCode());
+                failures++;
+            }
+        }
+        assertTrue(failures > 0 && failures < 200, failures + " failures");
+        assertEquals(failures, loopback.getInjectedErrorCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent writes to a hot key beyond the limit fail with KEY_BUSY")
+    void testHotKey() throws InterruptedException {
+        LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder()
+                .latency(LatencyModel.fixed(Duration.ofMillis(100)))
+                .hotKeyLimit(2)
+                .build();
+        int writers = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger busy = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            threads.add(Thread.startVirtualThread(() -> {
+                try {
+                    start.await();
+                    loopback.getClient().put(null, key(1), new Bin("count", 1));
+                }
+                catch (AerospikeException ae) {
+                    if (ae.getResultCode() == ResultCode.KEY_BUSY) {
+                        busy.incrementAndGet();
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(writers - 2, busy.get());
+        assertEquals(writers - 2, loopback.getKeyBusyCount());
+    }
+
+    @Test
+    @DisplayName("A record written in a transaction blocks other transactions until it ends, and abort restores it")
+    void testTransactions() {
+        IAerospikeClient client = LoopbackAerospikeClient.builder().build().getClient();
+        client.put(null, key(1), new Bin("name", "before"));
+
+        WritePolicy first = new WritePolicy();
+        first.txn = new Txn();
+        WritePolicy second = new WritePolicy();
+        second.txn = new Txn();
+
+        client.put(first, key(1), new Bin("name", "first"));
+        AerospikeException ae = assertThrows(AerospikeException.class, () -> client.put(second, key(1), new Bin("name", "second")));
+        assertEquals(ResultCode.MRT_BLOCKED, ae.getResultCode());
+
+        client.abort(first.txn);
+        assertEquals("before", client.get(null, key(1)).getString("name"));
+
+        client.put(second, key(1), new Bin("name", "second"));
+        client.commit(second.txn);
+        assertEquals("second", client.get(null, key(1)).getString("name"));
+    }
+
+    @Test
+    @DisplayName("A session on the loopback cluster reads back its writes and filters queries")
+    void testSession() {
+        LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder().namespace("test", false).build();
+        Session session = loopback.createCluster().createSession(Behavior.DEFAULT);
+        DataSet people = DataSet.of("test", "people");
+        for (int i = 0; i < 20; i++) {
+            session.upsert(people.id(i)).bin("age").setTo(i).execute();
+        }
+        assertEquals(20, loopback.size("test"));
+        assertEquals(7L, session.query(people.id(7)).executeSync().getFirst().get().recordOrThrow().getLong("age"));
+
+        RecordStream stream = session.query(people).where("$.age >= 15").executeSync();
+        int count = 0;
+        while (stream.hasNext()) {
+            assertTrue(stream.next().recordOrThrow().getLong("age") >= 15);
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
+    @Test
+    @DisplayName("Latency models reject invalid parameters")
+    void testLatencyModelValidation() {
+        assertThrows(IllegalArgumentException.class, () -> LatencyModel.fixed(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> LatencyModel.uniform(Duration.ofMillis(2), Duration.ofMillis(1)));
+        assertThrows(IllegalArgumentException.class, () -> LatencyModel.logNormal(Duration.ofMillis(2), Duration.ofMillis(1)));
+        assertThrows(IllegalArgumentException.class, () -> LatencyModel.NONE.withTail(1.5, Duration.ofMillis(1)));
+        assertThrows(IllegalArgumentException.class, () -> LoopbackAerospikeClient.builder().nodes(2).latency(2, LatencyModel.NONE));
+    }
+}
@@ -0,0 +1,538 @@
+package com.aerospike;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.exp.Expression;
+
+/**
+ * Evaluates a filter expression against a record held by {@link LoopbackAerospikeClient}.
+ *
+ * <p>The expression is read from its wire form, the msgpack encoding built by
+ * {@link com.aerospike.client.exp.Exp}. Comparisons, boolean logic, arithmetic, conditionals,
+ * variables, bins, keys and record metadata are supported; an expression using anything else,
+ * such as list, map, bit or HLL functions, fails with {@link ResultCode#UNSUPPORTED_FEATURE}.</p>
+ *
+ * <p>As on the server, a missing bin or a type mismatch makes a value unknown, and a record
+ * only passes the filter if the expression is known to be true.</p>
+ */
+final class LoopbackExpression {
+    // Operation codes of the expression wire format
+    private static final int EQ = 1;
+    private static final int NE = 2;
+    private static final int GT = 3;
+    private static final int GE = 4;
+    private static final int LT = 5;
+    private static final int LE = 6;
+    private static final int REGEX = 7;
+    private static final int AND = 16;
+    private static final int OR = 17;
+    private static final int NOT = 18;
+    private static final int EXCLUSIVE = 19;
+    private static final int ADD = 20;
+    private static final int SUB = 21;
+    private static final int MUL = 22;
+    private static final int DIV = 23;
+    private static final int MOD = 26;
+    private static final int ABS = 27;
+    private static final int TO_INT = 30;
+    private static final int TO_FLOAT = 31;
+    private static final int MIN = 50;
+    private static final int MAX = 51;
+    private static final int DIGEST_MODULO = 64;
+    private static final int LAST_UPDATE = 66;
+    private static final int SINCE_UPDATE = 67;
+    private static final int VOID_TIME = 68;
+    private static final int TTL = 69;
+    private static final int SET_NAME = 70;
+    private static final int KEY_EXISTS = 71;
+    private static final int IS_TOMBSTONE = 72;
+    private static final int KEY = 80;
+    private static final int BIN = 81;
+    private static final int BIN_TYPE = 82;
+    private static final int COND = 123;
+    private static final int VAR = 124;
+    private static final int LET = 125;
+    private static final int QUOTE = 126;
+
+    // Particle types, which prefix string and blob values and are returned by BIN_TYPE
+    private static final int PARTICLE_NULL = 0;
+    private static final int PARTICLE_INTEGER = 1;
+    private static final int PARTICLE_DOUBLE = 2;
+    private static final int PARTICLE_STRING = 3;
+    private static final int PARTICLE_BLOB = 4;
+    private static final int PARTICLE_BOOL = 17;
+    private static final int PARTICLE_GEOJSON = 23;
+    private static final int PARTICLE_MAP = 19;
+    private static final int PARTICLE_LIST = 20;
+
+    // Value types of BIN and KEY, from Exp.Type
+    private static final int TYPE_BOOL = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_STRING = 3;
+    private static final int TYPE_LIST = 4;
+    private static final int TYPE_MAP = 5;
+    private static final int TYPE_BLOB = 6;
+    private static final int TYPE_FLOAT = 7;
+
+    private static final int REGEX_ICASE = 2;
+
+    /** The value of an expression which cannot be determined for this record */
+    private static final Object UNKNOWN = new Object();
+
+    /** A msgpack string, whose meaning depends on where it appears in the expression */
+    private record Str(byte[] bytes) {
+        /**
+         * @return the string as a name, such as a bin name or regular expression, which are
+         *         not normally prefixed with a particle type
+         */
+        String name() {
+            int start = bytes.length > 0 && bytes[0] == PARTICLE_STRING ? 1 : 0;
+            return new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final LoopbackAerospikeClient.Stored record;
+    private final long nowNanos;
+    private final Map<String, Object> variables = new HashMap<>();
+
+    private LoopbackExpression(LoopbackAerospikeClient.Stored record, long nowNanos) {
+        this.record = record;
+        this.nowNanos = nowNanos;
+    }
+
+    /**
+     * @return true if the record passes the filter expression
+     * @throws AerospikeException with {@link ResultCode#UNSUPPORTED_FEATURE} if the expression
+     *         uses a function which cannot be evaluated locally
+     */
+    static boolean matches(Expression expression, LoopbackAerospikeClient.Stored record) {
+        Object tree = new Reader(expression.getBytes()).read();
+        return Boolean.TRUE.equals(new LoopbackExpression(record, System.currentTimeMillis() * 1_000_000L).eval(tree));
+    }
+
+    private Object eval(Object node) {
+        if (!(node instanceof List<?> list)) {
+            return value(node);
+        }
+        if (list.isEmpty() || !(list.get(0) instanceof Long code)) {
+            throw unsupported("a list which is not an expression");
+        }
+        int op = code.intValue();
+        switch (op) {
+        case EQ:
+        case NE:
+        case GT:
+        case GE:
+        case LT:
+        case LE:
+            return compare(op, eval(list.get(1)), eval(list.get(2)));
+        case REGEX: {
+            int flags = ((Long) list.get(1)).intValue();
+            Object target = eval(list.get(3));
+            if (!(target instanceof String text)) {
+                return UNKNOWN;
+            }
+            Pattern pattern = Pattern.compile(((Str) list.get(2)).name(),
+                    (flags & REGEX_ICASE) != 0 ? Pattern.CASE_INSENSITIVE : 0);
+            return pattern.matcher(text).find();
+        }
+        case AND: {
+            boolean unknown = false;
+            for (int i = 1; i < list.size(); i++) {
+                Object result = eval(list.get(i));
+                if (Boolean.FALSE.equals(result)) {
+                    return false;
+                }
+                unknown |= !(result instanceof Boolean);
+            }
+            return unknown ? UNKNOWN : true;
+        }
+        case OR: {
+            boolean unknown = false;
+            for (int i = 1; i < list.size(); i++) {
+                Object result = eval(list.get(i));
+                if (Boolean.TRUE.equals(result)) {
+                    return true;
+                }
+                unknown |= !(result instanceof Boolean);
+            }
+            return unknown ? UNKNOWN : false;
+        }
+        case NOT: {
+            Object result = eval(list.get(1));
+            return result instanceof Boolean bool ? !bool : UNKNOWN;
+        }
+        case EXCLUSIVE: {
+            int trueCount = 0;
+            for (int i = 1; i < list.size(); i++) {
+                Object result = eval(list.get(i));
+                if (!(result instanceof Boolean)) {
+                    return UNKNOWN;
+                }
+                if ((Boolean) result) {
+                    trueCount++;
+                }
+            }
+            return trueCount == 1;
+        }
+        case ADD:
+        case SUB:
+        case MUL:
+        case DIV:
+        case MOD:
+        case MIN:
+        case MAX:
+            return arithmetic(op, list);
+        case ABS: {
+            Object value = eval(list.get(1));
+            if (value instanceof Long l) {
+                return Math.abs(l);
+            }
+            return value instanceof Double d ? Math.abs(d) : UNKNOWN;
+        }
+        case TO_INT: {
+            Object value = eval(list.get(1));
+            return value instanceof Double d ? (Object) d.longValue() : UNKNOWN;
+        }
+        case TO_FLOAT: {
+            Object value = eval(list.get(1));
+            return value instanceof Long l ? (Object) l.doubleValue() : UNKNOWN;
+        }
+        case DIGEST_MODULO:
+            return digestPrefix(record.key().digest) % (Long) list.get(1);
+        case LAST_UPDATE:
+            return record.lastUpdateNanos();
+        case SINCE_UPDATE:
+            return (nowNanos - record.lastUpdateNanos()) / 1_000_000L;
+        case VOID_TIME:
+            return record.expiration() == 0 ? -1L : LoopbackAerospikeClient.citrusToEpochNanos(record.expiration());
+        case TTL:
+            return record.expiration() == 0 ? -1L : (long) record.getTimeToLive();
+        case SET_NAME:
+            return record.key().setName == null ? "" : record.key().setName;
+        case KEY_EXISTS:
+            return record.key().userKey != null;
+        case IS_TOMBSTONE:
+            return false;
+        case KEY: {
+            if (record.key().userKey == null) {
+                return UNKNOWN;
+            }
+            return ofType(((Long) list.get(1)).intValue(), LoopbackAerospikeClient.normalize(record.key().userKey.getObject()));
+        }
+        case BIN:
+            return ofType(((Long) list.get(1)).intValue(), record.bins().get(((Str) list.get(2)).name()));
+        case BIN_TYPE:
+            return (long) particleType(record.bins().get(((Str) list.get(1)).name()));
+        case COND:
+            for (int i = 1; i + 1 < list.size(); i += 2) {
+                Object condition = eval(list.get(i));
+                if (!(condition instanceof Boolean)) {
+                    return UNKNOWN;
+                }
+                if ((Boolean) condition) {
+                    return eval(list.get(i + 1));
+                }
+            }
+            return eval(list.get(list.size() - 1));
+        case LET:
+            for (int i = 1; i + 1 < list.size(); i += 2) {
+                variables.put(((Str) list.get(i)).name(), eval(list.get(i + 1)));
+            }
+            return eval(list.get(list.size() - 1));
+        case VAR: {
+            String name = ((Str) list.get(1)).name();
+            if (!variables.containsKey(name)) {
+                throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Undefined expression variable " + name);
+            }
+            return variables.get(name);
+        }
+        case QUOTE:
+            return value(list.get(1));
+        default:
+            throw unsupported("operation " + op);
+        }
+    }
+
+    private Object compare(int op, Object left, Object right) {
+        if (left == UNKNOWN || right == UNKNOWN || left == null || right == null) {
+            return UNKNOWN;
+        }
+        if (op == EQ || op == NE) {
+            boolean equal = left instanceof byte[] l && right instanceof byte[] r ? Arrays.equals(l, r) : left.equals(right);
+            return op == EQ ? equal : !equal;
+        }
+        int result;
+        if (left instanceof Long l && right instanceof Long r) {
+            result = Long.compare(l, r);
+        }
+        else if (left instanceof Double l && right instanceof Double r) {
+            result = Double.compare(l, r);
+        }
+        else if (left instanceof String l && right instanceof String r) {
+            result = l.compareTo(r);
+        }
+        else {
+            return UNKNOWN;
+        }
+        switch (op) {
+        case GT:
+            return result > 0;
+        case GE:
+            return result >= 0;
+        case LT:
+            return result < 0;
+        default:
+            return result <= 0;
+        }
+    }
+
+    private Object arithmetic(int op, List<?> list) {
+        Object result = eval(list.get(1));
+        for (int i = 2; i < list.size(); i++) {
+            Object next = eval(list.get(i));
+            if (result instanceof Long l && next instanceof Long r) {
+                switch (op) {
+                case ADD: result = l + r; break;
+                case SUB: result = l - r; break;
+                case MUL: result = l * r; break;
+                case DIV: result = r == 0 ? UNKNOWN : (Object) (l / r); break;
+                case MOD: result = r == 0 ? UNKNOWN : (Object) (l % r); break;
+                case MIN: result = Math.min(l, r); break;
+                default: result = Math.max(l, r); break;
+                }
+            }
+            else if (result instanceof Double l && next instanceof Double r) {
+                switch (op) {
+                case ADD: result = l + r; break;
+                case SUB: result = l - r; break;
+                case MUL: result = l * r; break;
+                case DIV: result = l / r; break;
+                case MOD: result = l % r; break;
+                case MIN: result = Math.min(l, r); break;
+                default: result = Math.max(l, r); break;
+                }
+            }
+            else {
+                return UNKNOWN;
+            }
+        }
+        if (list.size() == 2 && op == SUB) {
+            // A single operand is negated
+            if (result instanceof Long l) {
+                return -l;
+            }
+            return result instanceof Double d ? (Object) (-d) : UNKNOWN;
+        }
+        return result;
+    }
+
+    private static long digestPrefix(byte[] digest) {
+        return (digest[0] & 0xffL) | (digest[1] & 0xffL) << 8 | (digest[2] & 0xffL) << 16 | (digest[3] & 0xffL) << 24;
+    }
+
+    /**
+     * @return the value if it is of the expression type, otherwise unknown
+     */
+    private static Object ofType(int type, Object value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        boolean matches = switch (type) {
+            case TYPE_BOOL -> value instanceof Boolean;
+            case TYPE_INT -> value instanceof Long;
+            case TYPE_STRING -> value instanceof String;
+            case TYPE_LIST -> value instanceof List;
+            case TYPE_MAP -> value instanceof Map;
+            case TYPE_BLOB -> value instanceof byte[];
+            case TYPE_FLOAT -> value instanceof Double;
+            default -> false;
+        };
+        return matches ? value : UNKNOWN;
+    }
+
+    private static int particleType(Object value) {
+        if (value == null) {
+            return PARTICLE_NULL;
+        }
+        if (value instanceof Long) {
+            return PARTICLE_INTEGER;
+        }
+        if (value instanceof Double) {
+            return PARTICLE_DOUBLE;
+        }
+        if (value instanceof String) {
+            return PARTICLE_STRING;
+        }
+        if (value instanceof Boolean) {
+            return PARTICLE_BOOL;
+        }
+        if (value instanceof List) {
+            return PARTICLE_LIST;
+        }
+        if (value instanceof Map) {
+            return PARTICLE_MAP;
+        }
+        return PARTICLE_BLOB;
+    }
+
+    /**
+     * Convert a constant of the expression. Strings and blobs in values are prefixed with their
+     * particle type.
+     */
+    private static Object value(Object node) {
+        if (node instanceof Str str) {
+            byte[] bytes = str.bytes();
+            if (bytes.length == 0) {
+                return "";
+            }
+            switch (bytes[0]) {
+            case PARTICLE_STRING:
+            case PARTICLE_GEOJSON:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            case PARTICLE_BLOB:
+                return Arrays.copyOfRange(bytes, 1, bytes.length);
+            default:
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        if (node instanceof List<?> list) {
+            List<Object> values = new ArrayList<>(list.size());
+            for (Object item : list) {
+                values.add(value(item));
+            }
+            return values;
+        }
+        if (node instanceof Map<?, ?> map) {
+            Map<Object, Object> values = new LinkedHashMap<>();
+            map.forEach((k, v) -> values.put(value(k), value(v)));
+            return values;
+        }
+        return node;
+    }
+
+    private static AerospikeException unsupported(String what) {
+        return new AerospikeException(ResultCode.UNSUPPORTED_FEATURE,
+                "The loopback client cannot evaluate " + what + " in a filter expression");
+    }
+
+    /**
+     * Reads msgpack into lists, maps, longs, doubles, booleans, byte arrays and {@link Str}.
+     * Extension values, which only carry CDT ordering flags, are read as null.
+     */
+    private static final class Reader {
+        private final byte[] buffer;
+        private int offset;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        Object read() {
+            int type = buffer[offset++] & 0xff;
+            if (type <= 0x7f) {
+                return (long) type;
+            }
+            if (type >= 0xe0) {
+                return (long) (byte) type;
+            }
+            if ((type & 0xf0) == 0x80) {
+                return readMap(type & 0x0f);
+            }
+            if ((type & 0xf0) == 0x90) {
+                return readList(type & 0x0f);
+            }
+            if ((type & 0xe0) == 0xa0) {
+                return new Str(readBytes(type & 0x1f));
+            }
+            switch (type) {
+            case 0xc0: return null;
+            case 0xc2: return false;
+            case 0xc3: return true;
+            case 0xc4: return readBytes(readUnsigned(1));
+            case 0xc5: return readBytes(readUnsigned(2));
+            case 0xc6: return readBytes(readUnsigned(4));
+            case 0xc7: return skipExt(readUnsigned(1));
+            case 0xc8: return skipExt(readUnsigned(2));
+            case 0xc9: return skipExt(readUnsigned(4));
+            case 0xca: return (double) Float.intBitsToFloat((int) readSigned(4));
+            case 0xcb: return Double.longBitsToDouble(readSigned(8));
+            case 0xcc: return (long) readUnsigned(1);
+            case 0xcd: return (long) readUnsigned(2);
+            case 0xce: return readSigned(4) & 0xffffffffL;
+            case 0xcf: return readSigned(8);
+            case 0xd0: return (long) (byte) readSigned(1);
+            case 0xd1: return (long) (short) readSigned(2);
+            case 0xd2: return (long) (int) readSigned(4);
+            case 0xd3: return readSigned(8);
+            case 0xd4: return skipExt(1);
+            case 0xd5: return skipExt(2);
+            case 0xd6: return skipExt(4);
+            case 0xd7: return skipExt(8);
+            case 0xd8: return skipExt(16);
+            case 0xd9: return new Str(readBytes(readUnsigned(1)));
+            case 0xda: return new Str(readBytes(readUnsigned(2)));
+            case 0xdb: return new Str(readBytes(readUnsigned(4)));
+            case 0xdc: return readList(readUnsigned(2));
+            case 0xdd: return readList(readUnsigned(4));
+            case 0xde: return readMap(readUnsigned(2));
+            case 0xdf: return readMap(readUnsigned(4));
+            default:
+                throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Invalid msgpack type " + type + " in expression");
+            }
+        }
+
+        private List<Object> readList(int count) {
+            List<Object> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(read());
+            }
+            return list;
+        }
+
+        private Map<Object, Object> readMap(int count) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                Object key = read();
+                Object value = read();
+                if (key != null) {
+                    // A null key is the ordering flag of an ordered map
+                    map.put(key, value);
+                }
+            }
+            return map;
+        }
+
+        private Object skipExt(int length) {
+            offset += 1 + length;
+            return null;
+        }
+
+        private byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + length);
+            offset += length;
+            return bytes;
+        }
+
+        private int readUnsigned(int length) {
+            return (int) readSigned(length) & (length == 4 ? -1 : (1 << (length * 8)) - 1);
+        }
+
+        private long readSigned(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (buffer[offset++] & 0xff);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.aerospike;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+
+/**
+ * The results of a {@link LoopbackAerospikeClient} query, which are all known when the query
+ * returns, so no producer is needed behind the record set.
+ */
+final class LoopbackRecordSet extends RecordSet {
+    private final Iterator<KeyRecord> records;
+    private KeyRecord current;
+    private boolean closed;
+
+    LoopbackRecordSet(List<KeyRecord> records) {
+        super(null, 1);
+        this.records = records.iterator();
+    }
+
+    @Override
+    public boolean next() {
+        current = !closed && records.hasNext() ? records.next() : null;
+        return current != null;
+    }
+
+    @Override
+    public KeyRecord getKeyRecord() {
+        return current;
+    }
+
+    @Override
+    public Key getKey() {
+        return current.key;
+    }
+
+    @Override
+    public Record getRecord() {
+        return current.record;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        current = null;
+    }
+}
@@ -0,0 +1,270 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.query.SortDir;
+
+/**
+ * Tests for NavigatableRecordStream's bounded memory options: keeping only the best records with
+ * topK and firstPages, and spilling sorted runs to disk with a memory budget.
+ */
+class NavigatableRecordStreamTest {
+    private static final int COUNT = 500;
+
+    private static RecordStream source() {
+        List<RecordResult> results = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            Map<String, Object> bins = new LinkedHashMap<>();
+            // A permutation of 0..COUNT-1 so the input is not already sorted
+            bins.put("age", (long) ((i * 7919) % COUNT));
+            bins.put("name", "name-" + (i % 10));
+            results.add(new RecordResult(new Key("test", "people", i), new Record(bins, 1, 0), i));
+        }
+        return new RecordStream(results, 0);
+    }
+
+    private static long age(RecordResult result) {
+        return (Long) result.recordOrNull().bins.get("age");
+    }
+
+    @Nested
+    @DisplayName("Top K Tests")
+    class TopKTests {
+
+        @Test
+        @DisplayName("The first pages hold the best records in order")
+        void testFirstPages() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .firstPages(2)
+                    .pageSize(10)
+                    .sortBy("age", SortDir.SORT_DESC)) {
+
+                assertEquals(COUNT, stream.size());
+                assertEquals(COUNT / 10, stream.maxPages());
+                long expected = COUNT - 1;
+                for (int page = 0; page < 2; page++) {
+                    assertTrue(stream.hasMorePages());
+                    while (stream.hasNext()) {
+                        assertEquals(expected--, age(stream.next()));
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Paging past the top k falls back to sorting all records")
+        void testPagePastTopK() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .topK(5)
+                    .sortBy("age")) {
+
+                long expected = 0;
+                while (stream.hasNext()) {
+                    assertEquals(expected++, age(stream.next()));
+                }
+                assertEquals(COUNT, expected);
+            }
+        }
+
+        @Test
+        @DisplayName("Re-sorting selects the top k in the new order")
+        void testResort() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .topK(10)
+                    .pageSize(10)
+                    .sortBy("age")) {
+
+                assertEquals(0, age(stream.next()));
+                stream.sortBy("age", SortDir.SORT_DESC);
+                assertEquals(COUNT - 1, age(stream.next()));
+                stream.setPageTo(20);
+                // Page 20 starts at the 191st record
+                assertEquals(COUNT - 191, age(stream.next()));
+            }
+        }
+
+        @Test
+        @DisplayName("Records which sort equally are ordered as by a full sort")
+        void testTiesMatchFullSort() {
+            List<Integer> expected = new ArrayList<>();
+            try (NavigatableRecordStream stream = source().asNavigatableStream().sortBy("name")) {
+                stream.stream().forEach(rec -> expected.add(rec.index()));
+            }
+            // Each name is shared by a tenth of the records, so the top k is decided by the ties
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .topK(75)
+                    .pageSize(75)
+                    .sortBy("name")) {
+                assertEquals(expected.subList(0, 75), firstPage(stream));
+
+                // Re-selecting the top k from the overflow keeps the same order
+                stream.sortBy("age");
+                stream.sortBy("name");
+                assertEquals(expected.subList(0, 75), firstPage(stream));
+
+                // As does paging past the top k
+                stream.pageSize(0);
+                assertEquals(expected, firstPage(stream));
+            }
+        }
+
+        private List<Integer> firstPage(NavigatableRecordStream stream) {
+            List<Integer> indexes = new ArrayList<>();
+            assertTrue(stream.hasMorePages());
+            while (stream.hasNext()) {
+                indexes.add(stream.next().index());
+            }
+            return indexes;
+        }
+
+        @Test
+        @DisplayName("Without a sort the first k records are kept in their original order")
+        void testUnsorted() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream().topK(3)) {
+                int i = 0;
+                while (stream.hasNext()) {
+                    assertEquals(i++, stream.next().index());
+                }
+                assertEquals(COUNT, i);
+            }
+        }
+
+        @Test
+        @DisplayName("Options cannot be changed once the records are read")
+        void testOptionsAfterLoad() {
+            NavigatableRecordStream stream = source().asNavigatableStream();
+            stream.size();
+            assertThrows(IllegalStateException.class, () -> stream.topK(10));
+            assertThrows(IllegalStateException.class, () -> stream.firstPages(1));
+            assertThrows(IllegalArgumentException.class, () -> source().asNavigatableStream().topK(-1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Spill Tests")
+    class SpillTests {
+
+        @Test
+        @DisplayName("Records over the budget are sorted and paged from spilled runs")
+        void testSortedPagesFromSpilledRuns() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .maxHeapBytes(4096)
+                    .pageSize(50)
+                    .sortBy("age")) {
+
+                assertEquals(COUNT, stream.size());
+                assertEquals(10, stream.maxPages());
+                long expected = 0;
+                while (stream.hasMorePages()) {
+                    while (stream.hasNext()) {
+                        assertEquals(expected++, age(stream.next()));
+                    }
+                }
+                assertEquals(COUNT, expected);
+
+                // Moving backwards restarts the merge
+                stream.setPageTo(3);
+                assertEquals(100, age(stream.next()));
+                stream.setPageTo(2);
+                assertEquals(50, age(stream.next()));
+            }
+        }
+
+        @Test
+        @DisplayName("Spilled records can be re-sorted")
+        void testResortSpilledRecords() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream()
+                    .maxHeapBytes(4096)
+                    .sortBy("age")) {
+                stream.sortBy("age", SortDir.SORT_DESC);
+                assertEquals(COUNT - 1, age(stream.next()));
+                assertEquals(COUNT - 2, age(stream.next()));
+                assertEquals(COUNT - 2, stream.stream().count());
+            }
+        }
+
+        @Test
+        @DisplayName("Without a sort the records keep their original order when spilled")
+        void testUnsortedSpill() {
+            try (NavigatableRecordStream stream = source().asNavigatableStream().maxHeapBytes(4096)) {
+                int i = 0;
+                while (stream.hasNext()) {
+                    assertEquals(i++, stream.next().index());
+                }
+                assertEquals(COUNT, i);
+            }
+        }
+
+        @Test
+        @DisplayName("The memory budget must be set before the records are read")
+        void testBudgetAfterLoad() {
+            NavigatableRecordStream stream = source().asNavigatableStream();
+            assertEquals(COUNT, stream.size());
+            assertThrows(IllegalStateException.class, () -> stream.maxHeapBytes(4096));
+            assertThrows(IllegalArgumentException.class, () -> source().asNavigatableStream().maxHeapBytes(-1));
+        }
+
+        @Test
+        @DisplayName("Results round trip through the spill encoding")
+        void testCodecRoundTrip() throws Exception {
+            Map<String, Object> bins = new LinkedHashMap<>();
+            bins.put("long", 42L);
+            bins.put("double", 1.5);
+            bins.put("string", "value");
+            bins.put("bool", true);
+            bins.put("blob", new byte[] {1, 2, 3});
+            bins.put("list", List.of(1L, "two", List.of(3.0)));
+            bins.put("map", Map.of("a", 1L));
+            bins.put("null", null);
+            RecordResult ok = new RecordResult(new Key("test", "set", "key1"), new Record(bins, 3, 100), 7);
+            RecordResult failed = new RecordResult(new Key("test", null, 5), ResultCode.KEY_NOT_FOUND_ERROR, true, "not found", 8);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                RecordResultCodec.write(out, ok);
+                RecordResultCodec.write(out, failed);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            RecordResult okRead = RecordResultCodec.read(in);
+            RecordResult failedRead = RecordResultCodec.read(in);
+
+            assertEquals(ok.key(), okRead.key());
+            assertEquals("key1", okRead.key().userKey.getObject());
+            assertEquals(3, okRead.recordOrNull().generation);
+            assertEquals(100, okRead.recordOrNull().expiration);
+            assertEquals(7, okRead.index());
+            Map<String, Object> readBins = okRead.recordOrNull().bins;
+            assertEquals(bins.keySet(), readBins.keySet());
+            assertEquals(42L, readBins.get("long"));
+            assertEquals(1.5, readBins.get("double"));
+            assertEquals("value", readBins.get("string"));
+            assertEquals(true, readBins.get("bool"));
+            assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) readBins.get("blob"));
+            assertEquals(List.of(1L, "two", List.of(3.0)), readBins.get("list"));
+            assertEquals(Map.of("a", 1L), readBins.get("map"));
+            assertNull(readBins.get("null"));
+
+            assertEquals(failed.key(), failedRead.key());
+            assertNull(failedRead.recordOrNull());
+            assertEquals(ResultCode.KEY_NOT_FOUND_ERROR, failedRead.resultCode());
+            assertTrue(failedRead.inDoubt());
+            assertEquals("not found", failedRead.message());
+        }
+    }
+}
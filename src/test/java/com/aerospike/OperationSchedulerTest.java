@@ -0,0 +1,215 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Tests for OperationScheduler admission limits and per-key ordering. The client has no
+ * partition map so all keys are routed to the same (unknown) node.
+ */
+class OperationSchedulerTest {
+
+    private static IAerospikeClient clientWithoutCluster() {
+        return (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> null);
+    }
+
+    private static OperationScheduler scheduler(int perNode, int perSession) {
+        return new OperationScheduler(clientWithoutCluster(), SystemSettings.builder()
+                .scheduling(ops -> ops
+                    .maximumInFlightPerNode(perNode)
+                    .maximumInFlightPerSession(perSession)
+                )
+                .build());
+    }
+
+    /**
+     * Submit {@code count} tasks on distinct keys which each hold for a short while,
+     * returning the peak concurrency observed.
+     */
+    private static int runAndMeasurePeak(List<OperationScheduler.SessionQueue> queues, int count) throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count * queues.size());
+        int id = 0;
+        for (OperationScheduler.SessionQueue queue : queues) {
+            for (int i = 0; i < count; i++) {
+                queue.submit(new Key("test", "set", id++), () -> {
+                    int now = running.incrementAndGet();
+                    peak.accumulateAndGet(now, Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return peak.get();
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.SECONDS)
+    @DisplayName("In-flight operations never exceed the per-session limit")
+    void testPerSessionLimit() throws InterruptedException {
+        OperationScheduler scheduler = scheduler(100, 4);
+        int peak = runAndMeasurePeak(List.of(scheduler.newSessionQueue()), 50);
+        assertTrue(peak <= 4, "Peak concurrency was " + peak);
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.SECONDS)
+    @DisplayName("In-flight operations never exceed the per-node limit across sessions")
+    void testPerNodeLimit() throws InterruptedException {
+        OperationScheduler scheduler = scheduler(6, 100);
+        int peak = runAndMeasurePeak(List.of(
+                scheduler.newSessionQueue(),
+                scheduler.newSessionQueue(),
+                scheduler.newSessionQueue()), 30);
+        assertTrue(peak <= 6, "Peak concurrency was " + peak);
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.SECONDS)
+    @DisplayName("Operations on the same key run one at a time in submission order")
+    void testSameKeyOrdering() throws InterruptedException {
+        OperationScheduler scheduler = scheduler(50, 50);
+        OperationScheduler.SessionQueue session1 = scheduler.newSessionQueue();
+        OperationScheduler.SessionQueue session2 = scheduler.newSessionQueue();
+        Key key = new Key("test", "set", "sameKey");
+
+        int count = 100;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            OperationScheduler.SessionQueue queue = (i % 2 == 0) ? session1 : session2;
+            queue.submit(key, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(index);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(0, session1.getInFlight());
+        assertEquals(0, session2.getInFlight());
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.SECONDS)
+    @DisplayName("A command run on the caller's thread waits behind queued operations on the same key")
+    void testRunWaitsForSameKey() throws InterruptedException {
+        OperationScheduler scheduler = scheduler(50, 50);
+        OperationScheduler.SessionQueue queue = scheduler.newSessionQueue();
+        Key key = new Key("test", "set", "sameKey");
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        queue.submit(key, () -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add("queued");
+        });
+
+        Thread caller = Thread.currentThread();
+        Thread releaser = Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add("released");
+            release.countDown();
+        });
+        queue.run(key, () -> {
+            assertSame(caller, Thread.currentThread());
+            order.add("run");
+        });
+        releaser.join();
+
+        assertEquals(List.of("released", "queued", "run"), order);
+        assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    @DisplayName("A partial settings update keeps the limits it does not mention")
+    void testPartialUpdate() {
+        OperationScheduler scheduler = scheduler(6, 8);
+        scheduler.applySettings(SystemSettings.builder()
+                .scheduling(ops -> ops.maximumInFlightPerSession(20))
+                .build());
+        assertEquals(6, scheduler.getMaximumInFlightPerNode());
+        assertEquals(20, scheduler.getMaximumInFlightPerSession());
+
+        assertThrows(IllegalArgumentException.class, () -> scheduler.applySettings(SystemSettings.builder()
+                .scheduling(ops -> ops.maximumInFlightPerNode(0))
+                .build()));
+        scheduler.applySettings(SystemSettings.builder().build());
+        assertEquals(6, scheduler.getMaximumInFlightPerNode());
+        assertEquals(20, scheduler.getMaximumInFlightPerSession());
+    }
+
+    @Test
+    @DisplayName("Asynchronous object writes which cannot be scheduled report the failure through the stream")
+    void testAsyncObjectFailure() {
+        Session session = LoopbackAerospikeClient.builder().build().createCluster().createSession(Behavior.DEFAULT);
+        TypeSafeDataSet<String> dataSet = TypeSafeDataSet.of("test", "set", String.class);
+
+        // There is no mapping factory, so no mapper for the objects
+        RecordStream single = session.upsert(dataSet).object("a").executeAsync();
+        assertThrows(UnsupportedOperationException.class, single::next);
+        RecordStream several = session.upsert(dataSet).objects("a", "b", "c").executeAsync();
+        assertThrows(UnsupportedOperationException.class, several::next);
+    }
+
+    @Test
+    @DisplayName("Synchronous object writes which cannot be scheduled report the failure through the stream")
+    void testSyncObjectFailure() {
+        Session session = LoopbackAerospikeClient.builder().build().createCluster().createSession(Behavior.DEFAULT);
+        TypeSafeDataSet<String> dataSet = TypeSafeDataSet.of("test", "set", String.class);
+
+        RecordStream several = session.upsert(dataSet).objects("a", "b", "c").executeSync();
+        assertThrows(UnsupportedOperationException.class, several::next);
+    }
+
+    @Test
+    @DisplayName("Non-positive limits are rejected")
+    void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> scheduler(10, -1));
+    }
+}
@@ -0,0 +1,248 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Tests for ParallelQuery: shard formation, and the limit, closing and failure handling across
+ * shards run against the loopback client.
+ */
+class ParallelQueryTest {
+    private static final int RECORDS = 400;
+
+    /**
+     * A record set which counts the records read from it and whether it was closed.
+     */
+    private static final class TrackedRecordSet extends RecordSet {
+        private final RecordSet target;
+        private final AtomicInteger read = new AtomicInteger();
+        private volatile boolean closed;
+
+        TrackedRecordSet(RecordSet target) {
+            super(null, 1);
+            this.target = target;
+        }
+
+        @Override
+        public boolean next() {
+            boolean next = target.next();
+            if (next) {
+                read.incrementAndGet();
+            }
+            return next;
+        }
+
+        @Override
+        public KeyRecord getKeyRecord() {
+            return target.getKeyRecord();
+        }
+
+        @Override
+        public Key getKey() {
+            return target.getKey();
+        }
+
+        @Override
+        public Record getRecord() {
+            return target.getRecord();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            target.close();
+        }
+    }
+
+    /**
+     * Passes every call to a loopback client, tracking the record sets of partition queries.
+     */
+    private static final class TrackingClient implements InvocationHandler {
+        private final IAerospikeClient target = LoopbackAerospikeClient.builder().build().getClient();
+        private final List<TrackedRecordSet> recordSets = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof RecordSet recordSet && method.getName().equals("queryPartitions")) {
+                TrackedRecordSet tracked = new TrackedRecordSet(recordSet);
+                recordSets.add(tracked);
+                return tracked;
+            }
+            return result;
+        }
+
+        Session session() {
+            IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { IAerospikeClient.class }, this);
+            for (int i = 0; i < RECORDS; i++) {
+                client.put(null, new Key("test", "people", i), new Bin("id", i));
+            }
+            return new Cluster(client, "loopback", SystemSettings.DEFAULT).createSession(Behavior.DEFAULT);
+        }
+
+        int recordsRead() {
+            return recordSets.stream().mapToInt(recordSet -> recordSet.read.get()).sum();
+        }
+
+        void awaitAllClosed() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!recordSets.stream().allMatch(recordSet -> recordSet.closed)) {
+                assertTrue(System.currentTimeMillis() < deadline, "Shards were not closed");
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static Statement statement() {
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName("people");
+        return statement;
+    }
+
+    private static RecordStream execute(Session session, Supplier<Statement> statements, int capacity, long limit) {
+        return ParallelQuery.execute(session, new QueryPolicy(), statements, 0, 4096, 4, capacity, limit);
+    }
+
+    private static Set<Long> ids(RecordStream stream) {
+        Set<Long> ids = new HashSet<>();
+        while (stream.hasNext()) {
+            assertTrue(ids.add(stream.next().recordOrThrow().getLong("id")));
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("The partition range is split into contiguous, near-equal shards")
+    void testShards() {
+        assertArrayEquals(new int[] {0, 1024, 2048, 3072, 4096}, ParallelQuery.shards(0, 4096, 4));
+        assertArrayEquals(new int[] {100, 133, 166, 200}, ParallelQuery.shards(100, 200, 3));
+        assertArrayEquals(new int[] {0, 4096}, ParallelQuery.shards(0, 4096, 1));
+    }
+
+    @Test
+    @DisplayName("No more shards are formed than there are partitions")
+    void testMoreShardsThanPartitions() {
+        assertArrayEquals(new int[] {10, 11, 12, 13}, ParallelQuery.shards(10, 13, 8));
+        assertArrayEquals(new int[] {5, 6}, ParallelQuery.shards(5, 6, 16));
+    }
+
+    @Test
+    @DisplayName("A records-per-second limit is divided between the shards")
+    void testRecordsPerSecond() {
+        assertEquals(3, ParallelQuery.recordsPerSecondPerShard(10, 4));
+        assertEquals(25, ParallelQuery.recordsPerSecondPerShard(100, 4));
+        assertEquals(1, ParallelQuery.recordsPerSecondPerShard(2, 4));
+
+        TrackingClient client = new TrackingClient();
+        List<Statement> statements = new CopyOnWriteArrayList<>();
+        Supplier<Statement> rateLimited = () -> {
+            Statement statement = statement();
+            statement.setRecordsPerSecond(1000);
+            statements.add(statement);
+            return statement;
+        };
+        assertEquals(RECORDS, ids(execute(client.session(), rateLimited, 1000, 0)).size());
+        assertEquals(4, statements.size());
+        for (Statement statement : statements) {
+            assertEquals(250, statement.getRecordsPerSecond());
+        }
+    }
+
+    @Test
+    @DisplayName("Every record is returned once, and every shard is closed")
+    void testAllShards() throws InterruptedException {
+        TrackingClient client = new TrackingClient();
+        Set<Long> ids = ids(execute(client.session(), ParallelQueryTest::statement, 10, 0));
+
+        assertEquals(RECORDS, ids.size());
+        assertEquals(4, client.recordSets.size());
+        client.awaitAllClosed();
+    }
+
+    @Test
+    @DisplayName("A limit is applied across all shards")
+    void testLimit() throws InterruptedException {
+        TrackingClient client = new TrackingClient();
+        Set<Long> ids = ids(execute(client.session(), ParallelQueryTest::statement, 1000, 25));
+
+        assertEquals(25, ids.size());
+        client.awaitAllClosed();
+        // A shard may read one record past the limit before it stops
+        assertTrue(client.recordsRead() <= 25 + 4, "read " + client.recordsRead());
+    }
+
+    @Test
+    @DisplayName("Closing the stream stops every shard")
+    void testClose() throws InterruptedException {
+        TrackingClient client = new TrackingClient();
+        RecordStream stream = execute(client.session(), ParallelQueryTest::statement, 1, 0);
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(stream.next());
+        }
+        stream.close();
+
+        client.awaitAllClosed();
+        // Each shard stops once it finds the stream closed, at most a few records later
+        assertTrue(client.recordsRead() < 20, "read " + client.recordsRead());
+    }
+
+    @Test
+    @DisplayName("A failure in one shard is passed to the consumer and stops the others")
+    void testShardFailure() throws InterruptedException {
+        TrackingClient client = new TrackingClient();
+        AtomicInteger shards = new AtomicInteger();
+        // The loopback client rejects secondary index queries, so the second shard fails
+        Supplier<Statement> statements = () -> {
+            Statement statement = statement();
+            if (shards.incrementAndGet() == 2) {
+                statement.setFilter(Filter.equal("id", 1));
+            }
+            return statement;
+        };
+        RecordStream stream = execute(client.session(), statements, 1000, 0);
+
+        AerospikeException ae = assertThrows(AerospikeException.class, () -> {
+            while (true) {
+                stream.next();
+            }
+        });
+        assertEquals(ResultCode.UNSUPPORTED_FEATURE, ae.getResultCode());
+        // Shards which had not started their query when the failure occurred do not start it
+        assertTrue(client.recordSets.size() <= 3);
+        client.awaitAllClosed();
+    }
+}
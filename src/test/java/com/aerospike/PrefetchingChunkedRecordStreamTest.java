@@ -0,0 +1,146 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.Statement;
+import com.aerospike.policy.Behavior;
+import com.aerospike.query.RecordStreamImpl;
+
+/**
+ * Tests for PrefetchingChunkedRecordStream against the loopback client: chunk order, the prefetch
+ * depth, closing and failures.
+ */
+class PrefetchingChunkedRecordStreamTest {
+    private static final int RECORDS = 100;
+    private static final int CHUNK_SIZE = 10;
+
+    private final LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder().build();
+    private final Session session = loopback.createCluster().createSession(Behavior.DEFAULT);
+
+    PrefetchingChunkedRecordStreamTest() {
+        for (int i = 0; i < RECORDS; i++) {
+            loopback.getClient().put(null, new Key("test", "people", i), new Bin("id", i));
+        }
+    }
+
+    private static Statement statement() {
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName("people");
+        statement.setMaxRecords(CHUNK_SIZE);
+        return statement;
+    }
+
+    private PrefetchingChunkedRecordStream prefetching(Statement statement, long limit, int depth) {
+        return new PrefetchingChunkedRecordStream(session, new QueryPolicy(), statement, PartitionFilter.all(), limit, depth);
+    }
+
+    private static List<List<Long>> chunks(RecordStreamImpl stream) {
+        List<List<Long>> chunks = new ArrayList<>();
+        while (stream.hasMoreChunks()) {
+            List<Long> chunk = new ArrayList<>();
+            while (stream.hasNext()) {
+                chunk.add(stream.next().recordOrThrow().getLong("id"));
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Wait for a count to stop changing.
+     */
+    private static long settled(LongSupplier count) throws InterruptedException {
+        long last = count.getAsLong();
+        while (true) {
+            Thread.sleep(200);
+            long now = count.getAsLong();
+            if (now == last) {
+                return now;
+            }
+            last = now;
+        }
+    }
+
+    @Test
+    @DisplayName("Chunks are returned in the same order as without prefetching")
+    void testOrder() {
+        List<List<Long>> expected = chunks(new ChunkedRecordStream(session, new QueryPolicy(), statement(),
+                PartitionFilter.all(), Long.MAX_VALUE));
+        List<List<Long>> actual = chunks(prefetching(statement(), Long.MAX_VALUE, 3));
+
+        assertEquals(expected, actual);
+        assertEquals(RECORDS, actual.stream().mapToInt(List::size).sum());
+        assertTrue(actual.stream().allMatch(chunk -> chunk.size() <= CHUNK_SIZE));
+    }
+
+    @Test
+    @DisplayName("No more than the prefetch depth of chunks is fetched ahead of the consumer")
+    void testDepth() throws InterruptedException {
+        long before = loopback.getCommandCount();
+        PrefetchingChunkedRecordStream stream = prefetching(statement(), Long.MAX_VALUE, 2);
+
+        // Two chunks are queued and the third waits for room
+        assertEquals(3, settled(() -> loopback.getCommandCount() - before));
+
+        assertTrue(stream.hasMoreChunks());
+        assertEquals(4, settled(() -> loopback.getCommandCount() - before));
+        stream.close();
+    }
+
+    @Test
+    @DisplayName("A limit stops the fetch and is applied across chunks")
+    void testLimit() throws InterruptedException {
+        long before = loopback.getCommandCount();
+        List<List<Long>> chunks = chunks(prefetching(statement(), 25, 2));
+
+        assertEquals(25, chunks.stream().mapToInt(List::size).sum());
+        assertEquals(3, settled(() -> loopback.getCommandCount() - before));
+    }
+
+    @Test
+    @DisplayName("Closing the stream stops the background fetch")
+    void testClose() throws InterruptedException {
+        long before = loopback.getCommandCount();
+        PrefetchingChunkedRecordStream stream = prefetching(statement(), Long.MAX_VALUE, 1);
+        assertTrue(stream.hasMoreChunks());
+        assertTrue(stream.hasNext());
+        stream.close();
+
+        long fetched = settled(() -> loopback.getCommandCount() - before);
+        assertTrue(fetched <= 3, "fetched " + fetched);
+    }
+
+    @Test
+    @DisplayName("A failed fetch is thrown to the consumer")
+    void testError() {
+        Statement statement = statement();
+        // The loopback client rejects secondary index queries
+        statement.setFilter(Filter.equal("id", 1));
+        PrefetchingChunkedRecordStream stream = prefetching(statement, Long.MAX_VALUE, 1);
+
+        AerospikeException ae = assertThrows(AerospikeException.class, stream::hasMoreChunks);
+        assertEquals(ResultCode.UNSUPPORTED_FEATURE, ae.getResultCode());
+        assertFalse(stream.hasMoreChunks());
+    }
+
+    @Test
+    @DisplayName("The prefetch depth must be positive")
+    void testInvalidDepth() {
+        assertThrows(IllegalArgumentException.class, () -> prefetching(statement(), Long.MAX_VALUE, 0));
+    }
+}
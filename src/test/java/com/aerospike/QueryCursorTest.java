@@ -0,0 +1,142 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.PartitionStatus;
+import com.aerospike.client.query.Statement;
+
+/**
+ * Tests for QueryCursor: capture, encoding and restoring the partition positions, and
+ * rejecting a cursor resumed with a different query.
+ */
+class QueryCursorTest {
+
+    private static Statement statement() {
+        Statement stmt = new Statement();
+        stmt.setNamespace("test");
+        stmt.setSetName("people");
+        return stmt;
+    }
+
+    /** A filter over partitions 100-199 part way through a query */
+    private static PartitionFilter inProgress() {
+        PartitionFilter filter = PartitionFilter.range(100, 100);
+        PartitionStatus[] partitions = new PartitionStatus[100];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new PartitionStatus(100 + i);
+        }
+        // Partition 100 is finished, 101 is part way through and 150 is part way through an index query
+        partitions[0].retry = false;
+        partitions[1].digest = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+        partitions[50].bval = 12345;
+        filter.setPartitions(partitions);
+        return filter;
+    }
+
+    private static void assertSamePositions(PartitionFilter expected, PartitionFilter actual) {
+        assertEquals(expected.getBegin(), actual.getBegin());
+        assertEquals(expected.getCount(), actual.getCount());
+        for (int i = 0; i < expected.getCount(); i++) {
+            PartitionStatus e = expected.getPartitions()[i];
+            PartitionStatus a = actual.getPartitions()[i];
+            assertEquals(e.id, a.id);
+            assertEquals(e.retry, a.retry);
+            assertEquals(e.bval, a.bval);
+            assertArrayEquals(e.digest, a.digest);
+        }
+    }
+
+    @Test
+    @DisplayName("A cursor round trips through its string form")
+    void testStringRoundTrip() {
+        PartitionFilter filter = inProgress();
+        QueryCursor cursor = QueryCursor.of(statement(), new QueryPolicy(), filter);
+        QueryCursor restored = QueryCursor.fromString(cursor.toString());
+
+        assertEquals("test", restored.getNamespace());
+        assertEquals("people", restored.getSetName());
+        assertEquals(100, restored.getStartPartition());
+        assertEquals(200, restored.getEndPartition());
+        assertFalse(restored.isDone());
+        assertSamePositions(filter, restored.toPartitionFilter());
+        // Only the three started partitions are encoded
+        assertTrue(cursor.toBytes().length < 100, "Cursor was " + cursor.toBytes().length + " bytes");
+    }
+
+    @Test
+    @DisplayName("A cursor round trips through Java serialization")
+    void testJavaSerialization() throws Exception {
+        PartitionFilter filter = inProgress();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(QueryCursor.of(statement(), new QueryPolicy(), filter));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            QueryCursor restored = (QueryCursor) in.readObject();
+            assertSamePositions(filter, restored.toPartitionFilter());
+        }
+    }
+
+    @Test
+    @DisplayName("A cursor taken before the query starts restores a fresh filter")
+    void testNotStarted() {
+        QueryCursor cursor = QueryCursor.fromString(QueryCursor.of(statement(), new QueryPolicy(), PartitionFilter.all()).toString());
+        assertEquals(0, cursor.getStartPartition());
+        assertEquals(4096, cursor.getEndPartition());
+        assertNull(cursor.toPartitionFilter().getPartitions());
+    }
+
+    @Test
+    @DisplayName("Invalid cursors are rejected")
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.fromString("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> QueryCursor.fromString("AQ"));
+    }
+
+    @Test
+    @DisplayName("A cursor only resumes the query it was taken from")
+    void testMismatchedQuery() {
+        QueryPolicy policy = new QueryPolicy();
+        policy.filterExp = Exp.build(Exp.gt(Exp.intBin("age"), Exp.val(30)));
+        Statement original = statement();
+        original.setBinNames("name", "age");
+        original.setMaxRecords(100);
+        QueryCursor cursor = QueryCursor.fromString(QueryCursor.of(original, policy, inProgress()).toString());
+
+        Statement same = statement();
+        same.setBinNames("name", "age");
+        same.setMaxRecords(100);
+        assertDoesNotThrow(() -> cursor.checkResumes(same, policy));
+
+        Statement otherBins = statement();
+        otherBins.setBinNames("name");
+        otherBins.setMaxRecords(100);
+        assertThrows(IllegalArgumentException.class, () -> cursor.checkResumes(otherBins, policy));
+
+        Statement otherChunk = statement();
+        otherChunk.setBinNames("name", "age");
+        otherChunk.setMaxRecords(50);
+        assertThrows(IllegalArgumentException.class, () -> cursor.checkResumes(otherChunk, policy));
+
+        QueryPolicy otherWhere = new QueryPolicy();
+        otherWhere.filterExp = Exp.build(Exp.gt(Exp.intBin("age"), Exp.val(40)));
+        assertThrows(IllegalArgumentException.class, () -> cursor.checkResumes(same, otherWhere));
+
+        Statement otherSet = statement();
+        otherSet.setSetName("places");
+        otherSet.setBinNames("name", "age");
+        otherSet.setMaxRecords(100);
+        assertThrows(IllegalArgumentException.class, () -> cursor.checkResumes(otherSet, policy));
+    }
+}
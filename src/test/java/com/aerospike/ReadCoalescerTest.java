@@ -0,0 +1,157 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.ReadModeAP;
+
+/**
+ * Tests for ReadCoalescer: identical concurrent reads share one read, different reads do not.
+ */
+class ReadCoalescerTest {
+    private static final Key KEY = new Key("test", "set", 1);
+
+    private static ReadCoalescer.ReadKey readKey(Policy policy, String... binNames) {
+        return ReadCoalescer.ReadKey.of(KEY, binNames.length == 0 ? null : binNames, false, policy);
+    }
+
+    @Test
+    @DisplayName("Concurrent identical reads share the leader's result")
+    void testConcurrentReadsShareOneCall() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer();
+        ReadCoalescer.ReadKey key = readKey(new Policy());
+        int followerCount = 50;
+        CountDownLatch joined = new CountDownLatch(followerCount);
+        AtomicInteger leaders = new AtomicInteger();
+        List<Record> results = Collections.synchronizedList(new ArrayList<>());
+
+        // The leader holds its flight open until every other thread has joined it
+        ReadCoalescer.Flight leader = coalescer.begin(key);
+        assertTrue(leader.isLeader());
+        List<Thread> followers = new ArrayList<>();
+        for (int i = 0; i < followerCount; i++) {
+            followers.add(Thread.startVirtualThread(() -> {
+                ReadCoalescer.Flight flight = coalescer.begin(key);
+                if (flight.isLeader()) {
+                    leaders.incrementAndGet();
+                }
+                joined.countDown();
+                results.add(flight.await().record());
+            }));
+        }
+        joined.await();
+        coalescer.complete(leader, ReadCoalescer.Result.of(new Record(Map.of("a", 1L), 1, 0)));
+        for (Thread thread : followers) {
+            thread.join();
+        }
+
+        assertEquals(0, leaders.get());
+        assertEquals(followerCount, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getLong("a") == 1L));
+        // Each waiter has its own copy of the record
+        assertEquals(followerCount, results.stream().map(System::identityHashCode).distinct().count());
+        assertEquals(1, coalescer.getLeaders());
+        assertEquals(followerCount, coalescer.getCoalesced());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Reads with different bins, filters or read modes are not coalesced")
+    void testDifferentReadsAreNotShared() {
+        Policy policy = new Policy();
+        Policy filtered = new Policy();
+        filtered.filterExp = Exp.build(Exp.eq(Exp.intBin("a"), Exp.val(1)));
+        Policy allReplicas = new Policy();
+        allReplicas.readModeAP = ReadModeAP.ALL;
+
+        assertEquals(readKey(policy, "a", "b"), readKey(new Policy(), "a", "b"));
+        assertNotEquals(readKey(policy, "a"), readKey(policy, "a", "b"));
+        assertNotEquals(readKey(policy), readKey(filtered));
+        assertNotEquals(readKey(policy), readKey(allReplicas));
+
+        Policy sameFilter = new Policy();
+        sameFilter.filterExp = Exp.build(Exp.eq(Exp.intBin("a"), Exp.val(1)));
+        assertEquals(readKey(filtered), readKey(sameFilter));
+    }
+
+    @Test
+    @DisplayName("A failed read is rethrown to every waiter and the next read starts a new flight")
+    void testFailurePropagates() {
+        ReadCoalescer coalescer = new ReadCoalescer();
+        ReadCoalescer.ReadKey key = readKey(new Policy());
+        ReadCoalescer.Flight leader = coalescer.begin(key);
+        ReadCoalescer.Flight follower = coalescer.begin(key);
+        coalescer.fail(leader, new AerospikeException(ResultCode.TIMEOUT));
+
+        AerospikeException ae = assertThrows(AerospikeException.class, follower::await);
+        assertEquals(ResultCode.TIMEOUT, ae.getResultCode());
+        assertTrue(coalescer.begin(key).isLeader());
+    }
+
+    @Test
+    @DisplayName("After a write, reads do not join a flight which started before it")
+    void testInvalidate() {
+        ReadCoalescer coalescer = new ReadCoalescer();
+        ReadCoalescer.ReadKey key = readKey(new Policy());
+        ReadCoalescer.Flight before = coalescer.begin(key);
+        coalescer.invalidate(KEY);
+        ReadCoalescer.Flight after = coalescer.begin(key);
+        assertTrue(after.isLeader());
+
+        // Completing the older flight does not end the newer one
+        coalescer.complete(before, ReadCoalescer.Result.of(null));
+        assertFalse(coalescer.begin(key).isLeader());
+        assertThrows(IllegalStateException.class, () -> coalescer.complete(coalescer.begin(key), ReadCoalescer.Result.of(null)));
+    }
+
+    @Test
+    @DisplayName("A write ends every flight of its record and no other, and the flights are counted")
+    void testInvalidateOnlyItsRecord() {
+        ReadCoalescer coalescer = new ReadCoalescer();
+        Key other = new Key("test", "set", 2);
+        ReadCoalescer.Flight all = coalescer.begin(readKey(new Policy()));
+        ReadCoalescer.Flight someBins = coalescer.begin(readKey(new Policy(), "a"));
+        ReadCoalescer.Flight otherRecord = coalescer.begin(ReadCoalescer.ReadKey.of(other, null, false, new Policy()));
+        assertEquals(3, coalescer.getInFlight());
+
+        coalescer.invalidate(KEY);
+        assertEquals(1, coalescer.getInFlight());
+        assertTrue(coalescer.begin(readKey(new Policy())).isLeader());
+        assertTrue(coalescer.begin(readKey(new Policy(), "a")).isLeader());
+        assertFalse(coalescer.begin(ReadCoalescer.ReadKey.of(other, null, false, new Policy())).isLeader());
+        assertEquals(3, coalescer.getInFlight());
+
+        coalescer.complete(all, ReadCoalescer.Result.of(null));
+        coalescer.complete(someBins, ReadCoalescer.Result.of(null));
+        coalescer.complete(otherRecord, ReadCoalescer.Result.of(null));
+        assertEquals(2, coalescer.getInFlight());
+    }
+
+    @Test
+    @DisplayName("read() returns the leader's result and result codes other than not found are thrown")
+    void testReadAndResultCodes() {
+        ReadCoalescer coalescer = new ReadCoalescer();
+        ReadCoalescer.Result result = coalescer.read(readKey(new Policy()), () -> ReadCoalescer.Result.of(null));
+        assertNull(result.recordOrThrow());
+        assertEquals(ResultCode.KEY_NOT_FOUND_ERROR, result.resultCode());
+
+        ReadCoalescer.Result busy = new ReadCoalescer.Result(null, ResultCode.KEY_BUSY);
+        AerospikeException ae = assertThrows(AerospikeException.class, busy::recordOrThrow);
+        assertEquals(ResultCode.KEY_BUSY, ae.getResultCode());
+    }
+}
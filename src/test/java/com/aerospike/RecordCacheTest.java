@@ -0,0 +1,268 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Tests for RecordCache: eviction, expiry, bin projection, invalidation and its counters.
+ */
+class RecordCacheTest {
+    private static final long SECOND = 1_000_000_000L;
+    // Milliseconds from the Unix epoch to the server's epoch of 2010-01-01
+    private static final long SERVER_EPOCH_MILLIS = 1262304000000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private RecordCache cache(int maximumSize, Duration maxStaleness) {
+        return new RecordCache(maximumSize, maxStaleness, now::get);
+    }
+
+    private static Key key(int id) {
+        return new Key("test", "set", id);
+    }
+
+    private static Record record(int generation, int expiration) {
+        return new Record(Map.of("name", "Tim", "age", 32L), generation, expiration);
+    }
+
+    @Test
+    @DisplayName("The least recently used record is evicted when the cache is full")
+    void testLruEviction() {
+        RecordCache cache = cache(3, Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) {
+            cache.put(key(i), null, record(1, 0), cache.stamp());
+        }
+        // Reading key 0 makes key 1 the least recently used
+        assertNotNull(cache.get(key(0), null, false));
+        cache.put(key(3), null, record(1, 0), cache.stamp());
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(key(1), null, false));
+        assertNotNull(cache.get(key(0), null, false));
+        assertNotNull(cache.get(key(3), null, false));
+    }
+
+    @Test
+    @DisplayName("Records are discarded after the maximum staleness or when they expire")
+    void testStalenessAndTtl() {
+        RecordCache cache = cache(100, Duration.ofSeconds(10));
+        int serverNow = (int) ((System.currentTimeMillis() - SERVER_EPOCH_MILLIS) / 1000);
+        cache.put(key(1), null, record(1, 0), cache.stamp());
+        cache.put(key(2), null, record(1, serverNow + 3), cache.stamp());
+
+        now.addAndGet(5 * SECOND);
+        assertNotNull(cache.get(key(1), null, false));
+        assertNull(cache.get(key(2), null, false), "The record's time to live has passed");
+
+        now.addAndGet(5 * SECOND);
+        assertNull(cache.get(key(1), null, false), "The record is older than the maximum staleness");
+        assertEquals(2, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("A read is answered only if the cached record holds the requested bins")
+    void testBinProjection() {
+        RecordCache cache = cache(100, Duration.ofMinutes(1));
+        cache.put(key(1), new String[] {"name"}, new Record(Map.of("name", "Tim"), 4, 0), cache.stamp());
+
+        Record projected = cache.get(key(1), new String[] {"name"}, false);
+        assertEquals(Map.of("name", "Tim"), projected.bins);
+        assertEquals(4, projected.generation);
+        assertNull(cache.get(key(1), new String[] {"name", "age"}, false));
+        assertNull(cache.get(key(1), null, false));
+
+        Record header = cache.get(key(1), null, true);
+        assertNull(header.bins);
+        assertEquals(4, header.generation);
+
+        // A full record answers any projection
+        cache.put(key(1), null, record(5, 0), cache.stamp());
+        assertEquals(Map.of("age", 32L), cache.get(key(1), new String[] {"age", "missing"}, false).bins);
+        assertEquals(2, cache.get(key(1), null, false).bins.size());
+    }
+
+    @Test
+    @DisplayName("Invalidation removes a record and stops reads which overlapped it from being cached")
+    void testInvalidation() {
+        RecordCache cache = cache(100, Duration.ofMinutes(1));
+        cache.put(key(1), null, record(1, 0), cache.stamp());
+        cache.invalidate(key(1));
+        assertNull(cache.get(key(1), null, false));
+        assertEquals(1, cache.getInvalidations());
+
+        long stamp = cache.stamp();
+        cache.invalidateAll(List.of(key(2)));
+        cache.put(key(1), null, record(2, 0), stamp);
+        assertNull(cache.get(key(1), null, false), "A read started before a write must not be cached");
+
+        cache.put(key(1), null, record(2, 0), cache.stamp());
+        assertNotNull(cache.get(key(1), null, false));
+    }
+
+    @Test
+    @DisplayName("A write only stops overlapping reads of keys in its own segment from being cached")
+    void testInvalidationPerSegment() {
+        RecordCache cache = cache(100_000, Duration.ofMinutes(1));
+        long stamp = cache.stamp();
+        cache.invalidate(key(0));
+
+        cache.put(key(0), null, record(1, 0), stamp);
+        assertNull(cache.get(key(0), null, false));
+        int cached = 0;
+        for (int i = 1; i <= 50; i++) {
+            cache.put(key(i), null, record(1, 0), stamp);
+            if (cache.get(key(i), null, false) != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached > 0 && cached < 50, "cached " + cached);
+    }
+
+    @Test
+    @DisplayName("Invalidating a set removes only its records and stops overlapping reads from being cached")
+    void testInvalidateSet() {
+        RecordCache cache = cache(100, Duration.ofMinutes(1));
+        Key other = new Key("test", "other", 1);
+        Key otherNamespace = new Key("bar", "set", 1);
+        for (Key key : List.of(key(1), key(2), other, otherNamespace)) {
+            cache.put(key, null, record(1, 0), cache.stamp());
+        }
+        long stamp = cache.stamp();
+        cache.invalidateSet("test", "set");
+        assertNull(cache.get(key(1), null, false));
+        assertNull(cache.get(key(2), null, false));
+        assertNotNull(cache.get(other, null, false));
+        assertNotNull(cache.get(otherNamespace, null, false));
+        assertEquals(2, cache.getInvalidations());
+
+        cache.put(key(1), null, record(1, 0), stamp);
+        assertNull(cache.get(key(1), null, false), "A read started before the set was invalidated must not be cached");
+
+        // A null set is the whole namespace
+        cache.invalidateSet("test", null);
+        assertNull(cache.get(other, null, false));
+        assertNotNull(cache.get(otherNamespace, null, false));
+    }
+
+    @Test
+    @DisplayName("Truncating a set through the session discards its cached records")
+    void testTruncate() {
+        Session session = cachedSession();
+        List<Key> keys = keys(3);
+        setAges(session, keys, 0).execute();
+        ages(session, keys);
+        assertEquals(keys.size(), session.getRecordCache().size());
+
+        session.truncate(DataSet.of("test", "set"));
+        assertEquals(0, session.getRecordCache().size());
+    }
+
+    private static Session cachedSession() {
+        Session session = LoopbackAerospikeClient.builder().build().createCluster().createSession(Behavior.DEFAULT);
+        session.setRecordCache(new RecordCache());
+        return session;
+    }
+
+    private static List<Key> keys(int count) {
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(key(i));
+        }
+        return keys;
+    }
+
+    private static List<Long> ages(Session session, List<Key> keys) {
+        List<Long> ages = new ArrayList<>();
+        RecordStream stream = session.query(keys).execute();
+        while (stream.hasNext()) {
+            ages.add(stream.next().recordOrThrow().getLong("age"));
+        }
+        return ages;
+    }
+
+    private static BinsValuesBuilder setAges(Session session, List<Key> keys, long age) {
+        BinsValuesBuilder builder = session.upsert(keys).bins("age");
+        for (int i = 0; i < keys.size(); i++) {
+            builder.values(age);
+        }
+        return builder;
+    }
+
+    @Test
+    @DisplayName("Writes through the bins and values builder discard the cached records")
+    void testBinsValuesWrites() {
+        Session session = cachedSession();
+        // Enough keys to be written as a batch
+        List<Key> keys = keys(OperationBuilder.getBatchOperationThreshold() + 2);
+        setAges(session, keys, 0).execute();
+        assertEquals(0L, ages(session, keys).get(0));
+        assertEquals(keys.size(), session.getRecordCache().size());
+
+        setAges(session, keys.subList(0, 1), 1).execute();
+        assertEquals(List.of(1L), ages(session, keys.subList(0, 1)));
+        setAges(session, keys.subList(0, 2), 2).execute();
+        assertEquals(List.of(2L, 2L), ages(session, keys.subList(0, 2)));
+        setAges(session, keys, 3).execute();
+        assertTrue(ages(session, keys).stream().allMatch(age -> age == 3L));
+    }
+
+    @Test
+    @DisplayName("Writes through the multi-value builder discard the cached records")
+    void testMultiValueWrites() {
+        Session session = cachedSession();
+        List<Key> keys = keys(OperationBuilder.getBatchOperationThreshold() + 2);
+        setAges(session, keys, 0).execute();
+        ages(session, keys);
+
+        // The multi-value builder adds the values to the bins
+        new MultiValueBuilder(session, keys.subList(0, 2), OpType.UPSERT).bins("age").values(5L).values(5L).execute();
+        assertEquals(List.of(5L, 5L), ages(session, keys.subList(0, 2)));
+
+        MultiValueBuilder batch = new MultiValueBuilder(session, keys, OpType.UPSERT).bins("age");
+        for (int i = 0; i < keys.size(); i++) {
+            batch.values(1L);
+        }
+        batch.execute();
+        List<Long> ages = ages(session, keys);
+        assertEquals(List.of(6L, 6L, 1L), ages.subList(0, 3));
+        assertTrue(session.getRecordCache().getInvalidations() >= keys.size() + 2);
+    }
+
+    @Test
+    @DisplayName("Hits, misses and the hit rate are counted")
+    void testHitRate() {
+        RecordCache cache = cache(100, Duration.ofMinutes(1));
+        assertEquals(0.0, cache.getHitRate());
+        cache.put(key(1), null, record(1, 0), cache.stamp());
+        cache.put(key(2), null, null, cache.stamp());
+        cache.get(key(1), null, false);
+        cache.get(key(1), null, false);
+        cache.get(key(1), null, false);
+        cache.get(key(2), null, false);
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate());
+    }
+
+    @Test
+    @DisplayName("Invalid sizes and staleness are rejected")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new RecordCache(0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new RecordCache(10, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new RecordCache(10, null));
+    }
+}
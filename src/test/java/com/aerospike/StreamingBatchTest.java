@@ -0,0 +1,96 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.policy.Behavior;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+
+/**
+ * Tests for StreamingBatch: the stream is completed exactly once, whether by the limit or by
+ * the end of the batch, and the completion listener is told which.
+ */
+class StreamingBatchTest {
+
+    private static List<BatchRecord> reads(Session session, int count) {
+        List<BatchRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Key key = new Key("test", "people", i);
+            session.getClient().put(null, key, new Bin("age", i));
+            records.add(new BatchRead(key, true));
+        }
+        return records;
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A batch which reaches its limit completes the stream and notifies the listener once")
+    void testLimitCompletesOnce() throws InterruptedException {
+        Session session = LoopbackAerospikeClient.builder().nodes(3).build().createCluster().createSession(Behavior.DEFAULT);
+        List<BatchRecord> records = reads(session, 20);
+
+        AtomicInteger notified = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        RecordStream stream = StreamingBatch.execute(session, new BatchPolicy(), records,
+                Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.BATCH, false),
+                null, (br, i) -> new RecordResult(br.key, br.record, i), 5,
+                failure -> {
+                    if (failure == null) {
+                        notified.incrementAndGet();
+                    }
+                    done.countDown();
+                });
+
+        int count = 0;
+        while (stream.hasNext()) {
+            assertTrue(stream.next().isOk());
+            count++;
+        }
+        assertEquals(5, count);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // Let the remaining nodes finish, they must not complete the stream a second time
+        Thread.sleep(100);
+        assertEquals(1, notified.get());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A batch without a limit notifies the listener once all results are published")
+    void testCompletesAfterAllResults() throws InterruptedException {
+        Session session = LoopbackAerospikeClient.builder().nodes(3).build().createCluster().createSession(Behavior.DEFAULT);
+        List<BatchRecord> records = reads(session, 20);
+
+        AtomicInteger notified = new AtomicInteger();
+        RecordStream stream = StreamingBatch.execute(session, new BatchPolicy(), records,
+                Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.BATCH, false),
+                null, (br, i) -> new RecordResult(br.key, br.record, i), 0,
+                failure -> {
+                    if (failure == null) {
+                        notified.incrementAndGet();
+                    }
+                });
+
+        int count = 0;
+        while (stream.hasNext()) {
+            stream.next();
+            count++;
+        }
+        assertEquals(20, count);
+        assertEquals(1, notified.get());
+    }
+}
@@ -0,0 +1,167 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.exception.AeroException;
+
+/**
+ * Tests for reading records into objects through a {@link BinCursor}.
+ */
+class StreamingRecordMapperTest {
+
+    record Point(long id, long x, String label) {
+    }
+
+    /**
+     * Reads points through the cursor, remembering each cursor it was given.
+     */
+    static class PointMapper implements StreamingRecordMapper<Point> {
+        final List<BinCursor> cursors = new ArrayList<>();
+
+        @Override
+        public Point fromBins(BinCursor bins, Key recordKey, int generation) {
+            cursors.add(bins);
+            long x = 0;
+            String label = null;
+            while (bins.next()) {
+                switch (bins.name()) {
+                    case "x" -> x = bins.getLong();
+                    case "label" -> label = bins.isNull() ? null : bins.getString();
+                    default -> {
+                    }
+                }
+            }
+            return new Point(recordKey.userKey.toLong(), x, label);
+        }
+
+        @Override
+        public Map<String, Value> toMap(Point element) {
+            return Map.of("x", Value.get(element.x()), "label", Value.get(element.label()));
+        }
+
+        @Override
+        public Object id(Point element) {
+            return element.id();
+        }
+    }
+
+    private static RecordStream points(int count) {
+        List<RecordResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> bins = new HashMap<>();
+            bins.put("x", (long) i * 10);
+            bins.put("label", "p" + i);
+            results.add(new RecordResult(new Key("test", "point", i), new Record(bins, 1, 0), i));
+        }
+        return new RecordStream(results, 0);
+    }
+
+    @Test
+    @DisplayName("The cursor visits each bin once with typed accessors")
+    void testCursor() {
+        Map<String, Object> bins = new HashMap<>();
+        bins.put("count", 3);
+        bins.put("ratio", 0.5f);
+        bins.put("flag", 1L);
+        bins.put("name", "Tim");
+        bins.put("data", new byte[] {1, 2});
+        bins.put("missing", null);
+
+        BinCursor cursor = BinCursor.over(bins);
+        assertThrows(IllegalStateException.class, cursor::name);
+        Map<String, Object> seen = new HashMap<>();
+        while (cursor.next()) {
+            String name = cursor.name();
+            switch (name) {
+                case "count" -> assertEquals(3L, cursor.getLong());
+                case "ratio" -> assertEquals(0.5, cursor.getDouble());
+                case "flag" -> assertTrue(cursor.getBoolean());
+                case "name" -> assertEquals("Tim", cursor.getString());
+                case "data" -> assertArrayEquals(new byte[] {1, 2}, cursor.getBytes());
+                case "missing" -> assertTrue(cursor.isNull());
+                default -> fail("Unexpected bin " + name);
+            }
+            seen.put(name, cursor.getObject());
+        }
+        assertEquals(bins, seen);
+        assertFalse(cursor.next());
+        assertThrows(IllegalStateException.class, cursor::getObject);
+
+        BinCursor named = BinCursor.over(Map.of("name", "Tim"));
+        assertTrue(named.next());
+        assertThrows(IllegalArgumentException.class, named::getLong);
+        assertFalse(BinCursor.over(null).next());
+    }
+
+    @Test
+    @DisplayName("A stream maps all of its records through one reused cursor")
+    void testStreamReusesCursor() {
+        PointMapper mapper = new PointMapper();
+        List<Point> read = points(5).toObjectList(mapper);
+
+        assertEquals(5, read.size());
+        assertEquals(new Point(3, 30, "p3"), read.get(3));
+        assertEquals(5, mapper.cursors.size());
+        assertTrue(mapper.cursors.stream().allMatch(cursor -> cursor == mapper.cursors.get(0)));
+    }
+
+    @Test
+    @DisplayName("forEachObject passes objects to the consumer in stream order")
+    void testForEachObject() {
+        List<Long> ids = new ArrayList<>();
+        points(4).forEachObject(new PointMapper(), point -> ids.add(point.id()));
+        assertEquals(List.of(0L, 1L, 2L, 3L), ids);
+
+        assertEquals(new Point(2, 20, "p2"), points(4).get(new Key("test", "point", 2), new PointMapper()).orElseThrow());
+        assertEquals(new Point(0, 0, "p0"), points(4).getFirst(new PointMapper()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Mappers that only read maps are still given the bins map")
+    void testMapMapper() {
+        RecordMapper<Point> mapper = new RecordMapper<>() {
+            @Override
+            public Point fromMap(Map<String, Object> bins, Key recordKey, int generation) {
+                return new Point(recordKey.userKey.toLong(), (Long) bins.get("x"), (String) bins.get("label"));
+            }
+
+            @Override
+            public Map<String, Value> toMap(Point element) {
+                return Map.of();
+            }
+
+            @Override
+            public Object id(Point element) {
+                return element.id();
+            }
+        };
+        assertEquals(new Point(1, 10, "p1"), points(2).toObjectList(mapper).get(1));
+
+        PointMapper streaming = new PointMapper();
+        Point point = streaming.fromMap(Map.of("x", 7L), new Key("test", "point", 9), 1);
+        assertEquals(new Point(9, 7, null), point);
+    }
+
+    @Test
+    @DisplayName("A failed record in the stream stops the conversion with its exception")
+    void testFailedRecord() {
+        List<RecordResult> results = new ArrayList<>();
+        results.add(new RecordResult(new Key("test", "point", 0), new Record(Map.of("x", 1L), 1, 0), 0));
+        results.add(new RecordResult(new Key("test", "point", 1), ResultCode.KEY_NOT_FOUND_ERROR, false, null, 1));
+        List<Point> read = new ArrayList<>();
+        assertThrows(AeroException.class, () -> new RecordStream(results, 0).forEachObject(new PointMapper(), read::add));
+        assertEquals(1, read.size());
+    }
+}
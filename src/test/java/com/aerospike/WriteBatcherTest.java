@@ -0,0 +1,290 @@
+package com.aerospike;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Txn;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.policy.Behavior;
+import com.aerospike.policy.Behavior.Mode;
+import com.aerospike.policy.Behavior.OpKind;
+import com.aerospike.policy.Behavior.OpShape;
+import com.aerospike.policy.Settings;
+
+/**
+ * Tests for WriteBatcher: concurrent writes share batches, same-key writes keep their order and
+ * each caller is given its own result.
+ */
+class WriteBatcherTest {
+    private static final Function<String, Settings> SETTINGS =
+            namespace -> Behavior.DEFAULT.getSettings(OpKind.WRITE_NON_RETRYABLE, OpShape.BATCH, Mode.AP);
+
+    /**
+     * A client which records the keys of each batch and answers each record with the result
+     * code in its "rc" bin, or OK.
+     */
+    private static IAerospikeClient client(List<List<Key>> batches) {
+        return (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("operate") && args.length == 2 && args[1] instanceof List<?> list) {
+                        List<Key> keys = new ArrayList<>();
+                        for (Object item : list) {
+                            BatchRecord record = (BatchRecord) item;
+                            keys.add(record.key);
+                            record.resultCode = resultCodeOf((BatchWrite) record);
+                            record.record = record.resultCode == ResultCode.OK ? new Record(Map.of("seen", 1L), 1, 0) : null;
+                        }
+                        batches.add(keys);
+                        return true;
+                    }
+                    return null;
+                });
+    }
+
+    private static int resultCodeOf(BatchWrite write) {
+        for (Operation op : write.ops) {
+            if (op.binName.equals("rc")) {
+                return op.value.toInteger();
+            }
+        }
+        return ResultCode.OK;
+    }
+
+    private static Operation[] put(int value) {
+        return new Operation[] { Operation.put(new Bin("value", value)) };
+    }
+
+    private static List<Thread> writeConcurrently(WriteBatcher batcher, List<Key> keys) {
+        List<Thread> threads = new ArrayList<>();
+        for (Key key : keys) {
+            threads.add(Thread.startVirtualThread(() -> batcher.operate(new WritePolicy(), key, put(1))));
+        }
+        return threads;
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Concurrent writes are sent together once the batch is full")
+    void testBatchesBySize() throws Exception {
+        List<List<Key>> batches = Collections.synchronizedList(new ArrayList<>());
+        // The delay is long enough that only the size threshold can send the batches
+        WriteBatcher batcher = new WriteBatcher(client(batches), SETTINGS, Duration.ofMinutes(1), 10);
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            keys.add(new Key("test", "set", i));
+        }
+        for (Thread thread : writeConcurrently(batcher, keys)) {
+            thread.join();
+        }
+
+        assertEquals(3, batches.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() == 10));
+        assertEquals(30, batcher.getWrites());
+        assertEquals(10.0, batcher.getAverageBatchSize());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A partial batch is sent after the maximum delay")
+    void testBatchesByDelay() {
+        List<List<Key>> batches = Collections.synchronizedList(new ArrayList<>());
+        WriteBatcher batcher = new WriteBatcher(client(batches), SETTINGS, Duration.ofMillis(20), 100);
+        Record record = batcher.operate(new WritePolicy(), new Key("test", "set", 1), put(1));
+
+        assertEquals(1L, record.getLong("seen"));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Writes to the same record are never in the same batch and are sent in order")
+    void testSameKeyOrdering() throws Exception {
+        List<List<Key>> batches = Collections.synchronizedList(new ArrayList<>());
+        WriteBatcher batcher = new WriteBatcher(client(batches), SETTINGS, Duration.ofMillis(5), 4);
+        Key hot = new Key("test", "set", "hot");
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            keys.add(i % 2 == 0 ? hot : new Key("test", "set", i));
+        }
+        for (Thread thread : writeConcurrently(batcher, keys)) {
+            thread.join();
+        }
+
+        int writes = 0;
+        for (List<Key> batch : batches) {
+            Set<Key> distinct = new HashSet<>(batch);
+            assertEquals(batch.size(), distinct.size(), "A batch held two writes to the same record");
+            writes += batch.size();
+        }
+        assertEquals(12, writes);
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Each caller is given the result of its own write")
+    void testPerRecordResults() throws Exception {
+        List<List<Key>> batches = Collections.synchronizedList(new ArrayList<>());
+        WriteBatcher batcher = new WriteBatcher(client(batches), SETTINGS, Duration.ofMinutes(1), 3);
+        Key ok = new Key("test", "set", 1);
+        Key exists = new Key("test", "set", 2);
+        Key filtered = new Key("test", "set", 3);
+        List<Object> results = Collections.synchronizedList(new ArrayList<>(List.of("", "", "")));
+        List<Thread> threads = List.of(
+                Thread.startVirtualThread(() -> results.set(0, batcher.operate(new WritePolicy(), ok, put(1)))),
+                Thread.startVirtualThread(() -> {
+                    try {
+                        batcher.operate(new WritePolicy(), exists,
+                                new Operation[] { Operation.put(new Bin("rc", ResultCode.KEY_EXISTS_ERROR)) });
+                    }
+                    catch (AerospikeException ae) {
+                        results.set(1, ae.getResultCode());
+                    }
+                }),
+                Thread.startVirtualThread(() -> results.set(2, batcher.operate(new WritePolicy(), filtered,
+                        new Operation[] { Operation.put(new Bin("rc", ResultCode.FILTERED_OUT)) }))));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, batches.size());
+        assertInstanceOf(Record.class, results.get(0));
+        assertEquals(ResultCode.KEY_EXISTS_ERROR, results.get(1));
+        assertNull(results.get(2), "A filtered out write returns no record unless failOnFilteredOut is set");
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A failed batch is rethrown to every caller in it")
+    void testBatchFailure() {
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    throw new AerospikeException(ResultCode.TIMEOUT);
+                });
+        WriteBatcher batcher = new WriteBatcher(client, SETTINGS, Duration.ZERO, 10);
+        AerospikeException ae = assertThrows(AerospikeException.class,
+                () -> batcher.operate(new WritePolicy(), new Key("test", "set", 1), put(1)));
+        assertEquals(ResultCode.TIMEOUT, ae.getResultCode());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Writes with different timeouts are batched separately, each with its own timeouts")
+    void testTimeoutsKept() throws Exception {
+        List<Integer> timeouts = Collections.synchronizedList(new ArrayList<>());
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    timeouts.add(((BatchPolicy) args[0]).totalTimeout);
+                    for (Object item : (List<?>) args[1]) {
+                        ((BatchRecord) item).resultCode = ResultCode.OK;
+                    }
+                    return true;
+                });
+        WriteBatcher batcher = new WriteBatcher(client, SETTINGS, Duration.ofMillis(50), 100);
+        WritePolicy shortTimeout = new WritePolicy();
+        shortTimeout.totalTimeout = 1000;
+        WritePolicy longTimeout = new WritePolicy();
+        longTimeout.totalTimeout = 2000;
+        List<Thread> threads = List.of(
+                Thread.startVirtualThread(() -> batcher.operate(shortTimeout, new Key("test", "set", 1), put(1))),
+                Thread.startVirtualThread(() -> batcher.operate(longTimeout, new Key("test", "set", 2), put(1))),
+                Thread.startVirtualThread(() -> batcher.operate(shortTimeout, new Key("test", "set", 3), put(1))));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Collections.sort(timeouts);
+        assertEquals(List.of(1000, 2000), timeouts);
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("A write stopped by a failed batch is given the client's exception, a write it completed is not")
+    void testPartialBatchFailure() throws Exception {
+        AerospikeException nodeFailure = new AerospikeException(ResultCode.TIMEOUT, "Node timed out");
+        IAerospikeClient client = (IAerospikeClient) Proxy.newProxyInstance(
+                IAerospikeClient.class.getClassLoader(),
+                new Class<?>[] { IAerospikeClient.class },
+                (proxy, method, args) -> {
+                    List<?> records = (List<?>) args[1];
+                    // The first record was written before the batch failed
+                    ((BatchRecord) records.get(0)).resultCode = ResultCode.OK;
+                    throw new AerospikeException.BatchRecordArray(records.toArray(new BatchRecord[0]), nodeFailure);
+                });
+        WriteBatcher batcher = new WriteBatcher(client, SETTINGS, Duration.ofMinutes(1), 2);
+        List<Object> results = Collections.synchronizedList(new ArrayList<>(List.of("", "")));
+        Thread first = Thread.startVirtualThread(() -> results.set(0, batcher.operate(new WritePolicy(), new Key("test", "set", 1), put(1))));
+        while (first.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        Thread second = Thread.startVirtualThread(() -> {
+            try {
+                batcher.operate(new WritePolicy(), new Key("test", "set", 2), put(1));
+            }
+            catch (AerospikeException ae) {
+                results.set(1, ae);
+            }
+        });
+        first.join();
+        second.join();
+
+        assertNull(results.get(0));
+        assertSame(nodeFailure, results.get(1));
+    }
+
+    @Test
+    @DisplayName("Only writes whose policy a batch write can carry are batched")
+    void testCanBatch() {
+        assertTrue(WriteBatcher.canBatch(new WritePolicy()));
+        WritePolicy respondAllOps = new WritePolicy();
+        respondAllOps.respondAllOps = true;
+        assertFalse(WriteBatcher.canBatch(respondAllOps));
+        WritePolicy onLockingOnly = new WritePolicy();
+        onLockingOnly.onLockingOnly = true;
+        assertFalse(WriteBatcher.canBatch(onLockingOnly));
+        WritePolicy xdr = new WritePolicy();
+        xdr.xdr = true;
+        assertFalse(WriteBatcher.canBatch(xdr));
+        WritePolicy inTxn = new WritePolicy();
+        inTxn.txn = new Txn();
+        assertFalse(WriteBatcher.canBatch(inTxn));
+    }
+
+    @Test
+    @DisplayName("Invalid delays and sizes are rejected")
+    void testValidation() {
+        List<List<Key>> batches = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class, () -> new WriteBatcher(client(batches), SETTINGS, Duration.ofMillis(-1), 10));
+        assertThrows(IllegalArgumentException.class, () -> new WriteBatcher(client(batches), SETTINGS, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> new WriteBatcher(client(batches), SETTINGS, Duration.ZERO, 0));
+    }
+}
@@ -0,0 +1,41 @@
+package com.aerospike.dslobjects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.exp.Exp;
+
+/**
+ * Tests that DSL expression trees build their Exp and packed Expression once.
+ */
+class ExpressionMemoizationTest {
+
+    @Test
+    @DisplayName("The Exp and packed Expression are built once per tree")
+    void testMemoized() {
+        BooleanExpression where = Dsl.longBin("age").add(1).gt(21).and(Dsl.stringBin("name").eq("Tim"));
+
+        assertSame(where.toAerospikeExp(), where.toAerospikeExp());
+        assertSame(where.toAerospikeExpression(), where.toAerospikeExpression());
+        assertArrayEquals(
+                Exp.build(Exp.and(
+                        Exp.gt(Exp.add(Exp.intBin("age"), Exp.val(1)), Exp.val(21)),
+                        Exp.eq(Exp.stringBin("name"), Exp.val("Tim")))).getBytes(),
+                where.toAerospikeExpression().getBytes());
+    }
+
+    @Test
+    @DisplayName("A sub-expression shared between trees is built once")
+    void testSharedSubExpression() {
+        BooleanExpression adult = Dsl.longBin("age").gte(18);
+        BooleanExpression first = adult.and(Dsl.stringBin("country").eq("NZ"));
+        BooleanExpression second = adult.or(Dsl.booleanBin("override"));
+
+        Exp shared = adult.toAerospikeExp();
+        first.toAerospikeExp();
+        second.toAerospikeExp();
+        assertSame(shared, adult.toAerospikeExp());
+    }
+}
@@ -0,0 +1,236 @@
+package com.aerospike.mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.BinCursor;
+import com.aerospike.Cluster;
+import com.aerospike.DefaultRecordMappingFactory;
+import com.aerospike.LoopbackAerospikeClient;
+import com.aerospike.RecordMapper;
+import com.aerospike.Session;
+import com.aerospike.StreamingRecordMapper;
+import com.aerospike.TypeSafeDataSet;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.policy.Behavior;
+
+/**
+ * Tests for the mappers generated for {@link MappedRecord} classes. The classes below are
+ * compiled with the annotation processor, so their mappers are generated with the tests.
+ */
+class GeneratedRecordMapperTest {
+
+    enum Tier { BRONZE, SILVER, GOLD }
+
+    @MappedRecord
+    record Address(String line1, String city, @BinName("zip") String zipCode) {
+    }
+
+    @MappedRecord
+    static class Customer {
+        private long id;
+        private String name;
+        private int age;
+        private boolean active;
+        private Double rating;
+        private Date dob;
+        private LocalDate joined;
+        @EnumAs(EnumEncoding.ORDINAL)
+        private Tier tier;
+        private Tier previousTier;
+        private byte[] payload;
+        private Address home;
+        private List<Address> previousHomes;
+        private Map<String, Integer> visits;
+        List<List<String>> tags;
+        @Ignore
+        String sessionToken;
+
+        public long getId() { return id; }
+        public void setId(long id) { this.id = id; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getAge() { return age; }
+        public void setAge(int age) { this.age = age; }
+        public boolean isActive() { return active; }
+        public void setActive(boolean active) { this.active = active; }
+        public Double getRating() { return rating; }
+        public void setRating(Double rating) { this.rating = rating; }
+        public Date getDob() { return dob; }
+        public void setDob(Date dob) { this.dob = dob; }
+        public LocalDate getJoined() { return joined; }
+        public void setJoined(LocalDate joined) { this.joined = joined; }
+        public Tier getTier() { return tier; }
+        public void setTier(Tier tier) { this.tier = tier; }
+        public Tier getPreviousTier() { return previousTier; }
+        public void setPreviousTier(Tier previousTier) { this.previousTier = previousTier; }
+        public byte[] getPayload() { return payload; }
+        public void setPayload(byte[] payload) { this.payload = payload; }
+        public Address getHome() { return home; }
+        public void setHome(Address home) { this.home = home; }
+        public List<Address> getPreviousHomes() { return previousHomes; }
+        public void setPreviousHomes(List<Address> previousHomes) { this.previousHomes = previousHomes; }
+        public Map<String, Integer> getVisits() { return visits; }
+        public void setVisits(Map<String, Integer> visits) { this.visits = visits; }
+    }
+
+    @MappedRecord(enums = EnumEncoding.ORDINAL)
+    record Order(@Id String reference, long customerId, Long discount, List<Tier> tiers) {
+    }
+
+    private static Customer customer(long id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName("Tim");
+        customer.setAge(42);
+        customer.setActive(true);
+        customer.setRating(4.5);
+        customer.setDob(new Date(86_400_000L));
+        customer.setJoined(LocalDate.of(2024, 2, 29));
+        customer.setTier(Tier.GOLD);
+        customer.setPreviousTier(Tier.SILVER);
+        customer.setPayload(new byte[] {1, 2, 3});
+        customer.setHome(new Address("1 Main Street", "Denver", "80202"));
+        customer.setPreviousHomes(List.of(new Address("2 Elm Street", "Boulder", "80301")));
+        customer.setVisits(Map.of("store", 3));
+        customer.tags = List.of(List.of("vip", "early"), List.of());
+        customer.sessionToken = "secret";
+        return customer;
+    }
+
+    private static void assertSameCustomer(Customer expected, Customer actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getAge(), actual.getAge());
+        assertEquals(expected.isActive(), actual.isActive());
+        assertEquals(expected.getRating(), actual.getRating());
+        assertEquals(expected.getDob(), actual.getDob());
+        assertEquals(expected.getJoined(), actual.getJoined());
+        assertEquals(expected.getTier(), actual.getTier());
+        assertEquals(expected.getPreviousTier(), actual.getPreviousTier());
+        assertArrayEquals(expected.getPayload(), actual.getPayload());
+        assertEquals(expected.getHome(), actual.getHome());
+        assertEquals(expected.getPreviousHomes(), actual.getPreviousHomes());
+        assertEquals(expected.getVisits(), actual.getVisits());
+        assertEquals(expected.tags, actual.tags);
+        assertNull(actual.sessionToken);
+    }
+
+    @Test
+    @DisplayName("DefaultRecordMappingFactory finds generated mappers, preferring registered ones")
+    void testFactoryLookup() {
+        DefaultRecordMappingFactory factory = new DefaultRecordMappingFactory();
+        RecordMapper<Customer> generated = factory.getMapper(Customer.class);
+        assertInstanceOf(GeneratedRecordMapperTest_CustomerRecordMapper.class, generated);
+        assertSame(generated, factory.getMapper(Customer.class));
+        assertInstanceOf(GeneratedRecordMapperTest_AddressRecordMapper.class, factory.getMapper(Address.class));
+        assertNull(factory.getMapper(String.class));
+
+        RecordMapper<Customer> registered = new GeneratedRecordMapperTest_CustomerRecordMapper();
+        assertSame(registered, DefaultRecordMappingFactory.of(Customer.class, registered).getMapper(Customer.class));
+    }
+
+    @Test
+    @DisplayName("Objects are stored in bins named by their fields and read back unchanged")
+    void testRoundTrip() {
+        LoopbackAerospikeClient loopback = LoopbackAerospikeClient.builder().namespace("test", false).build();
+        Cluster cluster = loopback.createCluster().setRecordMappingFactory(new DefaultRecordMappingFactory());
+        Session session = cluster.createSession(Behavior.DEFAULT);
+        TypeSafeDataSet<Customer> customers = TypeSafeDataSet.of("test", "customer", Customer.class);
+
+        Customer customer = customer(1);
+        session.upsert(customers).object(customer).execute();
+
+        Map<String, Object> bins = loopback.getClient().get(null, customers.id(1)).bins;
+        assertEquals("Tim", bins.get(GeneratedRecordMapperTest_CustomerRecordMapper.BIN_NAME));
+        assertEquals(2L, bins.get("tier"));
+        assertEquals("SILVER", bins.get("previousTier"));
+        assertEquals("80202", ((Map<?, ?>) bins.get("home")).get("zip"));
+        assertFalse(bins.containsKey("sessionToken"));
+
+        List<Customer> read = session.query(customers.id(1)).executeSync()
+                .toObjectList(cluster.getRecordMappingFactory().getMapper(Customer.class));
+        assertEquals(1, read.size());
+        assertSameCustomer(customer, read.get(0));
+    }
+
+    @Test
+    @DisplayName("Records are created through their canonical constructor, with missing bins left as defaults")
+    void testRecords() {
+        RecordMapper<Order> mapper = new DefaultRecordMappingFactory().getMapper(Order.class);
+        Order order = new Order("A-1", 7, null, List.of(Tier.BRONZE, Tier.GOLD));
+        assertEquals("A-1", mapper.id(order));
+
+        Map<String, Value> bins = mapper.toMap(order);
+        assertEquals(List.of(0L, 2L), ((List<?>) bins.get("tiers").getObject()).stream()
+                .map(value -> ((Value) value).toLong())
+                .toList());
+        assertEquals(Value.getAsNull(), bins.get("discount"));
+
+        Map<String, Object> stored = Map.of("reference", "A-1", "customerId", 7L, "tiers", List.of(0L, "GOLD"));
+        assertEquals(order, mapper.fromMap(stored, null, 1));
+        assertEquals(new Order(null, 0, null, null), mapper.fromMap(Map.of(), null, 1));
+    }
+
+    @Test
+    @DisplayName("The id is taken from the record key when its bin is missing")
+    void testIdFromKey() {
+        RecordMapper<Customer> mapper = new DefaultRecordMappingFactory().getMapper(Customer.class);
+        Customer customer = mapper.fromMap(Map.of("name", "Tim"), new Key("test", "customer", 12), 1);
+        assertEquals(12, customer.getId());
+        assertEquals("Tim", customer.getName());
+    }
+
+    @Test
+    @DisplayName("Reading through a bin cursor gives the same objects as reading the bins map")
+    void testFromBins() {
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("name", "Tim");
+        stored.put("age", 42L);
+        stored.put("active", 1L);
+        stored.put("rating", null);
+        stored.put("dob", 86_400_000L);
+        stored.put("joined", LocalDate.of(2024, 2, 29).toEpochDay());
+        stored.put("tier", 2L);
+        stored.put("previousTier", "SILVER");
+        stored.put("payload", new byte[] {1, 2, 3});
+        stored.put("home", Map.of("line1", "1 Main Street", "city", "Denver", "zip", "80202"));
+        stored.put("previousHomes", List.of(Map.of("line1", "2 Elm Street", "city", "Boulder", "zip", "80301")));
+        stored.put("visits", Map.of("store", 3L));
+        stored.put("tags", List.of(List.of("vip", "early"), List.of()));
+        stored.put("retired", "ignored");
+        Key key = new Key("test", "customer", 12);
+
+        StreamingRecordMapper<Customer> mapper = new GeneratedRecordMapperTest_CustomerRecordMapper();
+        Customer expected = mapper.fromMap(stored, key, 1);
+        Customer actual = mapper.fromBins(BinCursor.over(stored), key, 1);
+        assertEquals(12, actual.getId());
+        assertNull(actual.getRating());
+        assertEquals(Tier.GOLD, actual.getTier());
+        assertSameCustomer(expected, actual);
+
+        StreamingRecordMapper<Order> orders = new GeneratedRecordMapperTest_OrderRecordMapper();
+        Map<String, Object> order = Map.of("customerId", 7L, "tiers", List.of(0L, "GOLD"));
+        assertEquals(new Order("A-1", 7, null, List.of(Tier.BRONZE, Tier.GOLD)),
+                orders.fromBins(BinCursor.over(order), new Key("test", "order", "A-1"), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> mapper.fromBins(BinCursor.over(Map.of("age", "old")), null, 1));
+    }
+
+    @Test
+    @DisplayName("Stored values of the wrong type are reported")
+    void testTypeMismatch() {
+        RecordMapper<Customer> mapper = new DefaultRecordMappingFactory().getMapper(Customer.class);
+        assertThrows(IllegalArgumentException.class, () -> mapper.fromMap(Map.of("age", "old"), null, 1));
+        assertThrows(IllegalArgumentException.class, () -> mapper.fromMap(Map.of("tier", 5L), null, 1));
+    }
+}
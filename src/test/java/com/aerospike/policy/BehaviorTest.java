@@ -2,8 +2,11 @@ package com.aerospike.policy;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
@@ -857,6 +860,86 @@ class BehaviorTest {
             assertEquals(50, policy.readTouchTtlPercent);
             assertTrue(policy.compress);
         }
+        
+        @Test
+        @DisplayName("Policies are cloned from precomputed templates")
+        void testPolicyTemplates() {
+            Settings settings = Behavior.DEFAULT.getSettings(OpKind.WRITE_RETRYABLE, OpShape.POINT, Mode.AP);
+            var first = settings.asWritePolicy();
+            var second = settings.asWritePolicy();
+            assertNotSame(first, second);
+            assertEquals(first.totalTimeout, second.totalTimeout);
+            assertEquals(first.maxRetries, second.maxRetries);
+            assertEquals(settings.newWritePolicy().socketTimeout, first.socketTimeout);
+            
+            // Modifying a clone does not affect the template
+            first.totalTimeout = 1;
+            assertNotEquals(1, settings.asWritePolicy().totalTimeout);
+            
+            // The shared instance is returned without copying
+            assertSame(settings.getSharedWritePolicy(), settings.getSharedWritePolicy());
+            assertNotSame(settings.getSharedWritePolicy(), settings.asWritePolicy());
+        }
+        
+        @Test
+        @DisplayName("Reloading reforms every behavior derived from DEFAULT")
+        void testClearAllCaches() {
+            Behavior child = Behavior.DEFAULT.deriveWithChanges("reloaded", builder -> builder
+                    .on(Selectors.reads().get(), ops -> ops
+                            .abandonCallAfter(Duration.ofSeconds(4))
+                    )
+            );
+            Behavior grandchild = child.deriveWithChanges("reloadedChild", builder -> builder
+                    .on(Selectors.reads().get(), ops -> ops
+                            .useCompression(true)
+                    )
+            );
+            assertTrue(Behavior.DEFAULT.getChildren().contains(child));
+            assertEquals(List.of(grandchild), child.getChildren());
+            
+            Settings before = grandchild.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            Behavior.clearAllCaches();
+            Settings after = grandchild.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            assertNotSame(before, after);
+            assertEquals(4000, after.getSharedReadPolicy().totalTimeout);
+            assertTrue(after.getSharedReadPolicy().compress);
+        }
+        
+        @Test
+        @DisplayName("Settings missing a value have no template and report the problem when the policy is used")
+        void testPolicyTemplatesMissingValues() {
+            Settings partial = new Settings();
+            partial.abandonCallAfter = Duration.ofSeconds(1);
+            partial.buildPolicyTemplates();
+            assertThrows(NullPointerException.class, partial::getSharedReadPolicy);
+            assertThrows(NullPointerException.class, partial::asWritePolicy);
+        }
+        
+        @Test
+        @DisplayName("Policy templates are rebuilt when a parent behavior changes")
+        void testPolicyTemplatesRebuiltOnChange() {
+            Behavior parent = Behavior.DEFAULT.deriveWithChanges("parent", builder -> builder
+                    .on(Selectors.reads().get(), ops -> ops
+                            .abandonCallAfter(Duration.ofSeconds(3))
+                    )
+            );
+            Behavior child = parent.deriveWithChanges("child", builder -> builder
+                    .on(Selectors.reads().get(), ops -> ops
+                            .useCompression(true)
+                    )
+            );
+            var before = child.getSettings(OpKind.READ, OpShape.POINT, Mode.AP).getSharedReadPolicy();
+            assertEquals(3000, before.totalTimeout);
+            assertTrue(before.compress);
+            
+            // A reload reforms the parent, which must reform the child's templates too
+            parent.changed();
+            
+            Settings childSettings = child.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            assertNotSame(before, childSettings.getSharedReadPolicy());
+            assertEquals(3000, childSettings.getSharedReadPolicy().totalTimeout);
+            assertTrue(childSettings.asReadPolicy().compress);
+        }
     }
     
     @Nested
@@ -907,6 +990,42 @@ class BehaviorTest {
             assertEquals(5, after.maximumNumberOfCallAttempts);
         }
         
+        @Test
+        @DisplayName("clearCache on a parent reforms its children in the same step")
+        void testClearCacheReformsChildren() {
+            Behavior parent = Behavior.DEFAULT.deriveWithChanges("parent", builder -> builder
+                    .on(Selectors.all(), ops -> ops
+                            .maximumNumberOfCallAttempts(5)
+                    )
+            );
+            Behavior child = parent.deriveWithChanges("child", builder -> builder
+                    .on(Selectors.reads(), ops -> ops
+                            .useCompression(true)
+                    )
+            );
+            
+            Settings parentBefore = parent.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            Settings childBefore = child.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            // Lookups return the published instance without recomputing
+            assertSame(childBefore, child.getSettings(OpKind.READ, OpShape.POINT, Mode.AP));
+            
+            parent.clearCache();
+            
+            Settings childAfter = child.getSettings(OpKind.READ, OpShape.POINT, Mode.AP);
+            assertNotSame(parentBefore, parent.getSettings(OpKind.READ, OpShape.POINT, Mode.AP));
+            assertNotSame(childBefore, childAfter);
+            assertEquals(5, childAfter.maximumNumberOfCallAttempts);
+            assertTrue(childAfter.useCompression);
+        }
+        
+        @Test
+        @DisplayName("Lookups of unconfigured combinations return null")
+        void testUnconfiguredLookup() {
+            assertNull(Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.ANY, Mode.ANY));
+            assertNotNull(Behavior.DEFAULT.getSettings(OpKind.READ, OpShape.POINT, true));
+            assertNotNull(Behavior.DEFAULT.getSystemSettings(OpKind.SYSTEM_TXN_VERIFY));
+        }
+        
         @Test
         @DisplayName("explain should return non-empty string")
         void testExplain() {
@@ -0,0 +1,134 @@
+package com.aerospike.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.dsl.ParseResult;
+
+/**
+ * Tests for DslCache: hits, misses, eviction and invalidation on index catalog changes.
+ */
+class DslCacheTest {
+
+    private static Supplier<ParseResult> countingParser(AtomicInteger parses) {
+        return () -> {
+            parses.incrementAndGet();
+            return new ParseResult(null, Exp.gt(Exp.intBin("age"), Exp.val(21)));
+        };
+    }
+
+    @Test
+    @DisplayName("Repeated lookups parse once and share the built expression")
+    void testHitsAndMisses() {
+        DslCache cache = new DslCache();
+        AtomicInteger parses = new AtomicInteger();
+
+        DslCache.Entry first = cache.get("$.age > 21", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        DslCache.Entry second = cache.get("$.age > 21", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+
+        assertEquals(1, parses.get());
+        assertSame(first, second);
+        assertNotNull(first.expression());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Namespace and index version are part of the key")
+    void testKeyComponents() {
+        DslCache cache = new DslCache();
+        AtomicInteger parses = new AtomicInteger();
+
+        cache.get("$.age > 21", "test", 1, countingParser(parses));
+        cache.get("$.age > 21", "other", 1, countingParser(parses));
+        cache.get("$.age > 21", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        assertEquals(3, parses.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("A new index version invalidates entries parsed against older versions only")
+    void testInvalidationOnIndexChange() {
+        DslCache cache = new DslCache();
+        AtomicInteger parses = new AtomicInteger();
+
+        cache.get("$.age > 21", "test", 1, countingParser(parses));
+        cache.get("$.name == 'Tim'", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+
+        cache.get("$.age > 21", "test", 2, countingParser(parses));
+        assertEquals(3, parses.get());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(2, cache.size());
+
+        // The entry without an index context survives
+        cache.get("$.name == 'Tim'", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        assertEquals(3, parses.get());
+    }
+
+    @Test
+    @DisplayName("The cache never exceeds its maximum size")
+    void testEviction() {
+        DslCache cache = new DslCache(10);
+        AtomicInteger parses = new AtomicInteger();
+        for (int i = 0; i < 25; i++) {
+            cache.get("$.age > " + i, null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        }
+        assertEquals(10, cache.size());
+        assertEquals(15, cache.getEvictions());
+        assertThrows(IllegalArgumentException.class, () -> new DslCache(0));
+    }
+
+    @Test
+    @DisplayName("The least recently used entry is evicted first")
+    void testLeastRecentlyUsedEviction() {
+        DslCache cache = new DslCache(3);
+        AtomicInteger parses = new AtomicInteger();
+        cache.get("$.age > 1", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        cache.get("$.age > 2", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        cache.get("$.age > 3", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+
+        // Use the oldest entry, so the second one becomes the least recently used
+        cache.get("$.age > 1", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        cache.get("$.age > 4", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        assertEquals(4, parses.get());
+
+        cache.get("$.age > 1", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        assertEquals(4, parses.get());
+        cache.get("$.age > 2", null, DslCache.NO_INDEX_CONTEXT, countingParser(parses));
+        assertEquals(5, parses.get());
+    }
+
+    @Test
+    @DisplayName("A parse which overlaps an index catalog change is not cached")
+    void testStaleParseNotCached() {
+        DslCache cache = new DslCache();
+        AtomicInteger parses = new AtomicInteger();
+        Supplier<ParseResult> overlapping = () -> {
+            // The catalog moves on while this parse is in progress
+            cache.get("$.name == 'Tim'", "test", 2, countingParser(parses));
+            return countingParser(parses).get();
+        };
+
+        assertNotNull(cache.get("$.age > 21", "test", 1, overlapping));
+        assertEquals(2, parses.get());
+        assertEquals(1, cache.size());
+
+        cache.get("$.age > 21", "test", 1, countingParser(parses));
+        assertEquals(3, parses.get());
+    }
+
+    @Test
+    @DisplayName("Parse failures are not cached")
+    void testFailuresNotCached() {
+        DslCache cache = new DslCache();
+        assertThrows(IllegalStateException.class, () -> cache.get("bad", null, DslCache.NO_INDEX_CONTEXT,
+                () -> { throw new IllegalStateException("bad dsl"); }));
+        assertEquals(0, cache.size());
+    }
+}
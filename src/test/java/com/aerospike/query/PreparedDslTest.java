@@ -0,0 +1,121 @@
+package com.aerospike.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.query.Filter;
+import com.aerospike.dsl.ParseResult;
+
+/**
+ * Tests for PreparedDsl: parameter validation and substitution, and caching of the bound statements.
+ */
+class PreparedDslTest {
+
+    /**
+     * A stand-in for the DSL parser which records the text it was asked to parse.
+     */
+    private static Function<String, ParseResult> recordingParser(List<String> parsed, Filter filter) {
+        return text -> {
+            parsed.add(text);
+            return new ParseResult(filter, Exp.eq(Exp.stringBin("text"), Exp.val(text)));
+        };
+    }
+
+    @Test
+    @DisplayName("Parameters are substituted as written")
+    void testFormValue() {
+        PreparedDsl dsl = new PreparedDsl("$.age > $1 and $.name == '$2' or $.alias == '$2'");
+        assertEquals(2, dsl.getParameterCount());
+        assertEquals("$.age > 21 and $.name == 'Tim' or $.alias == 'Tim'", dsl.formValue(21, "Tim"));
+        assertEquals("$.age > 2.5 and $.name == 'x$1' or $.alias == 'x$1'", dsl.formValue(2.5, "x$1"));
+        assertEquals("$.a == 1 and $.b == 10", new PreparedDsl("$.a == $1 and $.b == $10").formValue(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+    }
+
+    @Test
+    @DisplayName("Placeholders without a parameter are left unchanged")
+    void testMissingParameters() {
+        PreparedDsl dsl = new PreparedDsl("$.age > $1 and $.name == '$2' and $.x == $0");
+        assertEquals("$.age > 21 and $.name == '$2' and $.x == $0", dsl.formValue(21));
+        assertEquals("$.age > 21 and $.name == '$2' and $.x == $0", dsl.formValue(21, null));
+        assertEquals("$.age > $1 and $.name == '$2' and $.x == $0", dsl.formValue());
+        assertEquals("$.active == true", new PreparedDsl("$.active == true").formValue("unused"));
+    }
+
+    @Test
+    @DisplayName("Parameters which do not match their placeholder are rejected")
+    void testTypeMismatches() {
+        PreparedDsl dsl = new PreparedDsl("$.age > $1 and $.name == '$2'");
+        List<String> parsed = new ArrayList<>();
+        Function<String, ParseResult> parser = recordingParser(parsed, null);
+
+        assertThrows(IllegalArgumentException.class, () -> dsl.formValue("21", "Tim"));
+        assertThrows(IllegalArgumentException.class, () -> dsl.formValue(Double.NaN, "Tim"));
+        assertThrows(IllegalArgumentException.class, () -> dsl.formValue(21, List.of("Tim")));
+        assertThrows(IllegalArgumentException.class,
+                () -> dsl.bind(new Object[] {new Object(), "Tim"}, null, DslCache.NO_INDEX_CONTEXT, parser));
+        assertTrue(parsed.isEmpty());
+
+        assertEquals("$.age > true and $.name == '7'", dsl.formValue(true, 7));
+        assertEquals("$.age > 10000000000.0 and $.name == 'Tim'", dsl.formValue(1e10, "Tim"));
+    }
+
+    @Test
+    @DisplayName("A string parameter cannot close its quotes and extend the statement")
+    void testQuoteInParameter() {
+        PreparedDsl dsl = new PreparedDsl("$.name == '$1' and $.alias == \"$1\"");
+        List<String> parsed = new ArrayList<>();
+        Function<String, ParseResult> parser = recordingParser(parsed, null);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> dsl.bind(new Object[] {"x' or $.a == 1"}, null, DslCache.NO_INDEX_CONTEXT, parser));
+        assertTrue(e.getMessage().contains("$1"));
+        assertThrows(IllegalArgumentException.class, () -> dsl.formValue("x\" or $.a == 1"));
+        assertTrue(parsed.isEmpty());
+
+        // A quote of the other kind is only text
+        PreparedDsl single = new PreparedDsl("$.name == '$1'");
+        assertEquals("$.name == 'say \"hi\"'", single.formValue("say \"hi\""));
+        // An unquoted placeholder never takes text
+        assertThrows(IllegalArgumentException.class, () -> new PreparedDsl("$.name == $1").formValue("'x' or $.a == 1"));
+    }
+
+    @Test
+    @DisplayName("Each bound statement is parsed once")
+    void testBindCaches() {
+        PreparedDsl dsl = new PreparedDsl("$.age > $1 and $.name == '$2'");
+        List<String> parsed = new ArrayList<>();
+        Function<String, ParseResult> parser = recordingParser(parsed, null);
+
+        DslCache.Entry first = dsl.bind(new Object[] {21, "Tim"}, null, DslCache.NO_INDEX_CONTEXT, parser);
+        DslCache.Entry second = dsl.bind(new Object[] {65, "Tim"}, null, DslCache.NO_INDEX_CONTEXT, parser);
+        assertSame(first, dsl.bind(new Object[] {21, "Tim"}, null, DslCache.NO_INDEX_CONTEXT, parser));
+        assertNotSame(first, second);
+        assertEquals(List.of("$.age > 21 and $.name == 'Tim'", "$.age > 65 and $.name == 'Tim'"), parsed);
+        assertArrayEquals(Exp.build(Exp.eq(Exp.stringBin("text"), Exp.val("$.age > 21 and $.name == 'Tim'"))).getBytes(),
+                first.expression().getBytes());
+    }
+
+    @Test
+    @DisplayName("Statements yielding an index filter are cached until the index catalog changes")
+    void testBindCachesFilters() {
+        PreparedDsl dsl = new PreparedDsl("$.age > $1");
+        List<String> parsed = new ArrayList<>();
+        Function<String, ParseResult> parser = recordingParser(parsed, Filter.range("age", 22, Long.MAX_VALUE));
+
+        DslCache.Entry first = dsl.bind(new Object[] {21}, "test", 1, parser);
+        assertSame(first, dsl.bind(new Object[] {21}, "test", 1, parser));
+        assertNotNull(first.parseResult().getFilter());
+        assertEquals(1, parsed.size());
+
+        dsl.bind(new Object[] {21}, "other", 1, parser);
+        dsl.bind(new Object[] {21}, "test", 2, parser);
+        assertEquals(3, parsed.size());
+    }
+}
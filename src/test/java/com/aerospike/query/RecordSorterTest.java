@@ -0,0 +1,147 @@
+package com.aerospike.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.aerospike.CanonicalValueEncoding;
+import com.aerospike.RecordResult;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+/**
+ * Tests for RecordSorter: the order must match RecordComparator for every column type.
+ */
+class RecordSorterTest {
+    private static final String[] NAMES = {"alice", "Bob", "carol", "ALICE", "bob", "Dave", "\u00e9clair", "\u00c9clair"};
+
+    private static RecordResult[] records(int count, long seed) {
+        Random random = new Random(seed);
+        RecordResult[] records = new RecordResult[count];
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> bins = new HashMap<>();
+            // Missing values in every column
+            if (random.nextInt(10) > 0) {
+                bins.put("age", (long) random.nextInt(50));
+            }
+            if (random.nextInt(10) > 0) {
+                bins.put("score", random.nextInt(1000) / 10.0);
+            }
+            if (random.nextInt(10) > 0) {
+                bins.put("name", NAMES[random.nextInt(NAMES.length)]);
+            }
+            // A mix of types, which falls back to the AerospikeComparator
+            bins.put("mixed", switch (random.nextInt(3)) {
+                case 0 -> (long) random.nextInt(5);
+                case 1 -> "v" + random.nextInt(5);
+                default -> List.of(random.nextInt(3), random.nextInt(3));
+            });
+            bins.put("id", (long) i);
+            records[i] = new RecordResult(new Key("test", "set", i), new Record(bins, 1, 0), i);
+        }
+        return records;
+    }
+
+    private static void assertSameOrder(RecordResult[] records, List<SortProperties> sort) {
+        RecordResult[] sorted = new RecordSorter(records).sort(sort);
+        RecordComparator comparator = new RecordComparator(sort);
+        assertEquals(records.length, sorted.length);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(comparator.compare(sorted[i - 1], sorted[i]) <= 0,
+                    "Records " + (i - 1) + " and " + i + " are out of order for " + sort);
+        }
+    }
+
+    @Test
+    @DisplayName("Sorting by long, double, string and mixed columns matches RecordComparator")
+    void testMatchesComparator() {
+        RecordResult[] records = records(2000, 1);
+        assertSameOrder(records, List.of(SortProperties.ascending("age"), SortProperties.descending("score")));
+        assertSameOrder(records, List.of(SortProperties.descending("name"), SortProperties.ascending("id")));
+        assertSameOrder(records, List.of(SortProperties.ascendingIgnoreCase("name"), SortProperties.descending("age")));
+        assertSameOrder(records, List.of(SortProperties.ascending("mixed"), SortProperties.ascending("id")));
+        assertSameOrder(records, List.of(SortProperties.ascending("missing"), SortProperties.descending("id")));
+    }
+
+    @Test
+    @DisplayName("Large inputs are sorted in parallel to the same order")
+    void testParallel() {
+        RecordResult[] records = records(RecordSorter.PARALLEL_THRESHOLD * 2, 2);
+        assertSameOrder(records, List.of(SortProperties.descending("age"), SortProperties.ascendingIgnoreCase("name")));
+    }
+
+    @Test
+    @DisplayName("The sort is stable and does not modify its input")
+    void testStableAndReusable() {
+        RecordResult[] records = records(500, 3);
+        RecordResult[] original = records.clone();
+        RecordSorter sorter = new RecordSorter(records);
+        RecordResult[] first = sorter.sort(List.of(SortProperties.ascending("age")));
+        assertArrayEquals(original, records);
+        for (int i = 1; i < first.length; i++) {
+            Object a1 = first[i - 1].recordOrNull().bins.get("age");
+            Object a2 = first[i].recordOrNull().bins.get("age");
+            if (a1 != null && a1.equals(a2)) {
+                assertTrue(first[i - 1].index() < first[i].index(), "Equal records must keep their order");
+            }
+        }
+        // Sorting again by a different direction of the same bin reuses the column
+        sorter.sort(List.of(SortProperties.descending("age")));
+        assertArrayEquals(first, sorter.sort(List.of(SortProperties.ascending("age"))));
+    }
+
+    /** The records sorted by a stable sort with RecordComparator */
+    private static RecordResult[] stableSort(RecordResult[] records, List<SortProperties> sort) {
+        RecordResult[] sorted = records.clone();
+        Arrays.sort(sorted, new RecordComparator(sort));
+        return sorted;
+    }
+
+    @Test
+    @DisplayName("Single integer bins, packed or too wide to pack, sort exactly as a stable comparator sort")
+    void testSingleLongColumn() {
+        for (int count : new int[] {500, RecordSorter.PARALLEL_THRESHOLD * 2}) {
+            RecordResult[] records = records(count, 4);
+            for (SortProperties sort : List.of(SortProperties.ascending("age"), SortProperties.descending("age"),
+                    SortProperties.ascending("id"), SortProperties.descending("missing"))) {
+                assertArrayEquals(stableSort(records, List.of(sort)), new RecordSorter(records).sort(List.of(sort)), sort.toString());
+            }
+        }
+
+        // A range too wide to pack with the positions
+        RecordResult[] wide = records(500, 5);
+        wide[0].recordOrNull().bins.put("age", Long.MIN_VALUE);
+        wide[1].recordOrNull().bins.put("age", Long.MAX_VALUE);
+        for (SortProperties sort : List.of(SortProperties.ascending("age"), SortProperties.descending("age"))) {
+            assertArrayEquals(stableSort(wide, List.of(sort)), new RecordSorter(wide).sort(List.of(sort)), sort.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Multiple columns sort exactly as a stable comparator sort")
+    void testMultipleColumnsStable() {
+        for (int count : new int[] {500, RecordSorter.PARALLEL_THRESHOLD * 2}) {
+            RecordResult[] records = records(count, 6);
+            List<SortProperties> sort = List.of(SortProperties.descending("name"), SortProperties.ascending("score"));
+            assertArrayEquals(stableSort(records, sort), new RecordSorter(records).sort(sort));
+        }
+    }
+
+    @Test
+    @DisplayName("Case folding matches compareToIgnoreCase")
+    void testFold() {
+        for (String s1 : NAMES) {
+            for (String s2 : NAMES) {
+                assertEquals(Integer.signum(s1.compareToIgnoreCase(s2)),
+                        Integer.signum(CanonicalValueEncoding.foldCase(s1).compareTo(CanonicalValueEncoding.foldCase(s2))), s1 + " vs " + s2);
+            }
+        }
+    }
+}